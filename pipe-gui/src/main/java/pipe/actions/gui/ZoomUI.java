@@ -97,8 +97,8 @@ public class ZoomUI extends LayerUI<JComponent> implements ZoomManager {
     @Override
     protected void processMouseEvent(MouseEvent e, JLayer<? extends JComponent> l) {
         MouseEvent localEvent = translateToLayerCoordinates(e, l);
-        if (clickNotOutOfBounds(localEvent, l)) {
-            Component component = getComponentClickedOn(l, localEvent);
+        Component component = getComponentClickedOn(l, localEvent);
+        if (component != null) {
             if (localEvent.getID() == MouseEvent.MOUSE_PRESSED) {
                 for (ActionListener listener : component.getListeners(ActionListener.class)) {
                     ActionEvent actionEvent = new ActionEvent(component, localEvent.getID(), "CLICK");
@@ -128,8 +128,8 @@ public class ZoomUI extends LayerUI<JComponent> implements ZoomManager {
     @Override
     protected void processMouseMotionEvent(MouseEvent e, JLayer<? extends JComponent> l) {
         MouseEvent localEvent = translateToLayerCoordinates(e, l);
-        if (clickNotOutOfBounds(localEvent, l)) {
-            Component component = getComponentClickedOn(l, localEvent);
+        Component component = getComponentClickedOn(l, localEvent);
+        if (component != null) {
             if (localEvent.getID() == MouseEvent.MOUSE_MOVED) {
                 for (MouseMotionListener listener : component.getListeners(MouseMotionListener.class)) {
                     listener.mouseMoved(getNewMouseClickEvent(component, localEvent));
@@ -193,16 +193,6 @@ public class ZoomUI extends LayerUI<JComponent> implements ZoomManager {
         changeSupport.removePropertyChangeListener(listener);
     }
 
-    /**
-     *
-     * @param event mouse event
-     * @param l component 
-     * @return true if the event is within the component bounds
-     */
-    private boolean clickNotOutOfBounds(MouseEvent event, JLayer<? extends JComponent> l) {
-        return getComponentClickedOn(l, event) != null;
-    }
-
     /**
      * Perform a zoom out of the canvas
      */
@@ -218,7 +208,7 @@ public class ZoomUI extends LayerUI<JComponent> implements ZoomManager {
     /**
      * @param l layer clicked
      * @param e mouse event with coordinates releative to l
-     * @return component in l clicked on
+     * @return component in l clicked on, or null if the event is outside of its bounds
      */
     private Component getComponentClickedOn(JLayer<? extends JComponent> l, MouseEvent e) {
 
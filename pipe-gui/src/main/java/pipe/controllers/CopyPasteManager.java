@@ -194,13 +194,17 @@ public class CopyPasteManager extends javax.swing.JComponent
     }
 
     /**
-     * Changes the rectangles location to point
+     * Changes the rectangles location to point, repainting only the area
+     * the rectangle moved across rather than the whole canvas
      *
      * @param point new top left point for rectangle
      */
     private void updateRect(Point point) {
+        Rectangle dirty = new Rectangle(pasteRectangle);
         pasteRectangle.setLocation(point);
-        repaint();
+        dirty.add(pasteRectangle);
+        dirty.grow(1, 1);
+        repaint(dirty);
         updateBounds();
     }
 
@@ -11,8 +11,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
@@ -46,9 +45,9 @@ public class PetriNetChangeListener implements PropertyChangeListener {
     private final PetriNetController controller;
 
     /**
-     * Contains the property name and method it maps to
+     * Contains the property name and the handler it maps to
      */
-    private Map<String, Method> eventMethods = new HashMap<>();
+    private final Map<String, EventHandler> eventHandlers = new HashMap<>();
 
     /**
      * Constructor
@@ -60,52 +59,98 @@ public class PetriNetChangeListener implements PropertyChangeListener {
         this.applicationModel = applicationModel;
         this.petriNetTab = petriNetTab;
         this.controller = controller;
-        registerMethods();
+        registerHandlers();
     }
 
     /**
-     * Register the methods that respond to Petri net pub-sub events
+     * Register the handlers that respond to Petri net pub-sub events.
+     * Reflection is only used here to find the annotated handlers, events are
+     * then dispatched to them directly.
      */
-    private void registerMethods() {
-        for (Method method : this.getClass().getDeclaredMethods()) {
-            if (method.isAnnotationPresent(EventAction.class)) {
-                EventAction annotation = method.getAnnotation(EventAction.class);
-                eventMethods.put(annotation.value(), method);
+    private void registerHandlers() {
+        for (Field field : this.getClass().getDeclaredFields()) {
+            if (field.isAnnotationPresent(EventAction.class)) {
+                EventAction annotation = field.getAnnotation(EventAction.class);
+                try {
+                    eventHandlers.put(annotation.value(), (EventHandler) field.get(this));
+                } catch (IllegalAccessException e) {
+                    LOGGER.log(Level.SEVERE, e.toString());
+                }
             }
         }
     }
 
     /**
      * When a property of the Petri net has changed this triggers
-     * its corresponding registered method to be called
+     * its corresponding registered handler to be called
      *
-     * If no method exists for the message it will go unpassed
+     * If no handler exists for the message it will go unpassed
      * @param propertyChangeEvent property change event 
      */
     @Override
     public void propertyChange(PropertyChangeEvent propertyChangeEvent) {
-        String name = propertyChangeEvent.getPropertyName();
-        if (eventMethods.containsKey(name)) {
-            Method method = eventMethods.get(name);
+        EventHandler handler = eventHandlers.get(propertyChangeEvent.getPropertyName());
+        if (handler != null) {
             try {
-                method.invoke(this, propertyChangeEvent);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                e.printStackTrace();
-                LOGGER.log(Level.SEVERE, e.toString());
+                handler.handle(propertyChangeEvent);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, e.toString(), e);
             }
         }
     }
 
+    /**
+     * Creates the views for every component of an existing Petri net in a single pass,
+     * used when a Petri net is opened. The tab is updated as one batch so the canvas is
+     * only laid out once all the views have been added.
+     *
+     * @param petriNet Petri net whose components need views
+     * @return number of views created
+     */
+    public int createViews(PetriNet petriNet) {
+        int views = 0;
+        petriNetTab.startBatchUpdate();
+        try {
+            for (Place place : petriNet.getPlaces()) {
+                createPlaceView(place);
+                views++;
+            }
+            for (Transition transition : petriNet.getTransitions()) {
+                createTransitionView(transition);
+                views++;
+            }
+            for (Arc<? extends Connectable, ? extends Connectable> arc : petriNet.getArcs()) {
+                createArcView(arc);
+                views++;
+            }
+            for (Annotation annotation : petriNet.getAnnotations()) {
+                createAnnotationView(annotation);
+                views++;
+            }
+        } finally {
+            petriNetTab.finishBatchUpdate();
+        }
+        return views;
+    }
+
     /**
      *
      * When a new place is added to the Petri net it creates a new view and adds it to the
      * Petri net tab
-     *
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.NEW_PLACE_CHANGE_MESSAGE)
-    private void newPlace(PropertyChangeEvent propertyChangeEvent) {
-        Place place = (Place) propertyChangeEvent.getNewValue();
+    private final EventHandler newPlace = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            createPlaceView((Place) propertyChangeEvent.getNewValue());
+        }
+    };
+
+    /**
+     * Creates a view for the place and adds it to the Petri net tab
+     * @param place new place
+     */
+    private void createPlaceView(Place place) {
         PlaceViewBuilder builder = new PlaceViewBuilder(place, controller);
         PlaceView view = builder.build(petriNetTab, applicationModel);
         petriNetTab.addNewPetriNetComponent(view);
@@ -114,11 +159,20 @@ public class PetriNetChangeListener implements PropertyChangeListener {
     /**
      * When a new transition is added to the Petri net it creates a new view
      * and adds it to the Petri net tab
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.NEW_TRANSITION_CHANGE_MESSAGE)
-    private void newTransition(PropertyChangeEvent propertyChangeEvent) {
-        Transition transition = (Transition) propertyChangeEvent.getNewValue();
+    private final EventHandler newTransition = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            createTransitionView((Transition) propertyChangeEvent.getNewValue());
+        }
+    };
+
+    /**
+     * Creates a view for the transition and adds it to the Petri net tab
+     * @param transition new transition
+     */
+    private void createTransitionView(Transition transition) {
         TransitionViewBuilder builder = new TransitionViewBuilder(transition, controller);
         TransitionView view = builder.build(petriNetTab, applicationModel);
 
@@ -129,13 +183,20 @@ public class PetriNetChangeListener implements PropertyChangeListener {
     /**
      * When a new arc is added to the Petri net it creates a new view
      * and adds it to the Petri net tab
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.NEW_ARC_CHANGE_MESSAGE)
-    private void newArc(PropertyChangeEvent propertyChangeEvent) {
-        Arc<? extends Connectable, ? extends Connectable> arc =
-                (Arc<? extends Connectable, ? extends Connectable>) propertyChangeEvent.getNewValue();
+    private final EventHandler newArc = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            createArcView((Arc<? extends Connectable, ? extends Connectable>) propertyChangeEvent.getNewValue());
+        }
+    };
 
+    /**
+     * Creates a view for the arc and adds it to the Petri net tab
+     * @param arc new arc
+     */
+    private void createArcView(Arc<? extends Connectable, ? extends Connectable> arc) {
         if (arc.getType().equals(ArcType.INHIBITOR)) {
             Arc<Place, Transition> inhibitorArc = (Arc<Place, Transition>) arc;
             InhibitorArcViewBuilder builder = new InhibitorArcViewBuilder(inhibitorArc, controller);
@@ -150,21 +211,32 @@ public class PetriNetChangeListener implements PropertyChangeListener {
     }
     /**
      * When a new rate is added it does nothing
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.NEW_RATE_PARAMETER_CHANGE_MESSAGE)
-    private void newRate(PropertyChangeEvent propertyChangeEvent) {
-        //TODO: ?
+    private final EventHandler newRate = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            //TODO: ?
 
-    }
+        }
+    };
     /**
      * When a new annotation is added to the Petri net it creates a new view
      * and adds it to the Petri net tab
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.NEW_ANNOTATION_CHANGE_MESSAGE)
-    private void newAnnotation(PropertyChangeEvent propertyChangeEvent) {
-        Annotation annotation = (Annotation) propertyChangeEvent.getNewValue();
+    private final EventHandler newAnnotation = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            createAnnotationView((Annotation) propertyChangeEvent.getNewValue());
+        }
+    };
+
+    /**
+     * Creates a view for the annotation and adds it to the Petri net tab
+     * @param annotation new annotation
+     */
+    private void createAnnotationView(Annotation annotation) {
         AnnotationViewBuilder builder = new AnnotationViewBuilder(annotation, controller);
 
         AnnotationView view = builder.build(petriNetTab, applicationModel);
@@ -174,63 +246,83 @@ public class PetriNetChangeListener implements PropertyChangeListener {
 
     /**
      * When a place is deleted it removes the view from the tab
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.DELETE_PLACE_CHANGE_MESSAGE)
-    private void deletePlace(PropertyChangeEvent propertyChangeEvent) {
-        Place place = (Place) propertyChangeEvent.getOldValue();
-        petriNetTab.deletePetriNetComponent(place.getId());
+    private final EventHandler deletePlace = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            Place place = (Place) propertyChangeEvent.getOldValue();
+            petriNetTab.deletePetriNetComponent(place.getId());
 
-    }
+        }
+    };
 
     /**
      * When a transition is deleted it removes the view from the tab
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.DELETE_TRANSITION_CHANGE_MESSAGE)
-    private void deleteTransition(PropertyChangeEvent propertyChangeEvent) {
-        Transition transition = (Transition) propertyChangeEvent.getOldValue();
-        petriNetTab.deletePetriNetComponent(transition.getId());
+    private final EventHandler deleteTransition = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            Transition transition = (Transition) propertyChangeEvent.getOldValue();
+            petriNetTab.deletePetriNetComponent(transition.getId());
 
-    }
+        }
+    };
 
     /**
      * When an arc is deleted it removes the view from the tab
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.DELETE_ARC_CHANGE_MESSAGE)
-    private void deleteArc(PropertyChangeEvent propertyChangeEvent) {
-        Arc<? extends Connectable, ? extends Connectable> arc =
-                (Arc<? extends Connectable, ? extends Connectable>) propertyChangeEvent.getOldValue();
-        petriNetTab.deletePetriNetComponent(arc.getId());
-    }
+    private final EventHandler deleteArc = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            Arc<? extends Connectable, ? extends Connectable> arc =
+                    (Arc<? extends Connectable, ? extends Connectable>) propertyChangeEvent.getOldValue();
+            petriNetTab.deletePetriNetComponent(arc.getId());
+        }
+    };
 
     /**
      * When a rate parameter is deleted it does nothing because they now have
      * no graphical display
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.DELETE_RATE_PARAMETER_CHANGE_MESSAGE)
-    private void deleteRate(PropertyChangeEvent propertyChangeEvent) {
-        //TODO: ?
-    }
+    private final EventHandler deleteRate = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            //TODO: ?
+        }
+    };
 
     /**
      * When an annotation is deleted it removes the view from the tab
-     * @param propertyChangeEvent
      */
     @EventAction(PetriNet.DELETE_ANNOTATION_CHANGE_MESSAGE)
-    private void deleteAnnotation(PropertyChangeEvent propertyChangeEvent) {
-        Annotation annotation = (Annotation) propertyChangeEvent.getOldValue();
-        petriNetTab.deletePetriNetComponent(annotation.getId());
-    }
+    private final EventHandler deleteAnnotation = new EventHandler() {
+        @Override
+        public void handle(PropertyChangeEvent propertyChangeEvent) {
+            Annotation annotation = (Annotation) propertyChangeEvent.getOldValue();
+            petriNetTab.deletePetriNetComponent(annotation.getId());
+        }
+    };
+
 
+    /**
+     * Responds to a single kind of Petri net change event
+     */
+    private interface EventHandler {
+        /**
+         * @param propertyChangeEvent change event for the property the handler is registered for
+         */
+        void handle(PropertyChangeEvent propertyChangeEvent);
+    }
 
     /**
-     * This interface is for annotating methods with their change event
+     * This interface is for annotating event handlers with their change event
      */
     @Retention(RetentionPolicy.RUNTIME)
-    @Target({ElementType.METHOD})
+    @Target({ElementType.FIELD})
     private @interface EventAction {
         /**
          * @return the events property name to listen out for
@@ -0,0 +1,360 @@
+package pipe.controllers;
+
+import pipe.gui.SpatialIndex;
+import uk.ac.imperial.pipe.models.petrinet.*;
+
+import java.awt.Rectangle;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spatial index of the places, transitions, annotations and arc segments of a Petri net, so that
+ * rubber band selection only tests the components near the selection rectangle.
+ * <p>
+ * The index listens to the Petri net for components being added and deleted, and to each
+ * component for changes. A change only marks the component as out of date, its bounds are
+ * recalculated the next time the index is queried, so dragging a large selection does not
+ * reindex every component on every step. Moving a place or transition also marks its arcs
+ * out of date since their end points move with it.
+ * </p>
+ */
+class PetriNetComponentIndex {
+    /**
+     * Petri net being indexed
+     */
+    private final PetriNet petriNet;
+
+    /**
+     * Bounds of places, transitions and annotations
+     */
+    private final SpatialIndex<PlaceablePetriNetComponent> placeables = new SpatialIndex<>();
+
+    /**
+     * Bounds of each arc segment
+     */
+    private final SpatialIndex<Arc<? extends Connectable, ? extends Connectable>> arcs = new SpatialIndex<>();
+
+    /**
+     * Listener registered on each indexed component and arc point
+     */
+    private final Map<Object, PropertyChangeListener> listeners = new IdentityHashMap<>();
+
+    /**
+     * Arcs starting or ending at each connectable
+     */
+    private final Map<Connectable, Set<Arc<? extends Connectable, ? extends Connectable>>> connectedArcs =
+            new IdentityHashMap<>();
+
+    /**
+     * Arc points currently listened to for each arc
+     */
+    private final Map<Arc<? extends Connectable, ? extends Connectable>, List<ArcPoint>> arcPoints =
+            new IdentityHashMap<>();
+
+    /**
+     * Placeables whose bounds must be recalculated before the next query
+     */
+    private final Set<PlaceablePetriNetComponent> stalePlaceables = identitySet();
+
+    /**
+     * Arcs whose segments must be recalculated before the next query
+     */
+    private final Set<Arc<? extends Connectable, ? extends Connectable>> staleArcs = identitySet();
+
+    /**
+     * Indexes every component of the Petri net and listens for later changes
+     *
+     * @param petriNet Petri net to index
+     */
+    PetriNetComponentIndex(PetriNet petriNet) {
+        this.petriNet = petriNet;
+        rebuild();
+        petriNet.addPropertyChangeListener(new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                netChanged(evt);
+            }
+        });
+    }
+
+    /**
+     * @param selection selection rectangle
+     * @return places, transitions and annotations whose bounds may intersect the selection
+     */
+    Collection<PlaceablePetriNetComponent> placeablesNear(Rectangle selection) {
+        refresh();
+        return placeables.query(selection);
+    }
+
+    /**
+     * @param selection selection rectangle
+     * @return arcs with a segment whose bounds may intersect the selection
+     */
+    Collection<Arc<? extends Connectable, ? extends Connectable>> arcsNear(Rectangle selection) {
+        refresh();
+        return arcs.query(selection);
+    }
+
+    /**
+     * @param connectable place or transition
+     * @return arcs starting or ending at the connectable
+     */
+    Collection<Arc<? extends Connectable, ? extends Connectable>> arcsConnectedTo(Connectable connectable) {
+        refresh();
+        Set<Arc<? extends Connectable, ? extends Connectable>> connected = connectedArcs.get(connectable);
+        return connected == null ? Collections.<Arc<? extends Connectable, ? extends Connectable>>emptySet() :
+                connected;
+    }
+
+    /**
+     * Adds or removes components as the Petri net changes
+     *
+     * @param evt Petri net change
+     */
+    private void netChanged(PropertyChangeEvent evt) {
+        String name = evt.getPropertyName();
+        if (name.equals(PetriNet.NEW_PLACE_CHANGE_MESSAGE) || name.equals(PetriNet.NEW_TRANSITION_CHANGE_MESSAGE)
+                || name.equals(PetriNet.NEW_ANNOTATION_CHANGE_MESSAGE)) {
+            addPlaceable((PlaceablePetriNetComponent) evt.getNewValue());
+        } else if (name.equals(PetriNet.DELETE_PLACE_CHANGE_MESSAGE) || name.equals(
+                PetriNet.DELETE_TRANSITION_CHANGE_MESSAGE) || name.equals(PetriNet.DELETE_ANNOTATION_CHANGE_MESSAGE)) {
+            removePlaceable((PlaceablePetriNetComponent) evt.getOldValue());
+        } else if (name.equals(PetriNet.NEW_ARC_CHANGE_MESSAGE)) {
+            addArc((Arc<? extends Connectable, ? extends Connectable>) evt.getNewValue());
+        } else if (name.equals(PetriNet.DELETE_ARC_CHANGE_MESSAGE)) {
+            removeArc((Arc<? extends Connectable, ? extends Connectable>) evt.getOldValue());
+        }
+    }
+
+    /**
+     * Recalculates the bounds of every out of date component. If the index has missed a
+     * component being added or deleted it is rebuilt from the Petri net.
+     */
+    private void refresh() {
+        int expectedPlaceables = petriNet.getPlaces().size() + petriNet.getTransitions().size()
+                + petriNet.getAnnotations().size();
+        if (placeables.size() != expectedPlaceables || arcs.size() != petriNet.getArcs().size()) {
+            rebuild();
+            return;
+        }
+        for (PlaceablePetriNetComponent placeable : stalePlaceables) {
+            placeables.put(placeable, boundsOf(placeable));
+        }
+        stalePlaceables.clear();
+        for (Arc<? extends Connectable, ? extends Connectable> arc : staleArcs) {
+            indexArc(arc);
+        }
+        staleArcs.clear();
+    }
+
+    /**
+     * Discards the index and indexes every component of the Petri net again
+     */
+    private void rebuild() {
+        for (Iterator<Map.Entry<Object, PropertyChangeListener>> iterator = listeners.entrySet().iterator();
+             iterator.hasNext(); ) {
+            Map.Entry<Object, PropertyChangeListener> entry = iterator.next();
+            ((PetriNetComponent) entry.getKey()).removePropertyChangeListener(entry.getValue());
+            iterator.remove();
+        }
+        placeables.clear();
+        arcs.clear();
+        connectedArcs.clear();
+        arcPoints.clear();
+        stalePlaceables.clear();
+        staleArcs.clear();
+        for (Place place : petriNet.getPlaces()) {
+            addPlaceable(place);
+        }
+        for (Transition transition : petriNet.getTransitions()) {
+            addPlaceable(transition);
+        }
+        for (Annotation annotation : petriNet.getAnnotations()) {
+            addPlaceable(annotation);
+        }
+        for (Arc<? extends Connectable, ? extends Connectable> arc : petriNet.getArcs()) {
+            addArc(arc);
+        }
+        refresh();
+    }
+
+    /**
+     * @param placeable place, transition or annotation added to the Petri net
+     */
+    private void addPlaceable(final PlaceablePetriNetComponent placeable) {
+        placeables.put(placeable, boundsOf(placeable));
+        listen(placeable, new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                stalePlaceables.add(placeable);
+                Set<Arc<? extends Connectable, ? extends Connectable>> connected = connectedArcs.get(placeable);
+                if (connected != null) {
+                    staleArcs.addAll(connected);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param placeable place, transition or annotation deleted from the Petri net
+     */
+    private void removePlaceable(PlaceablePetriNetComponent placeable) {
+        placeables.remove(placeable);
+        stalePlaceables.remove(placeable);
+        unlisten(placeable);
+    }
+
+    /**
+     * @param arc arc added to the Petri net
+     */
+    private void addArc(final Arc<? extends Connectable, ? extends Connectable> arc) {
+        connect(arc.getSource(), arc);
+        connect(arc.getTarget(), arc);
+        listen(arc, new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                staleArcs.add(arc);
+            }
+        });
+        indexArc(arc);
+    }
+
+    /**
+     * @param arc arc deleted from the Petri net
+     */
+    private void removeArc(Arc<? extends Connectable, ? extends Connectable> arc) {
+        arcs.remove(arc);
+        staleArcs.remove(arc);
+        disconnect(arc.getSource(), arc);
+        disconnect(arc.getTarget(), arc);
+        unlisten(arc);
+        List<ArcPoint> points = arcPoints.remove(arc);
+        if (points != null) {
+            for (ArcPoint point : points) {
+                unlisten(point);
+            }
+        }
+    }
+
+    /**
+     * Indexes the bounds of each segment of the arc and listens to its current arc points
+     *
+     * @param arc arc to index
+     */
+    private void indexArc(final Arc<? extends Connectable, ? extends Connectable> arc) {
+        List<ArcPoint> previous = arcPoints.get(arc);
+        if (previous != null) {
+            for (ArcPoint point : previous) {
+                unlisten(point);
+            }
+        }
+        List<ArcPoint> points = new ArrayList<>(arc.getArcPoints());
+        PropertyChangeListener pointListener = new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                staleArcs.add(arc);
+            }
+        };
+        List<Rectangle> segments = new ArrayList<>();
+        ArcPoint last = null;
+        for (ArcPoint point : points) {
+            listen(point, pointListener);
+            if (last != null) {
+                segments.add(segmentBounds(last, point));
+            }
+            last = point;
+        }
+        arcPoints.put(arc, points);
+        arcs.put(arc, segments);
+    }
+
+    /**
+     * @param from start of the segment
+     * @param to   end of the segment
+     * @return integer bounds enclosing the segment
+     */
+    private static Rectangle segmentBounds(ArcPoint from, ArcPoint to) {
+        int left = (int) Math.floor(Math.min(from.getX(), to.getX()));
+        int top = (int) Math.floor(Math.min(from.getY(), to.getY()));
+        int right = (int) Math.ceil(Math.max(from.getX(), to.getX()));
+        int bottom = (int) Math.ceil(Math.max(from.getY(), to.getY()));
+        return new Rectangle(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * The selection test swaps the width and height of a placeable, so the bounds cover
+     * both orientations to never miss a candidate
+     *
+     * @param placeable place, transition or annotation
+     * @return bounds enclosing the placeable
+     */
+    private static Rectangle boundsOf(PlaceablePetriNetComponent placeable) {
+        int size = Math.max(placeable.getWidth(), placeable.getHeight());
+        return new Rectangle(placeable.getX(), placeable.getY(), size, size);
+    }
+
+    /**
+     * @param connectable end of the arc, may be null while the arc is being created
+     * @param arc         arc connected to it
+     */
+    private void connect(Connectable connectable, Arc<? extends Connectable, ? extends Connectable> arc) {
+        if (connectable == null) {
+            return;
+        }
+        Set<Arc<? extends Connectable, ? extends Connectable>> connected = connectedArcs.get(connectable);
+        if (connected == null) {
+            connected = identitySet();
+            connectedArcs.put(connectable, connected);
+        }
+        connected.add(arc);
+    }
+
+    /**
+     * @param connectable end of the arc, may be null
+     * @param arc         arc no longer connected to it
+     */
+    private void disconnect(Connectable connectable, Arc<? extends Connectable, ? extends Connectable> arc) {
+        Set<Arc<? extends Connectable, ? extends Connectable>> connected = connectedArcs.get(connectable);
+        if (connected != null) {
+            connected.remove(arc);
+            if (connected.isEmpty()) {
+                connectedArcs.remove(connectable);
+            }
+        }
+    }
+
+    /**
+     * @param component component to listen to
+     * @param listener  listener marking the component out of date
+     */
+    private void listen(PetriNetComponent component, PropertyChangeListener listener) {
+        unlisten(component);
+        component.addPropertyChangeListener(listener);
+        listeners.put(component, listener);
+    }
+
+    /**
+     * @param component component to stop listening to
+     */
+    private void unlisten(PetriNetComponent component) {
+        PropertyChangeListener listener = listeners.remove(component);
+        if (listener != null) {
+            component.removePropertyChangeListener(listener);
+        }
+    }
+
+    /**
+     * @return empty set comparing its elements by identity
+     */
+    private static <T> Set<T> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+    }
+}
@@ -110,6 +110,11 @@ public class PetriNetController implements Serializable {
      */
     private SelectionManager selectionManager;
 
+    /**
+     * Spatial index of the Petri net components used for rubber band selection
+     */
+    private final PetriNetComponentIndex componentIndex;
+
     /**
      * Constructor
      * @param model underlying Petri net
@@ -123,6 +128,7 @@ public class PetriNetController implements Serializable {
                               CopyPasteManager copyPasteManager, ZoomController zoomController,
                               PetriNetTab petriNetTab) {
         petriNet = model;
+        componentIndex = new PetriNetComponentIndex(model);
         this.undoListener = undoListener;
         this.petriNetTab = petriNetTab;
         selectionManager = new SelectionManager(this);
@@ -203,24 +209,31 @@ public class PetriNetController implements Serializable {
      * @param selectionRectangle bounds for selection
      */
     public void select(Rectangle selectionRectangle) {
-        for (Place place : petriNet.getPlaces()) {
-            selectPlaceable(place, selectionRectangle);
-        }
-        for (Transition transition : petriNet.getTransitions()) {
-            selectPlaceable(transition, selectionRectangle);
+        for (PlaceablePetriNetComponent placeable : componentIndex.placeablesNear(selectionRectangle)) {
+            if (!(placeable instanceof Annotation)) {
+                selectPlaceable(placeable, selectionRectangle);
+            }
         }
-        for (Arc<? extends Connectable, ? extends Connectable> arc : petriNet.getArcs()) {
+        for (Arc<? extends Connectable, ? extends Connectable> arc : componentIndex.arcsNear(selectionRectangle)) {
             if (isArcSelected(arc, selectionRectangle)) {
                 select(arc);
                 for (ArcPoint arcPoint : arc.getArcPoints()) {
                     select(arcPoint);
                 }
-            } else if (selectedComponents.contains(arc.getSource()) || selectedComponents.contains(arc.getTarget())) {
-                select(arc);
             }
         }
-        for (Annotation annotation : petriNet.getAnnotations()) {
-            selectPlaceable(annotation, selectionRectangle);
+        for (PetriNetComponent component : new ArrayList<>(selectedComponents)) {
+            if (component instanceof Connectable) {
+                for (Arc<? extends Connectable, ? extends Connectable> arc : componentIndex.arcsConnectedTo(
+                        (Connectable) component)) {
+                    select(arc);
+                }
+            }
+        }
+        for (PlaceablePetriNetComponent placeable : componentIndex.placeablesNear(selectionRectangle)) {
+            if (placeable instanceof Annotation) {
+                selectPlaceable(placeable, selectionRectangle);
+            }
         }
     }
 
@@ -14,13 +14,15 @@ import javax.swing.event.UndoableEditListener;
 import javax.xml.bind.JAXBException;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
-import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Pipes main application controller.
@@ -28,6 +30,11 @@ import java.util.*;
  */
 public class PipeApplicationController {
 
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(PipeApplicationController.class.getName());
+
     /**
      * Controllers for each tab
      */
@@ -96,7 +103,7 @@ public class PipeApplicationController {
         netControllers.put(tab, petriNetController);
         tab.updatePreferredSize();
 
-        PropertyChangeListener changeListener =
+        PetriNetChangeListener changeListener =
                 new PetriNetChangeListener(applicationModel, tab, petriNetController);
         net.addPropertyChangeListener(changeListener);
 
@@ -113,49 +120,18 @@ public class PipeApplicationController {
     }
 
     /**
-     * This is a little hacky, I'm not sure how to make this better when it's so late
-     * If a better implementation is clear please re-write
-     * <p/>
-     * This method invokes the change listener which will create the view objects on the
-     * petri net tab
+     * Creates the views for every component already in the Petri net, adding them to
+     * the tab in a single batch, and logs how long this took
      *
-     * @param propertyChangeListener
-     */
-    private void initialiseNet(PetriNet net, PropertyChangeListener propertyChangeListener) {
-        for (Token token : net.getTokens()) {
-            PropertyChangeEvent changeEvent =
-                    new PropertyChangeEvent(net, PetriNet.NEW_TOKEN_CHANGE_MESSAGE, null, token);
-            propertyChangeListener.propertyChange(changeEvent);
-        }
-
-        for (Place place : net.getPlaces()) {
-            PropertyChangeEvent changeEvent =
-                    new PropertyChangeEvent(net, PetriNet.NEW_PLACE_CHANGE_MESSAGE, null, place);
-            propertyChangeListener.propertyChange(changeEvent);
-        }
-
-        for (Transition transition : net.getTransitions()) {
-            PropertyChangeEvent changeEvent =
-                    new PropertyChangeEvent(net, PetriNet.NEW_TRANSITION_CHANGE_MESSAGE, null, transition);
-            propertyChangeListener.propertyChange(changeEvent);
-        }
-
-        for (Arc<? extends Connectable, ? extends Connectable> arc : net.getArcs()) {
-            PropertyChangeEvent changeEvent = new PropertyChangeEvent(net, PetriNet.NEW_ARC_CHANGE_MESSAGE, null, arc);
-            propertyChangeListener.propertyChange(changeEvent);
-        }
-
-        for (Annotation annotation : net.getAnnotations()) {
-            PropertyChangeEvent changeEvent =
-                    new PropertyChangeEvent(net, PetriNet.NEW_ANNOTATION_CHANGE_MESSAGE, null, annotation);
-            propertyChangeListener.propertyChange(changeEvent);
-        }
-
-        for (RateParameter rateParameter : net.getRateParameters()) {
-            PropertyChangeEvent changeEvent =
-                    new PropertyChangeEvent(net, PetriNet.NEW_RATE_PARAMETER_CHANGE_MESSAGE, null, rateParameter);
-            propertyChangeListener.propertyChange(changeEvent);
-        }
+     * @param net Petri net being displayed
+     * @param changeListener listener that creates the views on the Petri net tab
+     */
+    private void initialiseNet(PetriNet net, PetriNetChangeListener changeListener) {
+        long start = System.nanoTime();
+        int views = changeListener.createViews(net);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOGGER.log(Level.INFO, "Created {0} views for {1} in {2} ms",
+                new Object[]{views, net.getNameValue(), millis});
     }
 
     /**
@@ -9,10 +9,21 @@ import java.awt.Color;
 import java.awt.Container;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.geom.GeneralPath;
+import java.awt.Rectangle;
+import java.awt.TexturePaint;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 
 /**
- * This class represents a grid that will draw itself on an object
+ * This class represents a grid that will draw itself on an object.
+ * <p>
+ * The grid is painted with a cached tile holding a whole number of grid cells, and only the part
+ * of the canvas inside the graphics clip is filled, so repainting a small area of a large canvas
+ * costs no more than the area repainted. The tile is drawn at the scale of the device being
+ * painted to and filled without the graphics transform, so lines stay one pixel wide and do not
+ * drop out when zoomed. It is only redrawn when the grid spacing or the scale changes.
+ * </p>
  */
 public class Grid {
 
@@ -21,15 +32,37 @@ public class Grid {
      */
     private static final Color GRID_COLOR = new Color(240, 240, 255);
 
+    /**
+     * Smallest width and height of the cached tile in pixels, larger tiles mean fewer
+     * texture repetitions per repaint
+     */
+    private static final int MIN_TILE_SIZE = 128;
+
+    /**
+     * Largest width and height of the cached tile in pixels when no whole number of cells
+     * fits the device pixels exactly
+     */
+    private static final int MAX_TILE_SIZE = 1024;
+
+    /**
+     * Lines are drawn from this offset from the top and left of the canvas
+     */
+    private static final int GRID_OFFSET = 2;
+
     /**
      * Spacing between grid items
      */
     private float gridSpacing = GUIConstants.PLACE_TRANSITION_HEIGHT / 2;
 
     /**
-     * Graphical grid display
+     * Cached tile in device pixels, null if the spacing has changed since it was created
      */
-    private GeneralPath gridDisplay;
+    private BufferedImage tile;
+
+    /**
+     * Grid spacing in device pixels that the cached tile was drawn with
+     */
+    private double tileSpacing;
 
     /**
      * True if the grid should be displayed
@@ -83,11 +116,15 @@ public class Grid {
     }
 
     /**
-     * Set the spacing between the grid items
+     * Set the spacing between the grid items, the cached tile is discarded if it changes
      * @param spacing
      */
     private void setGridSpacing(double spacing) {
-        gridSpacing = (float) (spacing * GUIConstants.PLACE_TRANSITION_HEIGHT);
+        float newSpacing = (float) (spacing * GUIConstants.PLACE_TRANSITION_HEIGHT);
+        if (newSpacing != gridSpacing) {
+            gridSpacing = newSpacing;
+            tile = null;
+        }
     }
 
     /**
@@ -99,43 +136,132 @@ public class Grid {
     }
 
     /**
-     * Set the size to that of the parent boundaries
+     * Set the size to that of the parent boundaries. This only records the size, the
+     * grid is not rebuilt.
      * @param parent container 
      */
     public void updateSize(Container parent) {
         if (enabled) {
             gridHeight = parent.getHeight();
             gridWidth = parent.getWidth();
-            createGrid();
         }
     }
 
     /**
-     * Create the path of the grid
+     * Draw the grid lines that fall inside the clip of the graphics. When the graphics is
+     * translated and evenly scaled the tile is drawn for that scale and filled in device
+     * space, otherwise the unscaled tile is filled through the transform
+     * @param g graphics 
      */
-    private void createGrid() {
-        gridDisplay = new GeneralPath();
-
-        for (float i = gridSpacing; i <= gridWidth; i += gridSpacing) {
-            gridDisplay.moveTo(i, 2);
-            gridDisplay.lineTo(i, gridHeight);
+    public void drawGrid(Graphics g) {
+        Rectangle area = new Rectangle(GRID_OFFSET, GRID_OFFSET, gridWidth - GRID_OFFSET + 1,
+                gridHeight - GRID_OFFSET + 1);
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            area = area.intersection(clip);
         }
-        for (float i = gridSpacing; i <= gridHeight; i += gridSpacing) {
-            gridDisplay.moveTo(2, i);
-            gridDisplay.lineTo(gridWidth, i);
+        if (area.isEmpty()) {
+            return;
+        }
+        Graphics2D g2d = (Graphics2D) g.create();
+        try {
+            AffineTransform transform = g2d.getTransform();
+            double scale = transform.getScaleX();
+            int otherTypes = ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE);
+            if ((transform.getType() & otherTypes) != 0 || scale <= 0) {
+                g2d.setPaint(tilePaint(getTile(1), 0, 0));
+                g2d.fill(area);
+                return;
+            }
+            Rectangle deviceArea = transform.createTransformedShape(area).getBounds();
+            BufferedImage deviceTile = getTile(scale);
+            g2d.setTransform(new AffineTransform());
+            g2d.setPaint(tilePaint(deviceTile, Math.round(transform.getTranslateX()),
+                    Math.round(transform.getTranslateY())));
+            g2d.fill(deviceArea);
+        } finally {
+            g2d.dispose();
         }
     }
 
     /**
-     * Draw the grid on the parent using the graphics
-     * @param g graphics 
+     * @return spacing between grid items
      */
-    public void drawGrid(Graphics g) {
-        Graphics2D g2d = (Graphics2D) g;
+    float getGridSpacing() {
+        return gridSpacing;
+    }
 
-        g2d.setPaint(GRID_COLOR);
-        g2d.draw(gridDisplay);
+    /**
+     * @param scale device pixels per canvas pixel
+     * @return tile for the scale, redrawing the cached tile if the spacing or scale has changed
+     */
+    BufferedImage getTile(double scale) {
+        double spacing = gridSpacing * scale;
+        if (tile == null || tileSpacing != spacing) {
+            tile = createTile(spacing);
+            tileSpacing = spacing;
+        }
+        return tile;
     }
 
+    /**
+     * @param image tile
+     * @param x     horizontal position of the canvas origin
+     * @param y     vertical position of the canvas origin
+     * @return paint repeating the tile from the canvas origin
+     */
+    private static TexturePaint tilePaint(BufferedImage image, double x, double y) {
+        return new TexturePaint(image, new Rectangle2D.Double(x, y, image.getWidth(), image.getHeight()));
+    }
 
+    /**
+     * Chooses how many cells the tile holds. The tile should be at least
+     * {@link #MIN_TILE_SIZE} pixels wide and hold a whole number of pixels so that repeated
+     * tiles keep the spacing. If no number of cells up to {@link #MAX_TILE_SIZE} pixels is
+     * whole the closest is used.
+     * @param spacing grid spacing in pixels
+     * @return number of cells along each side of the tile
+     */
+    private static int cellsPerTile(double spacing) {
+        int best = 0;
+        double bestError = Double.MAX_VALUE;
+        for (int cells = 1; best == 0 || cells * spacing <= MAX_TILE_SIZE; cells++) {
+            if (cells * spacing < MIN_TILE_SIZE) {
+                continue;
+            }
+            double error = Math.abs(cells * spacing - Math.round(cells * spacing));
+            if (error <= 0.01) {
+                return cells;
+            }
+            if (error < bestError) {
+                best = cells;
+                bestError = error;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Draws a tile with a vertical line along its left edge and a horizontal line along its
+     * top edge for every cell
+     * @param spacing grid spacing in pixels
+     * @return tile
+     */
+    private static BufferedImage createTile(double spacing) {
+        int cells = cellsPerTile(spacing);
+        int size = (int) Math.round(cells * spacing);
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D tileGraphics = image.createGraphics();
+        try {
+            tileGraphics.setColor(GRID_COLOR);
+            for (int cell = 0; cell < cells; cell++) {
+                int offset = (int) (cell * spacing);
+                tileGraphics.drawLine(offset, 0, offset, size - 1);
+                tileGraphics.drawLine(0, offset, size - 1, offset);
+            }
+        } finally {
+            tileGraphics.dispose();
+        }
+        return image;
+    }
 }
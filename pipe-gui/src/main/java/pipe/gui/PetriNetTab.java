@@ -5,13 +5,13 @@ import pipe.controllers.SelectionManager;
 import pipe.controllers.ZoomController;
 import pipe.views.AbstractPetriNetViewComponent;
 import pipe.views.PetriNetViewComponent;
-import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
-import uk.ac.imperial.pipe.models.petrinet.*;
-import uk.ac.imperial.pipe.visitor.component.PetriNetComponentVisitor;
 
 import javax.swing.*;
 import javax.swing.event.MouseInputAdapter;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
 import java.awt.print.PrinterException;
@@ -19,11 +19,12 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Observable;
 import java.util.Observer;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.TreeMap;
 
 /**
  * The main canvas that the {@link pipe.views.PetriNetViewComponent}s appear on
@@ -31,11 +32,6 @@ import java.util.logging.Logger;
  */
 public class PetriNetTab extends JLayeredPane implements Observer, Printable {
 
-    /**
-     * Class logger
-     */
-    private static final Logger LOGGER = Logger.getLogger(PetriNetTab.class.getName());
-
     /**
      * Map of components in the tab with id -&gt; component
      */
@@ -46,6 +42,59 @@ public class PetriNetTab extends JLayeredPane implements Observer, Printable {
      */
     private final Grid grid = new Grid();
 
+    /**
+     * Spatial index of the bounds of every component on the canvas, used to find the
+     * component under the mouse without testing every component
+     */
+    private final SpatialIndex<Component> componentIndex = new SpatialIndex<>();
+
+    /**
+     * Margin left between the furthest component and the edge of the canvas
+     */
+    private static final int CANVAS_MARGIN = 20;
+
+    /**
+     * Bounds of every component counted towards the canvas size, used to find the
+     * component's previous edges when it moves
+     */
+    private final Map<Component, Rectangle> extents = new IdentityHashMap<>();
+
+    /**
+     * Number of components with their right edge at each x coordinate
+     */
+    private final NavigableMap<Integer, Integer> rightEdges = new TreeMap<>();
+
+    /**
+     * Number of components with their bottom edge at each y coordinate
+     */
+    private final NavigableMap<Integer, Integer> bottomEdges = new TreeMap<>();
+
+    /**
+     * Number of batch updates in progress, whilst non zero the parent is not validated
+     */
+    private int batchDepth = 0;
+
+    /**
+     * True if the preferred size changed during a batch update and the parent
+     * needs validating when it finishes
+     */
+    private boolean validatePending = false;
+
+    /**
+     * Keeps the component index and canvas extents up to date as components move and change size
+     */
+    private final ComponentListener boundsListener = new ComponentAdapter() {
+        @Override
+        public void componentMoved(ComponentEvent e) {
+            reindex(e.getComponent());
+        }
+
+        @Override
+        public void componentResized(ComponentEvent e) {
+            reindex(e.getComponent());
+        }
+    };
+
     /**
      * Legacy file for the saving of the underlying Petri net
      */
@@ -110,36 +159,146 @@ public class PetriNetTab extends JLayeredPane implements Observer, Printable {
      * @param component to add
      */
     public void add(AbstractPetriNetViewComponent<?> component) {
-        registerLocationChangeListener(component.getModel());
-
         setLayer(component, DEFAULT_LAYER);
         super.add(component);
         petriNetComponents.put(component.getId(), component);
-        updatePreferredSize();
         //        repaint();
     }
 
     /**
-     * Update the preferred size of the canvas and grid that is displayed on it
+     * Indexes every component added to the canvas and updates the canvas size
+     *
+     * @param comp        component added
+     * @param constraints layer of the component
+     * @param index       position in the layer
      */
-    public void updatePreferredSize() {
-        Component[] components = getComponents();
-        Dimension d = new Dimension(0, 0);
-        for (Component component : components) {
-            if (component.getClass() == SelectionManager.class) {
-                continue;
-            }
-            Rectangle r = component.getBounds();
-            int x = r.x + r.width + 20;
-            int y = r.y + r.height + 20;
-            if (x > d.width) {
-                d.width = x;
-            }
-            if (y > d.height) {
-                d.height = y;
+    @Override
+    protected void addImpl(Component comp, Object constraints, int index) {
+        super.addImpl(comp, constraints, index);
+        comp.addComponentListener(boundsListener);
+        componentIndex.put(comp, comp.getBounds());
+        trackExtent(comp);
+        updatePreferredSize();
+    }
+
+    /**
+     * Removes the component from the canvas and its index and updates the canvas size
+     *
+     * @param index position of the component
+     */
+    @Override
+    public void remove(int index) {
+        Component comp = getComponent(index);
+        super.remove(index);
+        comp.removeComponentListener(boundsListener);
+        componentIndex.remove(comp);
+        untrackExtent(comp);
+        updatePreferredSize();
+    }
+
+    /**
+     * Removes every component from the canvas and its index and updates the canvas size
+     */
+    @Override
+    public void removeAll() {
+        for (Component comp : getComponents()) {
+            comp.removeComponentListener(boundsListener);
+        }
+        super.removeAll();
+        componentIndex.clear();
+        extents.clear();
+        rightEdges.clear();
+        bottomEdges.clear();
+        updatePreferredSize();
+    }
+
+    /**
+     * Finds the top most component containing the point using the component index rather
+     * than testing every component on the canvas.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return top most component containing the point, this if there is none or null if the
+     * point is outside of the canvas
+     */
+    @Override
+    public Component getComponentAt(int x, int y) {
+        if (!contains(x, y)) {
+            return null;
+        }
+        Component found = null;
+        int foundOrder = Integer.MAX_VALUE;
+        for (Component comp : componentIndex.query(x, y)) {
+            if (comp.isVisible() && comp.contains(x - comp.getX(), y - comp.getY())) {
+                int order = getComponentZOrder(comp);
+                if (order >= 0 && order < foundOrder) {
+                    found = comp;
+                    foundOrder = order;
+                }
             }
         }
+        return found == null ? this : found;
+    }
+
+    /**
+     * Reindexes the component at its current bounds
+     *
+     * @param comp component that has moved or changed size
+     */
+    private void reindex(Component comp) {
+        if (comp.getParent() == this) {
+            componentIndex.put(comp, comp.getBounds());
+            untrackExtent(comp);
+            trackExtent(comp);
+            updatePreferredSize();
+        }
+    }
+
+    /**
+     * Starts a batch of changes to the canvas. Until the matching {@link #finishBatchUpdate()}
+     * the preferred size is still tracked but the parent is not validated.
+     * Batches may be nested.
+     */
+    public void startBatchUpdate() {
+        batchDepth++;
+    }
+
+    /**
+     * Finishes a batch of changes to the canvas, validating the parent once if the
+     * preferred size changed during the batch
+     */
+    public void finishBatchUpdate() {
+        if (batchDepth > 0) {
+            batchDepth--;
+        }
+        if (batchDepth == 0 && validatePending) {
+            validatePending = false;
+            validateParent();
+        }
+    }
+
+    /**
+     * Update the preferred size of the canvas and grid that is displayed on it.
+     * The size is calculated from extents tracked as components are added, moved and
+     * removed so this does not need to look at every component.
+     */
+    public void updatePreferredSize() {
+        Dimension d = new Dimension(furthestEdge(rightEdges), furthestEdge(bottomEdges));
+        if (isPreferredSizeSet() && d.equals(getPreferredSize())) {
+            return;
+        }
         setPreferredSize(d);
+        if (batchDepth > 0) {
+            validatePending = true;
+        } else {
+            validateParent();
+        }
+    }
+
+    /**
+     * Validates the parent, normally the scroll pane viewport, so it picks up the new preferred size
+     */
+    private void validateParent() {
         Container parent = getParent();
         if (parent != null) {
             parent.validate();
@@ -147,18 +306,64 @@ public class PetriNetTab extends JLayeredPane implements Observer, Printable {
     }
 
     /**
+     * @param edges number of components with an edge at each coordinate
+     * @return size needed to show the furthest edge with a margin
+     */
+    private static int furthestEdge(NavigableMap<Integer, Integer> edges) {
+        return edges.isEmpty() ? 0 : Math.max(0, edges.lastKey() + CANVAS_MARGIN);
+    }
+
+    /**
+     * Counts the component's current bounds towards the canvas size. The selection
+     * rectangle is not counted since it covers the whole canvas.
      *
-     * Registers a location listener on the Petri net component
+     * @param comp component on the canvas
+     */
+    private void trackExtent(Component comp) {
+        if (comp.getClass() == SelectionManager.class) {
+            return;
+        }
+        Rectangle bounds = comp.getBounds();
+        extents.put(comp, bounds);
+        addEdge(rightEdges, bounds.x + bounds.width);
+        addEdge(bottomEdges, bounds.y + bounds.height);
+    }
+
+    /**
+     * Stops counting the component's previous bounds towards the canvas size
      *
-     * @param component for which a listener will be registered
+     * @param comp component on the canvas
+     */
+    private void untrackExtent(Component comp) {
+        Rectangle bounds = extents.remove(comp);
+        if (bounds != null) {
+            removeEdge(rightEdges, bounds.x + bounds.width);
+            removeEdge(bottomEdges, bounds.y + bounds.height);
+        }
+    }
+
+    /**
+     * @param edges number of components with an edge at each coordinate
+     * @param edge  coordinate of a component's edge
      */
-    private void registerLocationChangeListener(PetriNetComponent component) {
+    private static void addEdge(NavigableMap<Integer, Integer> edges, int edge) {
+        Integer count = edges.get(edge);
+        edges.put(edge, count == null ? 1 : count + 1);
+    }
 
-        PetriNetComponentVisitor changeListener = new ChangeListener();
-        try {
-            component.accept(changeListener);
-        } catch (PetriNetComponentException e) {
-            LOGGER.log(Level.SEVERE, e.getMessage());
+    /**
+     * @param edges number of components with an edge at each coordinate
+     * @param edge  coordinate of a component's edge
+     */
+    private static void removeEdge(NavigableMap<Integer, Integer> edges, int edge) {
+        Integer count = edges.get(edge);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            edges.remove(edge);
+        } else {
+            edges.put(edge, count - 1);
         }
     }
 
@@ -276,54 +481,6 @@ public class PetriNetTab extends JLayeredPane implements Observer, Printable {
         addMouseMotionListener(handler);
         addMouseWheelListener(handler);
     }
-
-    /**
-     * Used to set the bounds of the canvas so that it will expand if components go out of bound
-     */
-    private class ChangeListener implements PlaceVisitor, TransitionVisitor {
-        /**
-         * Listens to (x,y) changes in components and updates the canvas width
-         * if a place/transition goes out of the current bounds
-         */
-        private PropertyChangeListener updateListener = new PropertyChangeListener() {
-            @Override
-            public void propertyChange(PropertyChangeEvent evt) {
-                String name = evt.getPropertyName();
-                if (name.equals(Connectable.X_CHANGE_MESSAGE)) {
-                    int x = (int) evt.getNewValue();
-                    if (x > getWidth()) {
-                        updatePreferredSize();
-                    }
-
-                }
-                if (name.equals(Connectable.Y_CHANGE_MESSAGE)) {
-                    int y = (int) evt.getNewValue();
-                    if (y > getHeight()) {
-                        updatePreferredSize();
-                    }
-
-                }
-            }
-        };
-
-        /**
-         * Add the update listener to the place
-         * @param place for which to add listener
-         */
-        @Override
-        public void visit(Place place) {
-            place.addPropertyChangeListener(updateListener);
-        }
-
-        /**
-         * Add the update listener to the transition
-         * @param transition for which to add listener
-         */
-        @Override
-        public void visit(Transition transition) {
-            transition.addPropertyChangeListener(updateListener);
-        }
-    }
 }
 
 
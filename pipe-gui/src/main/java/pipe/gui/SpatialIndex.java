@@ -0,0 +1,283 @@
+package pipe.gui;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uniform grid index of items by their bounding rectangles, used to find the items
+ * near a point or rectangle on the canvas without testing every item.
+ * <p>
+ * Each item may have several rectangles, for example one per arc segment, and is stored in
+ * every grid cell its rectangles touch. Items are compared by identity because the equality
+ * of Petri net components depends on their location, which changes while they are indexed.
+ * Rectangles spanning too many cells, such as those of full canvas overlays, are kept in a
+ * separate list that every query checks.
+ * </p>
+ * <p>
+ * Queries return candidates whose rectangles touch the area, edges included, so callers
+ * should still perform their own exact hit test.
+ * </p>
+ *
+ * @param <T> type of item indexed
+ */
+public final class SpatialIndex<T> {
+    /**
+     * Default width and height of a grid cell
+     */
+    public static final int DEFAULT_CELL_SIZE = 64;
+
+    /**
+     * Rectangles covering more cells than this are kept in the oversized list
+     */
+    private static final int MAX_CELLS_PER_RECTANGLE = 1024;
+
+    /**
+     * Width and height of a grid cell
+     */
+    private final int cellSize;
+
+    /**
+     * Items touching each cell, keyed by the cell's packed column and row
+     */
+    private final Map<Long, List<T>> cells = new HashMap<>();
+
+    /**
+     * Rectangles of every indexed item
+     */
+    private final Map<T, List<Rectangle>> bounds = new IdentityHashMap<>();
+
+    /**
+     * Items with a rectangle covering too many cells to store in them
+     */
+    private final Set<T> oversized = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+
+    /**
+     * Creates an index with {@link #DEFAULT_CELL_SIZE} cells
+     */
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize width and height of a grid cell
+     */
+    public SpatialIndex(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Indexes the item by a single rectangle, replacing any rectangles it had
+     *
+     * @param item      item to index
+     * @param rectangle bounds of the item
+     */
+    public void put(T item, Rectangle rectangle) {
+        put(item, Collections.singletonList(rectangle));
+    }
+
+    /**
+     * Indexes the item by its rectangles, replacing any rectangles it had
+     *
+     * @param item       item to index
+     * @param rectangles bounds of the parts of the item
+     */
+    public void put(T item, Collection<Rectangle> rectangles) {
+        remove(item);
+        List<Rectangle> copies = new ArrayList<>(rectangles.size());
+        for (Rectangle rectangle : rectangles) {
+            Rectangle copy = new Rectangle(rectangle);
+            copies.add(copy);
+            if (cellCount(copy) > MAX_CELLS_PER_RECTANGLE) {
+                oversized.add(item);
+            } else {
+                addToCells(item, copy);
+            }
+        }
+        bounds.put(item, copies);
+    }
+
+    /**
+     * Removes the item from the index, does nothing if it is not indexed
+     *
+     * @param item item to remove
+     */
+    public void remove(T item) {
+        List<Rectangle> rectangles = bounds.remove(item);
+        if (rectangles == null) {
+            return;
+        }
+        oversized.remove(item);
+        for (Rectangle rectangle : rectangles) {
+            if (cellCount(rectangle) <= MAX_CELLS_PER_RECTANGLE) {
+                removeFromCells(item, rectangle);
+            }
+        }
+    }
+
+    /**
+     * @param item item to look for
+     * @return true if the item is indexed
+     */
+    public boolean contains(T item) {
+        return bounds.containsKey(item);
+    }
+
+    /**
+     * @return number of items indexed
+     */
+    public int size() {
+        return bounds.size();
+    }
+
+    /**
+     * Removes every item from the index
+     */
+    public void clear() {
+        cells.clear();
+        bounds.clear();
+        oversized.clear();
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return items with a rectangle containing the point, edges included
+     */
+    public Set<T> query(int x, int y) {
+        return query(new Rectangle(x, y, 0, 0));
+    }
+
+    /**
+     * @param area area to search
+     * @return items with a rectangle touching the area, edges included
+     */
+    public Set<T> query(Rectangle area) {
+        Set<T> found = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+        Set<T> rejected = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+        for (int column = cell(area.x); column <= cell(area.x + area.width); column++) {
+            for (int row = cell(area.y); row <= cell(area.y + area.height); row++) {
+                List<T> items = cells.get(key(column, row));
+                if (items != null) {
+                    for (T item : items) {
+                        if (!found.contains(item) && !rejected.contains(item)) {
+                            (touches(item, area) ? found : rejected).add(item);
+                        }
+                    }
+                }
+            }
+        }
+        for (T item : oversized) {
+            if (touches(item, area)) {
+                found.add(item);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param item indexed item
+     * @param area area to test
+     * @return true if any of the item's rectangles touch the area, edges included
+     */
+    private boolean touches(T item, Rectangle area) {
+        for (Rectangle rectangle : bounds.get(item)) {
+            if (rectangle.x <= area.x + area.width && area.x <= rectangle.x + rectangle.width
+                    && rectangle.y <= area.y + area.height && area.y <= rectangle.y + rectangle.height) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param item      item to add
+     * @param rectangle rectangle whose cells the item is added to
+     */
+    private void addToCells(T item, Rectangle rectangle) {
+        for (int column = cell(rectangle.x); column <= cell(rectangle.x + rectangle.width); column++) {
+            for (int row = cell(rectangle.y); row <= cell(rectangle.y + rectangle.height); row++) {
+                Long key = key(column, row);
+                List<T> items = cells.get(key);
+                if (items == null) {
+                    items = new ArrayList<>(4);
+                    cells.put(key, items);
+                }
+                if (!containsIdentical(items, item)) {
+                    items.add(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param item      item to remove
+     * @param rectangle rectangle whose cells the item is removed from
+     */
+    private void removeFromCells(T item, Rectangle rectangle) {
+        for (int column = cell(rectangle.x); column <= cell(rectangle.x + rectangle.width); column++) {
+            for (int row = cell(rectangle.y); row <= cell(rectangle.y + rectangle.height); row++) {
+                Long key = key(column, row);
+                List<T> items = cells.get(key);
+                if (items != null) {
+                    for (Iterator<T> iterator = items.iterator(); iterator.hasNext(); ) {
+                        if (iterator.next() == item) {
+                            iterator.remove();
+                        }
+                    }
+                    if (items.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param items items in a cell
+     * @param item  item to look for
+     * @return true if the item itself is in the cell
+     */
+    private static <T> boolean containsIdentical(List<T> items, T item) {
+        for (T existing : items) {
+            if (existing == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param rectangle rectangle to measure
+     * @return number of cells the rectangle touches
+     */
+    private long cellCount(Rectangle rectangle) {
+        long columns = (long) cell(rectangle.x + rectangle.width) - cell(rectangle.x) + 1;
+        long rows = (long) cell(rectangle.y + rectangle.height) - cell(rectangle.y) + 1;
+        return columns * rows;
+    }
+
+    /**
+     * @param coordinate x or y coordinate
+     * @return column or row of the cell containing the coordinate
+     */
+    private int cell(int coordinate) {
+        return coordinate >= 0 ? coordinate / cellSize : (int) ((coordinate + 1L) / cellSize - 1);
+    }
+
+    /**
+     * @param column cell column
+     * @param row    cell row
+     * @return key packing the column and row
+     */
+    private static Long key(int column, int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+}
@@ -6,6 +6,8 @@ import uk.ac.imperial.pipe.models.petrinet.PetriNet;
 
 import javax.swing.*;
 import java.awt.FileDialog;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class GSPNAnalysisModule implements GuiModule {
     /**
@@ -17,7 +19,14 @@ public class GSPNAnalysisModule implements GuiModule {
         JFrame frame = new JFrame("GSPN analysis");
         FileDialog selector = new FileDialog(frame, "Select petri net", FileDialog.LOAD);
 
-        frame.setContentPane(new GSPNAnalysis(petriNet, selector).getMainPanel());
+        final GSPNAnalysis analysis = new GSPNAnalysis(petriNet, selector);
+        frame.setContentPane(analysis.getMainPanel());
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                analysis.shutdown();
+            }
+        });
         frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
         frame.pack();
         frame.setVisible(true);
@@ -6,6 +6,8 @@ import uk.ac.imperial.pipe.models.petrinet.PetriNet;
 
 import javax.swing.*;
 import java.awt.FileDialog;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 /**
  * State Space module that is dynamically loaded into the GUI
@@ -16,7 +18,14 @@ public class StateSpaceModule implements GuiModule {
         JFrame frame = new JFrame("State Space Explorer");
         FileDialog selector = new FileDialog(frame, "Select petri net", FileDialog.LOAD);
         FileDialog saver = new FileDialog(frame, "Save binary transition data", FileDialog.SAVE);
-        frame.setContentPane(new ReachabilityGraph(selector, petriNet).getMainPanel());
+        final ReachabilityGraph reachabilityGraph = new ReachabilityGraph(selector, petriNet);
+        frame.setContentPane(reachabilityGraph.getMainPanel());
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                reachabilityGraph.shutdown();
+            }
+        });
         frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
         frame.pack();
         frame.setVisible(true);
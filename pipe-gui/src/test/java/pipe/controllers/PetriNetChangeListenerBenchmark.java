@@ -0,0 +1,166 @@
+package pipe.controllers;
+
+import pipe.actions.gui.PipeApplicationModel;
+import pipe.gui.PetriNetTab;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Microbenchmark of the event dispatch in {@link PetriNetChangeListener}.
+ * <p>
+ * Compares the listener's typed dispatch against the reflective {@code Method.invoke}
+ * dispatch it used to have, reproduced here by {@link ReflectiveListener}. The events
+ * sent have handlers that do nothing, or no handler at all, so only the cost of
+ * dispatching is measured.
+ * </p>
+ * <p>
+ * Usage: {@code PetriNetChangeListenerBenchmark <typed|reflective> [events]}. Run each
+ * dispatch in its own JVM, otherwise the JIT profile gathered for one skews the other.
+ * </p>
+ */
+public final class PetriNetChangeListenerBenchmark {
+    /**
+     * Default number of events dispatched in each measured round
+     */
+    private static final int DEFAULT_EVENTS = 5000000;
+
+    /**
+     * Number of rounds run before measuring to let the JIT compile the dispatch
+     */
+    private static final int WARM_UP_ROUNDS = 5;
+
+    /**
+     * Number of measured rounds
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Private constructor for command line entry point
+     */
+    private PetriNetChangeListenerBenchmark() {
+    }
+
+    /**
+     * @param args dispatch to measure, typed or reflective, and optional number of events per round
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 || !(args[0].equals("typed") || args[0].equals("reflective"))) {
+            System.err.println("Usage: PetriNetChangeListenerBenchmark <typed|reflective> [events]");
+            System.exit(1);
+        }
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_EVENTS;
+        PropertyChangeListener listener;
+        if (args[0].equals("typed")) {
+            listener = new PetriNetChangeListener(mock(PipeApplicationModel.class), mock(PetriNetTab.class),
+                    mock(PetriNetController.class));
+        } else {
+            listener = new ReflectiveListener();
+        }
+        double eventsPerSecond = measure(listener, sampleEvents(), events);
+        System.out.printf("%s dispatch: %,.0f events/sec%n", args[0], eventsPerSecond);
+    }
+
+    /**
+     * @return events cycled through by the benchmark, two with handlers and one without
+     */
+    private static PropertyChangeEvent[] sampleEvents() {
+        Object source = new Object();
+        return new PropertyChangeEvent[]{
+                new PropertyChangeEvent(source, PetriNet.NEW_RATE_PARAMETER_CHANGE_MESSAGE, null, null),
+                new PropertyChangeEvent(source, PetriNet.DELETE_RATE_PARAMETER_CHANGE_MESSAGE, null, null),
+                new PropertyChangeEvent(source, PetriNet.NEW_TOKEN_CHANGE_MESSAGE, null, null)};
+    }
+
+    /**
+     * @param listener listener to dispatch to
+     * @param sample   events to cycle through
+     * @param events   number of events per round
+     * @return best events per second over the measured rounds
+     */
+    private static double measure(PropertyChangeListener listener, PropertyChangeEvent[] sample, int events) {
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            dispatch(listener, sample, events);
+        }
+        double best = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            dispatch(listener, sample, events);
+            long nanos = System.nanoTime() - start;
+            best = Math.max(best, events * 1e9 / nanos);
+        }
+        return best;
+    }
+
+    /**
+     * @param listener listener to dispatch to
+     * @param sample   events to cycle through
+     * @param events   number of events to dispatch
+     */
+    private static void dispatch(PropertyChangeListener listener, PropertyChangeEvent[] sample, int events) {
+        for (int i = 0; i < events; i++) {
+            listener.propertyChange(sample[i % sample.length]);
+        }
+    }
+
+    /**
+     * The reflective dispatch that {@link PetriNetChangeListener} used before
+     */
+    private static final class ReflectiveListener implements PropertyChangeListener {
+        /**
+         * Contains the property name and method it maps to
+         */
+        private final Map<String, Method> eventMethods = new HashMap<>();
+
+        ReflectiveListener() {
+            for (Method method : getClass().getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Action.class)) {
+                    eventMethods.put(method.getAnnotation(Action.class).value(), method);
+                }
+            }
+        }
+
+        @Override
+        public void propertyChange(PropertyChangeEvent propertyChangeEvent) {
+            String name = propertyChangeEvent.getPropertyName();
+            if (eventMethods.containsKey(name)) {
+                Method method = eventMethods.get(name);
+                try {
+                    method.invoke(this, propertyChangeEvent);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        @Action(PetriNet.NEW_RATE_PARAMETER_CHANGE_MESSAGE)
+        private void newRate(PropertyChangeEvent propertyChangeEvent) {
+            // Matches the listener, which does nothing for new rates
+        }
+
+        @Action(PetriNet.DELETE_RATE_PARAMETER_CHANGE_MESSAGE)
+        private void deleteRate(PropertyChangeEvent propertyChangeEvent) {
+            // Matches the listener, which does nothing for deleted rates
+        }
+    }
+
+    /**
+     * Annotates the methods of {@link ReflectiveListener} with their change event
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.METHOD})
+    private @interface Action {
+        String value();
+    }
+}
@@ -0,0 +1,84 @@
+package pipe.controllers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import pipe.actions.gui.PipeApplicationModel;
+import pipe.gui.PetriNetTab;
+import pipe.views.AbstractPetriNetViewComponent;
+import uk.ac.imperial.pipe.models.petrinet.DiscretePlace;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+
+import java.beans.PropertyChangeEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PetriNetChangeListenerTest {
+
+    @Mock
+    PipeApplicationModel applicationModel;
+
+    @Mock
+    PetriNetTab tab;
+
+    @Mock
+    PetriNetController controller;
+
+    PetriNetChangeListener listener;
+
+    PetriNet net;
+
+    @Before
+    public void setUp() {
+        net = new PetriNet();
+        listener = new PetriNetChangeListener(applicationModel, tab, controller);
+    }
+
+    @Test
+    public void createsViewForEachComponent() {
+        net.addPlace(new DiscretePlace("P0", "P0"));
+        net.addPlace(new DiscretePlace("P1", "P1"));
+
+        assertEquals(2, listener.createViews(net));
+        verify(tab, times(2)).addNewPetriNetComponent(any(AbstractPetriNetViewComponent.class));
+    }
+
+    @Test
+    public void addsViewsInSingleBatch() {
+        net.addPlace(new DiscretePlace("P0", "P0"));
+
+        listener.createViews(net);
+
+        InOrder inOrder = inOrder(tab);
+        inOrder.verify(tab).startBatchUpdate();
+        inOrder.verify(tab).addNewPetriNetComponent(any(AbstractPetriNetViewComponent.class));
+        inOrder.verify(tab).finishBatchUpdate();
+    }
+
+    @Test
+    public void finishesBatchForEmptyPetriNet() {
+        assertEquals(0, listener.createViews(net));
+        verify(tab).startBatchUpdate();
+        verify(tab).finishBatchUpdate();
+    }
+
+    @Test
+    public void dispatchesEventToItsHandler() {
+        Place place = new DiscretePlace("P0", "P0");
+        listener.propertyChange(new PropertyChangeEvent(net, PetriNet.DELETE_PLACE_CHANGE_MESSAGE, place, null));
+        verify(tab).deletePetriNetComponent("P0");
+    }
+
+    @Test
+    public void ignoresEventWithoutHandler() {
+        listener.propertyChange(new PropertyChangeEvent(net, PetriNet.NEW_TOKEN_CHANGE_MESSAGE, null, null));
+        verifyZeroInteractions(tab);
+    }
+}
@@ -25,6 +25,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -203,6 +204,39 @@ public class PetriNetControllerTest {
         assertFalse(controller.isSelected(arc));
     }
 
+    @Test
+    public void selectsPlaceAtItsNewLocationAfterMoving() {
+        Place place = new DiscretePlace("P0", "P0");
+        net.addPlace(place);
+        place.setX(200);
+        place.setY(200);
+
+        controller.select(new Rectangle(0, 0, 40, 40));
+        assertFalse(controller.isSelected(place));
+
+        controller.select(new Rectangle(195, 195, 10, 10));
+        assertTrue(controller.isSelected(place));
+    }
+
+    @Test
+    public void selectsArcsConnectedToSelectedPlace() {
+        Place place = new DiscretePlace("P0", "P0");
+        place.setX(100);
+        place.setY(100);
+        Transition transition = new DiscreteTransition("T0", "T0");
+        transition.setX(400);
+        transition.setY(400);
+        InboundArc arc = new InboundNormalArc(place, transition, new HashMap<String, String>());
+        net.addPlace(place);
+        net.addTransition(transition);
+        net.addArc(arc);
+
+        controller.select(new Rectangle(95, 95, 10, 10));
+        assertTrue(controller.isSelected(place));
+        assertTrue(controller.isSelected(arc));
+        assertFalse(controller.isSelected(transition));
+    }
+
     @Test
     public void translatesSelectedItemsCorrectly() throws PetriNetComponentException {
         Transition transition = mock(Transition.class);
@@ -0,0 +1,127 @@
+package pipe.gui;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.JPanel;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+public class GridTest {
+
+    Grid grid;
+
+    BufferedImage canvas;
+
+    @Before
+    public void setUp() {
+        grid = new Grid();
+        JPanel parent = new JPanel();
+        parent.setSize(400, 300);
+        grid.updateSize(parent);
+        canvas = new BufferedImage(400, 300, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    public void reusesTileWhileSpacingIsUnchanged() {
+        BufferedImage tile = grid.getTile(1);
+        JPanel resized = new JPanel();
+        resized.setSize(800, 600);
+        grid.updateSize(resized);
+        assertSame(tile, grid.getTile(1));
+    }
+
+    @Test
+    public void rebuildsTileWhenSpacingChanges() {
+        BufferedImage tile = grid.getTile(1);
+        grid.increment();
+        assertNotSame(tile, grid.getTile(1));
+    }
+
+    @Test
+    public void tileIsWholeNumberOfCells() {
+        for (int step = 0; step < 4; step++) {
+            float spacing = grid.getGridSpacing();
+            int width = grid.getTile(1).getWidth();
+            int cells = Math.round(width / spacing);
+            assertEquals("Spacing " + spacing, cells * spacing, width, 0.01f);
+            assertTrue("Spacing " + spacing, width >= 128);
+            grid.increment();
+        }
+    }
+
+    @Test
+    public void tileFollowsSpacingOfEachIncrement() {
+        float[] spacings = {15, 30, 30, 7.5f, 15};
+        for (float spacing : spacings) {
+            assertEquals(spacing, grid.getGridSpacing(), 0);
+            float cellWidth = grid.getTile(1).getWidth() / spacing;
+            assertEquals(Math.round(cellWidth), cellWidth, 0.01f);
+            grid.increment();
+        }
+    }
+
+    @Test
+    public void onlyDrawsInsideClip() {
+        Graphics2D graphics = canvas.createGraphics();
+        graphics.setClip(100, 100, 50, 50);
+        grid.drawGrid(graphics);
+        graphics.dispose();
+
+        boolean drawnInside = false;
+        for (int x = 0; x < canvas.getWidth(); x++) {
+            for (int y = 0; y < canvas.getHeight(); y++) {
+                boolean inClip = x >= 100 && x < 150 && y >= 100 && y < 150;
+                boolean drawn = canvas.getRGB(x, y) != 0;
+                assertFalse("Drew outside clip at " + x + "," + y, drawn && !inClip);
+                drawnInside |= drawn;
+            }
+        }
+        assertTrue(drawnInside);
+    }
+
+    @Test
+    public void drawsLinesAtGridSpacing() {
+        Graphics2D graphics = canvas.createGraphics();
+        grid.drawGrid(graphics);
+        graphics.dispose();
+
+        assertTrue(canvas.getRGB(15, 50) != 0);
+        assertTrue(canvas.getRGB(30, 50) != 0);
+        assertEquals(0, canvas.getRGB(20, 50));
+    }
+
+    @Test
+    public void rebuildsTileWhenScaleChanges() {
+        BufferedImage tile = grid.getTile(1);
+        assertNotSame(tile, grid.getTile(2));
+        assertEquals(2 * tile.getWidth(), grid.getTile(2).getWidth());
+    }
+
+    @Test
+    public void keepsLinesOnePixelWideWhenZoomedIn() {
+        Graphics2D graphics = canvas.createGraphics();
+        graphics.scale(2, 2);
+        grid.drawGrid(graphics);
+        graphics.dispose();
+
+        assertTrue(canvas.getRGB(30, 50) != 0);
+        assertEquals(0, canvas.getRGB(31, 50));
+        assertTrue(canvas.getRGB(60, 50) != 0);
+    }
+
+    @Test
+    public void keepsSpacingAtFractionalZoom() {
+        Graphics2D graphics = canvas.createGraphics();
+        graphics.scale(1.5, 1.5);
+        grid.drawGrid(graphics);
+        graphics.dispose();
+
+        for (int x : new int[]{22, 45, 67, 90, 112, 135, 157, 180}) {
+            assertTrue("Line at " + x, canvas.getRGB(x, 75) != 0);
+            assertEquals("No line at " + (x + 1), 0, canvas.getRGB(x + 1, 75));
+        }
+    }
+}
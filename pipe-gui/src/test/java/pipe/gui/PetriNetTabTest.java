@@ -0,0 +1,137 @@
+package pipe.gui;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.JPanel;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+
+import static org.junit.Assert.*;
+
+public class PetriNetTabTest {
+
+    PetriNetTab tab;
+
+    @Before
+    public void setUp() {
+        tab = new PetriNetTab();
+        tab.setSize(500, 500);
+    }
+
+    @Test
+    public void findsComponentAtPoint() {
+        Component component = addComponent(10, 10, 30, 30);
+        assertSame(component, tab.getComponentAt(20, 20));
+    }
+
+    @Test
+    public void returnsTabIfNoComponentAtPoint() {
+        addComponent(10, 10, 30, 30);
+        assertSame(tab, tab.getComponentAt(200, 200));
+    }
+
+    @Test
+    public void returnsNullOutsideOfTab() {
+        assertNull(tab.getComponentAt(600, 600));
+    }
+
+    @Test
+    public void findsTopMostComponent() {
+        addComponent(10, 10, 30, 30);
+        Component top = new JPanel();
+        top.setBounds(20, 20, 30, 30);
+        tab.add(top, 0);
+        assertSame(top, tab.getComponentAt(25, 25));
+    }
+
+    @Test
+    public void findsComponentAfterItMoves() throws InvocationTargetException, InterruptedException {
+        Component component = addComponent(10, 10, 30, 30);
+        component.setLocation(200, 200);
+        flushEvents();
+        assertSame(component, tab.getComponentAt(210, 210));
+        assertSame(tab, tab.getComponentAt(20, 20));
+    }
+
+    @Test
+    public void doesNotFindRemovedComponent() {
+        Component component = addComponent(10, 10, 30, 30);
+        tab.remove(component);
+        assertSame(tab, tab.getComponentAt(20, 20));
+    }
+
+    @Test
+    public void preferredSizeCoversFurthestComponent() {
+        addComponent(10, 10, 30, 30);
+        addComponent(100, 200, 30, 30);
+        assertEquals(new Dimension(150, 250), tab.getPreferredSize());
+    }
+
+    @Test
+    public void preferredSizeShrinksWhenFurthestComponentIsRemoved() {
+        addComponent(10, 10, 30, 30);
+        Component furthest = addComponent(100, 200, 30, 30);
+        tab.remove(furthest);
+        assertEquals(new Dimension(60, 60), tab.getPreferredSize());
+    }
+
+    @Test
+    public void preferredSizeFollowsMovedComponent() throws InvocationTargetException, InterruptedException {
+        Component component = addComponent(10, 10, 30, 30);
+        component.setLocation(300, 100);
+        flushEvents();
+        assertEquals(new Dimension(350, 150), tab.getPreferredSize());
+    }
+
+    @Test
+    public void validatesParentOnceForBatch() {
+        ValidationCounter parent = new ValidationCounter();
+        parent.add(tab);
+        parent.validations = 0;
+
+        tab.startBatchUpdate();
+        addComponent(10, 10, 30, 30);
+        addComponent(100, 100, 30, 30);
+        addComponent(200, 200, 30, 30);
+        assertEquals(0, parent.validations);
+        tab.finishBatchUpdate();
+
+        assertEquals(1, parent.validations);
+        assertEquals(new Dimension(250, 250), tab.getPreferredSize());
+    }
+
+    private Component addComponent(int x, int y, int width, int height) {
+        Component component = new JPanel();
+        component.setBounds(x, y, width, height);
+        tab.add(component);
+        return component;
+    }
+
+    /**
+     * Waits for the component events fired by moving a component to be dispatched
+     */
+    private void flushEvents() throws InvocationTargetException, InterruptedException {
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                // Nothing to do
+            }
+        });
+    }
+
+    /**
+     * Parent counting the number of times it is validated
+     */
+    private static class ValidationCounter extends JPanel {
+        int validations = 0;
+
+        @Override
+        public void validate() {
+            validations++;
+            super.validate();
+        }
+    }
+}
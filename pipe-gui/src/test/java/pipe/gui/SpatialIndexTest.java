@@ -0,0 +1,96 @@
+package pipe.gui;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SpatialIndexTest {
+
+    SpatialIndex<String> index;
+
+    @Before
+    public void setUp() {
+        index = new SpatialIndex<>(10);
+    }
+
+    @Test
+    public void findsItemContainingPoint() {
+        index.put("a", new Rectangle(5, 5, 20, 20));
+        assertTrue(index.query(15, 15).contains("a"));
+    }
+
+    @Test
+    public void doesNotFindItemAwayFromPoint() {
+        index.put("a", new Rectangle(5, 5, 20, 20));
+        assertFalse(index.query(40, 40).contains("a"));
+    }
+
+    @Test
+    public void findsItemsTouchingArea() {
+        index.put("a", new Rectangle(0, 0, 10, 10));
+        index.put("b", new Rectangle(100, 100, 10, 10));
+        Set<String> found = index.query(new Rectangle(5, 5, 50, 50));
+        assertEquals(1, found.size());
+        assertTrue(found.contains("a"));
+    }
+
+    @Test
+    public void includesEdges() {
+        index.put("a", new Rectangle(0, 0, 10, 10));
+        assertTrue(index.query(10, 10).contains("a"));
+    }
+
+    @Test
+    public void handlesNegativeCoordinates() {
+        index.put("a", new Rectangle(-25, -25, 10, 10));
+        assertTrue(index.query(-20, -20).contains("a"));
+        assertFalse(index.query(-5, -5).contains("a"));
+    }
+
+    @Test
+    public void putReplacesPreviousBounds() {
+        index.put("a", new Rectangle(0, 0, 10, 10));
+        index.put("a", new Rectangle(100, 100, 10, 10));
+        assertFalse(index.query(5, 5).contains("a"));
+        assertTrue(index.query(105, 105).contains("a"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void findsItemByAnyOfItsRectangles() {
+        index.put("arc", Arrays.asList(new Rectangle(0, 0, 10, 10), new Rectangle(50, 50, 10, 10)));
+        assertTrue(index.query(55, 55).contains("arc"));
+        assertFalse(index.query(30, 30).contains("arc"));
+    }
+
+    @Test
+    public void removedItemIsNotFound() {
+        index.put("a", new Rectangle(0, 0, 10, 10));
+        index.remove("a");
+        assertFalse(index.contains("a"));
+        assertTrue(index.query(5, 5).isEmpty());
+    }
+
+    @Test
+    public void findsOversizedItems() {
+        index.put("overlay", new Rectangle(0, 0, 100000, 100000));
+        assertTrue(index.query(50000, 50000).contains("overlay"));
+        index.remove("overlay");
+        assertTrue(index.query(50000, 50000).isEmpty());
+    }
+
+    @Test
+    public void comparesItemsByIdentity() {
+        String first = new String("a");
+        String second = new String("a");
+        index.put(first, new Rectangle(0, 0, 10, 10));
+        index.put(second, new Rectangle(100, 100, 10, 10));
+        assertEquals(2, index.size());
+        assertSame(first, index.query(5, 5).iterator().next());
+    }
+}
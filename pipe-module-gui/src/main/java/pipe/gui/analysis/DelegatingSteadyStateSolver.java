@@ -0,0 +1,46 @@
+package pipe.gui.analysis;
+
+import pipe.steadystate.algorithm.SteadyStateSolver;
+import uk.ac.imperial.state.Record;
+
+import java.util.List;
+
+/**
+ * Measures a steady state solver that does not report its own convergence,
+ * only the time taken and the residual of its final solution are known
+ */
+final class DelegatingSteadyStateSolver extends TelemetrySteadyStateSolver {
+    /**
+     * Name reported in the telemetry
+     */
+    private final String name;
+
+    /**
+     * Solver that does the work
+     */
+    private final SteadyStateSolver delegate;
+
+    /**
+     * @param name      name reported in the telemetry
+     * @param delegate  solver that does the work
+     * @param tolerance residual below which the delegate's solution is considered converged
+     */
+    DelegatingSteadyStateSolver(String name, SteadyStateSolver delegate, double tolerance) {
+        super(tolerance, 0);
+        this.name = name;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    protected double[] solve(List<Record> records, RateMatrix matrix, SolverTelemetry telemetry) {
+        telemetry.iterationsUnknown();
+        double[] pi = matrix.toArray(delegate.solve(records));
+        normalise(pi);
+        return pi;
+    }
+}
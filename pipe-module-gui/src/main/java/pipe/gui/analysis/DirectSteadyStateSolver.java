@@ -0,0 +1,133 @@
+package pipe.gui.analysis;
+
+import uk.ac.imperial.state.Record;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solves pi Q = 0 exactly by Gaussian elimination with partial pivoting.
+ * <p>
+ * Unlike the iterative solvers, which work on the sparse {@link RateMatrix}, elimination
+ * copies the generator into a dense n x n array. Elimination fills in the sparse structure
+ * of a generator matrix, so a sparse factorisation would need a fill reducing ordering to
+ * pay off and is not attempted here. Instead direct solving is limited to MAX_DIRECT_STATES
+ * states and larger state spaces are handed to Gauss-Seidel, which is then reported as the
+ * solver in the telemetry.
+ * </p>
+ */
+final class DirectSteadyStateSolver extends TelemetrySteadyStateSolver {
+    /**
+     * Largest number of states solved directly, the dense matrix for this many states is 32MB
+     */
+    static final int MAX_DIRECT_STATES = 2000;
+
+    /**
+     * Used for state spaces with more than MAX_DIRECT_STATES states
+     */
+    private final IterativeSteadyStateSolver fallback;
+
+    /**
+     * @param tolerance     infinity norm of pi Q below which the solution is considered converged
+     * @param maxIterations maximum number of iterations if falling back to Gauss-Seidel
+     */
+    DirectSteadyStateSolver(double tolerance, int maxIterations) {
+        super(tolerance, maxIterations);
+        fallback = new IterativeSteadyStateSolver.GaussSeidel(tolerance, maxIterations);
+    }
+
+    @Override
+    public String getName() {
+        return "Direct";
+    }
+
+    @Override
+    protected String nameFor(RateMatrix matrix) {
+        if (matrix.size() > MAX_DIRECT_STATES) {
+            return fallback.getName() + " (" + matrix.size() + " states is too many to solve directly)";
+        }
+        return getName();
+    }
+
+    @Override
+    protected double[] solve(List<Record> records, RateMatrix matrix, SolverTelemetry telemetry) {
+        int size = matrix.size();
+        if (size > MAX_DIRECT_STATES) {
+            return fallback.solve(records, matrix, telemetry);
+        }
+        double[][] a = transposedGenerator(matrix);
+        double[] b = new double[size];
+        if (size > 0) {
+            // pi Q = 0 has rank n - 1, replace the last equation with sum(pi) = 1
+            Arrays.fill(a[size - 1], 1);
+            b[size - 1] = 1;
+        }
+        double[] pi = eliminate(a, b);
+        normalise(pi);
+        telemetry.iteration(matrix.residual(pi));
+        return pi;
+    }
+
+    /**
+     * @param matrix generator matrix
+     * @return dense Q transposed, row j holds the rates into state j
+     */
+    private static double[][] transposedGenerator(RateMatrix matrix) {
+        int size = matrix.size();
+        double[][] a = new double[size][size];
+        for (int state = 0; state < size; state++) {
+            a[state][state] = -matrix.exitRates[state];
+            for (int position = matrix.incomingStart[state]; position < matrix.incomingStart[state + 1];
+                 position++) {
+                a[state][matrix.incomingFrom[position]] += matrix.incomingRates[position];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Solves a x = b, both a and b are overwritten
+     *
+     * @param a square matrix
+     * @param b right hand side
+     * @return x
+     */
+    private static double[] eliminate(double[][] a, double[] b) {
+        int size = b.length;
+        for (int column = 0; column < size; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < size; row++) {
+                if (Math.abs(a[row][column]) > Math.abs(a[pivot][column])) {
+                    pivot = row;
+                }
+            }
+            double[] pivotRow = a[pivot];
+            a[pivot] = a[column];
+            a[column] = pivotRow;
+            double pivotValue = b[pivot];
+            b[pivot] = b[column];
+            b[column] = pivotValue;
+            if (pivotRow[column] == 0) {
+                continue;
+            }
+            for (int row = column + 1; row < size; row++) {
+                double factor = a[row][column] / pivotRow[column];
+                if (factor != 0) {
+                    for (int k = column; k < size; k++) {
+                        a[row][k] -= factor * pivotRow[k];
+                    }
+                    b[row] -= factor * b[column];
+                }
+            }
+        }
+        double[] x = new double[size];
+        for (int row = size - 1; row >= 0; row--) {
+            double sum = b[row];
+            for (int k = row + 1; k < size; k++) {
+                sum -= a[row][k] * x[k];
+            }
+            x[row] = a[row][row] == 0 ? 0 : sum / a[row][row];
+        }
+        return x;
+    }
+}
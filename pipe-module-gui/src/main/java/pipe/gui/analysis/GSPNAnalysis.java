@@ -1,27 +1,33 @@
 package pipe.gui.analysis;
 
 import org.rendersnake.HtmlCanvas;
+import pipe.gui.widget.AnalysisExecutor;
+import pipe.gui.widget.ExplorationMetrics;
+import pipe.gui.widget.ExplorationProgress;
+import pipe.gui.widget.ExplorationSettings;
 import pipe.gui.widget.GenerateResultsForm;
 import pipe.gui.widget.HTMLPane;
+import pipe.gui.widget.MemoisingVanishingExplorer;
 import pipe.gui.widget.StateSpaceLoader;
 import pipe.gui.widget.StateSpaceLoaderException;
+import pipe.gui.widget.StateSpaceTask;
+import pipe.gui.widget.StateStore;
 import pipe.reachability.algorithm.*;
-import pipe.steadystate.algorithm.ParallelGaussSeidel;
-import pipe.steadystate.algorithm.SteadyStateSolver;
-import pipe.steadystate.metrics.TokenMetrics;
-import pipe.steadystate.metrics.TransitionMetrics;
-import uk.ac.imperial.pipe.exceptions.InvalidRateException;
 import uk.ac.imperial.pipe.models.petrinet.PetriNet;
-import uk.ac.imperial.state.ClassifiedState;
 import uk.ac.imperial.state.Record;
 
 import javax.swing.*;
+import java.awt.BorderLayout;
 import java.awt.FileDialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ItemEvent;
+import java.awt.event.ItemListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import static org.rendersnake.HtmlAttributesFactory.class_;
 import static org.rendersnake.HtmlAttributesFactory.type;
@@ -43,15 +49,20 @@ public class GSPNAnalysis {
             "td.empty{background:#ffffff}";
 
     /**
-     * If the state space is larger than this then we cannot display the results as tables.
+     * Maximum number of residuals shown in the convergence table
      */
-    private static final int MAX_DISPLAY_STATES = 200;
+    private static final int MAX_CONVERGENCE_ROWS = 20;
 
     /**
      * Results HTML pane for displaying info
      */
     HTMLPane resultsPane = new HTMLPane();
 
+    /**
+     * Table of the states and their steady state probabilities
+     */
+    private final StateTablePanel stateTablePanel = new StateTablePanel();
+
     private JLabel textResultsLabel;
 
     private JButton goButton;
@@ -67,8 +78,41 @@ public class GSPNAnalysis {
 
     private JPanel generatePanel;
 
+    /**
+     * Houses the solver selection
+     */
+    private JPanel solverPanel;
+
+    private JComboBox<SteadyStateSolverType> solverComboBox;
+
+    private JTextField toleranceText;
+
+    private JTextField maxIterationsText;
+
+    /**
+     * When selected the explored states are kept in a memory mapped table rather than the heap,
+     * lifting the cap on the number of states explored
+     */
+    private JCheckBox diskBackedCheckBox;
+
+    /**
+     * When selected the tangible successors of each vanishing state are memoised and shared
+     * between exploration threads rather than re-explored every time it is reached
+     */
+    private JCheckBox memoiseVanishingCheckBox;
+
     private StateSpaceLoader stateSpaceLoader;
 
+    /**
+     * Form for starting and cancelling the analysis
+     */
+    private GenerateResultsForm generateResultsForm;
+
+    /**
+     * Thread pool shared by every steady state solve performed from this window
+     */
+    private final AnalysisExecutor analysisExecutor = new AnalysisExecutor();
+
     public GSPNAnalysis(FileDialog fileDialog) {
         stateSpaceLoader = new StateSpaceLoader(fileDialog);
         setUp();
@@ -80,117 +124,280 @@ public class GSPNAnalysis {
     private void setUp() {
 
         loadPanel.add(stateSpaceLoader.getMainPanel(), 0);
-        resultsPanel.add(resultsPane);
-        GenerateResultsForm generateResultsForm = new GenerateResultsForm(new GenerateResultsForm.GoAction() {
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, resultsPane, stateTablePanel);
+        splitPane.setResizeWeight(0.5);
+        resultsPanel.add(splitPane);
+        solverComboBox.setModel(new DefaultComboBoxModel<>(SteadyStateSolverType.values()));
+        toleranceText.setText(String.valueOf(SteadyStateSolverType.DEFAULT_TOLERANCE));
+        maxIterationsText.setText(String.valueOf(SteadyStateSolverType.DEFAULT_MAX_ITERATIONS));
+        solverComboBox.addActionListener(new ActionListener() {
             @Override
-            public void go(int threads) {
-                showSteadyState(threads);
+            public void actionPerformed(ActionEvent e) {
+                updateSolverOptions();
+            }
+        });
+        updateSolverOptions();
+        generateResultsForm = new GenerateResultsForm(new GenerateResultsForm.GoAction() {
+            @Override
+            public void go(ExplorationSettings settings) {
+                showSteadyState(settings);
             }
         });
         generatePanel.add(generateResultsForm.getPanel());
+        ItemListener threadListener = new ItemListener() {
+            @Override
+            public void itemStateChanged(ItemEvent e) {
+                updateThreadControls();
+            }
+        };
+        diskBackedCheckBox.addItemListener(threadListener);
+        stateSpaceLoader.addCheckpointListener(threadListener);
+        ActionListener sourceListener = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateThreadControls();
+            }
+        };
+        stateSpaceLoader.addPetriNetRadioListener(sourceListener);
+        stateSpaceLoader.addBinariesListener(sourceListener);
+        updateThreadControls();
+
+        JButton saveMetricsButton = new JButton("Save metrics");
+        saveMetricsButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                saveMetrics();
+            }
+        });
+        generatePanel.add(saveMetricsButton, BorderLayout.EAST);
+    }
+
+    /**
+     * Greys out the thread settings if the chosen options are only explored on a single thread
+     */
+    private void updateThreadControls() {
+        generateResultsForm.setSingleThreaded(
+                stateSpaceLoader.getSingleThreadedReason(diskBackedCheckBox.isSelected()));
     }
 
     /**
-     * Loads the steady state and if the number of states is < MAX_DISPLAY_STATES we display steady state information
+     * Saves the metrics of the last exploration and solve as JSON to a file chosen by the user
      */
-    private void showSteadyState(int threads) {
+    private void saveMetrics() {
         try {
-            StateSpaceExplorer.StateSpaceExplorerResults results =
-                    stateSpaceLoader.calculateResults(new StateSpaceLoader.ExplorerCreator() {
-                                                          @Override
-                                                          public ExplorerUtilities create(PetriNet petriNet) {
-                                                              return new BoundedExplorerUtilities(petriNet, 1000000);
-                                                          }
-                                                      }, new StateSpaceLoader.VanishingExplorerCreator() {
-                                                          @Override
-                                                          public VanishingExplorer create(ExplorerUtilities utils) {
-                                                              return new OnTheFlyVanishingExplorer(utils);
-                                                          }
-                                                      }, threads
-                    );
-            displayResultsOnCanvas(results);
-        } catch (IOException | InterruptedException | ExecutionException | InvalidRateException | TimelessTrapException e) {
-            e.printStackTrace();
-        } catch (StateSpaceLoaderException e) {
-            JOptionPane.showMessageDialog(mainPanel, e.getMessage(), "GSPN Analysis Error", JOptionPane.ERROR_MESSAGE);
+            stateSpaceLoader.saveMetrics();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(mainPanel, e.getMessage(), "Could not save metrics",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Explores and solves the steady state, displaying summary metrics as HTML and every state in a table.
+     * The exploration and solving is performed in the background so that the GUI remains responsive.
+     *
+     * @param settings how to spread the exploration across threads
+     */
+    private void showSteadyState(final ExplorationSettings settings) {
+        if (!generateResultsForm.isIdle()) {
+            return;
+        }
+        final SolverChoice solver = readSolverChoice();
+        if (solver == null) {
+            return;
+        }
+        final StateSpaceLoader.ExplorerCreator creator = getExplorerCreator();
+        final boolean memoiseVanishing = memoiseVanishingCheckBox.isSelected();
+        final StateSpaceLoader.Source source = stateSpaceLoader.getSource();
+        final PetriNet petriNet = source.getPetriNet();
+        generateResultsForm.execute(new StateSpaceTask<AnalysisResults>(mainPanel) {
+            @Override
+            protected AnalysisResults compute(ExplorationProgress progress) throws Exception {
+                StateSpaceExplorer.StateSpaceExplorerResults results =
+                        stateSpaceLoader.calculateResults(creator, new StateSpaceLoader.VanishingExplorerCreator() {
+                                                              @Override
+                                                              public VanishingExplorer create(ExplorerUtilities utils) {
+                                                                  VanishingExplorer explorer = new OnTheFlyVanishingExplorer(utils);
+                                                                  return memoiseVanishing ?
+                                                                          new MemoisingVanishingExplorer(explorer) : explorer;
+                                                              }
+                                                          }, source, settings, progress
+                        );
+                return renderResults(results, petriNet, settings.getThreads(), solver, progress.getMetrics());
+            }
+
+            @Override
+            protected void display(AnalysisResults results) {
+                resultsPane.setText(results.html);
+                stateTablePanel.setModel(results.states);
+            }
+        });
+    }
+
+
+    /**
+     * @return creator of bounded explorer utilities, or of unbounded disk backed ones if the
+     * user selected a disk backed state set
+     */
+    private StateSpaceLoader.ExplorerCreator getExplorerCreator() {
+        if (diskBackedCheckBox.isSelected()) {
+            return StateSpaceLoader.diskBacked(new StateSpaceLoader.ExplorerCreator() {
+                @Override
+                public ExplorerUtilities create(PetriNet petriNet) {
+                    return new UnboundedExplorerUtilities(petriNet);
+                }
+            });
         }
+        return new StateSpaceLoader.ExplorerCreator() {
+            @Override
+            public ExplorerUtilities create(PetriNet petriNet) {
+                return new BoundedExplorerUtilities(petriNet, 1000000);
+            }
+        };
+    }
+
+    /**
+     * Disables the max iterations field when the selected solver does not apply an iteration
+     * limit, telling the user why in its tooltip
+     */
+    private void updateSolverOptions() {
+        SteadyStateSolverType type = (SteadyStateSolverType) solverComboBox.getSelectedItem();
+        boolean limited = type == null || type.honoursMaxIterations();
+        maxIterationsText.setEnabled(limited);
+        maxIterationsText.setToolTipText(limited ? null :
+                "The " + type + " solver runs until it converges and does not apply an iteration limit");
     }
 
+    /**
+     * Reads the solver options, displaying an error message if they are invalid. The max iterations
+     * field is only read if the chosen solver applies an iteration limit
+     *
+     * @return the chosen solver options, or null if they are invalid
+     */
+    private SolverChoice readSolverChoice() {
+        SteadyStateSolverType type = (SteadyStateSolverType) solverComboBox.getSelectedItem();
+        double tolerance;
+        int maxIterations;
+        try {
+            tolerance = Double.parseDouble(toleranceText.getText().trim());
+            maxIterations = type == null || type.honoursMaxIterations() ?
+                    Integer.parseInt(maxIterationsText.getText().trim()) :
+                    SteadyStateSolverType.DEFAULT_MAX_ITERATIONS;
+        } catch (NumberFormatException e) {
+            tolerance = -1;
+            maxIterations = -1;
+        }
+        if (type == null || !(tolerance > 0) || maxIterations < 1) {
+            JOptionPane.showMessageDialog(mainPanel,
+                    "Error - the tolerance must be a positive number and max iterations a positive integer",
+                    "GSPN Analysis Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+        return new SolverChoice(type, tolerance, maxIterations);
+    }
 
-    private void displayResultsOnCanvas(StateSpaceExplorer.StateSpaceExplorerResults results)
-            throws IOException, StateSpaceLoaderException {
+    /**
+     * @param results  of the state space exploration
+     * @param petriNet Petri net the state space was explored from, null if it was loaded from binaries
+     * @param threads number of threads the user asked the analysis to use
+     * @param solver  steady state solver options chosen by the user
+     * @param metrics metrics of the run, the solve time is added to them
+     * @return HTML summarising the steady state results and a table model of every state
+     * @throws IOException error doing IO
+     * @throws StateSpaceLoaderException if error during loading from binaries
+     * @throws InterruptedException if interrupted while computing the metrics
+     */
+    private AnalysisResults renderResults(StateSpaceExplorer.StateSpaceExplorerResults results, PetriNet petriNet,
+                                          int threads, SolverChoice solver, ExplorationMetrics metrics)
+            throws IOException, StateSpaceLoaderException, InterruptedException {
         HtmlCanvas html = new HtmlCanvas();
         html.html().head();
         html.style(type("text/css").media("screen")).content(HTML_STYLE);
         html._head();
         html.body();
-        if (results.numberOfStates < MAX_DISPLAY_STATES) {
-            StateSpaceLoader.Results stateSpace = stateSpaceLoader.loadStateSpace();
-            solveSteadyState(stateSpace.records, stateSpace.stateMappings, html);
-        } else {
-            html.write("State space is too large to show tabular results");
-            html.br();
-            html.write("Number of states: " + results.numberOfStates);
+        ExplorationSettings settings = stateSpaceLoader.getLastSettings();
+        if (settings != null) {
+            html.write("Explored using " + settings);
             html.br();
-            html.write("Number of transitions: " + results.processedTransitions);
+        }
+        html.write("Number of states: " + results.numberOfStates);
+        html.br();
+        html.write("Number of transitions: " + stateSpaceLoader.getTransitionCount());
+        html.br();
+        StateStore states;
+        Map<Integer, Double> steadyState;
+        try (StateSpaceLoader.Results stateSpace = stateSpaceLoader.streamStateSpace()) {
+            states = stateSpace.states;
+            steadyState = solveSteadyState(stateSpace.records, states, petriNet, html, threads, solver, metrics);
+        }
+        if (stateSpaceLoader.getLastMetrics() != null) {
+            buildRunMetrics(metrics, html);
         }
         html._body()._html();
-        resultsPane.setText(html.toHtml());
+        return new AnalysisResults(html.toHtml(), new StateTableModel(states, steadyState));
     }
 
     /**
-     * Solves the steady state and adds the results to the html canvas
+     * Solves the steady state and adds the convergence and metrics to the html canvas
      *
      * @param records
-     * @param stateMappings
+     * @param states
+     * @param petriNet Petri net the state space was explored from, null if it was loaded from binaries
      * @param html
+     * @param threads number of threads to solve with, taken from the shared analysis executor
+     * @param solver  steady state solver options chosen by the user
+     * @param metrics metrics to add the solve time to
+     * @return state id to steady state probability
+     * @throws InterruptedException if interrupted while computing the metrics
      */
-    private void solveSteadyState(Collection<Record> records, Map<Integer, ClassifiedState> stateMappings,
-                                  HtmlCanvas html) {
-
-        ExecutorService executorService = Executors.newFixedThreadPool(8);
-
+    private Map<Integer, Double> solveSteadyState(Collection<Record> records, StateStore states, PetriNet petriNet,
+                                                  HtmlCanvas html, int threads, SolverChoice solver,
+                                                  ExplorationMetrics metrics)
+            throws InterruptedException {
+        ExecutorService executorService = analysisExecutor.get(threads);
         try {
-            displayStates(html, stateMappings);
-            SteadyStateSolver steadyStateSolver = new ParallelGaussSeidel(8, executorService, 10);
-            Map<Integer, Double> steadyState = steadyStateSolver.solve(new ArrayList<>(records));
-
-            displaySteadyState(html, steadyState);
-            displayMetrics(html, steadyState, stateMappings);
+            TelemetrySteadyStateSolver steadyStateSolver =
+                    solver.type.create(solver.tolerance, solver.maxIterations, threads, executorService);
+            List<Record> recordList = records instanceof List ? (List<Record>) records : new ArrayList<>(records);
+            long solveStart = System.nanoTime();
+            Map<Integer, Double> steadyState = steadyStateSolver.solve(recordList);
+            metrics.addTime(ExplorationMetrics.Phase.SOLVE, System.nanoTime() - solveStart);
+
+            displayConvergence(html, steadyStateSolver.getTelemetry());
+            displayMetrics(html, steadyState, states, petriNet, executorService, threads);
+            return steadyState;
         } catch (IOException e) {
             e.printStackTrace();
-        } finally {
-            executorService.shutdownNow();
+            return Collections.emptyMap();
         }
     }
 
     /**
-     * Displays the state mappings for each token
+     * Displays how the steady state solver converged, sampling the residuals
+     * if there were too many iterations to show them all
      *
      * @param html
-     * @param stateMappings
+     * @param telemetry of the solve
      * @throws IOException
      */
-    private void displayStates(HtmlCanvas html, Map<Integer, ClassifiedState> stateMappings) throws IOException {
-        Collection<String> tokens = getTokens(stateMappings.values());
-        for (String token : tokens) {
-            buildTokenTable(html, stateMappings, token);
+    private void displayConvergence(HtmlCanvas html, SolverTelemetry telemetry) throws IOException {
+        html.write(telemetry.toString());
+        html.br();
+        int iterations = telemetry.getIterations();
+        if (iterations <= 0) {
+            return;
         }
-    }
-
-    /**
-     * Displays the steady state information in a table
-     *
-     * @param html
-     * @param steadyState
-     * @throws IOException
-     */
-    private void displaySteadyState(HtmlCanvas html, Map<Integer, Double> steadyState) throws IOException {
-        List<TableRow> rows = new LinkedList<>();
-        for (Map.Entry<Integer, Double> entry : steadyState.entrySet()) {
-            rows.add(new TableRow(entry.getKey().toString(), doubleToString(entry.getValue())));
+        List<TableRow> rows = new ArrayList<>();
+        int step = Math.max(1, (iterations + MAX_CONVERGENCE_ROWS - 1) / MAX_CONVERGENCE_ROWS);
+        for (int iteration = 0; iteration < iterations; iteration += step) {
+            rows.add(new TableRow(Integer.toString(iteration + 1),
+                    String.format("%.3e", telemetry.getResidual(iteration))));
         }
-        addTable(html, rows, Arrays.asList("State", "Distribution"), "Steady state distribution");
+        if ((iterations - 1) % step != 0) {
+            rows.add(new TableRow(Integer.toString(iterations),
+                    String.format("%.3e", telemetry.getResidual(iterations - 1))));
+        }
+        addTable(html, rows, Arrays.asList("Iteration", "Residual"), "Solver convergence");
     }
 
     /**
@@ -198,68 +405,29 @@ public class GSPNAnalysis {
      * <p/>
      * Displays:
      * - the average number of tokens on each place
+     * - the utilisation and probability of being empty of each place
      * - the average transition  throughput if loaded from a Petri net
+     * <p/>
+     * All of the metrics are computed together in a single pass over the states
      *
      * @param html
      * @param steadyState
-     * @param stateMappings
-     * @throws IOException
-     */
-    private void displayMetrics(HtmlCanvas html, Map<Integer, Double> steadyState,
-                                Map<Integer, ClassifiedState> stateMappings) throws IOException {
-        Map<String, Map<String, Double>> averageTokens = TokenMetrics.averageTokensOnPlace(stateMappings, steadyState);
-        buildAverageMetrics(averageTokens, html);
-        if (!stateSpaceLoader.isBinaryLoadChecked()) {
-            PetriNet petriNet = stateSpaceLoader.getPetriNet();
-            Map<String, Double> throughputs =
-                    TransitionMetrics.getTransitionThroughput(stateMappings, steadyState, petriNet);
-            displayThroughputs(throughputs, html);
-        }
-
-
-    }
-
-    /**
      * @param states
-     * @return a sorted list of tokens contained within the states
-     */
-    private Collection<String> getTokens(Collection<ClassifiedState> states) {
-        Collection<String> tokens = new ArrayList<>();
-        if (!states.isEmpty()) {
-            ClassifiedState state = states.iterator().next();
-            Collection<String> places = state.getPlaces();
-            if (!places.isEmpty()) {
-                String place = places.iterator().next();
-                tokens.addAll(state.getTokens(place).keySet());
-            }
-        }
-        return tokens;
-    }
-
-    /**
-     * @param html
-     * @param stateMappings
-     * @param token
+     * @param petriNet        Petri net to compute the throughputs from, null if loaded from binaries
+     * @param executorService executor to compute the metrics on
+     * @param threads         number of threads available in the executor
      * @throws IOException
+     * @throws InterruptedException if interrupted while computing the metrics
      */
-    private void buildTokenTable(HtmlCanvas html, Map<Integer, ClassifiedState> stateMappings, String token)
-            throws IOException {
-        List<Integer> ids = new ArrayList<>(stateMappings.keySet());
-        Collections.sort(ids);
-        List<String> places = getPlaces(stateMappings);
-
-        List<TableRow> rows = new ArrayList<>();
-        for (Integer id : ids) {
-            ClassifiedState state = stateMappings.get(id);
-            TableRow row = new TableRow(id.toString());
-            for (String place : places) {
-                Integer count = state.getTokens(place).get(token);
-                row.addCell(count.toString());
-            }
-            rows.add(row);
+    private void displayMetrics(HtmlCanvas html, Map<Integer, Double> steadyState, StateStore states,
+                                PetriNet petriNet, ExecutorService executorService, int threads)
+            throws IOException, InterruptedException {
+        SteadyStateMetrics metrics = SteadyStateMetrics.compute(states, steadyState, petriNet, executorService, threads);
+        buildAverageMetrics(metrics, html);
+        buildPlaceMetrics(metrics, html);
+        if (petriNet != null) {
+            displayThroughputs(metrics.getThroughputs(), html);
         }
-        places.add(0, "State");
-        addTable(html, rows, places, "State markings for " + token + " token");
     }
 
     /**
@@ -307,24 +475,17 @@ public class GSPNAnalysis {
      * Creates and adds to the html canvas a table for each token colour
      * containing the average number of tokens in the place
      *
-     * @param averageTokens
+     * @param metrics
      * @param html
      * @throws IOException
      */
-    private void buildAverageMetrics(Map<String, Map<String, Double>> averageTokens, HtmlCanvas html)
-            throws IOException {
-        List<String> places = new ArrayList<>(averageTokens.keySet());
-        Collections.sort(places);
-        List<String> tokens = new ArrayList<>(averageTokens.get(places.get(0)).keySet());
-        Collections.sort(tokens);
-
+    private void buildAverageMetrics(SteadyStateMetrics metrics, HtmlCanvas html) throws IOException {
+        List<String> tokens = new ArrayList<>(metrics.getTokens());
         List<TableRow> rows = new ArrayList<>();
-        for (String place : places) {
-            Map<String, Double> average = averageTokens.get(place);
-            TableRow row = new TableRow(place);
-            for (String token : tokens) {
-                Double count = average.get(token);
-                row.addCell(doubleToString(count));
+        for (int place = 0; place < metrics.getPlaces().size(); place++) {
+            TableRow row = new TableRow(metrics.getPlaces().get(place));
+            for (int token = 0; token < tokens.size(); token++) {
+                row.addCell(doubleToString(metrics.getAverageTokens(place, token)));
             }
             rows.add(row);
         }
@@ -332,6 +493,44 @@ public class GSPNAnalysis {
         addTable(html, rows, tokens, "Average token counts");
     }
 
+    /**
+     * Creates and adds to the html canvas a table of the utilisation of each place
+     * and the probability that it is empty
+     *
+     * @param metrics
+     * @param html
+     * @throws IOException
+     */
+    private void buildPlaceMetrics(SteadyStateMetrics metrics, HtmlCanvas html) throws IOException {
+        List<TableRow> rows = new ArrayList<>();
+        for (int place = 0; place < metrics.getPlaces().size(); place++) {
+            rows.add(new TableRow(metrics.getPlaces().get(place), doubleToString(metrics.getUtilisation(place)),
+                    doubleToString(metrics.getEmptyProbability(place))));
+        }
+        addTable(html, rows, Arrays.asList("Place", "Utilisation", "P(empty)"), "Place utilisation");
+    }
+
+    /**
+     * Creates and adds to the html canvas a table of the time spent in each phase of the run
+     * and the exploration counters, the full metrics can be saved as JSON
+     *
+     * @param metrics metrics of the exploration and solve
+     * @param html
+     * @throws IOException
+     */
+    private void buildRunMetrics(ExplorationMetrics metrics, HtmlCanvas html) throws IOException {
+        List<TableRow> rows = new ArrayList<>();
+        for (ExplorationMetrics.Phase phase : ExplorationMetrics.Phase.values()) {
+            rows.add(new TableRow(phase + " (ms)", Long.toString(metrics.getMillis(phase))));
+        }
+        rows.add(new TableRow("threads", Integer.toString(metrics.getThreads())));
+        rows.add(new TableRow("states/sec/thread", String.format("%.0f", metrics.getStatesPerSecondPerThread())));
+        rows.add(new TableRow("peak frontier", Long.toString(metrics.getPeakFrontier())));
+        rows.add(new TableRow("written (KB)", Long.toString(metrics.getBytesWritten() / 1024)));
+        rows.add(new TableRow("GC (ms)", Long.toString(metrics.getGcMillis())));
+        addTable(html, rows, Arrays.asList("Metric", "Value"), "Run metrics");
+    }
+
     /**
      * Creates and displays a table for the given throughputs
      *
@@ -351,17 +550,6 @@ public class GSPNAnalysis {
         addTable(html, rows, Arrays.asList("Transition", "Throughput"), "Average timed transition throughputs");
     }
 
-    /**
-     * @param stateMappings
-     * @return a list of places in the state mappings
-     */
-    private List<String> getPlaces(Map<Integer, ClassifiedState> stateMappings) {
-        List<String> places = new ArrayList<>();
-        places.addAll(stateMappings.values().iterator().next().getPlaces());
-        Collections.sort(places);
-        return places;
-    }
-
     public GSPNAnalysis(PetriNet petriNet, FileDialog fileDialog) {
         stateSpaceLoader = new StateSpaceLoader(petriNet, fileDialog);
         setUp();
@@ -376,7 +564,14 @@ public class GSPNAnalysis {
         JFrame frame = new JFrame("Steady state results");
         FileDialog selector = new FileDialog(frame, "Select petri net", FileDialog.LOAD);
 
-        frame.setContentPane(new GSPNAnalysis(selector).mainPanel);
+        final GSPNAnalysis analysis = new GSPNAnalysis(selector);
+        frame.setContentPane(analysis.mainPanel);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                analysis.shutdown();
+            }
+        });
         frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         frame.pack();
         frame.setVisible(true);
@@ -386,6 +581,52 @@ public class GSPNAnalysis {
         return mainPanel;
     }
 
+    /**
+     * Cancels any running analysis and releases the threads used for analysis, should be
+     * called when the window containing this module is closed
+     */
+    public void shutdown() {
+        generateResultsForm.cancel();
+        analysisExecutor.shutdown();
+    }
+
+    /**
+     * Results of an analysis ready to be displayed
+     */
+    private static final class AnalysisResults {
+        /**
+         * Summary of the steady state metrics
+         */
+        private final String html;
+
+        /**
+         * Every state and its steady state probability
+         */
+        private final StateTableModel states;
+
+        private AnalysisResults(String html, StateTableModel states) {
+            this.html = html;
+            this.states = states;
+        }
+    }
+
+    /**
+     * Steady state solver options read from the form
+     */
+    private static final class SolverChoice {
+        private final SteadyStateSolverType type;
+
+        private final double tolerance;
+
+        private final int maxIterations;
+
+        private SolverChoice(SteadyStateSolverType type, double tolerance, int maxIterations) {
+            this.type = type;
+            this.tolerance = tolerance;
+            this.maxIterations = maxIterations;
+        }
+    }
+
     /**
      * Useful class for creating fors for HTML tables displayed in the output
      */
@@ -0,0 +1,125 @@
+package pipe.gui.analysis;
+
+import uk.ac.imperial.state.Record;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Base class for solvers that repeatedly refine a uniform initial distribution
+ * until its residual is within tolerance
+ */
+abstract class IterativeSteadyStateSolver extends TelemetrySteadyStateSolver {
+    /**
+     * @param tolerance     infinity norm of pi Q below which the solution is considered converged
+     * @param maxIterations maximum number of iterations before giving up
+     */
+    IterativeSteadyStateSolver(double tolerance, int maxIterations) {
+        super(tolerance, maxIterations);
+    }
+
+    @Override
+    protected final double[] solve(List<Record> records, RateMatrix matrix, SolverTelemetry telemetry) {
+        double[] pi = new double[matrix.size()];
+        Arrays.fill(pi, 1.0 / Math.max(1, pi.length));
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            pi = iterate(matrix, pi);
+            normalise(pi);
+            double residual = matrix.residual(pi);
+            telemetry.iteration(residual);
+            if (residual <= tolerance) {
+                break;
+            }
+        }
+        return pi;
+    }
+
+    /**
+     * Performs a single iteration
+     *
+     * @param matrix generator matrix
+     * @param pi     current distribution, may be updated in place
+     * @return next distribution, not necessarily normalised
+     */
+    protected abstract double[] iterate(RateMatrix matrix, double[] pi);
+
+    /**
+     * Jacobi iteration, every state is updated from the previous iteration's distribution
+     */
+    static final class Jacobi extends IterativeSteadyStateSolver {
+        Jacobi(double tolerance, int maxIterations) {
+            super(tolerance, maxIterations);
+        }
+
+        @Override
+        public String getName() {
+            return "Jacobi";
+        }
+
+        @Override
+        protected double[] iterate(RateMatrix matrix, double[] pi) {
+            double[] next = new double[pi.length];
+            for (int state = 0; state < pi.length; state++) {
+                double exitRate = matrix.exitRates[state];
+                next[state] = exitRate > 0 ? matrix.inflow(state, pi) / exitRate : pi[state];
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Gauss-Seidel iteration, states are updated in place so later states
+     * use the values already computed this iteration
+     */
+    static final class GaussSeidel extends IterativeSteadyStateSolver {
+        GaussSeidel(double tolerance, int maxIterations) {
+            super(tolerance, maxIterations);
+        }
+
+        @Override
+        public String getName() {
+            return "Gauss-Seidel";
+        }
+
+        @Override
+        protected double[] iterate(RateMatrix matrix, double[] pi) {
+            for (int state = 0; state < pi.length; state++) {
+                double exitRate = matrix.exitRates[state];
+                if (exitRate > 0) {
+                    pi[state] = matrix.inflow(state, pi) / exitRate;
+                }
+            }
+            return pi;
+        }
+    }
+
+    /**
+     * Power method on the uniformized chain P = I + Q / lambda, slow but
+     * converges for any aperiodic chain including those with absorbing states
+     */
+    static final class Power extends IterativeSteadyStateSolver {
+        Power(double tolerance, int maxIterations) {
+            super(tolerance, maxIterations);
+        }
+
+        @Override
+        public String getName() {
+            return "Power method";
+        }
+
+        @Override
+        protected double[] iterate(RateMatrix matrix, double[] pi) {
+            double lambda = 0;
+            for (double exitRate : matrix.exitRates) {
+                lambda = Math.max(lambda, exitRate);
+            }
+            // Strictly larger than every exit rate so the uniformized chain is aperiodic
+            lambda = lambda > 0 ? lambda * 1.01 : 1;
+            double[] next = new double[pi.length];
+            for (int state = 0; state < pi.length; state++) {
+                next[state] = pi[state] + (matrix.inflow(state, pi) - pi[state] * matrix.exitRates[state]) / lambda;
+            }
+            return next;
+        }
+    }
+}
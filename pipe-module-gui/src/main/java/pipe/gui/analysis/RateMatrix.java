@@ -0,0 +1,187 @@
+package pipe.gui.analysis;
+
+import uk.ac.imperial.state.Record;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse, primitive representation of the generator matrix of the continuous time
+ * Markov chain described by a state space's records.
+ * <p>
+ * States are renumbered densely in ascending id order. For every state the exit rate
+ * (sum of its outgoing rates excluding self loops) is held along with the transitions
+ * into it in compressed sparse column form, which is the access pattern every solver
+ * of {@code pi Q = 0} needs.
+ * </p>
+ */
+final class RateMatrix {
+    /**
+     * Sorted state ids, the position of an id is its dense index
+     */
+    private final int[] ids;
+
+    /**
+     * Exit rate of each state
+     */
+    final double[] exitRates;
+
+    /**
+     * Start of each state's incoming transitions in incomingFrom and incomingRates,
+     * has one more entry than there are states
+     */
+    final int[] incomingStart;
+
+    /**
+     * Dense index of the source of each incoming transition
+     */
+    final int[] incomingFrom;
+
+    /**
+     * Rate of each incoming transition
+     */
+    final double[] incomingRates;
+
+    /**
+     * Builds the matrix in two passes over the records
+     *
+     * @param records state space records
+     * @return generator matrix of the records
+     */
+    static RateMatrix of(List<Record> records) {
+        int[] ids = collectIds(records);
+        int size = ids.length;
+        double[] exitRates = new double[size];
+        int[] incomingCount = new int[size + 1];
+        for (Record record : records) {
+            int from = Arrays.binarySearch(ids, record.state);
+            for (Map.Entry<Integer, Double> entry : record.successors.entrySet()) {
+                int to = Arrays.binarySearch(ids, entry.getKey());
+                if (to != from) {
+                    exitRates[from] += entry.getValue();
+                    incomingCount[to + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            incomingCount[i + 1] += incomingCount[i];
+        }
+        int[] incomingStart = Arrays.copyOf(incomingCount, size + 1);
+        int[] next = Arrays.copyOf(incomingCount, size);
+        int[] incomingFrom = new int[incomingStart[size]];
+        double[] incomingRates = new double[incomingStart[size]];
+        for (Record record : records) {
+            int from = Arrays.binarySearch(ids, record.state);
+            for (Map.Entry<Integer, Double> entry : record.successors.entrySet()) {
+                int to = Arrays.binarySearch(ids, entry.getKey());
+                if (to != from) {
+                    int position = next[to]++;
+                    incomingFrom[position] = from;
+                    incomingRates[position] = entry.getValue();
+                }
+            }
+        }
+        return new RateMatrix(ids, exitRates, incomingStart, incomingFrom, incomingRates);
+    }
+
+    /**
+     * @param records state space records
+     * @return sorted, unique ids of every state mentioned in the records
+     */
+    private static int[] collectIds(List<Record> records) {
+        int[] ids = new int[Math.max(16, records.size())];
+        int count = 0;
+        for (Record record : records) {
+            if (count + record.successors.size() + 1 > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, count + record.successors.size() + 1));
+            }
+            ids[count++] = record.state;
+            for (Integer successor : record.successors.keySet()) {
+                ids[count++] = successor;
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+
+    /**
+     * @param ids           sorted state ids
+     * @param exitRates     exit rate of each state
+     * @param incomingStart start of each state's incoming transitions
+     * @param incomingFrom  source of each incoming transition
+     * @param incomingRates rate of each incoming transition
+     */
+    private RateMatrix(int[] ids, double[] exitRates, int[] incomingStart, int[] incomingFrom,
+                       double[] incomingRates) {
+        this.ids = ids;
+        this.exitRates = exitRates;
+        this.incomingStart = incomingStart;
+        this.incomingFrom = incomingFrom;
+        this.incomingRates = incomingRates;
+    }
+
+    /**
+     * @return number of states
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param state dense state index
+     * @param pi    current distribution
+     * @return probability flowing into the state per unit time
+     */
+    double inflow(int state, double[] pi) {
+        double sum = 0;
+        for (int position = incomingStart[state]; position < incomingStart[state + 1]; position++) {
+            sum += pi[incomingFrom[position]] * incomingRates[position];
+        }
+        return sum;
+    }
+
+    /**
+     * @param pi distribution
+     * @return infinity norm of pi Q, zero for the exact steady state
+     */
+    double residual(double[] pi) {
+        double max = 0;
+        for (int state = 0; state < ids.length; state++) {
+            max = Math.max(max, Math.abs(inflow(state, pi) - pi[state] * exitRates[state]));
+        }
+        return max;
+    }
+
+    /**
+     * @param distribution state id to probability
+     * @return the distribution indexed densely, missing states have probability zero
+     */
+    double[] toArray(Map<Integer, Double> distribution) {
+        double[] pi = new double[ids.length];
+        for (int state = 0; state < ids.length; state++) {
+            Double probability = distribution.get(ids[state]);
+            pi[state] = probability == null ? 0 : probability;
+        }
+        return pi;
+    }
+
+    /**
+     * @param pi densely indexed distribution
+     * @return state id to probability
+     */
+    Map<Integer, Double> toMap(double[] pi) {
+        Map<Integer, Double> distribution = new HashMap<>(ids.length * 2);
+        for (int state = 0; state < ids.length; state++) {
+            distribution.put(ids[state], pi[state]);
+        }
+        return distribution;
+    }
+}
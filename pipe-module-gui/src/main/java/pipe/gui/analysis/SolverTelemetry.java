@@ -0,0 +1,141 @@
+package pipe.gui.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Convergence information recorded while solving for the steady state of a state space
+ */
+public final class SolverTelemetry {
+    /**
+     * Returned by {@link #getIterations()} when the solver does not report its iterations
+     */
+    public static final int UNKNOWN_ITERATIONS = -1;
+
+    /**
+     * Name of the solver that produced the results
+     */
+    private final String solverName;
+
+    /**
+     * Residual after each iteration, only the first iterations entries are valid
+     */
+    private double[] residuals = new double[64];
+
+    /**
+     * Number of iterations performed
+     */
+    private int iterations;
+
+    /**
+     * True if the solver does not report individual iterations
+     */
+    private boolean iterationsUnknown;
+
+    /**
+     * Residual of the final solution
+     */
+    private double finalResidual = Double.NaN;
+
+    /**
+     * Time taken to solve in milliseconds
+     */
+    private long elapsedMillis;
+
+    /**
+     * True if the final residual was within the requested tolerance
+     */
+    private boolean converged;
+
+    /**
+     * @param solverName name of the solver that produced the results
+     */
+    SolverTelemetry(String solverName) {
+        this.solverName = solverName;
+    }
+
+    /**
+     * Records the residual of the solution after an iteration
+     *
+     * @param residual infinity norm of pi Q
+     */
+    void iteration(double residual) {
+        if (iterations == residuals.length) {
+            residuals = Arrays.copyOf(residuals, residuals.length * 2);
+        }
+        residuals[iterations++] = residual;
+        finalResidual = residual;
+    }
+
+    /**
+     * Marks the iteration count as unknown, used for solvers that do not expose their iterations
+     */
+    void iterationsUnknown() {
+        iterationsUnknown = true;
+    }
+
+    /**
+     * Records the outcome of the solve
+     *
+     * @param residual      residual of the final solution
+     * @param elapsedMillis time taken to solve in milliseconds
+     * @param converged     true if the residual was within tolerance
+     */
+    void finish(double residual, long elapsedMillis, boolean converged) {
+        this.finalResidual = residual;
+        this.elapsedMillis = elapsedMillis;
+        this.converged = converged;
+    }
+
+    /**
+     * @return name of the solver that produced the results
+     */
+    public String getSolverName() {
+        return solverName;
+    }
+
+    /**
+     * @return number of iterations performed, or UNKNOWN_ITERATIONS
+     */
+    public int getIterations() {
+        return iterationsUnknown ? UNKNOWN_ITERATIONS : iterations;
+    }
+
+    /**
+     * @param iteration zero based iteration
+     * @return residual after the iteration
+     */
+    public double getResidual(int iteration) {
+        if (iteration < 0 || iteration >= iterations) {
+            throw new IndexOutOfBoundsException("Iteration: " + iteration + ", Iterations: " + iterations);
+        }
+        return residuals[iteration];
+    }
+
+    /**
+     * @return residual of the final solution
+     */
+    public double getFinalResidual() {
+        return finalResidual;
+    }
+
+    /**
+     * @return time taken to solve in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return true if the final residual was within the requested tolerance
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    @Override
+    public String toString() {
+        String iterationText = iterationsUnknown ? "unknown iterations" : iterations + " iterations";
+        return String.format("%s: %s, residual %.3e, %d ms, %s", solverName, iterationText, finalResidual,
+                elapsedMillis, converged ? "converged" : "not converged");
+    }
+}
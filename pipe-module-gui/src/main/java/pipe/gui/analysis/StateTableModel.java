@@ -0,0 +1,300 @@
+package pipe.gui.analysis;
+
+import pipe.gui.widget.MarkingQuery;
+import pipe.gui.widget.StateStore;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Map;
+
+/**
+ * Table model of the steady state distribution backed directly by the {@link StateStore}.
+ * <p>
+ * The model only holds an int array of the ids of the rows currently shown. Cell values are
+ * read from the packed token counts when the table asks for them, and a table in a scroll
+ * pane only asks for the rows that are visible, so hundreds of thousands of states can be
+ * browsed without creating an object per row.
+ * </p><p>
+ * Rows can be sorted by any column, filtered by place marking and restricted to the most
+ * probable states.
+ * </p>
+ */
+@SuppressWarnings("serial")
+public class StateTableModel extends AbstractTableModel {
+    /**
+     * Column holding the state id
+     */
+    public static final int STATE_COLUMN = 0;
+
+    /**
+     * Column holding the steady state probability
+     */
+    public static final int PROBABILITY_COLUMN = 1;
+
+    /**
+     * Number of columns before the token count columns
+     */
+    private static final int FIXED_COLUMNS = 2;
+
+    /**
+     * States being displayed
+     */
+    private final StateStore states;
+
+    /**
+     * Steady state probability of each state indexed by id
+     */
+    private final double[] probabilities;
+
+    /**
+     * Ids of every state in ascending order
+     */
+    private final int[] allIds;
+
+    /**
+     * Ids of the rows currently shown, only the first rowCount entries are valid
+     */
+    private int[] rows;
+
+    /**
+     * Number of rows currently shown
+     */
+    private int rowCount;
+
+    /**
+     * Column the rows are sorted by, -1 if unsorted
+     */
+    private int sortColumn = -1;
+
+    /**
+     * True if sorting in ascending order
+     */
+    private boolean ascending = true;
+
+    /**
+     * Current filter, null if unfiltered
+     */
+    private MarkingQuery filter;
+
+    /**
+     * Maximum number of most probable states to show, 0 to show all
+     */
+    private int topN;
+
+    /**
+     * @param states      states of the state space
+     * @param steadyState steady state probability of each state
+     */
+    public StateTableModel(StateStore states, Map<Integer, Double> steadyState) {
+        this.states = states;
+        int maxId = -1;
+        for (int id = states.firstId(); id >= 0; id = states.nextId(id)) {
+            maxId = id;
+        }
+        probabilities = new double[maxId + 1];
+        for (Map.Entry<Integer, Double> entry : steadyState.entrySet()) {
+            int id = entry.getKey();
+            if (id >= 0 && id <= maxId) {
+                probabilities[id] = entry.getValue();
+            }
+        }
+        allIds = new int[states.size()];
+        int count = 0;
+        for (int id = states.firstId(); id >= 0; id = states.nextId(id)) {
+            allIds[count++] = id;
+        }
+        rows = allIds.clone();
+        rowCount = allIds.length;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return number of states in the state space regardless of filtering
+     */
+    public int getStateCount() {
+        return allIds.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return FIXED_COLUMNS + states.getPlaces().size() * states.getTokens().size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column == STATE_COLUMN) {
+            return "State";
+        }
+        if (column == PROBABILITY_COLUMN) {
+            return "Probability";
+        }
+        int tokenCount = states.getTokens().size();
+        int index = column - FIXED_COLUMNS;
+        String place = states.getPlaces().get(index / tokenCount);
+        return tokenCount == 1 ? place : place + " (" + states.getTokens().get(index % tokenCount) + ")";
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == PROBABILITY_COLUMN ? Double.class : Integer.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int id = rows[row];
+        if (column == STATE_COLUMN) {
+            return id;
+        }
+        if (column == PROBABILITY_COLUMN) {
+            return probabilities[id];
+        }
+        return tokenCount(id, column);
+    }
+
+    /**
+     * @param id     state id
+     * @param column token count column
+     * @return number of tokens in the column for the state
+     */
+    private int tokenCount(int id, int column) {
+        int tokenCount = states.getTokens().size();
+        int index = column - FIXED_COLUMNS;
+        return states.getTokenCount(id, index / tokenCount, index % tokenCount);
+    }
+
+    /**
+     * @return column the rows are sorted by, -1 if unsorted
+     */
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    /**
+     * @return true if the rows are sorted in ascending order
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Sorts the rows shown by the column, sorting by the current sort column again reverses the order
+     *
+     * @param column to sort by
+     */
+    public void toggleSort(int column) {
+        ascending = column != sortColumn || !ascending;
+        sortColumn = column;
+        sortRows();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Shows only the states whose marking matches the filter, see {@link MarkingQuery} for the format,
+     * e.g. {@code P0 >= 1, P1:Default = 0}
+     *
+     * @param expression filter expression, empty to show every state
+     * @throws IllegalArgumentException if the expression is not a valid filter
+     */
+    public void setFilter(String expression) {
+        MarkingQuery query = MarkingQuery.parse(expression, states);
+        filter = query.isEmpty() ? null : query;
+        refresh();
+    }
+
+    /**
+     * Restricts the rows to the n most probable states that satisfy the filter
+     *
+     * @param n number of states to show, 0 to show every state
+     */
+    public void setTopN(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Top N must not be negative");
+        }
+        topN = n;
+        refresh();
+    }
+
+    /**
+     * Recomputes the rows from the filter, top N and sort order
+     */
+    private void refresh() {
+        int[] matching = new int[allIds.length];
+        int count = 0;
+        for (int id : allIds) {
+            if (filter == null || filter.matches(id)) {
+                matching[count++] = id;
+            }
+        }
+        rows = matching;
+        rowCount = count;
+        if (topN > 0 && topN < rowCount) {
+            sort(rows, rowCount, PROBABILITY_COLUMN, false);
+            rowCount = topN;
+        }
+        sortRows();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Sorts the rows shown by the current sort column
+     */
+    private void sortRows() {
+        if (sortColumn >= 0) {
+            sort(rows, rowCount, sortColumn, ascending);
+        }
+    }
+
+    /**
+     * Stable merge sort of the ids, avoiding boxing every row
+     *
+     * @param ids       to sort
+     * @param count     number of ids to sort
+     * @param column    column to sort by
+     * @param ascending true to sort in ascending order
+     */
+    private void sort(int[] ids, int count, int column, boolean ascending) {
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, count);
+                int left = low;
+                int right = middle;
+                int out = low;
+                while (left < middle && right < high) {
+                    int comparison = compare(ids[left], ids[right], column);
+                    if (!ascending) {
+                        comparison = -comparison;
+                    }
+                    buffer[out++] = comparison <= 0 ? ids[left++] : ids[right++];
+                }
+                while (left < middle) {
+                    buffer[out++] = ids[left++];
+                }
+                while (right < high) {
+                    buffer[out++] = ids[right++];
+                }
+                System.arraycopy(buffer, low, ids, low, high - low);
+            }
+        }
+    }
+
+    /**
+     * @param first  state id
+     * @param second state id
+     * @param column column to compare
+     * @return comparison of the two states' values in the column
+     */
+    private int compare(int first, int second, int column) {
+        if (column == STATE_COLUMN) {
+            return Integer.compare(first, second);
+        }
+        if (column == PROBABILITY_COLUMN) {
+            return Double.compare(probabilities[first], probabilities[second]);
+        }
+        return Integer.compare(tokenCount(first, column), tokenCount(second, column));
+    }
+}
@@ -0,0 +1,144 @@
+package pipe.gui.analysis;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * Displays a {@link StateTableModel} with controls for filtering the states by marking
+ * and showing only the most probable states. Clicking a column header sorts by that column.
+ */
+@SuppressWarnings("serial")
+public class StateTablePanel extends JPanel {
+    /**
+     * Table of states
+     */
+    private final JTable table = new JTable();
+
+    /**
+     * Filter expression entered by the user
+     */
+    private final JTextField filterText = new JTextField(20);
+
+    /**
+     * Number of most probable states to show, empty to show all
+     */
+    private final JTextField topNText = new JTextField(6);
+
+    /**
+     * Displays how many states are shown or why the filter is invalid
+     */
+    private final JLabel statusLabel = new JLabel(" ");
+
+    /**
+     * Model currently displayed, null if no results have been generated
+     */
+    private StateTableModel model;
+
+    public StateTablePanel() {
+        super(new BorderLayout());
+        setUp();
+    }
+
+    /**
+     * Sets up the filter controls and table
+     */
+    private void setUp() {
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(new JLabel("Filter:"));
+        filterText.setToolTipText("e.g. P0 >= 1, P1:Default = 0");
+        controls.add(filterText);
+        controls.add(new JLabel("Top N:"));
+        controls.add(topNText);
+        JButton applyButton = new JButton("Apply");
+        ActionListener apply = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                applyFilter();
+            }
+        };
+        applyButton.addActionListener(apply);
+        filterText.addActionListener(apply);
+        topNText.addActionListener(apply);
+        controls.add(applyButton);
+        controls.add(statusLabel);
+        add(controls, BorderLayout.NORTH);
+
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        table.setDefaultRenderer(Double.class, new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value == null ? "" : String.format("%.4e", (Double) value));
+            }
+        });
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                if (model != null && column >= 0) {
+                    model.toggleSort(column);
+                    updateStatus();
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(600, 300));
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    /**
+     * Displays the states, must be called on the event dispatch thread
+     *
+     * @param model states to display, null to clear the table
+     */
+    public void setModel(StateTableModel model) {
+        this.model = model;
+        filterText.setText("");
+        topNText.setText("");
+        table.setModel(model == null ? new DefaultTableModel() : model);
+        updateStatus();
+    }
+
+    /**
+     * Applies the filter and top N entered by the user
+     */
+    private void applyFilter() {
+        if (model == null) {
+            return;
+        }
+        try {
+            String topN = topNText.getText().trim();
+            int n = topN.isEmpty() ? 0 : Integer.parseInt(topN);
+            model.setFilter(filterText.getText());
+            model.setTopN(n);
+            updateStatus();
+        } catch (NumberFormatException e) {
+            statusLabel.setText("Top N must be a positive integer");
+        } catch (IllegalArgumentException e) {
+            statusLabel.setText(e.getMessage());
+        }
+    }
+
+    /**
+     * Displays the number of states shown and the sort order
+     */
+    private void updateStatus() {
+        if (model == null) {
+            statusLabel.setText(" ");
+            return;
+        }
+        String text = String.format("Showing %d of %d states", model.getRowCount(), model.getStateCount());
+        if (model.getSortColumn() >= 0) {
+            text += ", sorted by " + model.getColumnName(model.getSortColumn()) +
+                    (model.isAscending() ? " ascending" : " descending");
+        }
+        statusLabel.setText(text);
+    }
+}
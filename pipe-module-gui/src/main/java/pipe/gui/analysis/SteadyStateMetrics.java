@@ -0,0 +1,341 @@
+package pipe.gui.analysis;
+
+import pipe.gui.widget.StateStore;
+import pipe.steadystate.metrics.TransitionMetrics;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.visitor.ClonePetriNet;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Performance metrics of a steady state computed in a single pass over the states.
+ * <p>
+ * The states are split into contiguous id ranges which are processed in parallel. Each range
+ * reads every state's token counts from the {@link StateStore} once and accumulates all of the
+ * place metrics together, so adding a metric does not add another pass over the state space.
+ * The partial sums of each range are then added together.
+ * </p><p>
+ * Transition throughputs are computed in the same pass. The rates and input arcs of the timed
+ * transitions are read from the Petri net once into a {@link TransitionRates} shared by every
+ * range, which finds the transitions enabled in each state from the same token counts. Petri nets
+ * with functional rates or weights, infinite server transitions or place capacities cannot be read
+ * that way, for those each range evaluates {@link TransitionMetrics} against its own copy of the
+ * Petri net, rebuilding the states from the store a batch at a time.
+ * </p>
+ */
+public final class SteadyStateMetrics {
+    /**
+     * State spaces smaller than this are processed on the calling thread
+     */
+    private static final int PARALLEL_THRESHOLD = 10000;
+
+    /**
+     * Number of ranges each thread processes, more than one so that uneven ranges balance out
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * Number of states whose throughputs are evaluated together
+     */
+    private static final int THROUGHPUT_BATCH = 4096;
+
+    /**
+     * Sorted place ids
+     */
+    private final List<String> places;
+
+    /**
+     * Sorted token ids
+     */
+    private final List<String> tokens;
+
+    /**
+     * Average number of tokens indexed by place * tokens + token
+     */
+    private final double[] averageTokens;
+
+    /**
+     * Probability that each place holds at least one token
+     */
+    private final double[] utilisation;
+
+    /**
+     * Transition id to throughput, empty if throughputs were not requested
+     */
+    private final Map<String, Double> throughputs;
+
+    /**
+     * Computes every metric of the steady state
+     *
+     * @param states          states of the state space
+     * @param steadyState     steady state probability of each state
+     * @param petriNet        Petri net used for transition throughputs, or null to skip throughputs
+     * @param executorService executor to process ranges of states on
+     * @param threads         number of threads available in the executor
+     * @return metrics of the steady state
+     * @throws InterruptedException if interrupted while waiting for the ranges to be processed
+     */
+    public static SteadyStateMetrics compute(StateStore states, Map<Integer, Double> steadyState, PetriNet petriNet,
+                                             ExecutorService executorService, int threads)
+            throws InterruptedException {
+        int[] ids = new int[states.size()];
+        int count = 0;
+        for (int id = states.firstId(); id >= 0; id = states.nextId(id)) {
+            ids[count++] = id;
+        }
+        TransitionRates rates = petriNet == null ? null : TransitionRates.create(petriNet, states);
+        boolean evaluateOnNet = petriNet != null && rates == null;
+        int ranges = count < PARALLEL_THRESHOLD ? 1 : Math.max(1, threads * RANGES_PER_THREAD);
+        List<Range> tasks = new ArrayList<>(ranges);
+        for (int range = 0; range < ranges; range++) {
+            int start = (int) ((long) count * range / ranges);
+            int end = (int) ((long) count * (range + 1) / ranges);
+            PetriNet rangeNet = evaluateOnNet ? ClonePetriNet.clone(petriNet) : null;
+            tasks.add(new Range(states, steadyState, rates, rangeNet, ids, start, end));
+        }
+        Partial total = new Partial(states, rates);
+        if (ranges == 1) {
+            total.add(tasks.get(0).call());
+        } else {
+            try {
+                for (Future<Partial> future : executorService.invokeAll(tasks)) {
+                    total.add(future.get());
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Could not compute steady state metrics", e.getCause());
+            }
+        }
+        if (rates != null) {
+            for (int transition = 0; transition < rates.getIds().size(); transition++) {
+                total.throughputs.put(rates.getIds().get(transition), total.transitionThroughputs[transition]);
+            }
+        }
+        return new SteadyStateMetrics(states.getPlaces(), states.getTokens(), total);
+    }
+
+    /**
+     * @param places sorted place ids
+     * @param tokens sorted token ids
+     * @param total  sums over every state
+     */
+    private SteadyStateMetrics(List<String> places, List<String> tokens, Partial total) {
+        this.places = places;
+        this.tokens = tokens;
+        this.averageTokens = total.tokens;
+        this.utilisation = total.busy;
+        this.throughputs = Collections.unmodifiableMap(total.throughputs);
+    }
+
+    /**
+     * @return sorted place ids
+     */
+    public List<String> getPlaces() {
+        return places;
+    }
+
+    /**
+     * @return sorted token ids
+     */
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @param place index of the place
+     * @param token index of the token
+     * @return average number of tokens of the colour on the place
+     */
+    public double getAverageTokens(int place, int token) {
+        return averageTokens[place * tokens.size() + token];
+    }
+
+    /**
+     * @param place index of the place
+     * @return probability that the place holds at least one token of any colour
+     */
+    public double getUtilisation(int place) {
+        return utilisation[place];
+    }
+
+    /**
+     * @param place index of the place
+     * @return probability that the place holds no tokens
+     */
+    public double getEmptyProbability(int place) {
+        return 1 - utilisation[place];
+    }
+
+    /**
+     * @return transition id to throughput of every timed transition, empty if throughputs were not computed
+     */
+    public Map<String, Double> getThroughputs() {
+        return throughputs;
+    }
+
+    /**
+     * Sums accumulated over a range of states
+     */
+    private static final class Partial {
+        /**
+         * Probability weighted token counts indexed by place * tokens + token
+         */
+        private final double[] tokens;
+
+        /**
+         * Probability of states in which each place holds a token
+         */
+        private final double[] busy;
+
+        /**
+         * Partial throughput of each transition indexed as {@link TransitionRates#getIds}, empty if the
+         * throughputs are evaluated against the Petri net
+         */
+        private final double[] transitionThroughputs;
+
+        /**
+         * Transition id to partial throughput evaluated against the Petri net
+         */
+        private final Map<String, Double> throughputs = new HashMap<>();
+
+        /**
+         * @param states store holding the states
+         * @param rates  rates of the timed transitions, null if throughputs are not computed from them
+         */
+        private Partial(StateStore states, TransitionRates rates) {
+            tokens = new double[states.getPlaces().size() * states.getTokens().size()];
+            busy = new double[states.getPlaces().size()];
+            transitionThroughputs = new double[rates == null ? 0 : rates.getIds().size()];
+        }
+
+        /**
+         * @param other partial sums to add to this
+         */
+        private void add(Partial other) {
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] += other.tokens[i];
+            }
+            for (int i = 0; i < busy.length; i++) {
+                busy[i] += other.busy[i];
+            }
+            for (int i = 0; i < transitionThroughputs.length; i++) {
+                transitionThroughputs[i] += other.transitionThroughputs[i];
+            }
+            addThroughputs(other.throughputs);
+        }
+
+        /**
+         * @param other transition id to throughput to add to this
+         */
+        private void addThroughputs(Map<String, Double> other) {
+            for (Map.Entry<String, Double> entry : other.entrySet()) {
+                Double current = throughputs.get(entry.getKey());
+                throughputs.put(entry.getKey(), current == null ? entry.getValue() : current + entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Accumulates the metrics of a contiguous range of states
+     */
+    private static final class Range implements Callable<Partial> {
+        private final StateStore states;
+
+        private final Map<Integer, Double> steadyState;
+
+        /**
+         * Rates of the timed transitions shared by every range, null if throughputs are not computed from them
+         */
+        private final TransitionRates rates;
+
+        /**
+         * Copy of the Petri net used only by this range, null unless throughputs are evaluated against it
+         */
+        private final PetriNet petriNet;
+
+        private final int[] ids;
+
+        private final int start;
+
+        private final int end;
+
+        private Range(StateStore states, Map<Integer, Double> steadyState, TransitionRates rates, PetriNet petriNet,
+                      int[] ids, int start, int end) {
+            this.states = states;
+            this.steadyState = steadyState;
+            this.rates = rates;
+            this.petriNet = petriNet;
+            this.ids = ids;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Partial call() {
+            boolean withThroughputs = petriNet != null;
+            Partial partial = new Partial(states, rates);
+            int placeCount = states.getPlaces().size();
+            int tokenCount = states.getTokens().size();
+            int[] counts = new int[placeCount * tokenCount];
+            Map<Integer, ClassifiedState> rangeStates = withThroughputs ? new HashMap<Integer, ClassifiedState>()
+                    : null;
+            Map<Integer, Double> rangeProbabilities = withThroughputs ? new HashMap<Integer, Double>() : null;
+            for (int i = start; i < end; i++) {
+                int id = ids[i];
+                Double boxed = steadyState.get(id);
+                double probability = boxed == null ? 0 : boxed;
+                if (probability == 0) {
+                    continue;
+                }
+                for (int place = 0; place < placeCount; place++) {
+                    int onPlace = 0;
+                    for (int token = 0; token < tokenCount; token++) {
+                        int count = states.getTokenCount(id, place, token);
+                        counts[place * tokenCount + token] = count;
+                        partial.tokens[place * tokenCount + token] += probability * count;
+                        onPlace += count;
+                    }
+                    if (onPlace > 0) {
+                        partial.busy[place] += probability;
+                    }
+                }
+                if (rates != null) {
+                    rates.addThroughputs(counts, probability, partial.transitionThroughputs);
+                }
+                if (withThroughputs) {
+                    rangeStates.put(id, states.getState(id));
+                    rangeProbabilities.put(id, probability);
+                    if (rangeStates.size() == THROUGHPUT_BATCH) {
+                        addThroughputs(partial, rangeStates, rangeProbabilities);
+                    }
+                }
+            }
+            if (withThroughputs && !rangeStates.isEmpty()) {
+                addThroughputs(partial, rangeStates, rangeProbabilities);
+            }
+            return partial;
+        }
+
+        /**
+         * Adds the throughputs of a batch of states to the partial sums and empties the batch
+         *
+         * @param partial       partial sums of the range
+         * @param batch         state id to state
+         * @param probabilities state id to steady state probability
+         */
+        private void addThroughputs(Partial partial, Map<Integer, ClassifiedState> batch,
+                                    Map<Integer, Double> probabilities) {
+            partial.addThroughputs(TransitionMetrics.getTransitionThroughput(batch, probabilities, petriNet));
+            batch.clear();
+            probabilities.clear();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package pipe.gui.analysis;
+
+import pipe.steadystate.algorithm.ParallelGaussSeidel;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Steady state solvers the user can choose between
+ */
+public enum SteadyStateSolverType {
+    PARALLEL_GAUSS_SEIDEL("Parallel Gauss-Seidel") {
+        @Override
+        public TelemetrySteadyStateSolver create(double tolerance, int maxIterations, int threads,
+                                                 ExecutorService executorService) {
+            return new DelegatingSteadyStateSolver(toString(),
+                    new ParallelGaussSeidel(threads, executorService, PARALLEL_SUB_ITERATIONS), tolerance);
+        }
+
+        /**
+         * The library solver iterates until its own convergence test passes
+         */
+        @Override
+        public boolean honoursMaxIterations() {
+            return false;
+        }
+    },
+    GAUSS_SEIDEL("Gauss-Seidel") {
+        @Override
+        public TelemetrySteadyStateSolver create(double tolerance, int maxIterations, int threads,
+                                                 ExecutorService executorService) {
+            return new IterativeSteadyStateSolver.GaussSeidel(tolerance, maxIterations);
+        }
+    },
+    JACOBI("Jacobi") {
+        @Override
+        public TelemetrySteadyStateSolver create(double tolerance, int maxIterations, int threads,
+                                                 ExecutorService executorService) {
+            return new IterativeSteadyStateSolver.Jacobi(tolerance, maxIterations);
+        }
+    },
+    POWER("Power method") {
+        @Override
+        public TelemetrySteadyStateSolver create(double tolerance, int maxIterations, int threads,
+                                                 ExecutorService executorService) {
+            return new IterativeSteadyStateSolver.Power(tolerance, maxIterations);
+        }
+    },
+    DIRECT("Direct (up to " + DirectSteadyStateSolver.MAX_DIRECT_STATES + " states)") {
+        @Override
+        public TelemetrySteadyStateSolver create(double tolerance, int maxIterations, int threads,
+                                                 ExecutorService executorService) {
+            return new DirectSteadyStateSolver(tolerance, maxIterations);
+        }
+    };
+
+    /**
+     * Default residual below which a solution is considered converged
+     */
+    public static final double DEFAULT_TOLERANCE = 1e-10;
+
+    /**
+     * Default maximum number of iterations for the iterative solvers
+     */
+    public static final int DEFAULT_MAX_ITERATIONS = 10000;
+
+    /**
+     * Iterations each thread of the parallel Gauss-Seidel solver performs on its share of
+     * the states before the threads synchronise
+     */
+    private static final int PARALLEL_SUB_ITERATIONS = 10;
+
+    /**
+     * Name displayed to the user
+     */
+    private final String displayName;
+
+    /**
+     * @param displayName name displayed to the user
+     */
+    SteadyStateSolverType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * @param tolerance       residual below which a solution is considered converged
+     * @param maxIterations   maximum number of iterations for the iterative solvers
+     * @param threads         number of threads for solvers that run in parallel
+     * @param executorService executor for solvers that run in parallel
+     * @return a new solver of this type
+     */
+    public abstract TelemetrySteadyStateSolver create(double tolerance, int maxIterations, int threads,
+                                                      ExecutorService executorService);
+
+    /**
+     * @return true if solvers of this type stop after the maximum number of iterations passed to
+     * {@link #create}, false if they ignore it and run until they converge
+     */
+    public boolean honoursMaxIterations() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,101 @@
+package pipe.gui.analysis;
+
+import pipe.steadystate.algorithm.SteadyStateSolver;
+import uk.ac.imperial.state.Record;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Steady state solver that records how it converged.
+ * <p>
+ * The records are converted into a {@link RateMatrix} once and the solution is checked
+ * against it, so every solver reports its residual in the same terms.
+ * </p>
+ */
+public abstract class TelemetrySteadyStateSolver implements SteadyStateSolver {
+    /**
+     * Infinity norm of pi Q below which the solution is considered converged
+     */
+    protected final double tolerance;
+
+    /**
+     * Maximum number of iterations before giving up
+     */
+    protected final int maxIterations;
+
+    /**
+     * Telemetry of the most recent solve
+     */
+    private volatile SolverTelemetry telemetry;
+
+    /**
+     * @param tolerance     infinity norm of pi Q below which the solution is considered converged
+     * @param maxIterations maximum number of iterations before giving up
+     */
+    protected TelemetrySteadyStateSolver(double tolerance, int maxIterations) {
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @param records state space records
+     * @return state id to steady state probability
+     */
+    @Override
+    public final Map<Integer, Double> solve(List<Record> records) {
+        long start = System.nanoTime();
+        RateMatrix matrix = RateMatrix.of(records);
+        SolverTelemetry current = new SolverTelemetry(nameFor(matrix));
+        double[] pi = solve(records, matrix, current);
+        double residual = matrix.residual(pi);
+        current.finish(residual, (System.nanoTime() - start) / 1000000, residual <= tolerance);
+        telemetry = current;
+        return matrix.toMap(pi);
+    }
+
+    /**
+     * @return convergence information of the most recent solve, or null if nothing has been solved
+     */
+    public SolverTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * @return name of this solver
+     */
+    public abstract String getName();
+
+    /**
+     * @param matrix generator matrix about to be solved
+     * @return name of the method that will actually solve the matrix, reported in the telemetry
+     */
+    protected String nameFor(RateMatrix matrix) {
+        return getName();
+    }
+
+    /**
+     * @param records   state space records
+     * @param matrix    generator matrix of the records
+     * @param telemetry recorder for each iteration
+     * @return steady state distribution indexed densely by the matrix
+     */
+    protected abstract double[] solve(List<Record> records, RateMatrix matrix, SolverTelemetry telemetry);
+
+    /**
+     * Scales the distribution so that it sums to one
+     *
+     * @param pi distribution
+     */
+    static void normalise(double[] pi) {
+        double sum = 0;
+        for (double probability : pi) {
+            sum += probability;
+        }
+        if (sum > 0) {
+            for (int i = 0; i < pi.length; i++) {
+                pi[i] /= sum;
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package pipe.gui.analysis;
+
+import pipe.gui.widget.StateStore;
+import uk.ac.imperial.pipe.models.petrinet.ArcType;
+import uk.ac.imperial.pipe.models.petrinet.InboundArc;
+import uk.ac.imperial.pipe.models.petrinet.OutboundArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.pipe.parsers.FunctionalResults;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rates and input arcs of the timed transitions of a Petri net, read from the Petri net once so that
+ * the transitions enabled in a state and their rates can be found from the token counts held in the
+ * {@link StateStore}. Nothing is evaluated against the Petri net afterwards, so one instance can be
+ * shared by every thread computing metrics.
+ * <p>
+ * Only constant rates and arc weights, single server transitions, normal and inhibitor arcs and places
+ * without a capacity can be read this way, {@link #create} returns null for any other Petri net.
+ * </p>
+ */
+final class TransitionRates {
+    /**
+     * Transition ids
+     */
+    private final List<String> ids;
+
+    /**
+     * Rate of each transition
+     */
+    private final double[] rates;
+
+    /**
+     * Priority of each transition
+     */
+    private final int[] priorities;
+
+    /**
+     * Indexes into the token counts of a state, place * tokens + token, that each transition consumes from
+     */
+    private final int[][] inputs;
+
+    /**
+     * Number of tokens each transition needs at each of its inputs
+     */
+    private final int[][] weights;
+
+    /**
+     * Places that must be empty for each transition to be enabled
+     */
+    private final int[][] inhibitors;
+
+    /**
+     * Number of token colours in the store
+     */
+    private final int tokenCount;
+
+    /**
+     * Reads the timed transitions of the Petri net
+     *
+     * @param petriNet Petri net whose transitions are read
+     * @param states   store holding the states whose token counts are used
+     * @return rates of the timed transitions, or null if the Petri net uses a feature that is not supported
+     */
+    static TransitionRates create(PetriNet petriNet, StateStore states) {
+        List<String> ids = new ArrayList<>();
+        List<Double> rates = new ArrayList<>();
+        List<Integer> priorities = new ArrayList<>();
+        List<int[]> inputs = new ArrayList<>();
+        List<int[]> weights = new ArrayList<>();
+        List<int[]> inhibitors = new ArrayList<>();
+        int tokenCount = states.getTokens().size();
+        for (Transition transition : petriNet.getTransitions()) {
+            if (!transition.isTimed()) {
+                continue;
+            }
+            Double rate = constant(petriNet, transition.getRateExpr());
+            if (rate == null || transition.isInfiniteServer()) {
+                return null;
+            }
+            for (OutboundArc arc : petriNet.outboundArcs(transition)) {
+                if (arc.getTarget().getCapacity() > 0) {
+                    return null;
+                }
+            }
+            List<Integer> transitionInputs = new ArrayList<>();
+            List<Integer> transitionWeights = new ArrayList<>();
+            List<Integer> transitionInhibitors = new ArrayList<>();
+            for (InboundArc arc : petriNet.inboundArcs(transition)) {
+                int place = states.placeIndex(arc.getSource().getId());
+                if (arc.getType() == ArcType.INHIBITOR) {
+                    transitionInhibitors.add(place);
+                } else if (arc.getType() == ArcType.NORMAL) {
+                    for (Map.Entry<String, String> entry : arc.getTokenWeights().entrySet()) {
+                        Double weight = constant(petriNet, entry.getValue());
+                        if (weight == null) {
+                            return null;
+                        }
+                        int token = states.tokenIndex(entry.getKey());
+                        transitionInputs.add(place < 0 || token < 0 ? -1 : place * tokenCount + token);
+                        transitionWeights.add(weight.intValue());
+                    }
+                } else {
+                    return null;
+                }
+            }
+            ids.add(transition.getId());
+            rates.add(rate);
+            priorities.add(transition.getPriority());
+            inputs.add(toArray(transitionInputs));
+            weights.add(toArray(transitionWeights));
+            inhibitors.add(toArray(transitionInhibitors));
+        }
+        return new TransitionRates(ids, rates, priorities, inputs, weights, inhibitors, tokenCount);
+    }
+
+    /**
+     * @param petriNet   Petri net the expression belongs to
+     * @param expression rate or arc weight expression
+     * @return value of the expression, or null if it is invalid or depends on the marking
+     */
+    private static Double constant(PetriNet petriNet, String expression) {
+        FunctionalResults<Double> result = petriNet.parseExpression(expression);
+        if (result.hasErrors() || !result.getComponents().isEmpty()) {
+            return null;
+        }
+        return result.getResult();
+    }
+
+    /**
+     * @param values boxed values
+     * @return values in an array
+     */
+    private static int[] toArray(Collection<Integer> values) {
+        int[] array = new int[values.size()];
+        int index = 0;
+        for (int value : values) {
+            array[index++] = value;
+        }
+        return array;
+    }
+
+    private TransitionRates(List<String> ids, List<Double> rates, List<Integer> priorities, List<int[]> inputs,
+                            List<int[]> weights, List<int[]> inhibitors, int tokenCount) {
+        this.ids = Collections.unmodifiableList(ids);
+        this.rates = new double[rates.size()];
+        this.priorities = new int[priorities.size()];
+        for (int transition = 0; transition < ids.size(); transition++) {
+            this.rates[transition] = rates.get(transition);
+            this.priorities[transition] = priorities.get(transition);
+        }
+        this.inputs = inputs.toArray(new int[inputs.size()][]);
+        this.weights = weights.toArray(new int[weights.size()][]);
+        this.inhibitors = inhibitors.toArray(new int[inhibitors.size()][]);
+        this.tokenCount = tokenCount;
+    }
+
+    /**
+     * @return ids of the timed transitions, indexed as the throughputs passed to {@link #addThroughputs}
+     */
+    List<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * Adds the probability weighted rate of every transition enabled in the state to the throughputs.
+     * As in the animation logic only the enabled transitions with the highest priority are enabled.
+     *
+     * @param counts      token counts of the state indexed by place * tokens + token
+     * @param probability steady state probability of the state
+     * @param throughputs partial throughput of each transition, indexed as {@link #getIds}
+     */
+    void addThroughputs(int[] counts, double probability, double[] throughputs) {
+        int maxPriority = Integer.MIN_VALUE;
+        for (int transition = 0; transition < rates.length; transition++) {
+            if (priorities[transition] > maxPriority && isEnabled(transition, counts)) {
+                maxPriority = priorities[transition];
+            }
+        }
+        for (int transition = 0; transition < rates.length; transition++) {
+            if (priorities[transition] == maxPriority && isEnabled(transition, counts)) {
+                throughputs[transition] += probability * rates[transition];
+            }
+        }
+    }
+
+    /**
+     * @param transition index of the transition
+     * @param counts     token counts of the state indexed by place * tokens + token
+     * @return true if the transition is enabled in the state
+     */
+    private boolean isEnabled(int transition, int[] counts) {
+        int[] transitionInputs = inputs[transition];
+        int[] transitionWeights = weights[transition];
+        for (int input = 0; input < transitionInputs.length; input++) {
+            int available = transitionInputs[input] < 0 ? 0 : counts[transitionInputs[input]];
+            if (available < transitionWeights[input]) {
+                return false;
+            }
+        }
+        for (int place : inhibitors[transition]) {
+            if (place < 0) {
+                continue;
+            }
+            for (int token = 0; token < tokenCount; token++) {
+                if (counts[place * tokenCount + token] > 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
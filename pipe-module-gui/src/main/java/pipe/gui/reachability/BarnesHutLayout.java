@@ -0,0 +1,530 @@
+package pipe.gui.reachability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Force directed layout of a {@link StateGraph} using the Fruchterman-Reingold model with
+ * Barnes-Hut approximation of the repulsive forces.
+ * <p>
+ * Each iteration builds a quadtree of the current positions so the repulsion on a state is
+ * approximated from distant groups of states in O(log n), rather than from every other state.
+ * The forces on each state are accumulated independently, so states are split into ranges that are
+ * processed in parallel. Transitions are treated as undirected springs.
+ * </p><p>
+ * States start at positions drawn from a seeded random number generator and every state's force
+ * is summed in the same order regardless of how many threads are used, so the same seed always
+ * produces the same layout.
+ * </p>
+ */
+public final class BarnesHutLayout {
+    /**
+     * Default seed of the initial placement
+     */
+    public static final long DEFAULT_SEED = 42;
+
+    /**
+     * Default number of iterations to run
+     */
+    public static final int DEFAULT_ITERATIONS = 300;
+
+    /**
+     * Ideal distance between connected states
+     */
+    private static final double IDEAL_LENGTH = GraphLayout.SPACING;
+
+    /**
+     * Groups of states whose size divided by their distance is below this are treated as a single body
+     */
+    private static final double THETA = 0.8;
+
+    /**
+     * Layouts of fewer states than this are computed on the calling thread
+     */
+    private static final int PARALLEL_THRESHOLD = 2000;
+
+    /**
+     * Maximum depth of the quadtree, states that still share a cell at this depth are merged
+     */
+    private static final int MAX_DEPTH = 32;
+
+    /**
+     * Seed of the initial placement
+     */
+    private final long seed;
+
+    /**
+     * Number of iterations to run
+     */
+    private final int iterations;
+
+    /**
+     * Number of threads to accumulate forces on
+     */
+    private final int threads;
+
+    /**
+     * Executor to accumulate forces on, may be null if threads is one
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * @param seed            seed of the initial placement
+     * @param iterations      number of iterations to run
+     * @param threads         number of threads to accumulate forces on
+     * @param executorService executor to accumulate forces on, may be null if threads is one
+     */
+    public BarnesHutLayout(long seed, int iterations, int threads, ExecutorService executorService) {
+        this.seed = seed;
+        this.iterations = iterations;
+        this.threads = threads;
+        this.executorService = executorService;
+    }
+
+    /**
+     * Lays out every state of the graph
+     *
+     * @param graph state space to lay out
+     * @return positions indexed by state id
+     * @throws InterruptedException if interrupted while laying out
+     */
+    public GraphLayout layout(StateGraph graph) throws InterruptedException {
+        int[] states = new int[graph.getStateCount()];
+        for (int state = 0; state < states.length; state++) {
+            states[state] = state;
+        }
+        return layout(graph, states);
+    }
+
+    /**
+     * Lays out a subset of the graph, only transitions between states in the subset are considered
+     *
+     * @param graph  state space the states belong to
+     * @param states ids of the states to lay out
+     * @return positions indexed by position in states
+     * @throws InterruptedException if interrupted while laying out
+     */
+    public GraphLayout layout(StateGraph graph, int[] states) throws InterruptedException {
+        int size = states.length;
+        int[] local = new int[graph.getStateCount()];
+        Arrays.fill(local, -1);
+        for (int i = 0; i < size; i++) {
+            local[states[i]] = i;
+        }
+        int[] neighbourStart = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            neighbourStart[i + 1] = neighbourStart[i] + countNeighbours(graph, states[i], local);
+        }
+        int[] neighbours = new int[neighbourStart[size]];
+        for (int i = 0; i < size; i++) {
+            int position = neighbourStart[i];
+            int state = states[i];
+            for (int t = graph.successorStart(state); t < graph.successorEnd(state); t++) {
+                int neighbour = local[graph.getSuccessor(t)];
+                if (neighbour >= 0 && neighbour != i) {
+                    neighbours[position++] = neighbour;
+                }
+            }
+            for (int p = graph.predecessorStart(state); p < graph.predecessorEnd(state); p++) {
+                int neighbour = local[graph.getSource(graph.getIncoming(p))];
+                if (neighbour >= 0 && neighbour != i) {
+                    neighbours[position++] = neighbour;
+                }
+            }
+        }
+        return run(size, neighbourStart, neighbours);
+    }
+
+    /**
+     * @param graph state space
+     * @param state state id
+     * @param local position of each state in the subset, -1 if it is not in the subset
+     * @return number of transitions into and out of the state that stay within the subset
+     */
+    private static int countNeighbours(StateGraph graph, int state, int[] local) {
+        int count = 0;
+        int self = local[state];
+        for (int t = graph.successorStart(state); t < graph.successorEnd(state); t++) {
+            int neighbour = local[graph.getSuccessor(t)];
+            if (neighbour >= 0 && neighbour != self) {
+                count++;
+            }
+        }
+        for (int p = graph.predecessorStart(state); p < graph.predecessorEnd(state); p++) {
+            int neighbour = local[graph.getSource(graph.getIncoming(p))];
+            if (neighbour >= 0 && neighbour != self) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Runs the simulation
+     *
+     * @param size           number of bodies
+     * @param neighbourStart start of each body's neighbours
+     * @param neighbours     neighbours of every body
+     * @return final positions
+     * @throws InterruptedException if interrupted while laying out
+     */
+    private GraphLayout run(int size, int[] neighbourStart, int[] neighbours) throws InterruptedException {
+        double side = Math.sqrt(Math.max(1, size)) * IDEAL_LENGTH;
+        double[] x = new double[size];
+        double[] y = new double[size];
+        Random random = new Random(seed);
+        for (int i = 0; i < size; i++) {
+            x[i] = random.nextDouble() * side;
+            y[i] = random.nextDouble() * side;
+        }
+        double[] forceX = new double[size];
+        double[] forceY = new double[size];
+        int ranges = size < PARALLEL_THRESHOLD || executorService == null ? 1 : Math.max(1, threads);
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            QuadTree tree = new QuadTree(x, y);
+            List<ForceTask> tasks = new ArrayList<>(ranges);
+            for (int range = 0; range < ranges; range++) {
+                tasks.add(new ForceTask(tree, x, y, forceX, forceY, neighbourStart, neighbours,
+                        (int) ((long) size * range / ranges), (int) ((long) size * (range + 1) / ranges)));
+            }
+            if (ranges == 1) {
+                tasks.get(0).call();
+            } else {
+                try {
+                    for (Future<Void> future : executorService.invokeAll(tasks)) {
+                        future.get();
+                    }
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Could not lay out graph", e.getCause());
+                }
+            }
+
+            // Linear cooling limits how far a state may move, letting the layout settle
+            double temperature = side / 10 * (1 - (double) iteration / iterations);
+            for (int i = 0; i < size; i++) {
+                double length = Math.hypot(forceX[i], forceY[i]);
+                if (length > 0) {
+                    double move = Math.min(length, temperature) / length;
+                    x[i] += forceX[i] * move;
+                    y[i] += forceY[i] * move;
+                }
+            }
+        }
+
+        float[] layoutX = new float[size];
+        float[] layoutY = new float[size];
+        for (int i = 0; i < size; i++) {
+            layoutX[i] = (float) x[i];
+            layoutY[i] = (float) y[i];
+        }
+        return new GraphLayout(layoutX, layoutY);
+    }
+
+    /**
+     * Accumulates the net force on a range of bodies
+     */
+    private static final class ForceTask implements Callable<Void> {
+        private final QuadTree tree;
+
+        private final double[] x;
+
+        private final double[] y;
+
+        private final double[] forceX;
+
+        private final double[] forceY;
+
+        private final int[] neighbourStart;
+
+        private final int[] neighbours;
+
+        private final int start;
+
+        private final int end;
+
+        private ForceTask(QuadTree tree, double[] x, double[] y, double[] forceX, double[] forceY,
+                          int[] neighbourStart, int[] neighbours, int start, int end) {
+            this.tree = tree;
+            this.x = x;
+            this.y = y;
+            this.forceX = forceX;
+            this.forceY = forceY;
+            this.neighbourStart = neighbourStart;
+            this.neighbours = neighbours;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Void call() {
+            double[] force = new double[2];
+            int[] stack = tree.newStack();
+            for (int i = start; i < end; i++) {
+                force[0] = 0;
+                force[1] = 0;
+                tree.repulse(i, x[i], y[i], force, stack);
+                for (int n = neighbourStart[i]; n < neighbourStart[i + 1]; n++) {
+                    int neighbour = neighbours[n];
+                    double dx = x[neighbour] - x[i];
+                    double dy = y[neighbour] - y[i];
+                    double distance = Math.hypot(dx, dy);
+                    // Attraction d^2 / k along the unit vector
+                    double attraction = distance / IDEAL_LENGTH;
+                    force[0] += dx * attraction;
+                    force[1] += dy * attraction;
+                }
+                forceX[i] = force[0];
+                forceY[i] = force[1];
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Array based quadtree of body positions, each cell stores the number of bodies it contains
+     * and their centre of mass
+     */
+    private static final class QuadTree {
+        /**
+         * Marks a cell with no children
+         */
+        private static final int LEAF = -1;
+
+        /**
+         * Marks a leaf holding no body
+         */
+        private static final int NO_BODY = -1;
+
+        private final double[] x;
+
+        private final double[] y;
+
+        /**
+         * Minimum x, minimum y and size of each cell
+         */
+        private double[] cellX;
+
+        private double[] cellY;
+
+        private double[] cellSize;
+
+        /**
+         * Centre of mass of each cell
+         */
+        private double[] massX;
+
+        private double[] massY;
+
+        /**
+         * Number of bodies in each cell
+         */
+        private int[] mass;
+
+        /**
+         * First of the four consecutive children of each cell, or LEAF
+         */
+        private int[] children;
+
+        /**
+         * Body held by each leaf, or NO_BODY
+         */
+        private int[] body;
+
+        /**
+         * Leaf each body was placed in. Bodies merged into a leaf at MAX_DEPTH are not
+         * recorded in body, so this is how a body finds its own contribution to a leaf's mass
+         */
+        private final int[] leafOf;
+
+        /**
+         * Number of cells in use
+         */
+        private int cellCount;
+
+        private QuadTree(double[] x, double[] y) {
+            this.x = x;
+            this.y = y;
+            int capacity = Math.max(16, x.length * 4);
+            cellX = new double[capacity];
+            cellY = new double[capacity];
+            cellSize = new double[capacity];
+            massX = new double[capacity];
+            massY = new double[capacity];
+            mass = new int[capacity];
+            children = new int[capacity];
+            body = new int[capacity];
+            leafOf = new int[x.length];
+
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < x.length; i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+            double size = Math.max(1, Math.max(maxX - minX, maxY - minY)) * 1.0001;
+            newCell(minX, minY, size);
+            for (int i = 0; i < x.length; i++) {
+                insert(i);
+            }
+        }
+
+        /**
+         * @return index of a new empty leaf cell
+         */
+        private int newCell(double left, double top, double size) {
+            if (cellCount == children.length) {
+                int capacity = cellCount * 2;
+                cellX = Arrays.copyOf(cellX, capacity);
+                cellY = Arrays.copyOf(cellY, capacity);
+                cellSize = Arrays.copyOf(cellSize, capacity);
+                massX = Arrays.copyOf(massX, capacity);
+                massY = Arrays.copyOf(massY, capacity);
+                mass = Arrays.copyOf(mass, capacity);
+                children = Arrays.copyOf(children, capacity);
+                body = Arrays.copyOf(body, capacity);
+            }
+            int cell = cellCount++;
+            cellX[cell] = left;
+            cellY[cell] = top;
+            cellSize[cell] = size;
+            children[cell] = LEAF;
+            body[cell] = NO_BODY;
+            return cell;
+        }
+
+        /**
+         * Adds the body to the tree, splitting leaves that already hold a body
+         *
+         * @param b body index
+         */
+        private void insert(int b) {
+            int cell = 0;
+            for (int depth = 0; ; depth++) {
+                massX[cell] = (massX[cell] * mass[cell] + x[b]) / (mass[cell] + 1);
+                massY[cell] = (massY[cell] * mass[cell] + y[b]) / (mass[cell] + 1);
+                mass[cell]++;
+                if (children[cell] == LEAF) {
+                    if (body[cell] == NO_BODY && mass[cell] == 1) {
+                        body[cell] = b;
+                        leafOf[b] = cell;
+                        return;
+                    }
+                    if (depth >= MAX_DEPTH) {
+                        // Coincident bodies are merged into this leaf's mass
+                        leafOf[b] = cell;
+                        return;
+                    }
+                    int existing = body[cell];
+                    body[cell] = NO_BODY;
+                    split(cell);
+                    if (existing != NO_BODY) {
+                        int child = childFor(cell, x[existing], y[existing]);
+                        massX[child] = x[existing];
+                        massY[child] = y[existing];
+                        mass[child] = 1;
+                        body[child] = existing;
+                        leafOf[existing] = child;
+                    }
+                }
+                cell = childFor(cell, x[b], y[b]);
+            }
+        }
+
+        /**
+         * @param cell leaf to give four children
+         */
+        private void split(int cell) {
+            double half = cellSize[cell] / 2;
+            double left = cellX[cell];
+            double top = cellY[cell];
+            int first = newCell(left, top, half);
+            newCell(left + half, top, half);
+            newCell(left, top + half, half);
+            newCell(left + half, top + half, half);
+            children[cell] = first;
+        }
+
+        /**
+         * @return child of the cell containing the point
+         */
+        private int childFor(int cell, double px, double py) {
+            double half = cellSize[cell] / 2;
+            int quadrant = (px >= cellX[cell] + half ? 1 : 0) + (py >= cellY[cell] + half ? 2 : 0);
+            return children[cell] + quadrant;
+        }
+
+        /**
+         * @return true if the point lies within the cell, a cell containing the body being repulsed
+         * is never approximated as a whole since its mass includes the body itself
+         */
+        private boolean contains(int cell, double px, double py) {
+            return px >= cellX[cell] && px < cellX[cell] + cellSize[cell]
+                    && py >= cellY[cell] && py < cellY[cell] + cellSize[cell];
+        }
+
+        /**
+         * @return stack large enough to traverse the tree, reused across calls to repulse by one thread
+         */
+        private int[] newStack() {
+            return new int[MAX_DEPTH * 3 + 4];
+        }
+
+        /**
+         * Adds the repulsion k^2 / d from every other body to force
+         *
+         * @param b     body to exclude
+         * @param px    x coordinate of the body
+         * @param py    y coordinate of the body
+         * @param force x and y force to add to
+         * @param stack traversal stack from newStack
+         */
+        private void repulse(int b, double px, double py, double[] force, int[] stack) {
+            int top = 0;
+            stack[top++] = 0;
+            int own = leafOf[b];
+            while (top > 0) {
+                int cell = stack[--top];
+                if (mass[cell] == 0 || cell == own && mass[cell] == 1) {
+                    continue;
+                }
+                double dx = px - massX[cell];
+                double dy = py - massY[cell];
+                double distanceSquared = dx * dx + dy * dy;
+                boolean leaf = children[cell] == LEAF;
+                if (leaf || !contains(cell, px, py)
+                        && cellSize[cell] * cellSize[cell] < THETA * THETA * distanceSquared) {
+                    int bodies = cell == own ? mass[cell] - 1 : mass[cell];
+                    if (distanceSquared < 1e-6) {
+                        // Separate coincident bodies in a direction fixed by their indexes
+                        dx = (b % 7) - 3 + 0.5;
+                        dy = (b % 5) - 2 + 0.5;
+                        distanceSquared = dx * dx + dy * dy;
+                    }
+                    double repulsion = bodies * IDEAL_LENGTH * IDEAL_LENGTH / distanceSquared;
+                    force[0] += dx * repulsion;
+                    force[1] += dy * repulsion;
+                } else {
+                    int first = children[cell];
+                    stack[top++] = first;
+                    stack[top++] = first + 1;
+                    stack[top++] = first + 2;
+                    stack[top++] = first + 3;
+                }
+            }
+        }
+    }
+}
@@ -15,7 +15,15 @@ import net.sourceforge.jpowergraph.Node;
  * </p>
  */
 public class DirectedTextEdge implements Edge {
-    private final String text;
+    /**
+     * Rate of the transition, its text is only rendered when the edge is painted
+     */
+    private final double rate;
+
+    /**
+     * Text of the rate, formatted the first time the edge is painted
+     */
+    private String text;
 
     /**
      * The node from the edge.
@@ -32,12 +40,12 @@ public class DirectedTextEdge implements Edge {
      *
      * @param from the node from
      * @param to   the node to
-     * @param text the edge text
+     * @param rate the rate of the transition
      */
-    public DirectedTextEdge(Node from, Node to, String text) {
+    public DirectedTextEdge(Node from, Node to, double rate) {
         this.from = from;
         this.to = to;
-        this.text = text;
+        this.rate = rate;
     }
 
     /**
@@ -98,11 +106,22 @@ public class DirectedTextEdge implements Edge {
         this.from = from;
     }
 
+    /**
+     *
+     * @return rate of the transition
+     */
+    public double getRate() {
+        return rate;
+    }
+
     /**
      *
      * @return text to display on edge
      */
     public String getText() {
+        if (text == null) {
+            text = LabelCache.formatRate(rate);
+        }
         return text;
     }
 }
@@ -0,0 +1,190 @@
+package pipe.gui.reachability;
+
+/**
+ * Index of the transitions of a {@link StateGraph} by the cells of a {@link SpatialGrid} that their
+ * bounding boxes overlap, used to find every transition that may cross a region even when neither of
+ * its states is inside it. The transitions of each cell are stored contiguously in one int array.
+ * <p>
+ * Transitions whose bounding box covers more than {@link #MAX_CELLS_PER_EDGE} cells are kept in a
+ * separate list and tested against the region directly, so a few long transitions do not fill every
+ * cell they pass over. Transitions from a state to itself are not indexed since they are not drawn.
+ * </p>
+ */
+final class EdgeGrid {
+    /**
+     * Transitions covering more cells than this are tested directly rather than indexed
+     */
+    static final int MAX_CELLS_PER_EDGE = 16;
+
+    /**
+     * Adjacency of the states
+     */
+    private final StateGraph graph;
+
+    /**
+     * Positions of the states
+     */
+    private final GraphLayout layout;
+
+    /**
+     * Cells the transitions are indexed by
+     */
+    private final SpatialGrid grid;
+
+    /**
+     * Start of each cell's transitions in cellEdges, has one more entry than there are cells
+     */
+    private final int[] cellStart;
+
+    /**
+     * Transition indexes ordered by cell, a transition appears in every cell its bounding box overlaps
+     */
+    private final int[] cellEdges;
+
+    /**
+     * Transitions covering too many cells to be indexed
+     */
+    private final int[] longEdges;
+
+    /**
+     * @param graph  transitions to index
+     * @param layout positions of the states
+     * @param grid   cells to index the transitions by
+     */
+    EdgeGrid(StateGraph graph, GraphLayout layout, SpatialGrid grid) {
+        this.graph = graph;
+        this.layout = layout;
+        this.grid = grid;
+        int columns = grid.getColumns();
+        int cells = columns * grid.getRows();
+        cellStart = new int[cells + 1];
+        int longCount = 0;
+        for (int t = 0; t < graph.getTransitionCount(); t++) {
+            if (isLoop(t)) {
+                continue;
+            }
+            if (cellCount(t) > MAX_CELLS_PER_EDGE) {
+                longCount++;
+                continue;
+            }
+            for (int row = firstRow(t); row <= lastRow(t); row++) {
+                for (int column = firstColumn(t); column <= lastColumn(t); column++) {
+                    cellStart[row * columns + column + 1]++;
+                }
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] next = new int[cells];
+        System.arraycopy(cellStart, 0, next, 0, cells);
+        cellEdges = new int[cellStart[cells]];
+        longEdges = new int[longCount];
+        longCount = 0;
+        for (int t = 0; t < graph.getTransitionCount(); t++) {
+            if (isLoop(t)) {
+                continue;
+            }
+            if (cellCount(t) > MAX_CELLS_PER_EDGE) {
+                longEdges[longCount++] = t;
+                continue;
+            }
+            for (int row = firstRow(t); row <= lastRow(t); row++) {
+                for (int column = firstColumn(t); column <= lastColumn(t); column++) {
+                    cellEdges[next[row * columns + column]++] = t;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the transitions whose bounding boxes overlap the region. Each transition is reported once,
+     * from the first cell of the region that its bounding box overlaps.
+     *
+     * @param minX        smallest world x coordinate of the region
+     * @param minY        smallest world y coordinate of the region
+     * @param maxX        largest world x coordinate of the region
+     * @param maxY        largest world y coordinate of the region
+     * @param transitions filled with the transitions found, its length bounds how many are found
+     * @return number of transitions found
+     */
+    int query(float minX, float minY, float maxX, float maxY, int[] transitions) {
+        int firstColumn = grid.column(minX);
+        int lastColumn = grid.column(maxX);
+        int firstRow = grid.row(minY);
+        int lastRow = grid.row(maxY);
+        int columns = grid.getColumns();
+        int count = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int t = cellEdges[i];
+                    if (Math.max(firstColumn(t), firstColumn) != column || Math.max(firstRow(t), firstRow) != row) {
+                        continue;
+                    }
+                    if (count == transitions.length) {
+                        return count;
+                    }
+                    transitions[count++] = t;
+                }
+            }
+        }
+        for (int t : longEdges) {
+            int source = graph.getSource(t);
+            int successor = graph.getSuccessor(t);
+            float x1 = layout.getX(source);
+            float x2 = layout.getX(successor);
+            float y1 = layout.getY(source);
+            float y2 = layout.getY(successor);
+            if (Math.max(x1, x2) < minX || Math.min(x1, x2) > maxX || Math.max(y1, y2) < minY
+                    || Math.min(y1, y2) > maxY) {
+                continue;
+            }
+            if (count == transitions.length) {
+                return count;
+            }
+            transitions[count++] = t;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of transitions tested directly rather than indexed
+     */
+    int getLongEdgeCount() {
+        return longEdges.length;
+    }
+
+    /**
+     * @param t transition index
+     * @return true if the transition returns to the state it leaves
+     */
+    private boolean isLoop(int t) {
+        return graph.getSource(t) == graph.getSuccessor(t);
+    }
+
+    /**
+     * @param t transition index
+     * @return number of cells the transition's bounding box overlaps
+     */
+    private long cellCount(int t) {
+        return (long) (lastColumn(t) - firstColumn(t) + 1) * (lastRow(t) - firstRow(t) + 1);
+    }
+
+    private int firstColumn(int t) {
+        return Math.min(grid.column(layout.getX(graph.getSource(t))), grid.column(layout.getX(graph.getSuccessor(t))));
+    }
+
+    private int lastColumn(int t) {
+        return Math.max(grid.column(layout.getX(graph.getSource(t))), grid.column(layout.getX(graph.getSuccessor(t))));
+    }
+
+    private int firstRow(int t) {
+        return Math.min(grid.row(layout.getY(graph.getSource(t))), grid.row(layout.getY(graph.getSuccessor(t))));
+    }
+
+    private int lastRow(int t) {
+        return Math.max(grid.row(layout.getY(graph.getSource(t))), grid.row(layout.getY(graph.getSuccessor(t))));
+    }
+}
@@ -0,0 +1,116 @@
+package pipe.gui.reachability;
+
+import java.util.Arrays;
+
+/**
+ * Positions of every state of a {@link StateGraph} in world coordinates
+ */
+public final class GraphLayout {
+    /**
+     * Distance between neighbouring states in a layered layout
+     */
+    static final float SPACING = 60;
+
+    /**
+     * Maximum number of states placed side by side before a layer wraps onto another row
+     */
+    private static final int MAX_ROW_LENGTH = 256;
+
+    /**
+     * x coordinate of each state
+     */
+    private final float[] x;
+
+    /**
+     * y coordinate of each state
+     */
+    private final float[] y;
+
+    /**
+     * Lays the states out in rows by their breadth first distance from the initial state,
+     * states unreachable from the initial state start new searches in id order
+     *
+     * @param graph state space to lay out
+     * @return layout of the graph
+     */
+    public static GraphLayout layered(StateGraph graph) {
+        int stateCount = graph.getStateCount();
+        int[] order = new int[stateCount];
+        int[] depth = new int[stateCount];
+        Arrays.fill(depth, -1);
+        int head = 0;
+        int tail = 0;
+        for (int root = 0; root < stateCount; root++) {
+            if (depth[root] >= 0) {
+                continue;
+            }
+            depth[root] = 0;
+            order[tail++] = root;
+            while (head < tail) {
+                int state = order[head++];
+                for (int t = graph.successorStart(state); t < graph.successorEnd(state); t++) {
+                    int successor = graph.getSuccessor(t);
+                    if (depth[successor] < 0) {
+                        depth[successor] = depth[state] + 1;
+                        order[tail++] = successor;
+                    }
+                }
+            }
+        }
+
+        float[] x = new float[stateCount];
+        float[] y = new float[stateCount];
+        int position = 0;
+        float rowY = 0;
+        while (position < stateCount) {
+            int layerDepth = depth[order[position]];
+            // Every search root is a layer of its own so unconnected components do not share rows
+            int layerEnd = position + 1;
+            while (layerDepth > 0 && layerEnd < stateCount && depth[order[layerEnd]] == layerDepth) {
+                layerEnd++;
+            }
+            int layerSize = layerEnd - position;
+            int rowLength = Math.min(layerSize, MAX_ROW_LENGTH);
+            for (int i = 0; i < layerSize; i++) {
+                int state = order[position + i];
+                x[state] = (i % rowLength - (rowLength - 1) / 2f) * SPACING;
+                y[state] = rowY + (i / rowLength) * SPACING;
+            }
+            rowY += ((layerSize + rowLength - 1) / rowLength + 1) * SPACING;
+            position = layerEnd;
+        }
+        return new GraphLayout(x, y);
+    }
+
+    /**
+     * @param x x coordinate of each state
+     * @param y y coordinate of each state
+     */
+    GraphLayout(float[] x, float[] y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * @return number of states positioned
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * @param state state id
+     * @return x coordinate of the state
+     */
+    public float getX(int state) {
+        return x[state];
+    }
+
+    /**
+     * @param state state id
+     * @return y coordinate of the state
+     */
+    public float getY(int state) {
+        return y[state];
+    }
+}
@@ -0,0 +1,48 @@
+package pipe.gui.reachability;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small least recently used cache of rendered tooltip text.
+ * <p>
+ * Nodes and edges of the reachability graph only hold state ids and rates. Their labels are
+ * formatted with {@link #formatRate(double)} and kept by the node or edge painting them, while
+ * the large graph pane keeps only the labels it painted most recently here, as it may display
+ * millions of states. Markings, which are far longer, are rendered when hovered over and only
+ * the most recent are cached. It is only accessed from the event dispatch thread.
+ * </p>
+ *
+ * @param <K> key the text was rendered from
+ */
+final class LabelCache<K> extends LinkedHashMap<K, String> {
+    /**
+     * Maximum number of strings to cache
+     */
+    private final int capacity;
+
+    /**
+     * @param capacity maximum number of strings to cache
+     */
+    LabelCache(int capacity) {
+        super(16, 0.75f, true);
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param eldest least recently used entry
+     * @return true if the cache has grown beyond its capacity
+     */
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, String> eldest) {
+        return size() > capacity;
+    }
+
+    /**
+     * @param rate transition rate
+     * @return rate formatted to two decimal places
+     */
+    static String formatRate(double rate) {
+        return String.format("%.2f", rate);
+    }
+}
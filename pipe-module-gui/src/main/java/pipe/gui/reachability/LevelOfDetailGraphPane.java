@@ -0,0 +1,614 @@
+package pipe.gui.reachability;
+
+import pipe.gui.widget.StateStore;
+
+import javax.swing.*;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.Arrays;
+
+/**
+ * Draws reachability graphs that are too large to be displayed as jpowergraph nodes and edges.
+ * <p>
+ * Only states inside the visible region are considered, found through a {@link SpatialGrid}, and
+ * only transitions whose bounding boxes overlap it, found through an {@link EdgeGrid} built the first
+ * time individual states are drawn. When
+ * zoomed out so far that states would be smaller than a few pixels, the visible states are aggregated
+ * into screen space clusters whose size reflects how many states they contain, and the transitions
+ * between clusters are drawn once. Zooming in reveals individual states, and rate labels are only
+ * drawn once they are large enough to be read. The number of transitions considered per frame is
+ * bounded so the pane stays responsive however many states are visible.
+ * </p><p>
+ * Dragging pans, the mouse wheel zooms around the cursor, double clicking zooms into a cluster and
+ * clicking a state highlights it and its successors. Tooltips describing a state's marking are only
+ * created when hovering over it.
+ * </p>
+ */
+@SuppressWarnings("serial")
+public class LevelOfDetailGraphPane extends JComponent {
+    /**
+     * Radius of a state in world coordinates
+     */
+    private static final float NODE_RADIUS = 12;
+
+    /**
+     * States whose radius on screen is smaller than this are drawn as clusters
+     */
+    private static final float CLUSTER_BELOW_RADIUS = 3;
+
+    /**
+     * Size in pixels of each cluster
+     */
+    private static final int CLUSTER_CELL = 16;
+
+    /**
+     * Scale at and above which state ids are drawn
+     */
+    private static final double NODE_LABEL_SCALE = 0.6;
+
+    /**
+     * Scale at and above which transition rates are drawn
+     */
+    private static final double EDGE_LABEL_SCALE = 1.0;
+
+    /**
+     * Maximum number of transitions considered each time the pane is painted
+     */
+    private static final int MAX_EDGES_PER_FRAME = 50000;
+
+    /**
+     * Zoom applied per notch of the mouse wheel
+     */
+    private static final double WHEEL_ZOOM = 1.2;
+
+    /**
+     * Zoom applied when double clicking
+     */
+    private static final double EXPAND_ZOOM = 4;
+
+    /**
+     * Colour of tangible states, matches {@link TangibleStateNode}
+     */
+    private static final Color TANGIBLE_COLOR = new Color(255, 102, 102);
+
+    /**
+     * Colour of vanishing states, matches {@link VanishingStateNode}
+     */
+    private static final Color VANISHING_COLOR = new Color(182, 220, 255);
+
+    /**
+     * Colour of transitions
+     */
+    private static final Color EDGE_COLOR = Color.GRAY;
+
+    /**
+     * Colour of the selected state and its transitions
+     */
+    private static final Color SELECTED_COLOR = new Color(0, 128, 0);
+
+    /**
+     * Marks an empty slot in the cluster edge table
+     */
+    private static final long EMPTY = -1;
+
+    /**
+     * Maximum number of state and rate labels kept between paints
+     */
+    private static final int LABEL_CACHE_SIZE = 4096;
+
+    /**
+     * Graph being displayed, null if there is none
+     */
+    private StateGraph graph;
+
+    /**
+     * Labels of the most recently painted transitions by transition index
+     */
+    private final LabelCache<Integer> rateLabels = new LabelCache<>(LABEL_CACHE_SIZE);
+
+    /**
+     * Labels of the most recently painted states by state id
+     */
+    private final LabelCache<Integer> stateLabels = new LabelCache<>(LABEL_CACHE_SIZE);
+
+    /**
+     * Positions of the states
+     */
+    private GraphLayout layout;
+
+    /**
+     * Index of the positions
+     */
+    private SpatialGrid grid;
+
+    /**
+     * Index of the transitions, null until individual states are first painted
+     */
+    private EdgeGrid edgeGrid;
+
+    /**
+     * Transitions found in the visible region during the current paint
+     */
+    private int[] visibleEdges;
+
+    /**
+     * Markings of the states used for tooltips and colouring
+     */
+    private StateStore states;
+
+    /**
+     * World x coordinate at the left of the pane
+     */
+    private double viewX;
+
+    /**
+     * World y coordinate at the top of the pane
+     */
+    private double viewY;
+
+    /**
+     * Pixels per world unit
+     */
+    private double scale = 1;
+
+    /**
+     * Selected state, -1 if none
+     */
+    private int selected = -1;
+
+    /**
+     * Pairs of clusters already joined during the current paint
+     */
+    private long[] clusterEdges = new long[1024];
+
+    public LevelOfDetailGraphPane() {
+        setPreferredSize(new Dimension(1000, 500));
+        setOpaque(true);
+        setToolTipText("");
+        MouseAdapter mouseHandler = new MouseHandler();
+        addMouseListener(mouseHandler);
+        addMouseMotionListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
+    }
+
+    /**
+     * Displays the graph, fitting it into the pane
+     *
+     * @param graph  state space adjacency
+     * @param layout positions of the states
+     * @param states markings of the states
+     */
+    public void setGraph(StateGraph graph, GraphLayout layout, StateStore states) {
+        this.graph = graph;
+        this.layout = layout;
+        this.states = states;
+        rateLabels.clear();
+        stateLabels.clear();
+        grid = new SpatialGrid(layout);
+        edgeGrid = null;
+        selected = -1;
+        fitToView();
+    }
+
+    /**
+     * Removes the graph from the pane
+     */
+    public void clear() {
+        graph = null;
+        layout = null;
+        grid = null;
+        edgeGrid = null;
+        visibleEdges = null;
+        states = null;
+        rateLabels.clear();
+        stateLabels.clear();
+        selected = -1;
+        repaint();
+    }
+
+    /**
+     * Zooms and pans so that the whole graph is visible
+     */
+    public void fitToView() {
+        if (grid == null) {
+            return;
+        }
+        int width = Math.max(1, getWidth() > 0 ? getWidth() : getPreferredSize().width);
+        int height = Math.max(1, getHeight() > 0 ? getHeight() : getPreferredSize().height);
+        double graphWidth = grid.getMaxX() - grid.getMinX() + 4 * NODE_RADIUS;
+        double graphHeight = grid.getMaxY() - grid.getMinY() + 4 * NODE_RADIUS;
+        scale = Math.min(width / graphWidth, height / graphHeight);
+        viewX = (grid.getMinX() + grid.getMaxX()) / 2.0 - width / (2 * scale);
+        viewY = (grid.getMinY() + grid.getMaxY()) / 2.0 - height / (2 * scale);
+        repaint();
+    }
+
+    /**
+     * Zooms by the factor keeping the world point under the screen point fixed
+     *
+     * @param factor amount to multiply the scale by
+     * @param point  screen point to zoom around
+     */
+    private void zoom(double factor, Point point) {
+        double worldX = viewX + point.x / scale;
+        double worldY = viewY + point.y / scale;
+        scale *= factor;
+        viewX = worldX - point.x / scale;
+        viewY = worldY - point.y / scale;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics.create();
+        try {
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            g.setColor(Color.WHITE);
+            g.fill(clip);
+            if (graph == null) {
+                return;
+            }
+            if (NODE_RADIUS * scale < CLUSTER_BELOW_RADIUS) {
+                paintClusters(g, clip);
+            } else {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                paintStates(g, clip);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Paints the visible states aggregated into clusters of CLUSTER_CELL pixels
+     *
+     * @param g    graphics to paint with
+     * @param clip region of the pane to paint
+     */
+    private void paintClusters(Graphics2D g, Rectangle clip) {
+        int binColumns = clip.width / CLUSTER_CELL + 1;
+        int binRows = clip.height / CLUSTER_CELL + 1;
+        int[] counts = new int[binColumns * binRows];
+        int[] tangible = new int[counts.length];
+        Arrays.fill(clusterEdges, EMPTY);
+        int clusterEdgeCount = 0;
+        int edgeBudget = MAX_EDGES_PER_FRAME;
+
+        int firstColumn = grid.column(worldX(clip.x - CLUSTER_CELL));
+        int lastColumn = grid.column(worldX(clip.x + clip.width + CLUSTER_CELL));
+        int firstRow = grid.row(worldY(clip.y - CLUSTER_CELL));
+        int lastRow = grid.row(worldY(clip.y + clip.height + CLUSTER_CELL));
+        g.setColor(new Color(EDGE_COLOR.getRed(), EDGE_COLOR.getGreen(), EDGE_COLOR.getBlue(), 64));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                for (int i = grid.cellStart(column, row); i < grid.cellEnd(column, row); i++) {
+                    int state = grid.getState(i);
+                    int bin = bin(state, clip, binColumns, binRows);
+                    if (bin < 0) {
+                        continue;
+                    }
+                    counts[bin]++;
+                    if (states == null || states.isTangible(state)) {
+                        tangible[bin]++;
+                    }
+                    for (int t = graph.successorStart(state); t < graph.successorEnd(state) && edgeBudget > 0; t++) {
+                        edgeBudget--;
+                        int successorBin = bin(graph.getSuccessor(t), clip, binColumns, binRows);
+                        if (successorBin < 0 || successorBin == bin) {
+                            continue;
+                        }
+                        long key = Math.min(bin, successorBin) * (long) counts.length + Math.max(bin, successorBin);
+                        if (clusterEdgeCount * 2 >= clusterEdges.length) {
+                            continue;
+                        }
+                        if (addClusterEdge(key)) {
+                            clusterEdgeCount++;
+                            g.drawLine(binCentre(bin % binColumns, clip.x), binCentre(bin / binColumns, clip.y),
+                                    binCentre(successorBin % binColumns, clip.x),
+                                    binCentre(successorBin / binColumns, clip.y));
+                        }
+                    }
+                }
+            }
+        }
+        if (clusterEdgeCount * 2 >= clusterEdges.length && clusterEdges.length < MAX_EDGES_PER_FRAME) {
+            clusterEdges = new long[clusterEdges.length * 2];
+        }
+
+        for (int bin = 0; bin < counts.length; bin++) {
+            if (counts[bin] == 0) {
+                continue;
+            }
+            int radius = (int) Math.min(CLUSTER_CELL / 2, 2 + 1.5 * Math.log(counts[bin]) / Math.log(2));
+            g.setColor(tangible[bin] * 2 >= counts[bin] ? TANGIBLE_COLOR : VANISHING_COLOR);
+            g.fillOval(binCentre(bin % binColumns, clip.x) - radius, binCentre(bin / binColumns, clip.y) - radius,
+                    2 * radius, 2 * radius);
+        }
+    }
+
+    /**
+     * Records the pair of clusters in the open addressed table
+     *
+     * @param key pair of clusters
+     * @return true if the pair had not already been recorded
+     */
+    private boolean addClusterEdge(long key) {
+        int mask = clusterEdges.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (clusterEdges[slot] != EMPTY) {
+            if (clusterEdges[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        clusterEdges[slot] = key;
+        return true;
+    }
+
+    /**
+     * @param state      state id
+     * @param clip       region being painted
+     * @param binColumns number of cluster columns
+     * @param binRows    number of cluster rows
+     * @return cluster containing the state, -1 if it is outside the region
+     */
+    private int bin(int state, Rectangle clip, int binColumns, int binRows) {
+        int column = (int) Math.floor((screenX(layout.getX(state)) - clip.x) / CLUSTER_CELL);
+        int row = (int) Math.floor((screenY(layout.getY(state)) - clip.y) / CLUSTER_CELL);
+        if (column < 0 || row < 0 || column >= binColumns || row >= binRows) {
+            return -1;
+        }
+        return row * binColumns + column;
+    }
+
+    /**
+     * @param bin    cluster column or row
+     * @param origin screen coordinate of the first cluster
+     * @return screen coordinate of the centre of the cluster
+     */
+    private static int binCentre(int bin, int origin) {
+        return origin + bin * CLUSTER_CELL + CLUSTER_CELL / 2;
+    }
+
+    /**
+     * Paints the individual visible states and the transitions whose bounding boxes overlap the
+     * visible region, including those between two states outside it
+     *
+     * @param g    graphics to paint with
+     * @param clip region of the pane to paint
+     */
+    private void paintStates(Graphics2D g, Rectangle clip) {
+        double margin = NODE_RADIUS * scale;
+        int firstColumn = grid.column(worldX(clip.x - margin));
+        int lastColumn = grid.column(worldX(clip.x + clip.width + margin));
+        int firstRow = grid.row(worldY(clip.y - margin));
+        int lastRow = grid.row(worldY(clip.y + clip.height + margin));
+        int radius = (int) Math.ceil(NODE_RADIUS * scale);
+        boolean edgeLabels = scale >= EDGE_LABEL_SCALE;
+        FontMetrics metrics = g.getFontMetrics();
+
+        if (edgeGrid == null) {
+            edgeGrid = new EdgeGrid(graph, layout, grid);
+            visibleEdges = new int[MAX_EDGES_PER_FRAME];
+        }
+        int edgeCount = edgeGrid.query(worldX(clip.x - margin), worldY(clip.y - margin),
+                worldX(clip.x + clip.width + margin), worldY(clip.y + clip.height + margin), visibleEdges);
+        for (int i = 0; i < edgeCount; i++) {
+            int t = visibleEdges[i];
+            int state = graph.getSource(t);
+            g.setColor(state == selected ? SELECTED_COLOR : EDGE_COLOR);
+            paintTransition(g, state, t, radius, edgeLabels, metrics);
+        }
+
+        boolean nodeLabels = scale >= NODE_LABEL_SCALE;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                for (int i = grid.cellStart(column, row); i < grid.cellEnd(column, row); i++) {
+                    int state = grid.getState(i);
+                    int x = (int) screenX(layout.getX(state));
+                    int y = (int) screenY(layout.getY(state));
+                    g.setColor(states == null || states.isTangible(state) ? TANGIBLE_COLOR : VANISHING_COLOR);
+                    g.fillOval(x - radius, y - radius, 2 * radius, 2 * radius);
+                    if (state == selected) {
+                        g.setColor(SELECTED_COLOR);
+                        g.setStroke(new BasicStroke(2));
+                        g.drawOval(x - radius, y - radius, 2 * radius, 2 * radius);
+                        g.setStroke(new BasicStroke(1));
+                    }
+                    if (nodeLabels) {
+                        String label = stateLabel(state);
+                        g.setColor(Color.BLACK);
+                        g.drawString(label, x - metrics.stringWidth(label) / 2, y + metrics.getAscent() / 2 - 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Paints a transition as an arrow between the edges of the two states
+     *
+     * @param g          graphics to paint with
+     * @param state      source state
+     * @param transition index of the transition
+     * @param radius     radius of a state on screen
+     * @param label      true if the rate should be drawn
+     * @param metrics    metrics of the label font
+     */
+    private void paintTransition(Graphics2D g, int state, int transition, int radius, boolean label,
+                                 FontMetrics metrics) {
+        int successor = graph.getSuccessor(transition);
+        if (successor == state) {
+            return;
+        }
+        double x1 = screenX(layout.getX(state));
+        double y1 = screenY(layout.getY(state));
+        double x2 = screenX(layout.getX(successor));
+        double y2 = screenY(layout.getY(successor));
+        double length = Math.hypot(x2 - x1, y2 - y1);
+        if (length <= 2 * radius) {
+            return;
+        }
+        double dx = (x2 - x1) / length;
+        double dy = (y2 - y1) / length;
+        int endX = (int) (x2 - dx * radius);
+        int endY = (int) (y2 - dy * radius);
+        g.drawLine((int) (x1 + dx * radius), (int) (y1 + dy * radius), endX, endY);
+        double arrow = Math.max(4, radius / 2.0);
+        int[] arrowX = {endX, (int) (endX - arrow * dx - arrow / 2 * dy), (int) (endX - arrow * dx + arrow / 2 * dy)};
+        int[] arrowY = {endY, (int) (endY - arrow * dy + arrow / 2 * dx), (int) (endY - arrow * dy - arrow / 2 * dx)};
+        g.fillPolygon(arrowX, arrowY, 3);
+        if (label) {
+            String text = rateLabel(transition);
+            if (metrics.stringWidth(text) + 2 * radius < length) {
+                g.drawString(text, (int) ((x1 + 2 * x2) / 3) + 4, (int) ((y1 + 2 * y2) / 3) - 4);
+            }
+        }
+    }
+
+    /**
+     * @param transition index of the transition
+     * @return cached text of the transition's rate
+     */
+    String rateLabel(int transition) {
+        String text = rateLabels.get(transition);
+        if (text == null) {
+            text = LabelCache.formatRate(graph.getRate(transition));
+            rateLabels.put(transition, text);
+        }
+        return text;
+    }
+
+    /**
+     * @param state id of the state
+     * @return cached label of the state
+     */
+    String stateLabel(int state) {
+        String label = stateLabels.get(state);
+        if (label == null) {
+            label = Integer.toString(state);
+            stateLabels.put(state, label);
+        }
+        return label;
+    }
+
+    /**
+     * @param point screen point
+     * @return state drawn at the point, -1 if there is none
+     */
+    private int stateAt(Point point) {
+        if (grid == null) {
+            return -1;
+        }
+        double worldX = worldX(point.x);
+        double worldY = worldY(point.y);
+        double tolerance = Math.max(NODE_RADIUS, CLUSTER_BELOW_RADIUS / scale);
+        int nearest = -1;
+        double nearestDistance = tolerance * tolerance;
+        for (int row = grid.row((float) (worldY - tolerance)); row <= grid.row((float) (worldY + tolerance)); row++) {
+            for (int column = grid.column((float) (worldX - tolerance));
+                 column <= grid.column((float) (worldX + tolerance)); column++) {
+                for (int i = grid.cellStart(column, row); i < grid.cellEnd(column, row); i++) {
+                    int state = grid.getState(i);
+                    double distanceX = layout.getX(state) - worldX;
+                    double distanceY = layout.getY(state) - worldY;
+                    double distance = distanceX * distanceX + distanceY * distanceY;
+                    if (distance <= nearestDistance) {
+                        nearest = state;
+                        nearestDistance = distance;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Describes the state under the cursor, only computed when the tooltip is shown
+     *
+     * @param event mouse event
+     * @return tooltip for the state under the cursor, null if there is none
+     */
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        int state = stateAt(event.getPoint());
+        if (state < 0) {
+            return null;
+        }
+        int successors = graph.successorEnd(state) - graph.successorStart(state);
+        String marking = states != null && states.contains(state) ? states.describe(state) : "";
+        return "State " + state + " " + marking + " (" + successors + " successors)";
+    }
+
+    private double screenX(double worldX) {
+        return (worldX - viewX) * scale;
+    }
+
+    private double screenY(double worldY) {
+        return (worldY - viewY) * scale;
+    }
+
+    private float worldX(double screenX) {
+        return (float) (viewX + screenX / scale);
+    }
+
+    private float worldY(double screenY) {
+        return (float) (viewY + screenY / scale);
+    }
+
+    /**
+     * Pans, zooms and selects in response to the mouse
+     */
+    private final class MouseHandler extends MouseAdapter {
+        /**
+         * Last point the mouse was dragged to
+         */
+        private Point last;
+
+        @Override
+        public void mousePressed(MouseEvent e) {
+            last = e.getPoint();
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            if (last != null) {
+                viewX -= (e.getX() - last.x) / scale;
+                viewY -= (e.getY() - last.y) / scale;
+                last = e.getPoint();
+                repaint();
+            }
+        }
+
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            if (graph == null) {
+                return;
+            }
+            if (e.getClickCount() == 2) {
+                zoom(EXPAND_ZOOM, e.getPoint());
+            } else {
+                selected = stateAt(e.getPoint());
+                repaint();
+            }
+        }
+
+        @Override
+        public void mouseWheelMoved(MouseWheelEvent e) {
+            zoom(Math.pow(WHEEL_ZOOM, -e.getWheelRotation()), e.getPoint());
+        }
+    }
+}
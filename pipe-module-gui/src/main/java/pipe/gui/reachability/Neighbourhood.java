@@ -0,0 +1,222 @@
+package pipe.gui.reachability;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Subset of a {@link StateGraph} grown outwards from chosen states a number of hops at a time.
+ * <p>
+ * Used to inspect the surroundings of a state, e.g. the paths into a deadlock, in state spaces
+ * far too large to display in full. Expansion uses the graph's successor and predecessor indexes
+ * so only the states reached are ever visited.
+ * </p>
+ */
+public final class Neighbourhood {
+    /**
+     * Direction to follow transitions in when expanding
+     */
+    public enum Direction {
+        SUCCESSORS("Successors"),
+        PREDECESSORS("Predecessors"),
+        BOTH("Both");
+
+        /**
+         * Name displayed to the user
+         */
+        private final String displayName;
+
+        Direction(String displayName) {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Graph the neighbourhood is part of
+     */
+    private final StateGraph graph;
+
+    /**
+     * Maximum number of states the neighbourhood may grow to
+     */
+    private final int maxStates;
+
+    /**
+     * States in the neighbourhood
+     */
+    private final BitSet states = new BitSet();
+
+    /**
+     * States added by the most recent expansion, only the first frontierSize entries are valid
+     */
+    private int[] frontier = new int[16];
+
+    /**
+     * Number of states in the frontier
+     */
+    private int frontierSize;
+
+    /**
+     * Number of states in the neighbourhood
+     */
+    private int size;
+
+    /**
+     * True if an expansion stopped early because the neighbourhood reached maxStates
+     */
+    private boolean truncated;
+
+    /**
+     * Number of start states that could not be added because the neighbourhood was full
+     */
+    private int droppedStarts;
+
+    /**
+     * @param graph     graph the neighbourhood is part of
+     * @param maxStates maximum number of states the neighbourhood may grow to
+     */
+    public Neighbourhood(StateGraph graph, int maxStates) {
+        this.graph = graph;
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Adds the state to the neighbourhood and its frontier
+     *
+     * @param state state id
+     */
+    public void add(int state) {
+        if (state < 0 || state >= graph.getStateCount()) {
+            throw new IllegalArgumentException("State " + state + " is not in the state space");
+        }
+        if (include(state)) {
+            addToFrontier(state);
+        } else if (!states.get(state)) {
+            droppedStarts++;
+        }
+    }
+
+    /**
+     * Grows the neighbourhood outwards from its frontier, the states added by the
+     * final hop become the new frontier
+     *
+     * @param hops      number of transitions to follow
+     * @param direction direction to follow transitions in
+     */
+    public void expand(int hops, Direction direction) {
+        for (int hop = 0; hop < hops && frontierSize > 0; hop++) {
+            int[] current = Arrays.copyOf(frontier, frontierSize);
+            frontierSize = 0;
+            for (int state : current) {
+                expandState(state, direction);
+            }
+        }
+    }
+
+    /**
+     * Adds the immediate neighbours of a single state, used to expand the neighbourhood on demand
+     *
+     * @param state     state id
+     * @param direction direction to follow transitions in
+     */
+    public void expandState(int state, Direction direction) {
+        if (direction != Direction.PREDECESSORS) {
+            for (int t = graph.successorStart(state); t < graph.successorEnd(state); t++) {
+                if (include(graph.getSuccessor(t))) {
+                    addToFrontier(graph.getSuccessor(t));
+                }
+            }
+        }
+        if (direction != Direction.SUCCESSORS) {
+            for (int i = graph.predecessorStart(state); i < graph.predecessorEnd(state); i++) {
+                int predecessor = graph.getSource(graph.getIncoming(i));
+                if (include(predecessor)) {
+                    addToFrontier(predecessor);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param state state id
+     * @return true if the state was newly added
+     */
+    private boolean include(int state) {
+        if (states.get(state)) {
+            return false;
+        }
+        if (size >= maxStates) {
+            truncated = true;
+            return false;
+        }
+        states.set(state);
+        size++;
+        return true;
+    }
+
+    /**
+     * @param state state to add to the frontier
+     */
+    private void addToFrontier(int state) {
+        if (frontierSize == frontier.length) {
+            frontier = Arrays.copyOf(frontier, frontier.length * 2);
+        }
+        frontier[frontierSize++] = state;
+    }
+
+    /**
+     * @param state state id
+     * @return true if the state is in the neighbourhood
+     */
+    public boolean contains(int state) {
+        return states.get(state);
+    }
+
+    /**
+     * Used to iterate through the states in ascending id order, e.g.
+     * {@code for (int s = n.nextState(0); s >= 0; s = n.nextState(s + 1))}
+     *
+     * @param from state id to search from
+     * @return the first state in the neighbourhood with an id of at least from, or -1 if there are none
+     */
+    public int nextState(int from) {
+        return states.nextSetBit(from);
+    }
+
+    /**
+     * @return ids of the states in the neighbourhood in ascending order
+     */
+    public int[] getStates() {
+        int[] ids = new int[size];
+        int index = 0;
+        for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+            ids[index++] = state;
+        }
+        return ids;
+    }
+
+    /**
+     * @return number of states in the neighbourhood
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if an expansion stopped early because the neighbourhood reached its maximum size
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return number of start states left out because the neighbourhood had reached its maximum size
+     */
+    public int getDroppedStarts() {
+        return droppedStarts;
+    }
+}
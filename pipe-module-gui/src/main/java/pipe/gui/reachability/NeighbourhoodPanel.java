@@ -0,0 +1,142 @@
+package pipe.gui.reachability;
+
+import javax.swing.*;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * Controls for exploring the neighbourhood of a state instead of displaying the whole reachability graph
+ */
+@SuppressWarnings("serial")
+public class NeighbourhoodPanel extends JPanel {
+    /**
+     * Maximum number of hops that can be expanded at once
+     */
+    private static final int MAX_HOPS = 50;
+
+    /**
+     * Actions performed by the panel
+     */
+    public interface Listener {
+        /**
+         * Displays the neighbourhood of the start states
+         *
+         * @param start     state id, marking query or "deadlock"
+         * @param hops      number of hops to expand
+         * @param direction direction to expand in
+         */
+        void showNeighbourhood(String start, int hops, Neighbourhood.Direction direction);
+
+        /**
+         * Expands the currently displayed neighbourhood from its frontier
+         *
+         * @param hops      number of hops to expand
+         * @param direction direction to expand in
+         */
+        void expandNeighbourhood(int hops, Neighbourhood.Direction direction);
+
+        /**
+         * Displays the whole state space again
+         */
+        void showAll();
+    }
+
+    /**
+     * State id, marking query or "deadlock"
+     */
+    private final JTextField startText = new JTextField("0", 12);
+
+    /**
+     * Number of hops to expand
+     */
+    private final JTextField hopsText = new JTextField("2", 3);
+
+    /**
+     * Direction to expand in
+     */
+    private final JComboBox<Neighbourhood.Direction> directionComboBox =
+            new JComboBox<>(Neighbourhood.Direction.values());
+
+    /**
+     * Displays the size of the neighbourhood or why it could not be shown
+     */
+    private final JLabel statusLabel = new JLabel(" ");
+
+    /**
+     * @param listener performs the actions of the panel
+     */
+    public NeighbourhoodPanel(final Listener listener) {
+        super(new FlowLayout(FlowLayout.LEFT));
+        startText.setToolTipText("State id, marking query such as P0 = 0, P1 >= 1, or deadlock");
+        add(new JLabel("Neighbourhood of:"));
+        add(startText);
+        add(new JLabel("Hops:"));
+        add(hopsText);
+        add(directionComboBox);
+
+        JButton showButton = new JButton("Show");
+        showButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Integer hops = readHops();
+                if (hops != null) {
+                    listener.showNeighbourhood(startText.getText().trim(), hops, getDirection());
+                }
+            }
+        });
+        add(showButton);
+
+        JButton expandButton = new JButton("Expand");
+        expandButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Integer hops = readHops();
+                if (hops != null) {
+                    listener.expandNeighbourhood(hops, getDirection());
+                }
+            }
+        });
+        add(expandButton);
+
+        JButton showAllButton = new JButton("Show all");
+        showAllButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                listener.showAll();
+            }
+        });
+        add(showAllButton);
+        add(statusLabel);
+    }
+
+    /**
+     * @return number of hops entered, or null if it is invalid
+     */
+    private Integer readHops() {
+        try {
+            int hops = Integer.parseInt(hopsText.getText().trim());
+            if (hops >= 0 && hops <= MAX_HOPS) {
+                return hops;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        setStatus("Hops must be between 0 and " + MAX_HOPS);
+        return null;
+    }
+
+    /**
+     * @return direction selected
+     */
+    private Neighbourhood.Direction getDirection() {
+        return (Neighbourhood.Direction) directionComboBox.getSelectedItem();
+    }
+
+    /**
+     * @param status message to display next to the controls
+     */
+    public void setStatus(String status) {
+        statusLabel.setText(status);
+    }
+}
@@ -21,6 +21,12 @@ import java.awt.geom.Point2D;
  */
 public class PIPELineWithTextEdgePainter<T extends DirectedTextEdge> extends LineEdgePainter<T> {
 
+    /**
+     * Space in pixels that must be left either side of the rate label for it to be drawn.
+     * When zoomed out far enough that edges are shorter than their labels the labels
+     * are unreadable, so they are skipped rather than measured and drawn
+     */
+    private static final int LABEL_MARGIN = 20;
 
     /**
      * Constructor
@@ -56,6 +62,12 @@ public class PIPELineWithTextEdgePainter<T extends DirectedTextEdge> extends Lin
         g.setBackground(oldBGColor);
 
         String text = edge.getText();
+        int dx = to.x - from.x;
+        int dy = to.y - from.y;
+        int minimumLength = 2 * LABEL_MARGIN + text.length() * 4;
+        if (dx * dx + dy * dy < minimumLength * minimumLength) {
+            return;
+        }
 
         Point2D midpoint = new Point2D.Double((from.x + 2 * to.x) / 3, (from.y + 2 * to.y) / 3);
 
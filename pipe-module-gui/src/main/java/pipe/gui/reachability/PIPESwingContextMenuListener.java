@@ -11,6 +11,8 @@ import net.sourceforge.jpowergraph.lens.LensSet;
 import net.sourceforge.jpowergraph.swing.manipulator.DefaultSwingContextMenuListener;
 
 import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 
 
 //REMARK: this class extends a jpowergraph's class which is LGPL
@@ -23,6 +25,22 @@ import javax.swing.*;
  */
 public class PIPESwingContextMenuListener 
         extends DefaultSwingContextMenuListener {
+
+   /**
+    * Expands the neighbourhood of a state when chosen from its context menu
+    */
+   public interface ExpansionListener {
+       /**
+        * @param state     id of the state whose menu was used
+        * @param direction direction to expand in
+        */
+       void expand(int state, Neighbourhood.Direction direction);
+   }
+
+   /**
+    * Listener for neighbourhood expansion, null if nodes have no context menu
+    */
+   private ExpansionListener expansionListener;
    
    /** Creates a new instance of NewClass
     * @param theGraph graph
@@ -36,14 +54,38 @@ public class PIPESwingContextMenuListener
    }
 
 
+   /**
+    * @param expansionListener listener for neighbourhood expansion, null to show no node context menu
+    */
+   public void setExpansionListener(ExpansionListener expansionListener) {
+       this.expansionListener = expansionListener;
+   }
+
+
     /**
-     * Noop
+     * Adds neighbourhood expansion items if an expansion listener is set, nodes cannot be edited
      * @param theNode node
      * @param theMenu menu
      */
    @Override
    public void fillNodeContextMenu(final Node theNode, JPopupMenu theMenu) {
-       // Noop
+       if (expansionListener == null) {
+           return;
+       }
+       if (!(theNode instanceof StateNode)) {
+           return;
+       }
+       final int state = ((StateNode) theNode).getState();
+       for (final Neighbourhood.Direction direction : Neighbourhood.Direction.values()) {
+           JMenuItem item = new JMenuItem("Expand " + direction.toString().toLowerCase());
+           item.addActionListener(new ActionListener() {
+               @Override
+               public void actionPerformed(ActionEvent e) {
+                   expansionListener.expand(state, direction);
+               }
+           });
+           theMenu.add(item);
+       }
    }
 
 
@@ -6,6 +6,7 @@ package pipe.gui.reachability;
 
 import net.sourceforge.jpowergraph.Node;
 import net.sourceforge.jpowergraph.swing.manipulator.DefaultSwingToolTipListener;
+import pipe.gui.widget.StateStore;
 
 import javax.swing.*;
 import java.awt.BorderLayout;
@@ -17,7 +18,46 @@ import java.awt.Color;
  */
 public class PIPESwingToolTipListener 
         extends DefaultSwingToolTipListener {
-   
+
+   /**
+    * Number of state markings to cache
+    */
+   private static final int MARKING_CACHE_SIZE = 128;
+
+   /**
+    * Markings of recently hovered over states
+    */
+   private final LabelCache<Integer> markings = new LabelCache<>(MARKING_CACHE_SIZE);
+
+   /**
+    * States whose markings are described, null until a state space has been explored
+    */
+   private StateStore states;
+
+   /**
+    * @param states explored states whose markings are shown in node tooltips
+    */
+   public void setStates(StateStore states) {
+      this.states = states;
+      markings.clear();
+   }
+
+   /**
+    * @param state id of the state
+    * @return cached description of the state's marking, empty if it is unknown
+    */
+   private String describe(int state) {
+      if (states == null || !states.contains(state)) {
+         return "";
+      }
+      String marking = markings.get(state);
+      if (marking == null) {
+         marking = states.describe(state);
+         markings.put(state, marking);
+      }
+      return marking;
+   }
+
    @Override
    public boolean addNodeToolTipItems(Node node, JComponent jComponent,
            Color backgroundColor) {
@@ -68,10 +108,10 @@ public class PIPESwingToolTipListener
 //         sFrom = "-";
 //      }
       
-      // the marking of the state
+      // the marking of the state, only described when the node is hovered over
       String marking = "";
-      if (node instanceof TangibleStateNode) {
-         marking = ((TangibleStateNode)node).getToolTip();
+      if (node instanceof StateNode) {
+         marking = describe(((StateNode) node).getState());
       }
       
       jComponent.setLayout(new BorderLayout());
@@ -12,26 +12,38 @@ import net.sourceforge.jpowergraph.swing.SwingJGraphPane;
 import net.sourceforge.jpowergraph.swing.SwingJGraphScrollPane;
 import net.sourceforge.jpowergraph.swing.manipulator.SwingPopupDisplayer;
 import net.sourceforge.jpowergraph.swtswinginteraction.color.JPowerGraphColor;
+import pipe.gui.widget.AnalysisExecutor;
+import pipe.gui.widget.ExplorationMetrics;
+import pipe.gui.widget.ExplorationProgress;
+import pipe.gui.widget.ExplorationSettings;
 import pipe.gui.widget.GenerateResultsForm;
+import pipe.gui.widget.MarkingQuery;
+import pipe.gui.widget.MemoisingVanishingExplorer;
+import pipe.gui.widget.QuickReachabilityCheck;
+import pipe.gui.widget.StateSpaceExporter;
 import pipe.gui.widget.StateSpaceLoader;
-import pipe.gui.widget.StateSpaceLoaderException;
+import pipe.gui.widget.StateSpaceTask;
+import pipe.gui.widget.StateStore;
 import pipe.reachability.algorithm.*;
-import uk.ac.imperial.pipe.exceptions.InvalidRateException;
 import uk.ac.imperial.pipe.models.petrinet.PetriNet;
-import uk.ac.imperial.state.ClassifiedState;
-import uk.ac.imperial.state.Record;
 
 import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.CardLayout;
 import java.awt.Container;
+import java.awt.FlowLayout;
 import java.awt.FileDialog;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ItemEvent;
+import java.awt.event.ItemListener;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,10 +58,47 @@ public class ReachabilityGraph {
     private static final Logger LOGGER = Logger.getLogger(ReachabilityGraph.class.getName());
 
     /**
-     * Maximum number of states to graphically display
+     * Maximum number of states to display as a jpowergraph graph, larger state spaces
+     * are shown in the level of detail viewer
      */
     private static final int MAX_STATES_TO_DISPLAY = 100;
 
+    /**
+     * Maximum number of states a neighbourhood may grow to, it is displayed with jpowergraph
+     */
+    private static final int MAX_NEIGHBOURHOOD_STATES = 500;
+
+    /**
+     * Largest state space laid out with Barnes-Hut in the level of detail viewer, larger state
+     * spaces are laid out in breadth first layers
+     */
+    private static final int MAX_FORCE_LAYOUT_STATES = 20000;
+
+    /**
+     * Default token bound checked by the quick reachability check
+     */
+    private static final int DEFAULT_TOKEN_BOUND = 100;
+
+    /**
+     * Layout choice for the Barnes-Hut force layout
+     */
+    private static final String BARNES_HUT_LAYOUT = "Barnes-Hut";
+
+    /**
+     * Layout choice for jpowergraph's spring layout
+     */
+    private static final String SPRING_LAYOUT = "Spring";
+
+    /**
+     * Card showing the jpowergraph graph
+     */
+    private static final String SMALL_GRAPH_CARD = "small";
+
+    /**
+     * Card showing the level of detail viewer
+     */
+    private static final String LARGE_GRAPH_CARD = "large";
+
 
     private JPanel panel1;
 
@@ -63,6 +112,12 @@ public class ReachabilityGraph {
      */
     private JCheckBox includeVanishingStatesCheckBox;
 
+    /**
+     * Check box to determine if the tangible successors of vanishing states are memoised
+     * when vanishing states are not included in the exploration
+     */
+    private JCheckBox memoiseVanishingCheckBox;
+
     /**
      * For saving state space results
      */
@@ -78,14 +133,124 @@ public class ReachabilityGraph {
 
     private JTextField maxStatesField;
 
+    /**
+     * When selected the explored states are kept in a memory mapped table rather than the heap,
+     * so reachability graphs are not limited by the max states field
+     */
+    private JCheckBox diskBackedCheckBox;
+
     private JPanel stateLoadingPanel;
 
     private JPanel generatePanel;
 
     private DefaultGraph graph = new DefaultGraph();
 
+    /**
+     * Viewer used for state spaces too large for jpowergraph
+     */
+    private final LevelOfDetailGraphPane largeGraphPane = new LevelOfDetailGraphPane();
+
+    /**
+     * Switches between the jpowergraph graph and the level of detail viewer
+     */
+    private final JPanel graphCards = new JPanel(new CardLayout());
+
+    /**
+     * Controls for exploring the neighbourhood of a state
+     */
+    private final NeighbourhoodPanel neighbourhoodPanel = new NeighbourhoodPanel(new NeighbourhoodPanel.Listener() {
+        @Override
+        public void showNeighbourhood(String start, int hops, Neighbourhood.Direction direction) {
+            ReachabilityGraph.this.showNeighbourhood(start, hops, direction);
+        }
+
+        @Override
+        public void expandNeighbourhood(int hops, Neighbourhood.Direction direction) {
+            ReachabilityGraph.this.expandNeighbourhood(hops, direction);
+        }
+
+        @Override
+        public void showAll() {
+            showStateSpace();
+        }
+    });
+
+    /**
+     * Adjacency of the most recently generated state space, null if none has been generated
+     */
+    private StateGraph stateGraph;
+
+    /**
+     * States of the most recently generated state space
+     */
+    private StateStore stateStore;
+
+    /**
+     * Layout for the level of detail viewer, null if the state space is small enough for jpowergraph
+     */
+    private GraphLayout largeLayout;
+
+    /**
+     * Barnes-Hut positions of every state when the whole state space is shown with jpowergraph,
+     * null if it has not been laid out
+     */
+    private GraphLayout smallLayout;
+
+    /**
+     * Incremented each time the displayed graph changes so that layouts finishing in the
+     * background after a newer request are discarded
+     */
+    private int displayGeneration;
+
+    /**
+     * Neighbourhood currently displayed, null if the whole state space is displayed
+     */
+    private Neighbourhood neighbourhood;
+
+    /**
+     * Describes the marking of the state hovered over
+     */
+    private final PIPESwingToolTipListener toolTipListener = new PIPESwingToolTipListener();
+
+    /**
+     * Threads used to lay out graphs, shared by every layout performed from this window
+     */
+    private final AnalysisExecutor layoutExecutor = new AnalysisExecutor();
+
+    /**
+     * Chooses between the Barnes-Hut and spring layouts
+     */
+    private final JComboBox<String> layoutComboBox = new JComboBox<>(new String[]{BARNES_HUT_LAYOUT, SPRING_LAYOUT});
+
+    /**
+     * Format the state space is exported to
+     */
+    private final JComboBox<StateSpaceExporter.Format> exportFormatComboBox =
+            new JComboBox<>(StateSpaceExporter.Format.values());
+
+    /**
+     * How the quick reachability check remembers visited states
+     */
+    private final JComboBox<QuickReachabilityCheck.Mode> quickCheckModeComboBox =
+            new JComboBox<>(QuickReachabilityCheck.Mode.values());
+
+    /**
+     * Token bound checked by the quick reachability check
+     */
+    private final JTextField quickCheckBoundText = new JTextField(Integer.toString(DEFAULT_TOKEN_BOUND), 6);
+
+    /**
+     * Seed of the Barnes-Hut initial placement
+     */
+    private final JTextField seedText = new JTextField(Long.toString(BarnesHutLayout.DEFAULT_SEED), 8);
+
     private StateSpaceLoader stateSpaceLoader;
 
+    /**
+     * Form for starting and cancelling the state space generation
+     */
+    private GenerateResultsForm resultsForm;
+
 
     /**
      * When selecting use current Petri net the petri net used will be
@@ -103,8 +268,16 @@ public class ReachabilityGraph {
      * Set up action listeners
      */
     private void setUp() {
-        JPanel pane = setupGraph();
-        resultsPanel.add(pane);
+        graphCards.add(setupGraph(), SMALL_GRAPH_CARD);
+        graphCards.add(largeGraphPane, LARGE_GRAPH_CARD);
+        JPanel controls = new JPanel();
+        controls.setLayout(new BoxLayout(controls, BoxLayout.Y_AXIS));
+        controls.add(neighbourhoodPanel);
+        controls.add(setupLayoutControls());
+        controls.add(setupExportControls());
+        controls.add(setupQuickCheckControls());
+        resultsPanel.add(controls, BorderLayout.NORTH);
+        resultsPanel.add(graphCards, BorderLayout.CENTER);
         stateLoadingPanel.add(stateSpaceLoader.getMainPanel(), 0);
 
         ActionListener disableListener = new ActionListener() {
@@ -113,6 +286,8 @@ public class ReachabilityGraph {
                 reachabilityButton.setEnabled(false);
                 coverabilityButton.setEnabled(false);
                 includeVanishingStatesCheckBox.setEnabled(false);
+                diskBackedCheckBox.setEnabled(false);
+                memoiseVanishingCheckBox.setEnabled(false);
             }
         };
 
@@ -122,6 +297,8 @@ public class ReachabilityGraph {
                 reachabilityButton.setEnabled(true);
                 coverabilityButton.setEnabled(true);
                 includeVanishingStatesCheckBox.setEnabled(true);
+                diskBackedCheckBox.setEnabled(true);
+                memoiseVanishingCheckBox.setEnabled(true);
             }
         };
 //
@@ -133,13 +310,213 @@ public class ReachabilityGraph {
                 saveBinaryFiles();
             }
         });
-        GenerateResultsForm resultsForm = new GenerateResultsForm(new GenerateResultsForm.GoAction() {
+        resultsForm = new GenerateResultsForm(new GenerateResultsForm.GoAction() {
             @Override
-            public void go(int threads) {
-                calculateResults(threads);
+            public void go(ExplorationSettings settings) {
+                calculateResults(settings);
             }
         });
         generatePanel.add(resultsForm.getPanel());
+        ItemListener threadListener = new ItemListener() {
+            @Override
+            public void itemStateChanged(ItemEvent e) {
+                updateThreadControls();
+            }
+        };
+        diskBackedCheckBox.addItemListener(threadListener);
+        stateSpaceLoader.addCheckpointListener(threadListener);
+        ActionListener sourceListener = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateThreadControls();
+            }
+        };
+        stateSpaceLoader.addPetriNetRadioListener(sourceListener);
+        stateSpaceLoader.addBinariesListener(sourceListener);
+        updateThreadControls();
+    }
+
+    /**
+     * Greys out the thread settings if the chosen options are only explored on a single thread
+     */
+    private void updateThreadControls() {
+        resultsForm.setSingleThreaded(stateSpaceLoader.getSingleThreadedReason(diskBackedCheckBox.isSelected()));
+    }
+
+    /**
+     * @return controls for choosing and re-running the layout
+     */
+    private JPanel setupLayoutControls() {
+        JPanel layoutPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        layoutPanel.add(new JLabel("Layout:"));
+        layoutPanel.add(layoutComboBox);
+        layoutPanel.add(new JLabel("Seed:"));
+        layoutPanel.add(seedText);
+        JButton relayoutButton = new JButton("Re-layout");
+        relayoutButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                relayout();
+            }
+        });
+        layoutPanel.add(relayoutButton);
+        return layoutPanel;
+    }
+
+    /**
+     * @return controls for exporting the state space for use in external tools
+     */
+    private JPanel setupExportControls() {
+        JPanel exportPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        exportPanel.add(new JLabel("Export as:"));
+        exportPanel.add(exportFormatComboBox);
+        JButton exportButton = new JButton("Export...");
+        exportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportStateSpace();
+            }
+        });
+        exportPanel.add(exportButton);
+        JButton metricsButton = new JButton("Save metrics...");
+        metricsButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                saveMetrics();
+            }
+        });
+        exportPanel.add(metricsButton);
+        return exportPanel;
+    }
+
+    /**
+     * @return controls for checking for deadlocks and bound violations without generating the state space
+     */
+    private JPanel setupQuickCheckControls() {
+        JPanel quickCheckPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        quickCheckPanel.add(new JLabel("Quick check:"));
+        quickCheckPanel.add(quickCheckModeComboBox);
+        quickCheckPanel.add(new JLabel("Token bound:"));
+        quickCheckPanel.add(quickCheckBoundText);
+        JButton checkButton = new JButton("Check");
+        checkButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                runQuickCheck();
+            }
+        });
+        quickCheckPanel.add(checkButton);
+        return quickCheckPanel;
+    }
+
+    /**
+     * Explores the Petri net remembering only state fingerprints and reports its deadlocks and
+     * bound violations. No records are written so the graph is left as it is.
+     */
+    private void runQuickCheck() {
+        if (!resultsForm.isIdle()) {
+            return;
+        }
+        final PetriNet petriNet = stateSpaceLoader.getPetriNet();
+        if (petriNet == null) {
+            JOptionPane.showMessageDialog(panel1, "Please load a Petri net to check", "Quick check",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        final int bound;
+        try {
+            bound = Integer.parseInt(quickCheckBoundText.getText().trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(panel1, "Token bound must be a whole number", "Quick check",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        final QuickReachabilityCheck.Mode mode = (QuickReachabilityCheck.Mode) quickCheckModeComboBox.getSelectedItem();
+        resultsForm.execute(new StateSpaceTask<QuickReachabilityCheck.Result>(panel1) {
+            @Override
+            protected QuickReachabilityCheck.Result compute(ExplorationProgress progress) {
+                return new QuickReachabilityCheck(new UnboundedExplorerUtilities(petriNet), mode,
+                        QuickReachabilityCheck.DEFAULT_BITSTATE_BITS, bound).run(progress);
+            }
+
+            @Override
+            protected void display(QuickReachabilityCheck.Result result) {
+                textResultsLabel.setText(describe(result, bound));
+            }
+        });
+    }
+
+    /**
+     * @param result outcome of a quick reachability check
+     * @param bound  token bound that was checked
+     * @return HTML summary of the result
+     */
+    private static String describe(QuickReachabilityCheck.Result result, int bound) {
+        StringBuilder text = new StringBuilder("<html>");
+        text.append(result.getMode()).append(" check: ").append(result.getStates()).append(" states and ")
+                .append(result.getTransitions()).append(" transitions in ").append(result.getElapsedMillis())
+                .append(" ms using ").append(result.getMemoryBytes() / 1024).append(" KB");
+        text.append(String.format(", probability of omitting a state %.2e", result.getOmissionProbability()));
+        if (result.isLimitReached()) {
+            text.append("<br>Stopped at the state or time limit, some states were not explored");
+        }
+        text.append("<br>").append(result.getDeadlocks()).append(" deadlock states");
+        appendExamples(text, result.getDeadlockExamples());
+        text.append("<br>").append(result.getBoundViolations()).append(" states exceed ").append(bound)
+                .append(" tokens on a place and were not explored further");
+        appendExamples(text, result.getBoundExamples());
+        return text.append("</html>").toString();
+    }
+
+    /**
+     * @param text     summary to append to
+     * @param examples example markings
+     */
+    private static void appendExamples(StringBuilder text, List<String> examples) {
+        if (!examples.isEmpty()) {
+            text.append(", e.g. ").append(examples.get(0).replace("<", "&lt;"));
+        }
+    }
+
+    /**
+     * Saves the metrics of the last exploration as JSON to a file chosen by the user
+     */
+    private void saveMetrics() {
+        try {
+            stateSpaceLoader.saveMetrics();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(panel1, e.getMessage(), "Could not save metrics", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Streams the explored state space to a file chosen by the user in the background
+     */
+    private void exportStateSpace() {
+        if (!resultsForm.isIdle()) {
+            return;
+        }
+        if (stateStore == null) {
+            return;
+        }
+        final StateSpaceExporter.Format format =
+                (StateSpaceExporter.Format) exportFormatComboBox.getSelectedItem();
+        final Path target = stateSpaceLoader.chooseExportLocation(format);
+        if (target == null) {
+            return;
+        }
+        final StateStore states = stateStore;
+        resultsForm.execute(new StateSpaceTask<Long>(panel1) {
+            @Override
+            protected Long compute(ExplorationProgress progress) throws Exception {
+                return stateSpaceLoader.exportStateSpace(states, format, target, progress);
+            }
+
+            @Override
+            protected void display(Long transitions) {
+                LOGGER.log(Level.INFO, "Exported " + transitions + " transitions to " + target);
+            }
+        });
     }
 
     /**
@@ -173,8 +550,15 @@ public class ReachabilityGraph {
 
         pane.setAntialias(true);
 
-        pane.setPopupDisplayer(new SwingPopupDisplayer(new PIPESwingToolTipListener(),
-                new PIPESwingContextMenuListener(graph, new LensSet(), new Integer[]{}, new Integer[]{})));
+        PIPESwingContextMenuListener contextMenuListener =
+                new PIPESwingContextMenuListener(graph, new LensSet(), new Integer[]{}, new Integer[]{});
+        contextMenuListener.setExpansionListener(new PIPESwingContextMenuListener.ExpansionListener() {
+            @Override
+            public void expand(int state, Neighbourhood.Direction direction) {
+                expandState(state, direction);
+            }
+        });
+        pane.setPopupDisplayer(new SwingPopupDisplayer(toolTipListener, contextMenuListener));
 
         return new SwingJGraphScrollPane(pane, lensSet);
     }
@@ -184,72 +568,236 @@ public class ReachabilityGraph {
      * in a temporary file.
      * <p>
      * These results are then read in and turned into a graphical representation using mxGraph
-     * which is displayed to the user
+     * which is displayed to the user. State spaces with more than MAX_STATES_TO_DISPLAY states
+     * are laid out in the background and shown in the level of detail viewer instead.
      * </p>
-     * @param threads number of threads to use to explore the state space
+     * @param settings how to spread the exploration of the state space across threads
      */
-    private void calculateResults(int threads) {
-        try {
-            StateSpaceExplorer.StateSpaceExplorerResults results =
-                    stateSpaceLoader.calculateResults(new StateSpaceLoader.ExplorerCreator() {
-                                                          @Override
-                                                          public ExplorerUtilities create(PetriNet petriNet) {
-                                                              return getExplorerUtilities(petriNet);
-                                                          }
-                                                      }, new StateSpaceLoader.VanishingExplorerCreator() {
-                                                          @Override
-                                                          public VanishingExplorer create(ExplorerUtilities utils) {
-                                                              return getVanishingExplorer(utils);
-                                                          }
-                                                      }, threads
-                    );
-            updateTextResults(results.numberOfStates, results.processedTransitions);
-            if (results.numberOfStates <= MAX_STATES_TO_DISPLAY) {
-                StateSpaceLoader.Results stateSpace = stateSpaceLoader.loadStateSpace();
-                updateGraph(stateSpace.records, stateSpace.stateMappings);
+    private void calculateResults(final ExplorationSettings settings) {
+        if (!resultsForm.isIdle()) {
+            return;
+        }
+        final long seed = readSeed();
+        final boolean forceLayout = !isSpringLayout();
+        final boolean includeVanishing = includeVanishingStatesCheckBox.isSelected();
+        final boolean memoiseVanishing = memoiseVanishingCheckBox.isSelected();
+        final StateSpaceLoader.ExplorerCreator creator = getExplorerCreator();
+        if (creator == null) {
+            return;
+        }
+        final StateSpaceLoader.Source source = stateSpaceLoader.getSource();
+        resultsForm.execute(new StateSpaceTask<GraphResults>(panel1) {
+            @Override
+            protected GraphResults compute(ExplorationProgress progress) throws Exception {
+                StateSpaceExplorer.StateSpaceExplorerResults results =
+                        stateSpaceLoader.calculateResults(creator,
+                                new StateSpaceLoader.VanishingExplorerCreator() {
+                                    @Override
+                                    public VanishingExplorer create(ExplorerUtilities utils) {
+                                        return getVanishingExplorer(utils, includeVanishing, memoiseVanishing);
+                                    }
+                                }, source, settings, progress);
+                StateGraph stateGraph;
+                StateStore states;
+                try (StateSpaceLoader.Results stateSpace = stateSpaceLoader.streamStateSpace()) {
+                    stateGraph = StateGraph.of(stateSpace.records);
+                    states = stateSpace.states;
+                }
+                GraphLayout layout = null;
+                GraphLayout smallLayout = null;
+                if (results.numberOfStates > MAX_STATES_TO_DISPLAY) {
+                    layout = layoutLargeGraph(stateGraph, seed);
+                } else if (forceLayout) {
+                    smallLayout = layoutSmallGraph(stateGraph, allStates(stateGraph), seed);
+                }
+                return new GraphResults(results, states, stateGraph, layout, smallLayout);
             }
 
-        } catch (InvalidRateException | TimelessTrapException | IOException | InterruptedException | ExecutionException e) {
-            LOGGER.log(Level.SEVERE, e.toString());
-        } catch (StateSpaceLoaderException e) {
-            JOptionPane.showMessageDialog(panel1, e.getMessage(), "GSPN Analysis Error", JOptionPane.ERROR_MESSAGE);
+            @Override
+            protected void display(GraphResults graphResults) {
+                StateSpaceExplorer.StateSpaceExplorerResults results = graphResults.results;
+                updateTextResults(results.numberOfStates, stateSpaceLoader.getTransitionCount());
+                stateGraph = graphResults.stateGraph;
+                stateStore = graphResults.states;
+                toolTipListener.setStates(stateStore);
+                largeLayout = graphResults.layout;
+                smallLayout = graphResults.smallLayout;
+                showStateSpace();
+            }
+        });
+    }
+
+    /**
+     * Lays out a state space for the level of detail viewer
+     *
+     * @param stateGraph state space to lay out
+     * @param seed       seed of the Barnes-Hut initial placement
+     * @return Barnes-Hut layout if the state space is small enough, otherwise a layered layout
+     * @throws InterruptedException if interrupted while laying out
+     */
+    private GraphLayout layoutLargeGraph(StateGraph stateGraph, long seed) throws InterruptedException {
+        if (stateGraph.getStateCount() > MAX_FORCE_LAYOUT_STATES) {
+            return GraphLayout.layered(stateGraph);
         }
+        int threads = AnalysisExecutor.defaultThreads();
+        return new BarnesHutLayout(seed, BarnesHutLayout.DEFAULT_ITERATIONS, threads, layoutExecutor.get(threads))
+                .layout(stateGraph);
     }
 
     /**
-     * Copies the temporary files to a permanent loaction
+     * @return seed entered by the user, or the default seed if it is not a number
+     */
+    private long readSeed() {
+        try {
+            return Long.parseLong(seedText.getText().trim());
+        } catch (NumberFormatException e) {
+            seedText.setText(Long.toString(BarnesHutLayout.DEFAULT_SEED));
+            return BarnesHutLayout.DEFAULT_SEED;
+        }
+    }
+
+    /**
+     * Lays out the displayed graph again using the chosen layout and seed, the same seed
+     * always reproduces the same Barnes-Hut layout
+     */
+    private void relayout() {
+        if (!resultsForm.isIdle()) {
+            return;
+        }
+        if (stateGraph == null) {
+            return;
+        }
+        if (neighbourhood != null || largeLayout == null) {
+            displaySmallGraph(neighbourhood);
+            return;
+        }
+        final long seed = readSeed();
+        final StateGraph currentGraph = stateGraph;
+        resultsForm.execute(new StateSpaceTask<GraphLayout>(panel1) {
+            @Override
+            protected GraphLayout compute(ExplorationProgress progress) throws Exception {
+                return layoutLargeGraph(currentGraph, seed);
+            }
+
+            @Override
+            protected void display(GraphLayout layout) {
+                if (stateGraph == currentGraph) {
+                    largeLayout = layout;
+                    showStateSpace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies the temporary files to locations chosen by the user in the background,
+     * compressing them if asked to
      */
     private void saveBinaryFiles() {
-        stateSpaceLoader.saveBinaryFiles();
+        if (!resultsForm.isIdle()) {
+            return;
+        }
+        if (!stateSpaceLoader.hasBinaries()) {
+            return;
+        }
+        final boolean compress = stateSpaceLoader.isCompressBinariesChecked();
+        final Path transitions =
+                stateSpaceLoader.chooseBinarySaveLocation("Select location for temporary transitions");
+        final Path states = stateSpaceLoader.chooseBinarySaveLocation("Select location for temporary states");
+        if (transitions == null && states == null) {
+            return;
+        }
+        resultsForm.execute(new StateSpaceTask<Void>(panel1) {
+            @Override
+            protected Void compute(ExplorationProgress progress) throws Exception {
+                stateSpaceLoader.saveBinaryFiles(transitions, states, compress, progress);
+                return null;
+            }
+
+            @Override
+            protected void display(Void result) {
+                LOGGER.log(Level.INFO, "Saved state space binaries");
+            }
+        });
+    }
+
+    /**
+     * Reads the explorer options, so must be called on the event dispatch thread. The creator
+     * only holds their values and may then be used by the exploration in the background.
+     *
+     * @return creator of the explorer utilities, disk backed if the user selected it, or null
+     * if the maximum number of states is not a positive whole number
+     */
+    private StateSpaceLoader.ExplorerCreator getExplorerCreator() {
+        final boolean coverability = coverabilityButton.isSelected();
+        final boolean diskBacked = diskBackedCheckBox.isSelected();
+        final int maxStates;
+        if (coverability || diskBacked) {
+            maxStates = 0;
+        } else {
+            try {
+                maxStates = Integer.parseInt(maxStatesField.getText().trim());
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(panel1, "Maximum number of states must be a whole number",
+                        "State space exploration", JOptionPane.ERROR_MESSAGE);
+                return null;
+            }
+            if (maxStates < 1) {
+                JOptionPane.showMessageDialog(panel1, "Maximum number of states must be positive",
+                        "State space exploration", JOptionPane.ERROR_MESSAGE);
+                return null;
+            }
+        }
+        StateSpaceLoader.ExplorerCreator creator = new StateSpaceLoader.ExplorerCreator() {
+            @Override
+            public ExplorerUtilities create(PetriNet petriNet) {
+                return getExplorerUtilities(petriNet, coverability, diskBacked, maxStates);
+            }
+        };
+        return diskBacked ? StateSpaceLoader.diskBacked(creator) : creator;
     }
 
     /**
      * Creates the explorer utilities based upon whether the coverability or reachability graph
      * is being generate
      *
-     * @param petriNet to be displayed
+     * @param petriNet     to be displayed
+     * @param coverability true if the coverability graph is being generated
+     * @param diskBacked   true if the explored states are held on disk, so need not be bounded
+     * @param maxStates    maximum number of states to explore otherwise
      * @return explorer utilities for generating state space
      */
-    private ExplorerUtilities getExplorerUtilities(PetriNet petriNet) {
-        if (coverabilityButton.isSelected()) {
+    private static ExplorerUtilities getExplorerUtilities(PetriNet petriNet, boolean coverability,
+                                                          boolean diskBacked, int maxStates) {
+        if (coverability) {
             return new CoverabilityExplorerUtilities(new UnboundedExplorerUtilities(petriNet));
         }
+        if (diskBacked) {
+            return new UnboundedExplorerUtilities(petriNet);
+        }
 
-        return new BoundedExplorerUtilities(petriNet, Integer.valueOf(maxStatesField.getText()));
+        return new BoundedExplorerUtilities(petriNet, maxStates);
 
     }
 
     /**
      * Vanishing explorer is either a {@link pipe.reachability.algorithm.SimpleVanishingExplorer} if
-     * vanishing states are to be included in the graph, else it is {@link pipe.reachability.algorithm.OnTheFlyVanishingExplorer}
+     * vanishing states are to be included in the graph, else it is {@link pipe.reachability.algorithm.OnTheFlyVanishingExplorer},
+     * wrapped in a {@link MemoisingVanishingExplorer} if its results are to be memoised
      *
      * @param explorerUtilities utilities for analysis 
+     * @param includeVanishing  true if vanishing states are to be included in the graph
+     * @param memoise           true if the tangible successors of vanishing states are to be memoised
      * @return vanishing explorer
      */
-    private VanishingExplorer getVanishingExplorer(ExplorerUtilities explorerUtilities) {
-        if (includeVanishingStatesCheckBox.isSelected()) {
+    private static VanishingExplorer getVanishingExplorer(ExplorerUtilities explorerUtilities,
+                                                          boolean includeVanishing, boolean memoise) {
+        if (includeVanishing) {
             return new SimpleVanishingExplorer();
         }
+        if (memoise) {
+            return new MemoisingVanishingExplorer(new OnTheFlyVanishingExplorer(explorerUtilities));
+        }
         return new OnTheFlyVanishingExplorer(explorerUtilities);
     }
 
@@ -259,62 +807,274 @@ public class ReachabilityGraph {
      * @param states      number of states
      * @param transitions number of transitions
      */
-    private void updateTextResults(int states, int transitions) {
+    private void updateTextResults(int states, long transitions) {
         StringBuilder results = new StringBuilder();
         results.append("Results: ").append(states).append(" states and ").append(transitions).append(" transitions");
+        ExplorationSettings settings = stateSpaceLoader.getLastSettings();
+        if (settings != null) {
+            results.append(" using ").append(settings);
+        }
+        ExplorationMetrics metrics = stateSpaceLoader.getLastMetrics();
+        if (metrics != null) {
+            results.append("<br>").append(metrics);
+            textResultsLabel.setText("<html>" + results + "</html>");
+            return;
+        }
         textResultsLabel.setText(results.toString());
     }
 
     /**
-     * Updates the mxGraph to display the records
-     *
-     * @param records  state transitions from a processed Petri net
-     * @param stateMap map of stated
+     * Displays the whole of the most recently generated state space, using the level of
+     * detail viewer if it is too large for jpowergraph
      */
-    private void updateGraph(Iterable<Record> records, Map<Integer, ClassifiedState> stateMap) {
+    private void showStateSpace() {
+        neighbourhood = null;
+        if (stateGraph == null) {
+            return;
+        }
+        if (largeLayout == null) {
+            if (smallLayout == null && !isSpringLayout()) {
+                displaySmallGraph(null);
+            } else {
+                displayGeneration++;
+                showSmallGraph(null, allStates(stateGraph), isSpringLayout() ? null : smallLayout);
+            }
+            return;
+        }
+        displayGeneration++;
         graph.clear();
-        Map<Integer, Node> nodes = getNodes(stateMap);
-        Collection<Edge> edges = getEdges(records, nodes);
-        graph.addElements(nodes.values(), edges);
-        layoutGraph();
+        ((CardLayout) graphCards.getLayout()).show(graphCards, LARGE_GRAPH_CARD);
+        largeGraphPane.setGraph(stateGraph, largeLayout, stateStore);
+        neighbourhoodPanel.setStatus("Showing all " + stateGraph.getStateCount() + " states");
+    }
+
+    /**
+     * Displays the neighbourhood of the start states. The start may be a state id, a marking
+     * query matching the start states, or "deadlock" to start from every state with no successors
+     *
+     * @param start     state id, marking query or "deadlock"
+     * @param hops      number of hops to expand
+     * @param direction direction to expand in
+     */
+    private void showNeighbourhood(String start, int hops, Neighbourhood.Direction direction) {
+        if (!resultsForm.isIdle()) {
+            return;
+        }
+        if (stateGraph == null) {
+            neighbourhoodPanel.setStatus("Generate the state space first");
+            return;
+        }
+        Neighbourhood startStates = new Neighbourhood(stateGraph, MAX_NEIGHBOURHOOD_STATES);
+        try {
+            if (start.equalsIgnoreCase("deadlock")) {
+                for (int state = 0; state < stateGraph.getStateCount(); state++) {
+                    if (stateGraph.isDeadlock(state)) {
+                        startStates.add(state);
+                    }
+                }
+            } else if (start.matches("\\d+")) {
+                startStates.add(Integer.parseInt(start));
+            } else {
+                MarkingQuery query = MarkingQuery.parse(start, stateStore);
+                for (int id = stateStore.firstId(); id >= 0; id = stateStore.nextId(id)) {
+                    if (query.matches(id) && id < stateGraph.getStateCount()) {
+                        startStates.add(id);
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            neighbourhoodPanel.setStatus(e.getMessage());
+            return;
+        }
+        if (startStates.size() == 0) {
+            neighbourhoodPanel.setStatus("No states match '" + start + "'");
+            return;
+        }
+        if (startStates.getDroppedStarts() > 0) {
+            int matching = startStates.size() + startStates.getDroppedStarts();
+            JOptionPane.showMessageDialog(panel1, matching + " states match '" + start + "' but a neighbourhood "
+                            + "is limited to " + MAX_NEIGHBOURHOOD_STATES + " states.\nOnly the first "
+                            + startStates.size() + " are shown.", "Neighbourhood truncated",
+                    JOptionPane.WARNING_MESSAGE);
+        }
+        neighbourhood = startStates;
+        neighbourhood.expand(hops, direction);
+        displayNeighbourhood();
     }
 
     /**
-     * @param stateMap map of states
-     * @return All nodes to be added to the graph
+     * Expands the displayed neighbourhood from its frontier
+     *
+     * @param hops      number of hops to expand
+     * @param direction direction to expand in
      */
-    private Map<Integer, Node> getNodes(Map<Integer, ClassifiedState> stateMap) {
-        Map<Integer, Node> nodes = new HashMap<>(stateMap.size());
-        for (Map.Entry<Integer, ClassifiedState> entry : stateMap.entrySet()) {
-            ClassifiedState state = entry.getValue();
-            int id = entry.getKey();
-            nodes.put(id, createNode(state, id));
+    private void expandNeighbourhood(int hops, Neighbourhood.Direction direction) {
+        if (!resultsForm.isIdle()) {
+            return;
         }
-        return nodes;
+        if (neighbourhood == null) {
+            neighbourhoodPanel.setStatus("Show a neighbourhood first");
+            return;
+        }
+        neighbourhood.expand(hops, direction);
+        displayNeighbourhood();
     }
 
     /**
-     * All edges to be added to the graph
+     * Expands the neighbourhood by the immediate neighbours of a single state, starting a new
+     * neighbourhood from the state if the whole state space is displayed
      *
-     * @param records to add
-     * @param nodes to add
-     * @return edges 
+     * @param state     state id
+     * @param direction direction to expand in
+     */
+    private void expandState(int state, Neighbourhood.Direction direction) {
+        if (!resultsForm.isIdle()) {
+            return;
+        }
+        if (stateGraph == null || state >= stateGraph.getStateCount()) {
+            return;
+        }
+        if (neighbourhood == null) {
+            neighbourhood = new Neighbourhood(stateGraph, MAX_NEIGHBOURHOOD_STATES);
+            neighbourhood.add(state);
+        }
+        neighbourhood.expandState(state, direction);
+        displayNeighbourhood();
+    }
+
+    /**
+     * Displays the current neighbourhood with jpowergraph
      */
-    private Collection<Edge> getEdges(Iterable<Record> records, Map<Integer, Node> nodes) {
+    private void displayNeighbourhood() {
+        displaySmallGraph(neighbourhood);
+    }
+
+    /**
+     * Displays states with jpowergraph. Unless the spring layout is chosen they are first laid
+     * out with Barnes-Hut in the background, so the event dispatch thread only adds the nodes
+     *
+     * @param shown states to display, null to display every state
+     */
+    private void displaySmallGraph(final Neighbourhood shown) {
+        if (!isSpringLayout() && !resultsForm.isIdle()) {
+            return;
+        }
+        final int[] states = shown == null ? allStates(stateGraph) : shown.getStates();
+        final int generation = ++displayGeneration;
+        if (isSpringLayout()) {
+            showSmallGraph(shown, states, null);
+            return;
+        }
+        final long seed = readSeed();
+        final StateGraph currentGraph = stateGraph;
+        resultsForm.execute(new StateSpaceTask<GraphLayout>(panel1) {
+            @Override
+            protected GraphLayout compute(ExplorationProgress progress) throws Exception {
+                return layoutSmallGraph(currentGraph, states, seed);
+            }
+
+            @Override
+            protected void display(GraphLayout layout) {
+                if (generation != displayGeneration) {
+                    return;
+                }
+                if (shown == null) {
+                    smallLayout = layout;
+                }
+                showSmallGraph(shown, states, layout);
+            }
+        });
+    }
+
+    /**
+     * Shows the states with jpowergraph and describes them in the status
+     *
+     * @param shown  neighbourhood the states belong to, null if every state is shown
+     * @param states ids of the states to display in ascending order
+     * @param layout Barnes-Hut positions indexed by position in states, null to use the spring layout
+     */
+    private void showSmallGraph(Neighbourhood shown, int[] states, GraphLayout layout) {
+        largeGraphPane.clear();
+        updateGraph(states, layout);
+        ((CardLayout) graphCards.getLayout()).show(graphCards, SMALL_GRAPH_CARD);
+        if (shown == null) {
+            neighbourhoodPanel.setStatus("Showing all " + stateGraph.getStateCount() + " states");
+            return;
+        }
+        String status = "Showing " + states.length + " of " + stateGraph.getStateCount() + " states";
+        if (shown.isTruncated()) {
+            status += ", limited to " + MAX_NEIGHBOURHOOD_STATES;
+        }
+        neighbourhoodPanel.setStatus(status);
+    }
+
+    /**
+     * Updates the graph to display the states and the transitions between them
+     *
+     * @param states ids of the states to display in ascending order
+     * @param layout positions indexed by position in states, null to lay them out with the spring layout
+     */
+    private void updateGraph(int[] states, GraphLayout layout) {
+        graph.clear();
+        Map<Integer, Node> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < states.length; i++) {
+            Node node = createNode(stateStore, states[i]);
+            if (layout != null) {
+                node.setLocation(layout.getX(i), layout.getY(i));
+            }
+            nodes.put(states[i], node);
+        }
         Collection<Edge> edges = new ArrayList<>();
-        for (Record record : records) {
-            int state = record.state;
-            for (Map.Entry<Integer, Double> entry : record.successors.entrySet()) {
-                int succ = entry.getKey();
-                edges.add(new DirectedTextEdge(nodes.get(state), nodes.get(succ),
-                        String.format("%.2f", entry.getValue())));
+        for (Map.Entry<Integer, Node> entry : nodes.entrySet()) {
+            int state = entry.getKey();
+            for (int t = stateGraph.successorStart(state); t < stateGraph.successorEnd(state); t++) {
+                Node successor = nodes.get(stateGraph.getSuccessor(t));
+                if (successor != null) {
+                    edges.add(new DirectedTextEdge(entry.getValue(), successor, stateGraph.getRate(t)));
+                }
             }
         }
-        return edges;
+        graph.addElements(nodes.values(), edges);
+        if (layout == null) {
+            layoutGraph();
+        }
+    }
+
+    /**
+     * Lays out states shown with jpowergraph, called off the event dispatch thread
+     *
+     * @param stateGraph state space the states belong to
+     * @param states     ids of the states to lay out
+     * @param seed       seed of the Barnes-Hut initial placement
+     * @return positions indexed by position in states
+     * @throws InterruptedException if interrupted while laying out
+     */
+    private static GraphLayout layoutSmallGraph(StateGraph stateGraph, int[] states, long seed)
+            throws InterruptedException {
+        return new BarnesHutLayout(seed, BarnesHutLayout.DEFAULT_ITERATIONS, 1, null).layout(stateGraph, states);
+    }
+
+    /**
+     * @param stateGraph state space
+     * @return id of every state in ascending order
+     */
+    private static int[] allStates(StateGraph stateGraph) {
+        int[] states = new int[stateGraph.getStateCount()];
+        for (int state = 0; state < states.length; state++) {
+            states[state] = state;
+        }
+        return states;
     }
 
     /**
-     * Performs laying out of items on the graph
+     * @return true if graphs shown with jpowergraph are laid out with its spring layout
+     */
+    private boolean isSpringLayout() {
+        return SPRING_LAYOUT.equals(layoutComboBox.getSelectedItem());
+    }
+
+    /**
+     * Performs laying out of items on the graph using jpowergraph's spring layout
      */
     private void layoutGraph() {
         Layouter layouter = new Layouter(new SpringLayoutStrategy(graph));
@@ -322,17 +1082,17 @@ public class ReachabilityGraph {
     }
 
     /**
-     * @param state classified state to be turned into a graph node
-     * @param id    state integer id
+     * Nodes only hold the state id, their markings are described by the tooltip listener when hovered over
+     *
+     * @param states explored states
+     * @param id     state integer id
      * @return Tangible or Vanishing state node corresponding to the state and its integer id representation
      */
-    private Node createNode(ClassifiedState state, int id) {
-        String label = Integer.toString(id);
-        String toolTip = state.toString();
-        if (state.isTangible()) {
-            return new TangibleStateNode(label, toolTip);
+    private Node createNode(StateStore states, int id) {
+        if (states.isTangible(id)) {
+            return new TangibleStateNode(id);
         }
-        return new VanishingStateNode(label, toolTip);
+        return new VanishingStateNode(id);
     }
 
     /**
@@ -365,4 +1125,59 @@ public class ReachabilityGraph {
     public Container getMainPanel() {
         return panel1;
     }
+
+    /**
+     * Cancels any running task and releases the threads used for laying out graphs, should be
+     * called when the window containing this module is closed
+     */
+    public void shutdown() {
+        resultsForm.cancel();
+        layoutExecutor.shutdown();
+    }
+
+    /**
+     * Results of generating the state space in the background
+     */
+    private static final class GraphResults {
+        /**
+         * State and transition counts
+         */
+        private final StateSpaceExplorer.StateSpaceExplorerResults results;
+
+        /**
+         * Explored states
+         */
+        private final StateStore states;
+
+        /**
+         * Adjacency of the state space
+         */
+        private final StateGraph stateGraph;
+
+        /**
+         * Positions for the level of detail viewer, null if the state space is small enough for jpowergraph
+         */
+        private final GraphLayout layout;
+
+        /**
+         * Barnes-Hut positions for jpowergraph, null if the state space is too large or uses the spring layout
+         */
+        private final GraphLayout smallLayout;
+
+        /**
+         * @param results     state and transition counts
+         * @param states      explored states
+         * @param stateGraph  adjacency of the state space
+         * @param layout      positions for the level of detail viewer, or null
+         * @param smallLayout positions for jpowergraph, or null
+         */
+        private GraphResults(StateSpaceExplorer.StateSpaceExplorerResults results, StateStore states,
+                             StateGraph stateGraph, GraphLayout layout, GraphLayout smallLayout) {
+            this.results = results;
+            this.states = states;
+            this.stateGraph = stateGraph;
+            this.layout = layout;
+            this.smallLayout = smallLayout;
+        }
+    }
 }
@@ -0,0 +1,182 @@
+package pipe.gui.reachability;
+
+/**
+ * Uniform grid over the positions of a {@link GraphLayout} used to find the states in a region
+ * without testing every state. The states of each cell are stored contiguously in one int array.
+ */
+final class SpatialGrid {
+    /**
+     * Average number of states aimed for in each cell
+     */
+    private static final int STATES_PER_CELL = 4;
+
+    /**
+     * Smallest x coordinate of any state
+     */
+    private final float minX;
+
+    /**
+     * Smallest y coordinate of any state
+     */
+    private final float minY;
+
+    /**
+     * Largest x coordinate of any state
+     */
+    private final float maxX;
+
+    /**
+     * Largest y coordinate of any state
+     */
+    private final float maxY;
+
+    /**
+     * Width and height of each cell
+     */
+    private final float cellSize;
+
+    /**
+     * Number of cell columns
+     */
+    private final int columns;
+
+    /**
+     * Number of cell rows
+     */
+    private final int rows;
+
+    /**
+     * Start of each cell's states in cellStates, has one more entry than there are cells
+     */
+    private final int[] cellStart;
+
+    /**
+     * State ids ordered by cell
+     */
+    private final int[] cellStates;
+
+    /**
+     * @param layout positions to index
+     */
+    SpatialGrid(GraphLayout layout) {
+        int size = layout.size();
+        float lowX = Float.MAX_VALUE;
+        float lowY = Float.MAX_VALUE;
+        float highX = -Float.MAX_VALUE;
+        float highY = -Float.MAX_VALUE;
+        for (int state = 0; state < size; state++) {
+            lowX = Math.min(lowX, layout.getX(state));
+            lowY = Math.min(lowY, layout.getY(state));
+            highX = Math.max(highX, layout.getX(state));
+            highY = Math.max(highY, layout.getY(state));
+        }
+        if (size == 0) {
+            lowX = lowY = highX = highY = 0;
+        }
+        minX = lowX;
+        minY = lowY;
+        maxX = highX;
+        maxY = highY;
+        double area = Math.max(1, (double) (maxX - minX) * (maxY - minY));
+        cellSize = (float) Math.max(GraphLayout.SPACING, Math.sqrt(area * STATES_PER_CELL / Math.max(1, size)));
+        columns = (int) ((maxX - minX) / cellSize) + 1;
+        rows = (int) ((maxY - minY) / cellSize) + 1;
+
+        cellStart = new int[columns * rows + 1];
+        for (int state = 0; state < size; state++) {
+            cellStart[cellOf(layout.getX(state), layout.getY(state)) + 1]++;
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] next = new int[columns * rows];
+        System.arraycopy(cellStart, 0, next, 0, next.length);
+        cellStates = new int[size];
+        for (int state = 0; state < size; state++) {
+            cellStates[next[cellOf(layout.getX(state), layout.getY(state))]++] = state;
+        }
+    }
+
+    /**
+     * @param x world x coordinate
+     * @param y world y coordinate
+     * @return index of the cell containing the point
+     */
+    private int cellOf(float x, float y) {
+        return row(y) * columns + column(x);
+    }
+
+    /**
+     * @param x world x coordinate
+     * @return column containing x, clamped to the grid
+     */
+    int column(float x) {
+        return Math.max(0, Math.min(columns - 1, (int) ((x - minX) / cellSize)));
+    }
+
+    /**
+     * @param y world y coordinate
+     * @return row containing y, clamped to the grid
+     */
+    int row(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) ((y - minY) / cellSize)));
+    }
+
+    /**
+     * @return number of cell columns
+     */
+    int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return number of cell rows
+     */
+    int getRows() {
+        return rows;
+    }
+
+    /**
+     * Used with {@link #cellEnd(int, int)} and {@link #getState(int)} to iterate over the states in a cell
+     *
+     * @param column cell column
+     * @param row    cell row
+     * @return index of the cell's first state
+     */
+    int cellStart(int column, int row) {
+        return cellStart[row * columns + column];
+    }
+
+    /**
+     * @param column cell column
+     * @param row    cell row
+     * @return one past the index of the cell's last state
+     */
+    int cellEnd(int column, int row) {
+        return cellStart[row * columns + column + 1];
+    }
+
+    /**
+     * @param index position in the cell ordering
+     * @return state id at the position
+     */
+    int getState(int index) {
+        return cellStates[index];
+    }
+
+    float getMinX() {
+        return minX;
+    }
+
+    float getMinY() {
+        return minY;
+    }
+
+    float getMaxX() {
+        return maxX;
+    }
+
+    float getMaxY() {
+        return maxY;
+    }
+}
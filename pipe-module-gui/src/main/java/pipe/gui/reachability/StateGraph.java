@@ -0,0 +1,217 @@
+package pipe.gui.reachability;
+
+import uk.ac.imperial.state.Record;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Compact, read only adjacency structure of an explored state space.
+ * <p>
+ * The explorer numbers states sequentially from zero so the successors of every state are
+ * stored contiguously in primitive arrays indexed by state id, built with two streaming
+ * passes over the records. This lets very large state spaces be laid out and drawn without
+ * creating a node and edge object for every state and transition.
+ * </p><p>
+ * A predecessor index over the same transitions is built alongside so that expanding a state's
+ * neighbourhood in either direction is a lookup rather than a rescan of the records.
+ * </p>
+ */
+public final class StateGraph {
+    /**
+     * Number of states, ids run from 0 to stateCount - 1
+     */
+    private final int stateCount;
+
+    /**
+     * Start of each state's successors in successors and rates, has stateCount + 1 entries
+     */
+    private final int[] successorStart;
+
+    /**
+     * Successor state ids
+     */
+    private final int[] successors;
+
+    /**
+     * Rate of each transition
+     */
+    private final float[] rates;
+
+    /**
+     * Start of each state's incoming transitions in incoming, has stateCount + 1 entries
+     */
+    private final int[] predecessorStart;
+
+    /**
+     * Index of each incoming transition, grouped by the state it leads to
+     */
+    private final int[] incoming;
+
+    /**
+     * Source state of each transition
+     */
+    private final int[] sources;
+
+    /**
+     * Builds the graph from the records, iterating over them twice
+     *
+     * @param records state space records
+     * @return adjacency of the records
+     */
+    public static StateGraph of(Iterable<Record> records) {
+        int maxId = -1;
+        long transitionCount = 0;
+        for (Record record : records) {
+            maxId = Math.max(maxId, record.state);
+            for (Integer successor : record.successors.keySet()) {
+                maxId = Math.max(maxId, successor);
+            }
+            transitionCount += record.successors.size();
+        }
+        if (transitionCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("State space has too many transitions to display");
+        }
+        int stateCount = maxId + 1;
+        int[] successorStart = new int[stateCount + 1];
+        for (Record record : records) {
+            successorStart[record.state + 1] += record.successors.size();
+        }
+        for (int state = 0; state < stateCount; state++) {
+            successorStart[state + 1] += successorStart[state];
+        }
+        int[] next = Arrays.copyOf(successorStart, stateCount);
+        int[] successors = new int[(int) transitionCount];
+        float[] rates = new float[(int) transitionCount];
+        for (Record record : records) {
+            for (Map.Entry<Integer, Double> entry : record.successors.entrySet()) {
+                int position = next[record.state]++;
+                successors[position] = entry.getKey();
+                rates[position] = entry.getValue().floatValue();
+            }
+        }
+        return new StateGraph(stateCount, successorStart, successors, rates);
+    }
+
+    /**
+     * @param stateCount     number of states
+     * @param successorStart start of each state's successors
+     * @param successors     successor state ids
+     * @param rates          rate of each transition
+     */
+    private StateGraph(int stateCount, int[] successorStart, int[] successors, float[] rates) {
+        this.stateCount = stateCount;
+        this.successorStart = successorStart;
+        this.successors = successors;
+        this.rates = rates;
+
+        sources = new int[successors.length];
+        predecessorStart = new int[stateCount + 1];
+        for (int state = 0; state < stateCount; state++) {
+            for (int t = successorStart[state]; t < successorStart[state + 1]; t++) {
+                sources[t] = state;
+                predecessorStart[successors[t] + 1]++;
+            }
+        }
+        for (int state = 0; state < stateCount; state++) {
+            predecessorStart[state + 1] += predecessorStart[state];
+        }
+        int[] next = Arrays.copyOf(predecessorStart, stateCount);
+        incoming = new int[successors.length];
+        for (int t = 0; t < successors.length; t++) {
+            incoming[next[successors[t]]++] = t;
+        }
+    }
+
+    /**
+     * @return number of states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * @return number of transitions
+     */
+    public int getTransitionCount() {
+        return successors.length;
+    }
+
+    /**
+     * Used with {@link #successorEnd(int)} to iterate over a state's transitions, e.g.
+     * {@code for (int t = graph.successorStart(s); t < graph.successorEnd(s); t++)}
+     *
+     * @param state state id
+     * @return index of the state's first transition
+     */
+    public int successorStart(int state) {
+        return successorStart[state];
+    }
+
+    /**
+     * @param state state id
+     * @return one past the index of the state's last transition
+     */
+    public int successorEnd(int state) {
+        return successorStart[state + 1];
+    }
+
+    /**
+     * @param transition index of the transition
+     * @return id of the state the transition leads to
+     */
+    public int getSuccessor(int transition) {
+        return successors[transition];
+    }
+
+    /**
+     * @param transition index of the transition
+     * @return rate of the transition
+     */
+    public float getRate(int transition) {
+        return rates[transition];
+    }
+
+    /**
+     * Used with {@link #predecessorEnd(int)} and {@link #getIncoming(int)} to iterate over the
+     * transitions leading to a state
+     *
+     * @param state state id
+     * @return position of the state's first incoming transition
+     */
+    public int predecessorStart(int state) {
+        return predecessorStart[state];
+    }
+
+    /**
+     * @param state state id
+     * @return one past the position of the state's last incoming transition
+     */
+    public int predecessorEnd(int state) {
+        return predecessorStart[state + 1];
+    }
+
+    /**
+     * @param position position in the predecessor index
+     * @return index of the transition at the position
+     */
+    public int getIncoming(int position) {
+        return incoming[position];
+    }
+
+    /**
+     * @param transition index of the transition
+     * @return id of the state the transition leaves
+     */
+    public int getSource(int transition) {
+        return sources[transition];
+    }
+
+    /**
+     * @param state state id
+     * @return true if no transitions leave the state
+     */
+    public boolean isDeadlock(int state) {
+        return successorStart[state] == successorStart[state + 1];
+    }
+}
@@ -0,0 +1,14 @@
+package pipe.gui.reachability;
+
+import net.sourceforge.jpowergraph.Node;
+
+/**
+ * Node representing a single state of the reachability graph. It only holds the state id,
+ * its marking is looked up when it is needed.
+ */
+interface StateNode extends Node {
+    /**
+     * @return id of the state this node represents
+     */
+    int getState();
+}
@@ -8,17 +8,17 @@ import net.sourceforge.jpowergraph.swtswinginteraction.color.JPowerGraphColor;
  * Node used when displaying the readability graph to represent a tangile node.
  * Tanglible nodes are displayed in a light red color.
  */
-class TangibleStateNode extends DefaultNode {
+class TangibleStateNode extends DefaultNode implements StateNode {
 
     /**
-     * Name to display within the node
+     * Id of the state, the label and tooltip are rendered from it on demand
      */
-    private final String label;
+    private final int state;
 
     /**
-     * Tooltipof the node
+     * Label of the node, formatted the first time it is painted
      */
-    private String toolTip;
+    private String label;
 
     /**
      * Background color
@@ -38,12 +38,10 @@ class TangibleStateNode extends DefaultNode {
 
     /**
      * Creates a new node instance.
-     * @param label    the node id.
-     * @param tooltip  the state tooltip text
+     * @param state    the state id.
      */
-    TangibleStateNode(String label, String tooltip){
-        this.label = label;
-        this.toolTip = tooltip;
+    TangibleStateNode(int state){
+        this.state = state;
     }
 
 
@@ -53,6 +51,9 @@ class TangibleStateNode extends DefaultNode {
      */
     @Override
     public String getLabel() {
+        if (label == null) {
+            label = Integer.toString(state);
+        }
         return label;
     }
 
@@ -69,10 +70,11 @@ class TangibleStateNode extends DefaultNode {
 
     /**
      *
-     * @return tooptip message for this node
+     * @return id of the state
      */
-    public String getToolTip(){
-        return toolTip;
+    @Override
+    public int getState(){
+        return state;
     }
 
 
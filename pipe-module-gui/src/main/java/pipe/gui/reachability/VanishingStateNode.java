@@ -10,16 +10,16 @@ import net.sourceforge.jpowergraph.swtswinginteraction.color.JPowerGraphColor;
  *
  * Vanishing states are displayed in light blue
  */
-public class VanishingStateNode extends DefaultNode {
+public class VanishingStateNode extends DefaultNode implements StateNode {
     /**
-     * Label to appear in the node
+     * Id of the state, the label and tooltip are rendered from it on demand
      */
-    private final String label;
+    private final int state;
 
     /**
-     * Tool tip when hovering over the node
+     * Label of the node, formatted the first time it is painted
      */
-    private String toolTip;
+    private String label;
 
     /**
      * Background color
@@ -39,12 +39,10 @@ public class VanishingStateNode extends DefaultNode {
 
     /**
      * Creates a new node instance.
-     * @param label    the node id.
-     * @param tooltip  the state tooltip text
+     * @param state    the state id.
      */
-    VanishingStateNode(String label, String tooltip){
-        this.label = label;
-        this.toolTip = tooltip;
+    VanishingStateNode(int state){
+        this.state = state;
     }
 
 
@@ -54,6 +52,9 @@ public class VanishingStateNode extends DefaultNode {
      */
     @Override
     public String getLabel() {
+        if (label == null) {
+            label = Integer.toString(state);
+        }
         return label;
     }
 
@@ -70,10 +71,11 @@ public class VanishingStateNode extends DefaultNode {
 
     /**
      *
-     * @return tooltip message
+     * @return id of the state
      */
-    public String getToolTip(){
-        return toolTip;
+    @Override
+    public int getState(){
+        return state;
     }
 
 
@@ -0,0 +1,86 @@
+package pipe.gui.widget;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lifecycle managed thread pool shared by the analysis runs of a module window.
+ * <p>
+ * The pool is created on first use, reused by subsequent runs and only recreated when a run asks
+ * for more threads than it holds. Its threads are daemons so that they never keep the application
+ * alive, but the owning window should still call {@link #shutdown()} when it closes.
+ * </p><p>
+ * Shutting down interrupts any task still running in the pool, so a solve or layout in flight
+ * fails part way through. Owners stop their running analysis before shutting the pool down so
+ * that it ends as cancelled rather than failed.
+ * </p>
+ */
+public final class AnalysisExecutor {
+    /**
+     * Used to give every pool thread a unique name
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Current pool, null until first requested or after shut down
+     */
+    private ExecutorService executorService;
+
+    /**
+     * Number of threads in the current pool
+     */
+    private int poolSize;
+
+    /**
+     * @return number of threads to use when the user has not specified any
+     */
+    public static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Returns the shared pool, creating it or growing it if it holds fewer than the requested threads.
+     * A pool that is replaced by a larger one is shut down without interrupting its tasks, so a run
+     * still using it finishes normally.
+     *
+     * @param threads number of threads the caller will use
+     * @return pool with at least the requested number of threads
+     */
+    public synchronized ExecutorService get(int threads) {
+        int required = Math.max(1, threads);
+        if (executorService == null || executorService.isShutdown() || poolSize < required) {
+            if (executorService != null) {
+                executorService.shutdown();
+            }
+            executorService = Executors.newFixedThreadPool(required, new AnalysisThreadFactory());
+            poolSize = required;
+        }
+        return executorService;
+    }
+
+    /**
+     * Stops the pool, interrupting any running analysis. A later call to {@link #get(int)}
+     * will create a new pool.
+     */
+    public synchronized void shutdown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+            poolSize = 0;
+        }
+    }
+
+    /**
+     * Creates named daemon threads for the pool
+     */
+    private static final class AnalysisThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "pipe-analysis-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package pipe.gui.widget;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.StateRateRecord;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import pipe.reachability.algorithm.TimelessTrapException;
+import pipe.reachability.algorithm.VanishingExplorer;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.io.StateReader;
+import uk.ac.imperial.pipe.exceptions.InvalidRateException;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.StateRecord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sequential breadth first state space explorer that periodically checkpoints its progress
+ * and keeps its explored set in a pluggable {@link ExploredStateSet}.
+ * <p>
+ * States are given ids in the order they are discovered and are expanded in that same order,
+ * which lets an {@link ExplorationCheckpoint} describe the explored set and frontier with two
+ * counts. When the exploration is cancelled a final checkpoint is written before the cancellation
+ * is rethrown, and if it fails for any other reason the last periodic checkpoint remains, so
+ * either way the exploration can later be resumed rather than restarted.
+ * </p>
+ */
+final class CheckpointingStateSpaceExplorer {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(CheckpointingStateSpaceExplorer.class.getName());
+
+    /**
+     * Default time between checkpoints
+     */
+    static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Interval meaning no checkpoints are written
+     */
+    static final long NO_CHECKPOINTS = Long.MAX_VALUE;
+
+    /**
+     * Used to find successors and their rates
+     */
+    private final ExplorerUtilities explorerUtilities;
+
+    /**
+     * Used to explore through vanishing successors
+     */
+    private final VanishingExplorer vanishingExplorer;
+
+    /**
+     * Writes discovered states and expanded transitions
+     */
+    private final StateProcessor processor;
+
+    /**
+     * Output the processor writes transitions to
+     */
+    private final Output transitionOutput;
+
+    /**
+     * Output the processor writes states to
+     */
+    private final Output stateOutput;
+
+    /**
+     * Transitions binary being written
+     */
+    private final Path transitions;
+
+    /**
+     * States binary being written
+     */
+    private final Path states;
+
+    /**
+     * Time between checkpoints in milliseconds
+     */
+    private final long intervalMillis;
+
+    /**
+     * Id of every discovered state
+     */
+    private final ExploredStateSet explored;
+
+    /**
+     * Discovered states that have not yet been expanded, in id order
+     */
+    private final Queue<ClassifiedState> frontier = new ArrayDeque<>();
+
+    /**
+     * Number of bytes already in the transitions binary before the output started writing
+     */
+    private long baseTransitionBytes;
+
+    /**
+     * Number of bytes already in the states binary before the output started writing
+     */
+    private long baseStateBytes;
+
+    /**
+     * Number of states whose transitions have been written
+     */
+    private int expandedStates;
+
+    /**
+     * Number of transitions written
+     */
+    private long transitionCount;
+
+    /**
+     * Time the last checkpoint was written
+     */
+    private long lastCheckpoint = System.currentTimeMillis();
+
+    /**
+     * @param explorerUtilities used to find successors and their rates
+     * @param vanishingExplorer used to explore through vanishing successors
+     * @param processor         writes discovered states and expanded transitions
+     * @param transitionOutput  output the processor writes transitions to
+     * @param stateOutput       output the processor writes states to
+     * @param transitions       transitions binary being written
+     * @param states            states binary being written
+     * @param explored          empty set to record discovered states in
+     * @param intervalMillis    time between checkpoints in milliseconds, or NO_CHECKPOINTS
+     */
+    CheckpointingStateSpaceExplorer(ExplorerUtilities explorerUtilities, VanishingExplorer vanishingExplorer,
+                                    StateProcessor processor, Output transitionOutput, Output stateOutput,
+                                    Path transitions, Path states, ExploredStateSet explored,
+                                    long intervalMillis) {
+        this.explored = explored;
+        this.explorerUtilities = explorerUtilities;
+        this.vanishingExplorer = vanishingExplorer;
+        this.processor = processor;
+        this.transitionOutput = transitionOutput;
+        this.stateOutput = stateOutput;
+        this.transitions = transitions;
+        this.states = states;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Explores the state space from its initial state
+     *
+     * @param initialState initial state of the Petri net
+     * @return number of states and transitions explored
+     * @throws TimelessTrapException unable to exit cyclic vanishing state
+     * @throws InvalidRateException  functional rate expression invalid
+     * @throws IOException           if a checkpoint cannot be written or the explored set cannot grow
+     */
+    StateSpaceExplorer.StateSpaceExplorerResults generate(ClassifiedState initialState)
+            throws TimelessTrapException, InvalidRateException, IOException {
+        try {
+            if (initialState.isTangible()) {
+                register(initialState);
+            } else {
+                for (StateRateRecord record : vanishingExplorer.explore(initialState, 1.0)) {
+                    register(record.getState());
+                }
+            }
+        } catch (CancellationException e) {
+            checkpointCancelled();
+            throw e;
+        }
+        return explore();
+    }
+
+    /**
+     * Resumes exploring from a checkpoint whose binaries have been truncated to it and
+     * are being appended to by the outputs. The states binary is streamed into the explored
+     * set and frontier, it holds the states in id order since they are written as they are discovered.
+     *
+     * @param checkpoint  checkpoint to resume from
+     * @param stateReader reader of the states binary
+     * @param stateInput  input reading the truncated states binary from its start
+     * @return number of states and transitions explored, including those before the checkpoint
+     * @throws TimelessTrapException unable to exit cyclic vanishing state
+     * @throws InvalidRateException  functional rate expression invalid
+     * @throws IOException           if the states binary does not match the checkpoint
+     */
+    StateSpaceExplorer.StateSpaceExplorerResults resume(ExplorationCheckpoint checkpoint, StateReader stateReader,
+                                                        Input stateInput)
+            throws TimelessTrapException, InvalidRateException, IOException {
+        int discovered = 0;
+        while (!stateInput.eof()) {
+            StateRecord record = stateReader.readState(stateInput);
+            if (record.getStateId() != discovered) {
+                throw new IOException("Expected state " + discovered + " but found state " + record.getStateId()
+                        + " in " + checkpoint.getStates());
+            }
+            explored.put(record.getState(), discovered);
+            if (discovered >= checkpoint.getExpandedStates()) {
+                frontier.add(record.getState());
+            }
+            discovered++;
+        }
+        if (discovered != checkpoint.getDiscoveredStates()) {
+            throw new IOException("Checkpoint expects " + checkpoint.getDiscoveredStates() + " states but "
+                    + checkpoint.getStates() + " contains " + discovered);
+        }
+        baseTransitionBytes = checkpoint.getTransitionBytes();
+        baseStateBytes = checkpoint.getStateBytes();
+        expandedStates = checkpoint.getExpandedStates();
+        transitionCount = checkpoint.getTransitionCount();
+        return explore();
+    }
+
+    /**
+     * @return number of transitions written, including those written before a resumed checkpoint
+     */
+    long getTransitionCount() {
+        return transitionCount;
+    }
+
+    /**
+     * Expands states until the frontier is empty or the explorer utilities bound is reached,
+     * then removes the checkpoint since it is no longer needed
+     *
+     * @return number of states and transitions explored
+     * @throws TimelessTrapException unable to exit cyclic vanishing state
+     * @throws InvalidRateException  functional rate expression invalid
+     * @throws IOException           if a checkpoint cannot be written
+     */
+    private StateSpaceExplorer.StateSpaceExplorerResults explore()
+            throws TimelessTrapException, InvalidRateException, IOException {
+        try {
+            while (!frontier.isEmpty() && explorerUtilities.canExploreMore(explored.size())) {
+                expand(frontier.peek());
+                frontier.remove();
+                expandedStates++;
+                if (System.currentTimeMillis() - lastCheckpoint >= intervalMillis) {
+                    checkpoint();
+                }
+            }
+        } catch (CancellationException e) {
+            checkpointCancelled();
+            throw e;
+        }
+        if (intervalMillis != NO_CHECKPOINTS) {
+            Files.deleteIfExists(ExplorationCheckpoint.pathFor(transitions));
+        }
+        return new StateSpaceExplorer.StateSpaceExplorerResults(StateSpaceLoader.clamp(transitionCount),
+                explored.size());
+    }
+
+    /**
+     * Writes the state's transitions, registering any successors that have not been seen before.
+     * Successors are registered before the transitions are written so that a checkpoint taken
+     * after a cancellation part way through simply expands the state again on resume.
+     *
+     * @param state tangible state to expand
+     * @throws TimelessTrapException unable to exit cyclic vanishing state
+     * @throws InvalidRateException  functional rate expression invalid
+     * @throws IOException           if the explored set cannot grow
+     */
+    private void expand(ClassifiedState state) throws TimelessTrapException, InvalidRateException, IOException {
+        Map<ClassifiedState, Double> successorRates = new HashMap<>();
+        for (Map.Entry<ClassifiedState, Collection<Transition>> entry :
+                explorerUtilities.getSuccessorsWithTransitions(state).entrySet()) {
+            ClassifiedState successor = entry.getKey();
+            double rate = explorerUtilities.getWeightOfTransitions(state, entry.getValue());
+            if (successor.isTangible()) {
+                addRate(successorRates, successor, rate);
+            } else {
+                for (StateRateRecord record : vanishingExplorer.explore(successor, rate)) {
+                    addRate(successorRates, record.getState(), record.getRate());
+                }
+            }
+        }
+        Map<Integer, Double> successors = new HashMap<>();
+        for (Map.Entry<ClassifiedState, Double> entry : successorRates.entrySet()) {
+            int id = explored.getId(entry.getKey());
+            if (id < 0) {
+                id = register(entry.getKey());
+            }
+            successors.put(id, entry.getValue());
+        }
+        processor.processTransitions(explored.getId(state), successors);
+        transitionCount += successors.size();
+    }
+
+    /**
+     * @param rates     successor rates to add to
+     * @param successor successor state
+     * @param rate      rate to add to the successor
+     */
+    private static void addRate(Map<ClassifiedState, Double> rates, ClassifiedState successor, double rate) {
+        Double existing = rates.get(successor);
+        rates.put(successor, existing == null ? rate : existing + rate);
+    }
+
+    /**
+     * Gives the state the next id, writes it and adds it to the frontier
+     *
+     * @param state newly discovered state
+     * @return id of the state
+     * @throws IOException if the explored set cannot grow
+     */
+    private int register(ClassifiedState state) throws IOException {
+        int id = explored.size();
+        processor.processState(state, id);
+        explored.put(state, id);
+        frontier.add(state);
+        return id;
+    }
+
+    /**
+     * Writes the final checkpoint of a cancelled exploration. Cancelling the task running the
+     * exploration may also interrupt its thread, and an interrupted thread cannot write to a
+     * file channel, so the interrupt is cleared while writing and restored afterwards.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private void checkpointCancelled() throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            checkpoint();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Flushes both outputs and records how far they have been written
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private void checkpoint() throws IOException {
+        if (intervalMillis == NO_CHECKPOINTS) {
+            return;
+        }
+        transitionOutput.flush();
+        stateOutput.flush();
+        ExplorationCheckpoint checkpoint = new ExplorationCheckpoint(transitions, states,
+                baseTransitionBytes + transitionOutput.total(), baseStateBytes + stateOutput.total(), explored.size(),
+                expandedStates, transitionCount);
+        checkpoint.write(ExplorationCheckpoint.pathFor(transitions));
+        lastCheckpoint = System.currentTimeMillis();
+        LOGGER.log(Level.FINE, "Checkpointed exploration at " + expandedStates + " of " + explored.size() + " states");
+    }
+}
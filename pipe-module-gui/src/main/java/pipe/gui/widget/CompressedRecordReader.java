@@ -0,0 +1,243 @@
+package pipe.gui.widget;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.io.StateReader;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read only view of a transitions binary written in the {@link CompressedStateSpace} format.
+ * <p>
+ * Only the footer is read when the reader is created. Blocks are inflated on demand and the most
+ * recently used block is cached, so sequential access inflates each block once and looking up a
+ * single state's successors inflates only the block containing it.
+ * </p>
+ */
+public final class CompressedRecordReader extends AbstractList<Record> implements RandomAccess {
+    /**
+     * Reader used to deserialize each record
+     */
+    private final StateReader stateReader;
+
+    /**
+     * Path to the compressed transitions binary
+     */
+    private final Path transitions;
+
+    /**
+     * Number of states in the file
+     */
+    private final int stateCount;
+
+    /**
+     * Number of transitions in the file
+     */
+    private final long transitionCount;
+
+    /**
+     * Offset of each block in the file
+     */
+    private final long[] offsets;
+
+    /**
+     * Compressed length of each block
+     */
+    private final int[] compressedLengths;
+
+    /**
+     * Uncompressed length of each block
+     */
+    private final int[] uncompressedLengths;
+
+    /**
+     * State id of the first record in each block
+     */
+    private final int[] firstStates;
+
+    /**
+     * Position of the first record of each block in the file
+     */
+    private final int[] firstRecords;
+
+    /**
+     * Index of the cached block, -1 if none is cached
+     */
+    private int cachedBlock = -1;
+
+    /**
+     * Records of the cached block
+     */
+    private Record[] cachedRecords;
+
+    /**
+     * Reads the footer of the compressed transitions binary
+     *
+     * @param stateReader reader used to deserialize records
+     * @param transitions path to the compressed transitions binary
+     * @throws IOException if the file cannot be read or is not a compressed transitions binary
+     */
+    public CompressedRecordReader(StateReader stateReader, Path transitions) throws IOException {
+        this.stateReader = stateReader;
+        this.transitions = transitions;
+        try (FileChannel channel = FileChannel.open(transitions, StandardOpenOption.READ)) {
+            ByteBuffer footer = CompressedStateSpace.readFooter(channel);
+            stateCount = footer.getInt();
+            transitionCount = footer.getLong();
+            int blockCount = footer.getInt();
+            if (footer.remaining() != blockCount * CompressedStateSpace.BLOCK_ENTRY_SIZE) {
+                throw new IOException("Compressed state space binary has a corrupt block index");
+            }
+            offsets = new long[blockCount];
+            compressedLengths = new int[blockCount];
+            uncompressedLengths = new int[blockCount];
+            firstStates = new int[blockCount];
+            firstRecords = new int[blockCount];
+            int records = 0;
+            for (int block = 0; block < blockCount; block++) {
+                offsets[block] = footer.getLong();
+                compressedLengths[block] = footer.getInt();
+                uncompressedLengths[block] = footer.getInt();
+                firstStates[block] = footer.getInt();
+                firstRecords[block] = records;
+                records += footer.getInt();
+            }
+        }
+    }
+
+    /**
+     * @return number of transitions in the state space
+     */
+    public long getTransitionCount() {
+        return transitionCount;
+    }
+
+    /**
+     * @param index of the record
+     * @return record at index, records are ordered by state id
+     */
+    @Override
+    public synchronized Record get(int index) {
+        if (index < 0 || index >= stateCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + stateCount);
+        }
+        int block = findBlock(firstRecords, index);
+        return loadBlock(block)[index - firstRecords[block]];
+    }
+
+    /**
+     * Looks up the successors of a single state, inflating only the block that contains it
+     *
+     * @param state id of the state
+     * @return successor state ids to rates, empty if the state is not in the file
+     */
+    public synchronized Map<Integer, Double> getSuccessors(int state) {
+        if (firstStates.length == 0 || state < firstStates[0]) {
+            return Collections.emptyMap();
+        }
+        Record[] records = loadBlock(findBlock(firstStates, state));
+        int low = 0;
+        int high = records.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleState = records[middle].state;
+            if (middleState < state) {
+                low = middle + 1;
+            } else if (middleState > state) {
+                high = middle - 1;
+            } else {
+                return records[middle].successors;
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * @return number of records in the file
+     */
+    @Override
+    public int size() {
+        return stateCount;
+    }
+
+    /**
+     * @param starts ascending start values of each block
+     * @param value  value to find
+     * @return index of the last block whose start is less than or equal to value
+     */
+    private static int findBlock(int[] starts, int value) {
+        int position = Arrays.binarySearch(starts, value);
+        if (position < 0) {
+            return -position - 2;
+        }
+        while (position > 0 && starts[position - 1] == value) {
+            position--;
+        }
+        return position;
+    }
+
+    /**
+     * Inflates and deserializes the block unless it is already cached
+     *
+     * @param block index of the block
+     * @return records in the block
+     */
+    private Record[] loadBlock(int block) {
+        if (block == cachedBlock) {
+            return cachedRecords;
+        }
+        int recordCount = (block + 1 < firstRecords.length ? firstRecords[block + 1] : stateCount) - firstRecords[block];
+        try (FileChannel channel = FileChannel.open(transitions, StandardOpenOption.READ)) {
+            ByteBuffer compressed = ByteBuffer.allocate(compressedLengths[block]);
+            CompressedStateSpace.readFully(channel, compressed, offsets[block]);
+            byte[] uncompressed = inflate(compressed.array(), uncompressedLengths[block]);
+            Record[] records = new Record[recordCount];
+            try (Input input = new Input(uncompressed)) {
+                for (int i = 0; i < recordCount; i++) {
+                    records[i] = stateReader.readRecord(input);
+                }
+            }
+            cachedBlock = block;
+            cachedRecords = records;
+            return records;
+        } catch (IOException | DataFormatException e) {
+            throw new IllegalStateException("Could not read block " + block + " of " + transitions, e);
+        }
+    }
+
+    /**
+     * @param compressed deflated bytes
+     * @param length     number of bytes when inflated
+     * @return inflated bytes
+     * @throws DataFormatException if the bytes are not valid deflated data
+     */
+    private static byte[] inflate(byte[] compressed, int length) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] uncompressed = new byte[length];
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                int count = inflater.inflate(uncompressed, inflated, length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated block");
+                }
+                inflated += count;
+            }
+            return uncompressed;
+        } finally {
+            inflater.end();
+        }
+    }
+}
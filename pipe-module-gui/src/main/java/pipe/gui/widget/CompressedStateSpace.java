@@ -0,0 +1,490 @@
+package pipe.gui.widget;
+
+import uk.ac.imperial.io.StateReader;
+import uk.ac.imperial.state.Record;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Block based on disk format for saved state space binaries.
+ * <p>
+ * A compressed transitions file starts with a header followed by blocks of deflated records,
+ * ordered by state id. A footer then holds the number of states, the number of transitions and
+ * for every block its offset, lengths, first state id and record count. The file ends with a
+ * trailer holding the offset of the footer so that summary statistics can be read without
+ * inflating a single block, and any state's successors can be found by inflating only the block
+ * that contains it.
+ * </p><p>
+ * The records within each block are the unaltered Kryo serialized records written by the state
+ * space explorer. A compressed states file is the header followed by a single deflated stream
+ * of the Kryo serialized states, since states are always read in their entirety.
+ * </p><p>
+ * Versions of PIPE before this format cannot read it, so binaries are only written in it when
+ * the user asks for them to be compressed and are otherwise saved as plain Kryo streams.
+ * Readers accept both and tell them apart by the header.
+ * </p><p>
+ * Plain transitions binaries are saved with a small summary file alongside them holding the
+ * header, the number of states and transitions and the size of the binary it describes, so that
+ * they too can be summarised without streaming every record. Older versions of PIPE simply
+ * ignore the summary file, and it is disregarded if the binary no longer has the recorded size.
+ * </p>
+ */
+public final class CompressedStateSpace {
+    /**
+     * Identifies a compressed state space binary
+     */
+    static final int MAGIC = 0x50495045;
+
+    /**
+     * Current version of the format
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Header kind for a transitions file
+     */
+    static final byte TRANSITIONS = 'T';
+
+    /**
+     * Header kind for a states file
+     */
+    static final byte STATES = 'S';
+
+    /**
+     * Header kind for a summary file saved alongside a plain transitions binary
+     */
+    static final byte SUMMARY = 'U';
+
+    /**
+     * Extension appended to a plain transitions binary's name for its summary file
+     */
+    public static final String SUMMARY_EXTENSION = ".summary";
+
+    /**
+     * Number of bytes in the header, magic, version and kind
+     */
+    static final int HEADER_SIZE = 6;
+
+    /**
+     * Number of bytes in the trailer, footer offset and magic
+     */
+    static final int TRAILER_SIZE = 12;
+
+    /**
+     * Number of bytes describing each block in the footer
+     */
+    static final int BLOCK_ENTRY_SIZE = 24;
+
+    /**
+     * Approximate number of uncompressed bytes in each block
+     */
+    private static final int BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * Private constructor for utility class
+     */
+    private CompressedStateSpace() {
+    }
+
+    /**
+     * @param path binary to inspect
+     * @param kind TRANSITIONS or STATES
+     * @return true if the file is a compressed binary of the given kind
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isCompressed(Path path, byte kind) throws IOException {
+        if (Files.size(path) < HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+            return input.readInt() == MAGIC && input.readByte() == VERSION && input.readByte() == kind;
+        }
+    }
+
+    /**
+     * @param states binary to check
+     * @return true if the file is a compressed states binary
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCompressedStates(Path states) throws IOException {
+        return isCompressed(states, STATES);
+    }
+
+    /**
+     * @param transitions binary to check
+     * @return true if the file is a compressed transitions binary
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCompressedTransitions(Path transitions) throws IOException {
+        return isCompressed(transitions, TRANSITIONS);
+    }
+
+    /**
+     * Opens a states binary for reading, inflating it if it is compressed
+     *
+     * @param states compressed or uncompressed states binary
+     * @return stream of Kryo serialized states
+     * @throws IOException if the file cannot be read
+     */
+    public static InputStream openStates(Path states) throws IOException {
+        if (!isCompressedStates(states)) {
+            return Files.newInputStream(states);
+        }
+        InputStream inputStream = Files.newInputStream(states);
+        try {
+            long skipped = 0;
+            while (skipped < HEADER_SIZE) {
+                skipped += inputStream.skip(HEADER_SIZE - skipped);
+            }
+            return new InflaterInputStream(new BufferedInputStream(inputStream));
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a compressed copy of an uncompressed states binary in this format
+     *
+     * @param states   uncompressed states binary
+     * @param target   location to write the copy
+     * @param progress checked between buffers, cancelling it stops the write
+     * @throws IOException if either file cannot be accessed or the write is cancelled
+     */
+    public static void writeStates(Path states, Path target, ExplorationProgress progress) throws IOException {
+        Deflater deflater = new Deflater();
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(target));
+             InputStream inputStream = Files.newInputStream(states)) {
+            writeHeader(outputStream, STATES);
+            try (DeflaterOutputStream deflaterStream = new DeflaterOutputStream(outputStream, deflater)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    checkCancelled(progress);
+                    deflaterStream.write(buffer, 0, read);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Writes a compressed copy of an uncompressed transitions binary in this format with its records
+     * ordered by state id
+     *
+     * @param stateReader reader used to deserialize the records
+     * @param transitions uncompressed transitions binary
+     * @param target      location to write the copy
+     * @param progress    updated as records are read and written, cancelling it stops the write
+     * @throws IOException if either file cannot be accessed or the write is cancelled
+     */
+    public static void writeTransitions(StateReader stateReader, Path transitions, Path target,
+                                        ExplorationProgress progress) throws IOException {
+        BlockIndex index = new BlockIndex();
+        Deflater deflater = new Deflater();
+        try (MappedRecordReader records = new MappedRecordReader(stateReader, transitions);
+             OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(target));
+             DataOutputStream output = new DataOutputStream(outputStream)) {
+            long[] order = sortByState(records, progress);
+            writeHeader(output, TRANSITIONS);
+            ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE);
+            int blockFirstState = 0;
+            int blockRecords = 0;
+            for (long key : order) {
+                if (blockRecords == 0) {
+                    blockFirstState = (int) (key >>> 32);
+                }
+                ByteBuffer raw = records.getRawRecord((int) key);
+                byte[] bytes = new byte[raw.remaining()];
+                raw.get(bytes);
+                block.write(bytes);
+                blockRecords++;
+                progress.stateExpanded(0);
+                if (block.size() >= BLOCK_SIZE) {
+                    checkCancelled(progress);
+                    writeBlock(output, deflater, block, blockFirstState, blockRecords, index);
+                    blockRecords = 0;
+                }
+            }
+            if (blockRecords > 0) {
+                writeBlock(output, deflater, block, blockFirstState, blockRecords, index);
+            }
+            long footerOffset = index.end();
+            output.writeInt(records.size());
+            output.writeLong(records.getTransitionCount());
+            output.writeInt(index.size());
+            for (int i = 0; i < index.size(); i++) {
+                output.writeLong(index.offsets[i]);
+                output.writeInt(index.compressedLengths[i]);
+                output.writeInt(index.uncompressedLengths[i]);
+                output.writeInt(index.firstStates[i]);
+                output.writeInt(index.recordCounts[i]);
+            }
+            output.writeLong(footerOffset);
+            output.writeInt(MAGIC);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @param records  records to order
+     * @param progress updated as each record is read
+     * @return keys sorted by state id, the upper 32 bits of each key hold the record's state id
+     * and the lower 32 bits its position in the file
+     * @throws IOException if the write is cancelled
+     */
+    private static long[] sortByState(MappedRecordReader records, ExplorationProgress progress)
+            throws IOException {
+        long[] keys = new long[records.size()];
+        Iterator<Record> iterator = records.iterator();
+        for (int i = 0; i < keys.length; i++) {
+            if ((i & 0xFFF) == 0) {
+                checkCancelled(progress);
+            }
+            keys[i] = ((long) iterator.next().state << 32) | i;
+            progress.stateFound();
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * @param progress write progress
+     * @throws IOException if the write has been cancelled
+     */
+    private static void checkCancelled(ExplorationProgress progress) throws IOException {
+        if (progress.isCancelled()) {
+            throw new IOException("Save cancelled");
+        }
+    }
+
+    /**
+     * Deflates the block, writes it and records it in the index before resetting the block
+     */
+    private static void writeBlock(DataOutputStream output, Deflater deflater, ByteArrayOutputStream block,
+                                   int firstState, int recordCount, BlockIndex index) throws IOException {
+        byte[] uncompressed = block.toByteArray();
+        deflater.reset();
+        deflater.setInput(uncompressed);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.length / 2 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(buffer);
+            compressed.write(buffer, 0, count);
+        }
+        index.add(compressed.size(), uncompressed.length, firstState, recordCount);
+        compressed.writeTo(output);
+        block.reset();
+    }
+
+    /**
+     * @param outputStream stream to write the header to
+     * @param kind         TRANSITIONS or STATES
+     * @throws IOException if the header cannot be written
+     */
+    private static void writeHeader(OutputStream outputStream, byte kind) throws IOException {
+        DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(kind);
+        output.flush();
+    }
+
+    /**
+     * Reads the summary held in the footer of a compressed transitions binary
+     * without inflating any blocks
+     *
+     * @param transitions compressed transitions binary
+     * @return summary of the state space
+     * @throws IOException if the file cannot be read or is not a compressed transitions binary
+     */
+    public static Summary readSummary(Path transitions) throws IOException {
+        try (FileChannel channel = FileChannel.open(transitions, StandardOpenOption.READ)) {
+            ByteBuffer footer = readFooter(channel);
+            return new Summary(footer.getInt(), footer.getLong());
+        }
+    }
+
+    /**
+     * @param transitions plain transitions binary
+     * @return path of the summary file saved alongside it
+     */
+    public static Path summaryPathFor(Path transitions) {
+        return transitions.resolveSibling(transitions.getFileName() + SUMMARY_EXTENSION);
+    }
+
+    /**
+     * Writes the summary file for a plain transitions binary, recording the binary's current
+     * size so that a summary left behind by an overwritten binary is not trusted
+     *
+     * @param transitions plain transitions binary
+     * @param summary     summary of the state space it holds
+     * @throws IOException if the binary cannot be read or the summary cannot be written
+     */
+    public static void writeSummary(Path transitions, Summary summary) throws IOException {
+        long size = Files.size(transitions);
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(summaryPathFor(transitions))))) {
+            writeHeader(output, SUMMARY);
+            output.writeInt(summary.states);
+            output.writeLong(summary.transitions);
+            output.writeLong(size);
+        }
+    }
+
+    /**
+     * Reads the summary file saved alongside a plain transitions binary
+     *
+     * @param transitions plain transitions binary
+     * @return its summary, or null if there is no valid summary file matching the binary
+     * @throws IOException if the binary cannot be read
+     */
+    public static Summary readSavedSummary(Path transitions) throws IOException {
+        Path path = summaryPathFor(transitions);
+        if (!Files.isRegularFile(path) || !isCompressed(path, SUMMARY)) {
+            return null;
+        }
+        long size = Files.size(transitions);
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+            input.skipBytes(HEADER_SIZE);
+            int states = input.readInt();
+            long count = input.readLong();
+            if (input.readLong() != size || states < 0 || count < 0) {
+                return null;
+            }
+            return new Summary(states, count);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param channel open compressed transitions binary
+     * @return the footer positioned at its start
+     * @throws IOException if the file cannot be read or does not end with a valid trailer
+     */
+    static ByteBuffer readFooter(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + TRAILER_SIZE) {
+            throw new IOException("File is too small to be a compressed state space binary");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        readFully(channel, trailer, size - TRAILER_SIZE);
+        trailer.flip();
+        long footerOffset = trailer.getLong();
+        if (trailer.getInt() != MAGIC || footerOffset < HEADER_SIZE || footerOffset > size - TRAILER_SIZE) {
+            throw new IOException("Compressed state space binary has no valid trailer");
+        }
+        ByteBuffer footer = ByteBuffer.allocate((int) (size - TRAILER_SIZE - footerOffset));
+        readFully(channel, footer, footerOffset);
+        footer.flip();
+        return footer;
+    }
+
+    /**
+     * Fills the buffer from the channel starting at the given position
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, current);
+            if (read < 0) {
+                throw new IOException("Unexpected end of state space binary");
+            }
+            current += read;
+        }
+    }
+
+    /**
+     * Summary statistics of a state space
+     */
+    public static final class Summary {
+        /**
+         * Number of states in the state space
+         */
+        public final int states;
+
+        /**
+         * Number of transitions in the state space
+         */
+        public final long transitions;
+
+        /**
+         * @param states      number of states
+         * @param transitions number of transitions
+         */
+        public Summary(int states, long transitions) {
+            this.states = states;
+            this.transitions = transitions;
+        }
+    }
+
+    /**
+     * Growable, primitive index of the blocks written so far
+     */
+    private static final class BlockIndex {
+        private long[] offsets = new long[16];
+
+        private int[] compressedLengths = new int[16];
+
+        private int[] uncompressedLengths = new int[16];
+
+        private int[] firstStates = new int[16];
+
+        private int[] recordCounts = new int[16];
+
+        private int size;
+
+        /**
+         * Offset of the end of the last block written
+         */
+        private long end = HEADER_SIZE;
+
+        private void add(int compressedLength, int uncompressedLength, int firstState, int recordCount) {
+            if (size == offsets.length) {
+                int capacity = size * 2;
+                offsets = Arrays.copyOf(offsets, capacity);
+                compressedLengths = Arrays.copyOf(compressedLengths, capacity);
+                uncompressedLengths = Arrays.copyOf(uncompressedLengths, capacity);
+                firstStates = Arrays.copyOf(firstStates, capacity);
+                recordCounts = Arrays.copyOf(recordCounts, capacity);
+            }
+            offsets[size] = end;
+            compressedLengths[size] = compressedLength;
+            uncompressedLengths[size] = uncompressedLength;
+            firstStates[size] = firstState;
+            recordCounts[size] = recordCount;
+            size++;
+            end += compressedLength;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private long end() {
+            return end;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package pipe.gui.widget;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Point from which an interrupted state space exploration can be resumed.
+ * <p>
+ * States are numbered in the order they are discovered and expanded breadth first, so the
+ * explored set is every state in the states binary and the frontier is every state whose id
+ * lies between the number of expanded states and the number of discovered states. A checkpoint
+ * therefore only records how far the transitions and states binaries had been written and these
+ * two counts, the binaries themselves hold everything else.
+ * </p>
+ */
+public final class ExplorationCheckpoint {
+    /**
+     * Identifies a checkpoint file
+     */
+    private static final int MAGIC = 0x50495043;
+
+    /**
+     * Current version of the checkpoint format
+     */
+    private static final byte VERSION = 1;
+
+    /**
+     * Extension appended to the transitions binary to name its checkpoint
+     */
+    public static final String EXTENSION = ".checkpoint";
+
+    /**
+     * Transitions binary being written by the exploration
+     */
+    private final Path transitions;
+
+    /**
+     * States binary being written by the exploration
+     */
+    private final Path states;
+
+    /**
+     * Number of bytes of the transitions binary covered by this checkpoint
+     */
+    private final long transitionBytes;
+
+    /**
+     * Number of bytes of the states binary covered by this checkpoint
+     */
+    private final long stateBytes;
+
+    /**
+     * Number of states discovered, the next state discovered is given this id
+     */
+    private final int discoveredStates;
+
+    /**
+     * Number of states whose transitions have been written
+     */
+    private final int expandedStates;
+
+    /**
+     * Number of transitions written
+     */
+    private final long transitionCount;
+
+    /**
+     * @param transitions      transitions binary being written by the exploration
+     * @param states           states binary being written by the exploration
+     * @param transitionBytes  number of bytes of the transitions binary covered by this checkpoint
+     * @param stateBytes       number of bytes of the states binary covered by this checkpoint
+     * @param discoveredStates number of states discovered
+     * @param expandedStates   number of states whose transitions have been written
+     * @param transitionCount  number of transitions written
+     */
+    public ExplorationCheckpoint(Path transitions, Path states, long transitionBytes, long stateBytes,
+                                 int discoveredStates, int expandedStates, long transitionCount) {
+        this.transitions = transitions;
+        this.states = states;
+        this.transitionBytes = transitionBytes;
+        this.stateBytes = stateBytes;
+        this.discoveredStates = discoveredStates;
+        this.expandedStates = expandedStates;
+        this.transitionCount = transitionCount;
+    }
+
+    /**
+     * @param transitions transitions binary being written by the exploration
+     * @return location of the checkpoint for the transitions binary
+     */
+    public static Path pathFor(Path transitions) {
+        return transitions.resolveSibling(transitions.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Reads a checkpoint written by {@link #write(Path)}
+     *
+     * @param checkpoint checkpoint file
+     * @return the checkpoint
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public static ExplorationCheckpoint read(Path checkpoint) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(checkpoint);
+             DataInputStream input = new DataInputStream(inputStream)) {
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+                throw new IOException(checkpoint + " is not a state space exploration checkpoint");
+            }
+            Path transitions = Paths.get(input.readUTF());
+            Path states = Paths.get(input.readUTF());
+            long transitionBytes = input.readLong();
+            long stateBytes = input.readLong();
+            int discoveredStates = input.readInt();
+            int expandedStates = input.readInt();
+            long transitionCount = input.readLong();
+            return new ExplorationCheckpoint(transitions, states, transitionBytes, stateBytes, discoveredStates,
+                    expandedStates, transitionCount);
+        }
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file and moves it into place, so that a failure
+     * part way through writing leaves the previous checkpoint intact
+     *
+     * @param checkpoint checkpoint file
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void write(Path checkpoint) throws IOException {
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporary);
+             DataOutputStream output = new DataOutputStream(outputStream)) {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeUTF(transitions.toAbsolutePath().toString());
+            output.writeUTF(states.toAbsolutePath().toString());
+            output.writeLong(transitionBytes);
+            output.writeLong(stateBytes);
+            output.writeInt(discoveredStates);
+            output.writeInt(expandedStates);
+            output.writeLong(transitionCount);
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Discards anything written to the binaries after this checkpoint was taken
+     *
+     * @throws IOException if either binary is shorter than the checkpoint or cannot be truncated
+     */
+    public void truncateBinaries() throws IOException {
+        truncate(transitions, transitionBytes);
+        truncate(states, stateBytes);
+    }
+
+    /**
+     * @param binary binary to truncate
+     * @param length length to truncate it to
+     * @throws IOException if the binary is shorter than the length or cannot be truncated
+     */
+    private static void truncate(Path binary, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.WRITE)) {
+            if (channel.size() < length) {
+                throw new IOException(binary + " is shorter than its checkpoint, it cannot be resumed");
+            }
+            channel.truncate(length);
+        }
+    }
+
+    /**
+     * @return transitions binary being written by the exploration
+     */
+    public Path getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * @return states binary being written by the exploration
+     */
+    public Path getStates() {
+        return states;
+    }
+
+    /**
+     * @return number of bytes of the transitions binary covered by this checkpoint
+     */
+    public long getTransitionBytes() {
+        return transitionBytes;
+    }
+
+    /**
+     * @return number of bytes of the states binary covered by this checkpoint
+     */
+    public long getStateBytes() {
+        return stateBytes;
+    }
+
+    /**
+     * @return number of states discovered
+     */
+    public int getDiscoveredStates() {
+        return discoveredStates;
+    }
+
+    /**
+     * @return number of states whose transitions have been written
+     */
+    public int getExpandedStates() {
+        return expandedStates;
+    }
+
+    /**
+     * @return number of transitions written
+     */
+    public long getTransitionCount() {
+        return transitionCount;
+    }
+}
@@ -0,0 +1,343 @@
+package pipe.gui.widget;
+
+import pipe.reachability.algorithm.StateRateRecord;
+import pipe.reachability.algorithm.TimelessTrapException;
+import pipe.reachability.algorithm.VanishingExplorer;
+import uk.ac.imperial.pipe.exceptions.InvalidRateException;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Instrumentation of a single state space exploration and the analysis performed on it.
+ * <p>
+ * Every {@link ExplorationProgress} carries its own metrics, so whoever runs an exploration,
+ * whether one of the analysis modules or {@link HeadlessExploration}, can read them once it
+ * finishes and export them as JSON to compare runs.
+ * </p>
+ * <p>
+ * The exploration and solve phases are wall clock time. The vanishing and IO phases are
+ * accumulated by every exploration thread, so for a parallel exploration they are the time
+ * summed over all threads and may exceed the exploration's wall clock time.
+ * </p>
+ */
+public final class ExplorationMetrics {
+    /**
+     * Timed phases of an analysis
+     */
+    public enum Phase {
+        EXPLORATION("exploration"),
+        VANISHING("vanishing"),
+        IO("io"),
+        SOLVE("solve");
+
+        /**
+         * Name used in the JSON export
+         */
+        private final String jsonName;
+
+        Phase(String jsonName) {
+            this.jsonName = jsonName;
+        }
+
+        @Override
+        public String toString() {
+            return jsonName;
+        }
+    }
+
+    /**
+     * A numeric field of the JSON export
+     */
+    private static final Pattern JSON_FIELD = Pattern.compile("\"(\\w+)\":\\s*(-?[0-9]+(?:\\.[0-9]+)?)");
+
+    /**
+     * Nanoseconds spent in each phase, indexed by ordinal
+     */
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+
+    /**
+     * Number of threads the exploration used
+     */
+    private volatile int threads = 1;
+
+    /**
+     * Time the exploration started in nanoseconds
+     */
+    private volatile long explorationStart;
+
+    /**
+     * Total garbage collection time when the exploration started
+     */
+    private volatile long gcStartMillis;
+
+    /**
+     * Garbage collection time during the exploration
+     */
+    private volatile long gcMillis;
+
+    /**
+     * Number of states explored
+     */
+    private volatile long states;
+
+    /**
+     * Number of transitions explored
+     */
+    private volatile long transitions;
+
+    /**
+     * Largest number of states discovered but not yet expanded
+     */
+    private volatile long peakFrontier;
+
+    /**
+     * Bytes written to the transitions and states binaries
+     */
+    private volatile long bytesWritten;
+
+    /**
+     * Marks the start of the exploration phase
+     *
+     * @param threads number of threads exploring
+     */
+    public void explorationStarted(int threads) {
+        this.threads = Math.max(1, threads);
+        gcStartMillis = totalGcMillis();
+        explorationStart = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of the exploration phase
+     *
+     * @param progress     progress of the finished exploration
+     * @param transitions  transitions binary written by the exploration
+     * @param stateBinary  states binary written by the exploration
+     * @throws IOException if the size of the binaries cannot be read
+     */
+    public void explorationFinished(ExplorationProgress progress, Path transitions, Path stateBinary)
+            throws IOException {
+        addTime(Phase.EXPLORATION, System.nanoTime() - explorationStart);
+        gcMillis = totalGcMillis() - gcStartMillis;
+        states = progress.getStates();
+        this.transitions = progress.getTransitions();
+        peakFrontier = progress.getPeakQueueDepth();
+        bytesWritten = Files.size(transitions) + Files.size(stateBinary);
+    }
+
+    /**
+     * Adds time spent in a phase, safe to call from any thread
+     *
+     * @param phase phase the time was spent in
+     * @param nanos time spent in nanoseconds
+     */
+    public void addTime(Phase phase, long nanos) {
+        phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    /**
+     * @param phase phase of the analysis
+     * @return time spent in the phase in milliseconds
+     */
+    public long getMillis(Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos.get(phase.ordinal()));
+    }
+
+    /**
+     * @param explorer vanishing explorer used by the exploration
+     * @return explorer that adds the time spent in the given explorer to the vanishing phase
+     */
+    public VanishingExplorer timed(final VanishingExplorer explorer) {
+        return new VanishingExplorer() {
+            @Override
+            public Collection<StateRateRecord> explore(ClassifiedState vanishingState, double rate)
+                    throws TimelessTrapException, InvalidRateException {
+                long start = System.nanoTime();
+                try {
+                    return explorer.explore(vanishingState, rate);
+                } finally {
+                    addTime(Phase.VANISHING, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return number of threads the exploration used
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return number of states explored
+     */
+    public long getStates() {
+        return states;
+    }
+
+    /**
+     * @return number of transitions explored
+     */
+    public long getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * @return average number of states explored per second by each thread
+     */
+    public double getStatesPerSecondPerThread() {
+        long nanos = phaseNanos.get(Phase.EXPLORATION.ordinal());
+        if (nanos <= 0) {
+            return 0;
+        }
+        return states * (double) TimeUnit.SECONDS.toNanos(1) / nanos / threads;
+    }
+
+    /**
+     * @return largest number of states discovered but not yet expanded
+     */
+    public long getPeakFrontier() {
+        return peakFrontier;
+    }
+
+    /**
+     * @return bytes written to the transitions and states binaries
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return garbage collection time during the exploration in milliseconds
+     */
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    /**
+     * @return the metrics as a JSON object
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"phasesMillis\": {");
+        for (Phase phase : Phase.values()) {
+            json.append(phase.ordinal() == 0 ? "" : ",").append("\n    \"").append(phase).append("\": ")
+                    .append(getMillis(phase));
+        }
+        json.append("\n  },\n");
+        json.append("  \"threads\": ").append(threads).append(",\n");
+        json.append("  \"states\": ").append(states).append(",\n");
+        json.append("  \"transitions\": ").append(transitions).append(",\n");
+        json.append("  \"statesPerSecondPerThread\": ")
+                .append(String.format(Locale.ROOT, "%.1f", getStatesPerSecondPerThread())).append(",\n");
+        json.append("  \"peakFrontier\": ").append(peakFrontier).append(",\n");
+        json.append("  \"bytesWritten\": ").append(bytesWritten).append(",\n");
+        json.append("  \"gcMillis\": ").append(gcMillis).append("\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * Writes the metrics as JSON
+     *
+     * @param target file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson(Path target) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    /**
+     * Reads metrics written by {@link #writeJson(Path)}, so that saved runs can be compared
+     *
+     * @param source file to read
+     * @return metrics with the phase times and counts of the file
+     * @throws IOException if the file cannot be read or is not a metrics export
+     */
+    public static ExplorationMetrics readJson(Path source) throws IOException {
+        return fromJson(new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses the JSON produced by {@link #toJson()}. Phase times are only exported to the
+     * millisecond, so they are read back rounded down to it.
+     *
+     * @param json metrics as a JSON object
+     * @return metrics with the phase times and counts of the JSON
+     * @throws IOException if a phase time or count is missing
+     */
+    public static ExplorationMetrics fromJson(String json) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        Matcher matcher = JSON_FIELD.matcher(json);
+        while (matcher.find()) {
+            fields.put(matcher.group(1), matcher.group(2));
+        }
+        ExplorationMetrics metrics = new ExplorationMetrics();
+        for (Phase phase : Phase.values()) {
+            metrics.addTime(phase, TimeUnit.MILLISECONDS.toNanos(longField(fields, phase.toString())));
+        }
+        metrics.threads = (int) longField(fields, "threads");
+        metrics.states = longField(fields, "states");
+        metrics.transitions = longField(fields, "transitions");
+        metrics.peakFrontier = longField(fields, "peakFrontier");
+        metrics.bytesWritten = longField(fields, "bytesWritten");
+        metrics.gcMillis = longField(fields, "gcMillis");
+        return metrics;
+    }
+
+    /**
+     * @param fields numeric fields of the JSON by name
+     * @param name   field to read
+     * @return value of the field
+     * @throws IOException if the field is missing or not a whole number
+     */
+    private static long longField(Map<String, String> fields, String name) throws IOException {
+        String value = fields.get(name);
+        if (value == null) {
+            throw new IOException("Metrics JSON has no " + name);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Metrics JSON " + name + " is not a whole number: " + value, e);
+        }
+    }
+
+    /**
+     * @return summary of the metrics suitable for displaying to the user
+     */
+    @Override
+    public String toString() {
+        return String.format("exploration %d ms (vanishing %d ms, IO %d ms), solve %d ms, "
+                        + "%.0f states/sec/thread on %d threads, peak frontier %d, %d KB written, GC %d ms",
+                getMillis(Phase.EXPLORATION), getMillis(Phase.VANISHING), getMillis(Phase.IO),
+                getMillis(Phase.SOLVE), getStatesPerSecondPerThread(), threads, peakFrontier, bytesWritten / 1024,
+                gcMillis);
+    }
+
+    /**
+     * @return garbage collection time of every collector since the JVM started in milliseconds
+     */
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,146 @@
+package pipe.gui.widget;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe progress of a state space exploration.
+ * <p>
+ * Updated by the exploration as it discovers and expands states and polled by the
+ * GUI to display live progress. It also carries the cancellation request from the
+ * GUI back to the exploration, and the {@link ExplorationMetrics} of the run.
+ * </p>
+ */
+public final class ExplorationProgress {
+    /**
+     * Number of states discovered so far
+     */
+    private final AtomicLong states = new AtomicLong();
+
+    /**
+     * Number of states whose successors have been processed
+     */
+    private final AtomicLong expandedStates = new AtomicLong();
+
+    /**
+     * Number of transitions processed so far
+     */
+    private final AtomicLong transitions = new AtomicLong();
+
+    /**
+     * Largest number of states discovered but not yet expanded
+     */
+    private final AtomicLong peakQueueDepth = new AtomicLong();
+
+    /**
+     * Instrumentation of the run
+     */
+    private final ExplorationMetrics metrics = new ExplorationMetrics();
+
+    /**
+     * Time the exploration started in nanoseconds
+     */
+    private volatile long startTime = System.nanoTime();
+
+    /**
+     * Set when the user requests the exploration stops
+     */
+    private volatile boolean cancelled = false;
+
+    /**
+     * Resets the start time used for calculating throughput
+     */
+    public void start() {
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Registers a newly discovered state
+     */
+    void stateFound() {
+        long depth = states.incrementAndGet() - expandedStates.get();
+        long peak = peakQueueDepth.get();
+        while (depth > peak && !peakQueueDepth.compareAndSet(peak, depth)) {
+            peak = peakQueueDepth.get();
+        }
+    }
+
+    /**
+     * Registers that a state has been expanded
+     *
+     * @param successors number of transitions out of the state
+     */
+    void stateExpanded(int successors) {
+        expandedStates.incrementAndGet();
+        transitions.addAndGet(successors);
+    }
+
+    /**
+     * @return number of states discovered so far
+     */
+    public long getStates() {
+        return states.get();
+    }
+
+    /**
+     * @return number of transitions processed so far
+     */
+    public long getTransitions() {
+        return transitions.get();
+    }
+
+    /**
+     * @return number of states that have been discovered but not yet expanded
+     */
+    public long getQueueDepth() {
+        return Math.max(0, states.get() - expandedStates.get());
+    }
+
+    /**
+     * @return largest number of states that have been discovered but not yet expanded at once
+     */
+    public long getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    /**
+     * @return instrumentation of the run
+     */
+    public ExplorationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return average number of states discovered per second since the exploration started
+     */
+    public double getStatesPerSecond() {
+        long elapsed = System.nanoTime() - startTime;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return states.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * Requests that the exploration stops at the next opportunity
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if the exploration has been asked to stop
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return summary of the progress suitable for displaying to the user
+     */
+    @Override
+    public String toString() {
+        return String.format("%d states, %d transitions, %.0f states/sec, %d queued", getStates(), getTransitions(),
+                getStatesPerSecond(), getQueueDepth());
+    }
+}
@@ -0,0 +1,113 @@
+package pipe.gui.widget;
+
+/**
+ * Settings used to spread state space exploration across threads.
+ * <p>
+ * Manual settings use exactly the thread count and batch size given. Auto tuned settings
+ * use every available processor and leave the batch size to be chosen by the
+ * {@link StateSpaceLoader}, seeded from the number of threads and tuned from the
+ * throughput observed in previous runs.
+ * </p>
+ */
+public final class ExplorationSettings {
+    /**
+     * Number of states each thread explores before reducing and writing out, used
+     * when nothing better is known
+     */
+    public static final int DEFAULT_STATES_PER_THREAD = 100;
+
+    /**
+     * Number of threads to explore with
+     */
+    private final int threads;
+
+    /**
+     * Number of states each thread explores before reducing and writing out
+     */
+    private final int statesPerThread;
+
+    /**
+     * True if these settings were chosen automatically
+     */
+    private final boolean autoTuned;
+
+    /**
+     * @param threads         number of threads
+     * @param statesPerThread states explored by each thread before synchronising
+     * @param autoTuned       true if chosen automatically
+     */
+    private ExplorationSettings(int threads, int statesPerThread, boolean autoTuned) {
+        this.threads = threads;
+        this.statesPerThread = statesPerThread;
+        this.autoTuned = autoTuned;
+    }
+
+    /**
+     * @param threads         number of threads
+     * @param statesPerThread states explored by each thread before synchronising
+     * @return settings using exactly the values given
+     */
+    public static ExplorationSettings manual(int threads, int statesPerThread) {
+        return new ExplorationSettings(threads, statesPerThread, false);
+    }
+
+    /**
+     * @return settings using every available processor with a batch size to be tuned
+     */
+    public static ExplorationSettings auto() {
+        return auto(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads number of threads
+     * @return settings using the given number of threads with a batch size to be tuned
+     */
+    static ExplorationSettings auto(int threads) {
+        return new ExplorationSettings(threads, DEFAULT_STATES_PER_THREAD, true);
+    }
+
+    /**
+     * @param statesPerThread tuned batch size
+     * @return auto tuned settings with the same number of threads and the given batch size
+     */
+    ExplorationSettings withStatesPerThread(int statesPerThread) {
+        return new ExplorationSettings(threads, statesPerThread, autoTuned);
+    }
+
+    /**
+     * @return number of threads to explore with
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return number of states each thread explores before reducing and writing out
+     */
+    public int getStatesPerThread() {
+        return statesPerThread;
+    }
+
+    /**
+     * @return true if these settings were chosen automatically
+     */
+    public boolean isAutoTuned() {
+        return autoTuned;
+    }
+
+    /**
+     * @return description of the settings suitable for displaying with results
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(threads).append(threads == 1 ? " thread" : " threads");
+        if (threads > 1) {
+            builder.append(", ").append(statesPerThread).append(" states per thread");
+        }
+        if (autoTuned) {
+            builder.append(" (auto tuned)");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,119 @@
+package pipe.gui.widget;
+
+/**
+ * Chooses the number of states each thread explores between synchronisations for auto
+ * tuned explorations.
+ * <p>
+ * Small batches mean threads spend most of their time synchronising, large batches mean
+ * threads sit idle waiting for the slowest one. The tuner aims for a fixed number of
+ * synchronisation rounds per second given the per thread throughput observed in the
+ * previous run, smoothing between runs so that one unusual net does not swing it too far.
+ * </p><p>
+ * The explorer's batch size is fixed for the length of a run, so until a multi-threaded run
+ * long enough to measure has completed the batch size is seeded instead. If a previous run
+ * found how many states to expect they are split into {@link #SEED_ROUNDS} rounds across the
+ * threads, otherwise {@link #SEED_STATES_PER_ROUND} states are split across the threads so that
+ * the work per round does not grow with the number of cores.
+ * </p>
+ */
+class ExplorationTuner {
+    /**
+     * Smallest batch size the tuner will choose
+     */
+    static final int MIN_STATES_PER_THREAD = 10;
+
+    /**
+     * Largest batch size the tuner will choose
+     */
+    static final int MAX_STATES_PER_THREAD = 100000;
+
+    /**
+     * Number of synchronisation rounds per second to aim for
+     */
+    private static final int TARGET_ROUNDS_PER_SECOND = 20;
+
+    /**
+     * Runs exploring fewer states than this are too short to measure meaningfully
+     */
+    private static final int MIN_OBSERVED_STATES = 1000;
+
+    /**
+     * Number of rounds a seeded run aims to take to explore the expected states
+     */
+    static final int SEED_ROUNDS = 50;
+
+    /**
+     * States explored per round across every thread when nothing is known about the net
+     */
+    static final int SEED_STATES_PER_ROUND = 4 * ExplorationSettings.DEFAULT_STATES_PER_THREAD;
+
+    /**
+     * Batch size tuned from the throughput of previous runs, 0 until one could be measured
+     */
+    private int statesPerThread;
+
+    /**
+     * Number of states discovered by the last auto tuned run, 0 if there has not been one
+     */
+    private long expectedStates;
+
+    /**
+     * @param requested settings requested by the user
+     * @return requested settings if they are manual, otherwise the settings with the tuned or seeded batch size
+     */
+    synchronized ExplorationSettings resolve(ExplorationSettings requested) {
+        if (!requested.isAutoTuned()) {
+            return requested;
+        }
+        if (statesPerThread > 0) {
+            return requested.withStatesPerThread(statesPerThread);
+        }
+        return requested.withStatesPerThread(seed(requested.getThreads(), expectedStates));
+    }
+
+    /**
+     * @param threads        number of threads exploring
+     * @param expectedStates number of states the run is expected to discover, 0 if unknown
+     * @return batch size for a run nothing has been measured for
+     */
+    static int seed(int threads, long expectedStates) {
+        int spread = Math.max(1, threads);
+        long batch = expectedStates > 0 ? expectedStates / ((long) spread * SEED_ROUNDS) :
+                SEED_STATES_PER_ROUND / spread;
+        return (int) Math.max(MIN_STATES_PER_THREAD, Math.min(MAX_STATES_PER_THREAD, batch));
+    }
+
+    /**
+     * Updates the batch size for the next run from the throughput of a completed run
+     *
+     * @param used     settings the run used
+     * @param progress progress at the end of the run
+     */
+    void record(ExplorationSettings used, ExplorationProgress progress) {
+        record(used, progress.getStates(), progress.getStatesPerSecond());
+    }
+
+    /**
+     * Updates the batch size for the next run from the throughput of a completed run. Every auto tuned
+     * run records how many states to expect, only multi-threaded runs long enough to measure update
+     * the throughput based batch size
+     *
+     * @param used            settings the run used
+     * @param states          number of states the run discovered
+     * @param statesPerSecond rate the run discovered states at
+     */
+    synchronized void record(ExplorationSettings used, long states, double statesPerSecond) {
+        if (!used.isAutoTuned()) {
+            return;
+        }
+        expectedStates = states;
+        if (used.getThreads() <= 1 || states < MIN_OBSERVED_STATES) {
+            return;
+        }
+        double perThread = statesPerSecond / used.getThreads();
+        int suggested = (int) Math.min(MAX_STATES_PER_THREAD, Math.round(perThread / TARGET_ROUNDS_PER_SECOND));
+        int previous = statesPerThread > 0 ? statesPerThread : used.getStatesPerThread();
+        int smoothed = (previous + suggested) / 2;
+        statesPerThread = Math.max(MIN_STATES_PER_THREAD, Math.min(MAX_STATES_PER_THREAD, smoothed));
+    }
+}
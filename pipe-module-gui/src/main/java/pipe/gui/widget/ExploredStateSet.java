@@ -0,0 +1,31 @@
+package pipe.gui.widget;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Set of the states discovered by an exploration, mapping each to the id it was given
+ */
+public interface ExploredStateSet extends Closeable {
+    /**
+     * @param state state to look up
+     * @return id of the state, or -1 if it has not been discovered
+     */
+    int getId(ClassifiedState state);
+
+    /**
+     * Records a newly discovered state
+     *
+     * @param state state that was discovered
+     * @param id    id given to the state
+     * @throws IOException if the set could not grow to hold the state
+     */
+    void put(ClassifiedState state, int id) throws IOException;
+
+    /**
+     * @return number of states in the set
+     */
+    int size();
+}
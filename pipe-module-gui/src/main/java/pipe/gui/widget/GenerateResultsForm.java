@@ -3,6 +3,8 @@ package pipe.gui.widget;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 
 public class GenerateResultsForm {
     /**
@@ -16,6 +18,22 @@ public class GenerateResultsForm {
     private static final String THREADS_ERROR_MESSAGE =
             "Error! Please enter a valid number of threads between 1-" + MAX_THREADS;
 
+    /**
+     * Maximum number of states each thread may explore before synchronising
+     */
+    private static final int MAX_STATES_PER_THREAD = 1000000;
+
+    /**
+     * Error message if the states per thread is incorrect
+     */
+    private static final String STATES_PER_THREAD_ERROR_MESSAGE =
+            "Error! Please enter a valid number of states per thread between 1-" + MAX_STATES_PER_THREAD;
+
+    /**
+     * Interval in milliseconds between refreshes of the progress label
+     */
+    private static final int PROGRESS_REFRESH_MILLIS = 250;
+
     /**
      * Action to perform when the go button is pressed
      */
@@ -31,6 +49,26 @@ public class GenerateResultsForm {
      */
     private JTextField numberOfThreadsText;
 
+    /**
+     * Number of states each thread explores before synchronising
+     */
+    private JTextField statesPerThreadText;
+
+    /**
+     * When selected the thread count and states per thread are chosen automatically
+     */
+    private JCheckBox autoTuneCheckBox;
+
+    /**
+     * Tooltip of the auto tune check box describing how it tunes
+     */
+    private String autoTuneToolTip;
+
+    /**
+     * Why the exploration will run on a single thread, null if the thread settings apply
+     */
+    private String singleThreadedReason;
+
     /**
      * Load results button
      */
@@ -41,6 +79,26 @@ public class GenerateResultsForm {
      */
     private JPanel mainPanel;
 
+    /**
+     * Cancels the running task, only enabled whilst a task is running
+     */
+    private JButton cancelButton;
+
+    /**
+     * Displays the live progress of the running task
+     */
+    private JLabel progressLabel;
+
+    /**
+     * Periodically refreshes the progress label whilst a task is running
+     */
+    private final Timer progressTimer;
+
+    /**
+     * Task currently running, null if none is running
+     */
+    private StateSpaceTask<?> runningTask;
+
     public GenerateResultsForm(GoAction goAction) {
         this.goAction = goAction;
         goButton.addActionListener(new ActionListener() {
@@ -49,33 +107,186 @@ public class GenerateResultsForm {
                 go();
             }
         });
+        statesPerThreadText.setText(Integer.toString(ExplorationSettings.DEFAULT_STATES_PER_THREAD));
+        autoTuneToolTip = autoTuneCheckBox.getToolTipText();
+        autoTuneCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateThreadControls();
+            }
+        });
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                cancel();
+            }
+        });
+        progressTimer = new Timer(PROGRESS_REFRESH_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateProgress();
+            }
+        });
+    }
+
+    /**
+     * Greys out the thread settings when the chosen options can only be explored on a single
+     * thread, showing why in their tooltips
+     *
+     * @param reason why the exploration runs on a single thread, or null if the thread settings apply
+     */
+    public void setSingleThreaded(String reason) {
+        singleThreadedReason = reason;
+        updateThreadControls();
+    }
+
+    /**
+     * Enables the thread count and states per thread only if they are entered manually and
+     * the exploration can run on more than one thread
+     */
+    private void updateThreadControls() {
+        boolean parallel = singleThreadedReason == null;
+        boolean manual = !autoTuneCheckBox.isSelected();
+        autoTuneCheckBox.setEnabled(parallel);
+        autoTuneCheckBox.setToolTipText(parallel ? autoTuneToolTip : singleThreadedReason);
+        numberOfThreadsText.setEnabled(parallel && manual);
+        numberOfThreadsText.setToolTipText(singleThreadedReason);
+        statesPerThreadText.setEnabled(parallel && manual);
+        statesPerThreadText.setToolTipText(singleThreadedReason);
+    }
+
+    /**
+     * Only one task runs at a time so that cancel always stops the task whose progress is
+     * shown. Actions that prompt the user or change what is displayed before starting a
+     * task should check this first.
+     *
+     * @return true if no task is running, otherwise tells the user that one is and returns false
+     */
+    public boolean isIdle() {
+        if (runningTask == null) {
+            return true;
+        }
+        if (runningTask.isDone()) {
+            finished(runningTask);
+            return true;
+        }
+        JOptionPane.showMessageDialog(mainPanel, "Please wait for the running task to finish or cancel it first",
+                "Task running", JOptionPane.INFORMATION_MESSAGE);
+        return false;
+    }
+
+    /**
+     * Runs the task in the background, displaying its progress and allowing
+     * it to be cancelled until it finishes. The task is not run if another is
+     * still running.
+     *
+     * @param task to run
+     * @return true if the task was started, false if another task is still running
+     */
+    public boolean execute(final StateSpaceTask<?> task) {
+        if (!isIdle()) {
+            return false;
+        }
+        runningTask = task;
+        goButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        task.addPropertyChangeListener(new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                if ("state".equals(evt.getPropertyName()) && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+                    finished(task);
+                }
+            }
+        });
+        progressTimer.start();
+        task.execute();
+        return true;
+    }
+
+    /**
+     * Cancels the running task if there is one, without waiting for it to finish. Also used when
+     * the window is closing so that the task ends as cancelled before its threads are shut down.
+     */
+    public void cancel() {
+        if (runningTask != null) {
+            runningTask.stop();
+            progressLabel.setText("Cancelled");
+        }
+    }
+
+    /**
+     * Refreshes the progress label with the progress of the running task
+     */
+    private void updateProgress() {
+        if (runningTask != null) {
+            progressLabel.setText(runningTask.getProgress().toString());
+        }
+    }
+
+    /**
+     * Resets the form once the task has finished
+     *
+     * @param task that finished
+     */
+    private void finished(StateSpaceTask<?> task) {
+        if (runningTask != task) {
+            return;
+        }
+        progressTimer.stop();
+        if (!task.isCancelled()) {
+            updateProgress();
+        }
+        runningTask = null;
+        goButton.setEnabled(true);
+        cancelButton.setEnabled(false);
     }
 
     /**
      * Attempts to start the specified procedure by gathering the number
      * of threads to use. If it is not between 1 and MAX_THREADS then we display
-     * and error and do not perform the action
+     * and error and do not perform the action. If auto tune is selected the
+     * entered values are ignored.
      */
     private void go() {
+        if (autoTuneCheckBox.isSelected()) {
+            goAction.go(ExplorationSettings.auto());
+            return;
+        }
+        int threads;
         try {
-            int threads = Integer.valueOf(numberOfThreadsText.getText());
+            threads = Integer.valueOf(numberOfThreadsText.getText());
+        } catch (NumberFormatException e) {
+            displayErrorMessage(THREADS_ERROR_MESSAGE);
+            return;
+        }
+        if (threads < 1 || threads > MAX_THREADS) {
+            displayErrorMessage(THREADS_ERROR_MESSAGE);
+            return;
+        }
 
-            if (threads < 1 || threads > MAX_THREADS) {
-                displayThreadErrorMessage();
-                return;
-            }
-            goAction.go(threads);
+        int statesPerThread;
+        try {
+            statesPerThread = Integer.valueOf(statesPerThreadText.getText());
         } catch (NumberFormatException e) {
-            displayThreadErrorMessage();
+            displayErrorMessage(STATES_PER_THREAD_ERROR_MESSAGE);
+            return;
+        }
+        if (statesPerThread < 1 || statesPerThread > MAX_STATES_PER_THREAD) {
+            displayErrorMessage(STATES_PER_THREAD_ERROR_MESSAGE);
+            return;
         }
+        goAction.go(ExplorationSettings.manual(threads, statesPerThread));
     }
 
     /**
-     * Displays an error message depicting that the number of threads
+     * Displays an error message depicting that a value
      * entered does not conform to the expected values
+     *
+     * @param message error message
      */
-    private void displayThreadErrorMessage() {
-        JOptionPane.showMessageDialog(mainPanel, THREADS_ERROR_MESSAGE, "GSPN Analysis Error",
+    private void displayErrorMessage(String message) {
+        JOptionPane.showMessageDialog(mainPanel, message, "GSPN Analysis Error",
                 JOptionPane.ERROR_MESSAGE);
     }
 
@@ -92,7 +303,7 @@ public class GenerateResultsForm {
      * button is pressed
      */
     public interface GoAction {
-        void go(int threads);
+        void go(ExplorationSettings settings);
     }
 
 }
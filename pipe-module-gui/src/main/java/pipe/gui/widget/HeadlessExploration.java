@@ -0,0 +1,113 @@
+package pipe.gui.widget;
+
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.OnTheFlyVanishingExplorer;
+import pipe.reachability.algorithm.UnboundedExplorerUtilities;
+import pipe.reachability.algorithm.VanishingExplorer;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.pipe.io.PetriNetIOImpl;
+import uk.ac.imperial.pipe.io.PetriNetReader;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Explores the state space of a Petri net without a GUI and prints the exploration metrics
+ * as JSON, for comparing thread counts and nets from scripts.
+ * <p>
+ * Usage: {@code HeadlessExploration <petri net> [threads] [metrics.json] [--memoise]}. Threads
+ * defaults to every available processor, so a second argument that is not a number is taken
+ * to be the metrics file. The metrics are printed to standard output and
+ * also written to the given file if there is one. The state space binaries are deleted
+ * once the exploration finishes.
+ * </p>
+ */
+public final class HeadlessExploration {
+    /**
+     * Private constructor for command line entry point
+     */
+    private HeadlessExploration() {
+    }
+
+    /**
+     * @param args Petri net file, optional number of threads, optional metrics file and
+     *             optional --memoise flag to memoise vanishing states
+     * @throws Exception if the Petri net cannot be read or explored
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: HeadlessExploration <petri net> [threads] [metrics.json] [--memoise]");
+            System.exit(1);
+        }
+        boolean memoise = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path metricsFile = null;
+        for (int i = 1; i < args.length; i++) {
+            if ("--memoise".equals(args[i])) {
+                memoise = true;
+            } else if (i == 1 && isInteger(args[i])) {
+                threads = Integer.parseInt(args[i]);
+            } else {
+                metricsFile = Paths.get(args[i]);
+            }
+        }
+        PetriNetReader petriNetIO = new PetriNetIOImpl();
+        PetriNet petriNet = petriNetIO.read(Paths.get(args[0]).toAbsolutePath().toString());
+        ExplorationMetrics metrics = explore(petriNet,
+                ExplorationSettings.manual(threads, ExplorationSettings.DEFAULT_STATES_PER_THREAD), memoise);
+        System.err.println("Explored " + metrics.getStates() + " states and " + metrics.getTransitions()
+                + " transitions: " + metrics);
+        System.out.print(metrics.toJson());
+        if (metricsFile != null) {
+            metrics.writeJson(metricsFile);
+        }
+    }
+
+    /**
+     * @param arg command line argument
+     * @return true if the argument is a number of threads rather than a metrics file
+     */
+    private static boolean isInteger(String arg) {
+        try {
+            Integer.parseInt(arg);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Explores the state space into temporary binaries, deleting them afterwards
+     *
+     * @param petriNet Petri net to explore
+     * @param settings how to spread the exploration across threads
+     * @param memoise  true if the tangible successors of vanishing states should be memoised
+     * @return metrics of the exploration
+     * @throws Exception if the state space cannot be explored
+     */
+    public static ExplorationMetrics explore(PetriNet petriNet, ExplorationSettings settings, boolean memoise)
+            throws Exception {
+        ExplorationProgress progress = new ExplorationProgress();
+        ExplorationMetrics metrics = progress.getMetrics();
+        ExplorerUtilities explorerUtils = new UnboundedExplorerUtilities(petriNet);
+        VanishingExplorer vanishingExplorer = new OnTheFlyVanishingExplorer(explorerUtils);
+        if (memoise) {
+            vanishingExplorer = new MemoisingVanishingExplorer(vanishingExplorer);
+        }
+        Path transitions = Files.createTempFile("transitions", ".tmp");
+        Path states = Files.createTempFile("states", ".tmp");
+        try {
+            progress.start();
+            metrics.explorationStarted(settings.getThreads());
+            StateSpaceLoader.generateStateSpace(new KryoStateIO(), transitions, states, petriNet, explorerUtils,
+                    metrics.timed(vanishingExplorer), settings, progress);
+            metrics.explorationFinished(progress, transitions, states);
+            return metrics;
+        } finally {
+            Files.deleteIfExists(transitions);
+            Files.deleteIfExists(states);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package pipe.gui.widget;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Explored set held in the heap, states are compared exactly
+ */
+final class HeapExploredStateSet implements ExploredStateSet {
+    /**
+     * Id of every discovered state
+     */
+    private final Map<ClassifiedState, Integer> ids = new HashMap<>();
+
+    @Override
+    public int getId(ClassifiedState state) {
+        Integer id = ids.get(state);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public void put(ClassifiedState state, int id) {
+        ids.put(state, id);
+    }
+
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    @Override
+    public void close() {
+        ids.clear();
+    }
+}
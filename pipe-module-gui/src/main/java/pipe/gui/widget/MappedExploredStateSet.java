@@ -0,0 +1,236 @@
+package pipe.gui.widget;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Explored set stored in a memory mapped open addressing table, so the number of states
+ * that can be explored is bounded by disk space rather than the heap.
+ * <p>
+ * Each slot holds a state's {@link StateFingerprint} and id, slots are found by linear probing
+ * and the table is rehashed into a file twice the size once it is half full. Only fingerprints
+ * are stored, so two distinct states sharing a fingerprint would be treated as one. For a
+ * million states the chance of this happening anywhere in the exploration is below 10<sup>-7</sup>.
+ * </p>
+ */
+public final class MappedExploredStateSet implements ExploredStateSet {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(MappedExploredStateSet.class.getName());
+
+    /**
+     * Bytes per slot, an 8 byte fingerprint followed by a 4 byte id
+     */
+    private static final int SLOT_SIZE = 12;
+
+    /**
+     * Slots per mapped segment are at most 2^SEGMENT_BITS, keeping each mapping well under 2GB
+     */
+    private static final int SEGMENT_BITS = 24;
+
+    /**
+     * Number of slots in a new table
+     */
+    private static final long INITIAL_CAPACITY = 1L << 20;
+
+    /**
+     * Directory the table files are created in
+     */
+    private final Path directory;
+
+    /**
+     * File backing the current table
+     */
+    private Path file;
+
+    /**
+     * Mapped segments of the current table
+     */
+    private MappedByteBuffer[] segments;
+
+    /**
+     * Number of slots in the table, always a power of two
+     */
+    private long capacity;
+
+    /**
+     * log2 of the number of slots in each segment
+     */
+    private int segmentBits;
+
+    /**
+     * Number of states in the table
+     */
+    private int size;
+
+    /**
+     * Creates a table in the system temporary directory
+     *
+     * @return an empty explored set
+     * @throws IOException if the table file cannot be created
+     */
+    public static MappedExploredStateSet create() throws IOException {
+        return new MappedExploredStateSet(Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param directory directory to create the table files in
+     * @throws IOException if the table file cannot be created
+     */
+    public MappedExploredStateSet(Path directory) throws IOException {
+        this(directory, INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param directory directory to create the table files in
+     * @param slots     number of slots in the new table, a power of two
+     * @throws IOException if the table file cannot be created
+     */
+    MappedExploredStateSet(Path directory, long slots) throws IOException {
+        this.directory = directory;
+        allocate(slots);
+    }
+
+    /**
+     * Creates and maps a new empty table file
+     *
+     * @param slots number of slots, a power of two
+     * @throws IOException if the file cannot be created or mapped
+     */
+    private void allocate(long slots) throws IOException {
+        Path newFile = Files.createTempFile(directory, "explored", ".tmp");
+        segmentBits = (int) Math.min(Long.numberOfTrailingZeros(slots), SEGMENT_BITS);
+        long segmentBytes = (1L << segmentBits) * SLOT_SIZE;
+        MappedByteBuffer[] newSegments = new MappedByteBuffer[(int) (slots >>> segmentBits)];
+        try (FileChannel channel = FileChannel.open(newFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int segment = 0; segment < newSegments.length; segment++) {
+                newSegments[segment] = channel.map(FileChannel.MapMode.READ_WRITE, segment * segmentBytes, segmentBytes);
+            }
+        }
+        file = newFile;
+        segments = newSegments;
+        capacity = slots;
+    }
+
+    @Override
+    public int getId(ClassifiedState state) {
+        long fingerprint = StateFingerprint.of(state);
+        for (long slot = home(fingerprint); ; slot = (slot + 1) & (capacity - 1)) {
+            long stored = fingerprintAt(slot);
+            if (stored == 0) {
+                return -1;
+            }
+            if (stored == fingerprint) {
+                return idAt(slot);
+            }
+        }
+    }
+
+    @Override
+    public void put(ClassifiedState state, int id) throws IOException {
+        if (2L * (size + 1) > capacity) {
+            grow();
+        }
+        if (insert(StateFingerprint.of(state), id)) {
+            size++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Deletes the table file, the set cannot be used afterwards
+     */
+    @Override
+    public void close() {
+        segments = null;
+        deleteTable(file);
+    }
+
+    /**
+     * @param fingerprint state fingerprint
+     * @param id          id of the state
+     * @return true if the fingerprint was not already in the table
+     */
+    private boolean insert(long fingerprint, int id) {
+        for (long slot = home(fingerprint); ; slot = (slot + 1) & (capacity - 1)) {
+            long stored = fingerprintAt(slot);
+            if (stored == 0 || stored == fingerprint) {
+                MappedByteBuffer segment = segments[(int) (slot >>> segmentBits)];
+                int offset = offset(slot);
+                segment.putLong(offset, fingerprint);
+                segment.putInt(offset + 8, id);
+                return stored == 0;
+            }
+        }
+    }
+
+    /**
+     * Rehashes every slot into a new table twice the size and deletes the old table
+     *
+     * @throws IOException if the new table cannot be created
+     */
+    private void grow() throws IOException {
+        MappedByteBuffer[] oldSegments = segments;
+        Path oldFile = file;
+        int oldSegmentBits = segmentBits;
+        allocate(capacity * 2);
+        long slotsPerSegment = 1L << oldSegmentBits;
+        for (MappedByteBuffer segment : oldSegments) {
+            for (int slot = 0; slot < slotsPerSegment; slot++) {
+                long fingerprint = segment.getLong(slot * SLOT_SIZE);
+                if (fingerprint != 0) {
+                    insert(fingerprint, segment.getInt(slot * SLOT_SIZE + 8));
+                }
+            }
+        }
+        deleteTable(oldFile);
+    }
+
+    /**
+     * @param fingerprint state fingerprint
+     * @return first slot to probe for the fingerprint
+     */
+    private long home(long fingerprint) {
+        return StateFingerprint.mix(fingerprint) & (capacity - 1);
+    }
+
+    private long fingerprintAt(long slot) {
+        return segments[(int) (slot >>> segmentBits)].getLong(offset(slot));
+    }
+
+    private int idAt(long slot) {
+        return segments[(int) (slot >>> segmentBits)].getInt(offset(slot) + 8);
+    }
+
+    private int offset(long slot) {
+        return (int) (slot & ((1L << segmentBits) - 1)) * SLOT_SIZE;
+    }
+
+    /**
+     * Deletes a table file, on platforms that cannot delete a mapped file it is deleted on exit
+     *
+     * @param table table file
+     */
+    private static void deleteTable(Path table) {
+        try {
+            Files.deleteIfExists(table);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not delete " + table + " until exit", e);
+            table.toFile().deleteOnExit();
+        }
+    }
+}
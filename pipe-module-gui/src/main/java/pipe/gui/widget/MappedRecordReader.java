@@ -0,0 +1,372 @@
+package pipe.gui.widget;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.io.StateReader;
+import uk.ac.imperial.state.Record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read only, memory mapped view of a transitions binary written by the state space explorer.
+ * <p>
+ * A single streaming pass over the file records the byte offset at which each {@link Record} starts,
+ * after which records are only deserialized when they are requested. This means the state space
+ * does not need to fit in the heap to be counted, iterated or randomly accessed.
+ * </p><p>
+ * The file is mapped in windows whose boundaries always lie on record boundaries so that
+ * no record ever straddles two mappings. Closing the reader unmaps the windows straight away rather
+ * than when they are garbage collected, so the file can be deleted or overwritten.
+ * </p>
+ */
+public final class MappedRecordReader extends AbstractList<Record> implements RandomAccess, Closeable {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(MappedRecordReader.class.getName());
+
+    /**
+     * Default approximate size in bytes of each mapped window of the file
+     */
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Initial capacity of the offset index
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Reader used to deserialize each record
+     */
+    private final StateReader stateReader;
+
+    /**
+     * Approximate size in bytes of each mapped window of the file
+     */
+    private final long windowSize;
+
+    /**
+     * Byte offset of each record in the file, only the first recordCount entries are valid
+     */
+    private long[] offsets = new long[INITIAL_CAPACITY];
+
+    /**
+     * Number of records in the file
+     */
+    private int recordCount;
+
+    /**
+     * Sum of the successors of every record in the file
+     */
+    private long transitionCount;
+
+    /**
+     * Size of the file in bytes
+     */
+    private final long fileSize;
+
+    /**
+     * Index of the first record contained in each window
+     */
+    private int[] windowStarts;
+
+    /**
+     * Memory mapped windows of the file, null once the reader is closed
+     */
+    private MappedByteBuffer[] windows;
+
+    /**
+     * Indexes and maps the transitions file
+     *
+     * @param stateReader reader used to deserialize records
+     * @param transitions path to the transitions binary
+     * @throws IOException if the file cannot be read or is not a valid transitions binary
+     */
+    public MappedRecordReader(StateReader stateReader, Path transitions) throws IOException {
+        this(stateReader, transitions, WINDOW_SIZE);
+    }
+
+    /**
+     * Indexes and maps the transitions file
+     *
+     * @param stateReader reader used to deserialize records
+     * @param transitions path to the transitions binary
+     * @param windowSize  approximate size in bytes of each mapped window
+     * @throws IOException if the file cannot be read or is not a valid transitions binary
+     */
+    MappedRecordReader(StateReader stateReader, Path transitions, long windowSize) throws IOException {
+        this.stateReader = stateReader;
+        this.windowSize = windowSize;
+        fileSize = buildIndex(transitions);
+        mapWindows(transitions, fileSize);
+    }
+
+    /**
+     * Streams through the file once recording the offset of each record and counting its transitions
+     *
+     * @param transitions path to the transitions binary
+     * @return size of the file in bytes
+     * @throws IOException if the file cannot be read
+     */
+    private long buildIndex(Path transitions) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(transitions);
+             Input input = new Input(inputStream)) {
+            while (!input.eof()) {
+                long start = input.total();
+                Record record = stateReader.readRecord(input);
+                addOffset(start);
+                transitionCount += record.successors.size();
+            }
+            return input.total();
+        }
+    }
+
+    /**
+     * Appends the offset to the index, growing it if necessary
+     *
+     * @param offset byte offset of the next record
+     */
+    private void addOffset(long offset) {
+        if (recordCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[recordCount++] = offset;
+    }
+
+    /**
+     * Maps the file into windows of roughly windowSize bytes, each starting on a record boundary
+     *
+     * @param transitions path to the transitions binary
+     * @param size        size of the file in bytes
+     * @throws IOException if the file cannot be mapped
+     */
+    private void mapWindows(Path transitions, long size) throws IOException {
+        int[] starts = new int[INITIAL_CAPACITY];
+        int windowCount = 0;
+        for (int record = 0; record < recordCount; record++) {
+            if (windowCount == 0 || offsets[record] - offsets[starts[windowCount - 1]] >= windowSize) {
+                if (windowCount == starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                }
+                starts[windowCount++] = record;
+            }
+        }
+        windowStarts = Arrays.copyOf(starts, windowCount);
+        windows = new MappedByteBuffer[windowCount];
+        try (FileChannel channel = FileChannel.open(transitions, StandardOpenOption.READ)) {
+            for (int window = 0; window < windowCount; window++) {
+                long start = offsets[windowStarts[window]];
+                long end = window + 1 < windowCount ? offsets[windowStarts[window + 1]] : size;
+                windows[window] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            }
+        }
+    }
+
+    /**
+     * @return the total number of transitions contained in the file
+     */
+    public long getTransitionCount() {
+        return transitionCount;
+    }
+
+    /**
+     * Unmaps the windows of the file. Records already read remain valid, but the reader, its
+     * iterators and any raw record it returned must not be used once it is closed.
+     */
+    @Override
+    public void close() {
+        if (windows == null) {
+            return;
+        }
+        MappedByteBuffer[] mapped = windows;
+        windows = null;
+        for (MappedByteBuffer window : mapped) {
+            unmap(window);
+        }
+    }
+
+    /**
+     * Releases the mapping of the buffer without waiting for it to be garbage collected. There is
+     * no public API for this, so the JDK's cleaner is invoked reflectively. If neither the Java 9+
+     * nor the Java 8 cleaner can be reached the mapping is left to the garbage collector.
+     *
+     * @param buffer mapped buffer that is no longer referenced
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // Before Java 9 the cleaner is reached through the buffer itself
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Could not unmap transitions window, leaving it to the garbage collector", e);
+        }
+    }
+
+    /**
+     * @param window index of the window
+     * @return the mapped window
+     * @throws IllegalStateException if the reader has been closed
+     */
+    private MappedByteBuffer window(int window) {
+        if (windows == null) {
+            throw new IllegalStateException("Transitions binary reader has been closed");
+        }
+        return windows[window];
+    }
+
+    /**
+     * Deserializes the record at the specified position in the file
+     *
+     * @param index of the record
+     * @return record at index
+     */
+    @Override
+    public Record get(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + recordCount);
+        }
+        int window = windowOf(index);
+        ByteBuffer buffer = window(window).duplicate();
+        buffer.position((int) (offsets[index] - offsets[windowStarts[window]]));
+        try (Input input = new Input(new ByteBufferInputStream(buffer))) {
+            return stateReader.readRecord(input);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read record " + index, e);
+        }
+    }
+
+    /**
+     * @param index of the record
+     * @return read only view of the serialized bytes of the record
+     */
+    ByteBuffer getRawRecord(int index) {
+        int window = windowOf(index);
+        long windowStart = offsets[windowStarts[window]];
+        long end = index + 1 < recordCount ? offsets[index + 1] : fileSize;
+        ByteBuffer buffer = window(window).duplicate();
+        buffer.position((int) (offsets[index] - windowStart));
+        buffer.limit((int) (end - windowStart));
+        return buffer.slice();
+    }
+
+    /**
+     * @param index of the record
+     * @return the window that the record is mapped into
+     */
+    private int windowOf(int index) {
+        int position = Arrays.binarySearch(windowStarts, index);
+        return position >= 0 ? position : -position - 2;
+    }
+
+    /**
+     * @return number of records in the file
+     */
+    @Override
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * Sequential iteration reads each window with a single input rather than
+     * looking up every record in the index
+     *
+     * @return iterator over the records in the order they were written
+     */
+    @Override
+    public Iterator<Record> iterator() {
+        return new Iterator<Record>() {
+            private int next = 0;
+
+            private Input input;
+
+            @Override
+            public boolean hasNext() {
+                return next < recordCount;
+            }
+
+            @Override
+            public Record next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int window = windowOf(next);
+                if (windowStarts[window] == next) {
+                    input = new Input(new ByteBufferInputStream(window(window).duplicate()));
+                }
+                try {
+                    Record record = stateReader.readRecord(input);
+                    next++;
+                    return record;
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not read record " + next, e);
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Transitions binary is read only");
+            }
+        };
+    }
+
+    /**
+     * Adapts a mapped byte buffer for reading by Kryo
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        /**
+         * Buffer to read from
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * @param buffer to read from, reading starts from its current position
+         */
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package pipe.gui.widget;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Query over the markings held in a {@link StateStore}.
+ * <p>
+ * A query is a comma separated list of clauses of the form {@code place op count} where op is one of
+ * {@code = != < <= > >=}. The place may be written {@code place:token} to compare a single token colour,
+ * otherwise the count of every colour on the place is summed, e.g. {@code P0 >= 1, P1:Default = 0}.
+ * A state matches if it satisfies every clause, so the empty query matches every state.
+ * </p>
+ */
+public final class MarkingQuery {
+    /**
+     * Clause format, place or place:token followed by a comparison and a count
+     */
+    private static final Pattern CLAUSE = Pattern.compile("\\s*(.+?)\\s*(<=|>=|!=|=|<|>)\\s*(\\d+)\\s*");
+
+    /**
+     * States the query is evaluated against
+     */
+    private final StateStore states;
+
+    /**
+     * Clauses every matching state satisfies
+     */
+    private final List<Clause> clauses;
+
+    /**
+     * @param expression query expression
+     * @param states     states the query will be evaluated against
+     * @return parsed query
+     * @throws IllegalArgumentException if the expression is not a valid query
+     */
+    public static MarkingQuery parse(String expression, StateStore states) {
+        List<Clause> clauses = new ArrayList<>();
+        for (String text : expression.split(",")) {
+            if (!text.trim().isEmpty()) {
+                clauses.add(parseClause(text, states));
+            }
+        }
+        return new MarkingQuery(states, clauses);
+    }
+
+    /**
+     * @param text   single clause
+     * @param states states the clause will be evaluated against
+     * @return parsed clause
+     * @throws IllegalArgumentException if the clause is invalid
+     */
+    private static Clause parseClause(String text, StateStore states) {
+        Matcher matcher = CLAUSE.matcher(text);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid query '" + text.trim() + "', expected e.g. P0 >= 1");
+        }
+        String name = matcher.group(1);
+        int token = -1;
+        int separator = name.lastIndexOf(':');
+        if (separator >= 0 && states.placeIndex(name) < 0) {
+            token = states.tokenIndex(name.substring(separator + 1).trim());
+            if (token < 0) {
+                throw new IllegalArgumentException("Unknown token in query '" + text.trim() + "'");
+            }
+            name = name.substring(0, separator).trim();
+        }
+        int place = states.placeIndex(name);
+        if (place < 0) {
+            throw new IllegalArgumentException("Unknown place '" + name + "' in query");
+        }
+        return new Clause(place, token, matcher.group(2), Integer.parseInt(matcher.group(3)));
+    }
+
+    /**
+     * @param states  states the query is evaluated against
+     * @param clauses clauses every matching state satisfies
+     */
+    private MarkingQuery(StateStore states, List<Clause> clauses) {
+        this.states = states;
+        this.clauses = Collections.unmodifiableList(clauses);
+    }
+
+    /**
+     * @return true if the query has no clauses and so matches every state
+     */
+    public boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * @param id state id
+     * @return true if the state's marking satisfies every clause
+     */
+    public boolean matches(int id) {
+        for (Clause clause : clauses) {
+            if (!clause.matches(states, id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Single comparison of a place's marking
+     */
+    private static final class Clause {
+        private final int place;
+
+        /**
+         * Token index, or -1 to sum every token colour
+         */
+        private final int token;
+
+        private final String operator;
+
+        private final int value;
+
+        private Clause(int place, int token, String operator, int value) {
+            this.place = place;
+            this.token = token;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        /**
+         * @param states states to read the marking from
+         * @param id     state id
+         * @return true if the state's marking satisfies this clause
+         */
+        private boolean matches(StateStore states, int id) {
+            int count = 0;
+            if (token >= 0) {
+                count = states.getTokenCount(id, place, token);
+            } else {
+                for (int index = 0; index < states.getTokens().size(); index++) {
+                    count += states.getTokenCount(id, place, index);
+                }
+            }
+            switch (operator) {
+                case "=":
+                    return count == value;
+                case "!=":
+                    return count != value;
+                case "<":
+                    return count < value;
+                case "<=":
+                    return count <= value;
+                case ">":
+                    return count > value;
+                default:
+                    return count >= value;
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package pipe.gui.widget;
+
+import pipe.reachability.algorithm.StateRateRecord;
+import pipe.reachability.algorithm.TimelessTrapException;
+import pipe.reachability.algorithm.VanishingExplorer;
+import uk.ac.imperial.pipe.exceptions.InvalidRateException;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vanishing explorer that remembers the tangible states reached from each vanishing state.
+ * <p>
+ * Nets with many immediate transitions reach the same vanishing states again and again, and
+ * each time the wrapped explorer walks the same chain of immediate transitions to find the
+ * tangible states at its end. The rate at which each tangible state is reached is proportional
+ * to the rate the vanishing state was entered with, so the chain is explored once with a unit
+ * rate and later visits scale the cached distribution.
+ * </p>
+ * <p>
+ * The cache is bounded and split into independently locked least recently used segments so
+ * that a single instance can be shared by every thread of a parallel exploration. Two threads
+ * missing on the same state at once may both explore it, the second result simply replaces the
+ * first.
+ * </p>
+ */
+public final class MemoisingVanishingExplorer implements VanishingExplorer {
+    /**
+     * Default maximum number of vanishing states cached
+     */
+    public static final int DEFAULT_CAPACITY = 100000;
+
+    /**
+     * Number of independently locked cache segments, a power of two
+     */
+    private static final int SEGMENTS = 16;
+
+    /**
+     * Explores vanishing states missing from the cache
+     */
+    private final VanishingExplorer delegate;
+
+    /**
+     * Cache segments, a state's segment is chosen by its hash code
+     */
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Creates an explorer caching at most {@link #DEFAULT_CAPACITY} vanishing states
+     *
+     * @param delegate explores vanishing states missing from the cache, must not include
+     *                 vanishing states in its results
+     */
+    public MemoisingVanishingExplorer(VanishingExplorer delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param delegate explores vanishing states missing from the cache, must not include
+     *                 vanishing states in its results
+     * @param capacity maximum number of vanishing states cached
+     */
+    public MemoisingVanishingExplorer(VanishingExplorer delegate, int capacity) {
+        this.delegate = delegate;
+        int segmentCapacity = Math.max(1, capacity / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * @param vanishingState vanishing state to explore
+     * @param rate           rate at which the vanishing state was entered
+     * @return tangible states reached from the vanishing state and the rate each is reached at
+     * @throws TimelessTrapException unable to exit cyclic vanishing state
+     * @throws InvalidRateException  functional rate expression invalid
+     */
+    @Override
+    public Collection<StateRateRecord> explore(ClassifiedState vanishingState, double rate)
+            throws TimelessTrapException, InvalidRateException {
+        Segment segment = segmentFor(vanishingState);
+        Distribution distribution;
+        synchronized (segment) {
+            distribution = segment.get(vanishingState);
+        }
+        if (distribution == null) {
+            distribution = new Distribution(delegate.explore(vanishingState, 1.0));
+            synchronized (segment) {
+                segment.put(vanishingState, distribution);
+            }
+        }
+        return distribution.scale(rate);
+    }
+
+    /**
+     * @return number of vanishing states currently cached
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @param state vanishing state
+     * @return segment caching the state
+     */
+    private Segment segmentFor(ClassifiedState state) {
+        int hash = state.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Tangible states reached from a vanishing state entered with a unit rate
+     */
+    private static final class Distribution {
+        /**
+         * Tangible states reached
+         */
+        private final ClassifiedState[] states;
+
+        /**
+         * Rate each tangible state is reached at
+         */
+        private final double[] rates;
+
+        /**
+         * @param records tangible states reached and their rates
+         */
+        private Distribution(Collection<StateRateRecord> records) {
+            states = new ClassifiedState[records.size()];
+            rates = new double[records.size()];
+            int i = 0;
+            for (StateRateRecord record : records) {
+                states[i] = record.getState();
+                rates[i] = record.getRate();
+                i++;
+            }
+        }
+
+        /**
+         * @param rate rate the vanishing state was entered with
+         * @return tangible states reached and their rates scaled by the rate
+         */
+        private Collection<StateRateRecord> scale(double rate) {
+            List<StateRateRecord> records = new ArrayList<>(states.length);
+            for (int i = 0; i < states.length; i++) {
+                records.add(new StateRateRecord(states[i], rates[i] * rate));
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Least recently used cache segment, guarded by its own monitor
+     */
+    private static final class Segment extends LinkedHashMap<ClassifiedState, Distribution> {
+        /**
+         * Maximum number of vanishing states in the segment
+         */
+        private final int capacity;
+
+        /**
+         * @param capacity maximum number of vanishing states in the segment
+         */
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ClassifiedState, Distribution> eldest) {
+            return size() > capacity;
+        }
+    }
+}
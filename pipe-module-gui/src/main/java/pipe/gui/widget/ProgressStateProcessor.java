@@ -0,0 +1,59 @@
+package pipe.gui.widget;
+
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Decorates a state processor, recording exploration progress and the time spent writing
+ * as states and transitions are processed and aborting the exploration once it has been cancelled.
+ */
+class ProgressStateProcessor implements StateProcessor {
+    /**
+     * Processor that performs the actual work
+     */
+    private final StateProcessor processor;
+
+    /**
+     * Progress to update
+     */
+    private final ExplorationProgress progress;
+
+    /**
+     * @param processor processor to delegate to
+     * @param progress  progress to update
+     */
+    ProgressStateProcessor(StateProcessor processor, ExplorationProgress progress) {
+        this.processor = processor;
+        this.progress = progress;
+    }
+
+    @Override
+    public void processTransitions(int state, Map<Integer, Double> successorRates) {
+        checkCancelled();
+        long start = System.nanoTime();
+        processor.processTransitions(state, successorRates);
+        progress.getMetrics().addTime(ExplorationMetrics.Phase.IO, System.nanoTime() - start);
+        progress.stateExpanded(successorRates.size());
+    }
+
+    @Override
+    public void processState(ClassifiedState state, int id) {
+        checkCancelled();
+        long start = System.nanoTime();
+        processor.processState(state, id);
+        progress.getMetrics().addTime(ExplorationMetrics.Phase.IO, System.nanoTime() - start);
+        progress.stateFound();
+    }
+
+    /**
+     * @throws CancellationException if the exploration has been cancelled
+     */
+    private void checkCancelled() {
+        if (progress.isCancelled()) {
+            throw new CancellationException("State space exploration cancelled");
+        }
+    }
+}
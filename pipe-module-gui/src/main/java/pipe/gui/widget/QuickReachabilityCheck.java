@@ -0,0 +1,481 @@
+package pipe.gui.widget;
+
+import pipe.reachability.algorithm.ExplorerUtilities;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lightweight breadth first exploration answering whether the net deadlocks or exceeds a
+ * token bound, without computing rates or writing records.
+ * <p>
+ * Visited states are remembered only by their {@link StateFingerprint}, either in a hash
+ * compaction table of fingerprints or in a bitstate array that sets two bits per state. Both
+ * trade a small probability of wrongly treating a new state as visited, and so omitting it and
+ * its successors, for far less memory than storing the states themselves. The bitstate array
+ * never grows, the hash compaction table grows with the number of states.
+ * </p><p>
+ * States exceeding the token bound are recorded but not expanded, so the check terminates on
+ * unbounded nets. It also stops once it has visited a maximum number of states or run for a
+ * maximum time, in which case the result is marked as incomplete.
+ * </p>
+ */
+public final class QuickReachabilityCheck {
+    /**
+     * Default size of the bitstate array, 2^28 bits is 32MB
+     */
+    public static final long DEFAULT_BITSTATE_BITS = 1L << 28;
+
+    /**
+     * Default maximum number of states visited before the check stops
+     */
+    public static final long DEFAULT_MAX_STATES = 100000000L;
+
+    /**
+     * Default maximum time the check runs for before stopping
+     */
+    public static final long DEFAULT_MAX_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Maximum number of example deadlock and bound violating markings kept in the result
+     */
+    private static final int MAX_EXAMPLES = 10;
+
+    /**
+     * Initial number of slots in the hash compaction table
+     */
+    private static final int INITIAL_TABLE_SIZE = 1 << 16;
+
+    /**
+     * How visited states are remembered
+     */
+    public enum Mode {
+        HASH_COMPACTION("Hash compaction"),
+        BITSTATE("Bitstate");
+
+        /**
+         * Name shown to the user
+         */
+        private final String displayName;
+
+        Mode(String displayName) {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Used to find the successors of each state
+     */
+    private final ExplorerUtilities explorerUtilities;
+
+    /**
+     * How visited states are remembered
+     */
+    private final Mode mode;
+
+    /**
+     * Largest number of tokens allowed on any place, a marking with more violates the bound
+     */
+    private final int bound;
+
+    /**
+     * Maximum number of states visited before the check stops
+     */
+    private final long maxStates;
+
+    /**
+     * Maximum time in milliseconds the check runs for before stopping
+     */
+    private final long maxMillis;
+
+    /**
+     * Bitstate array, null in hash compaction mode
+     */
+    private long[] bits;
+
+    /**
+     * Mask selecting a bit index in the bitstate array
+     */
+    private long bitMask;
+
+    /**
+     * Open addressing table of visited fingerprints, null in bitstate mode
+     */
+    private long[] table;
+
+    /**
+     * Number of states visited
+     */
+    private long visited;
+
+    /**
+     * @param explorerUtilities used to find the successors of each state
+     * @param mode              how visited states are remembered
+     * @param bitstateBits      size of the bitstate array in bits, a power of two, ignored for hash compaction
+     * @param bound             largest number of tokens allowed on any place
+     */
+    public QuickReachabilityCheck(ExplorerUtilities explorerUtilities, Mode mode, long bitstateBits, int bound) {
+        this(explorerUtilities, mode, bitstateBits, bound, DEFAULT_MAX_STATES, DEFAULT_MAX_MILLIS);
+    }
+
+    /**
+     * @param explorerUtilities used to find the successors of each state
+     * @param mode              how visited states are remembered
+     * @param bitstateBits      size of the bitstate array in bits, a power of two, ignored for hash compaction
+     * @param bound             largest number of tokens allowed on any place
+     * @param maxStates         maximum number of states visited before the check stops
+     * @param maxMillis         maximum time in milliseconds the check runs for before stopping
+     */
+    public QuickReachabilityCheck(ExplorerUtilities explorerUtilities, Mode mode, long bitstateBits, int bound,
+                                  long maxStates, long maxMillis) {
+        this.explorerUtilities = explorerUtilities;
+        this.mode = mode;
+        this.bound = bound;
+        this.maxStates = maxStates;
+        this.maxMillis = maxMillis;
+        if (mode == Mode.BITSTATE) {
+            bits = new long[(int) Math.max(1, bitstateBits >>> 6)];
+            bitMask = (long) bits.length * 64 - 1;
+        } else {
+            table = new long[INITIAL_TABLE_SIZE];
+        }
+    }
+
+    /**
+     * Explores every state reachable from the initial state that is not omitted, without
+     * going beyond states that exceed the bound, until the state or time limit is reached
+     *
+     * @param progress updated as states are visited, cancelling it stops the check
+     * @return counts of the states visited, deadlocks and bound violations
+     */
+    public Result run(ExplorationProgress progress) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        Result result = new Result(mode);
+        Queue<ClassifiedState> frontier = new ArrayDeque<>();
+        ClassifiedState initial = explorerUtilities.getCurrentState();
+        visit(initial);
+        progress.stateFound();
+        frontier.add(initial);
+        while (!frontier.isEmpty()) {
+            if (progress.isCancelled()) {
+                throw new CancellationException("Quick reachability check cancelled");
+            }
+            if (visited >= maxStates || System.nanoTime() - deadline > 0) {
+                result.limitReached = true;
+                break;
+            }
+            ClassifiedState state = frontier.remove();
+            if (exceedsBound(state, result)) {
+                progress.stateExpanded(0);
+                continue;
+            }
+            int successors = 0;
+            for (ClassifiedState successor : explorerUtilities.getSuccessorsWithTransitions(state).keySet()) {
+                successors++;
+                if (visit(successor)) {
+                    progress.stateFound();
+                    frontier.add(successor);
+                }
+            }
+            if (successors == 0) {
+                result.deadlocks++;
+                addExample(result.deadlockExamples, state);
+            }
+            result.transitions += successors;
+            result.peakFrontier = Math.max(result.peakFrontier, frontier.size());
+            progress.stateExpanded(successors);
+        }
+        result.states = visited;
+        result.omissionProbability = omissionProbability();
+        result.memoryBytes = 8L * (bits != null ? bits.length : table.length);
+        result.elapsedMillis = (System.nanoTime() - start) / 1000000;
+        return result;
+    }
+
+    /**
+     * @param state   state to check
+     * @param result  result to record a violation in
+     * @return true if the state has more tokens than the bound on some place
+     */
+    private boolean exceedsBound(ClassifiedState state, Result result) {
+        for (String place : state.getPlaces()) {
+            int tokens = 0;
+            for (Integer count : state.getTokens(place).values()) {
+                if (count != null) {
+                    tokens += count;
+                }
+            }
+            if (tokens > bound) {
+                result.boundViolations++;
+                addExample(result.boundExamples, state);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param examples examples to add to
+     * @param state    state to add if there is room
+     */
+    private static void addExample(List<String> examples, ClassifiedState state) {
+        if (examples.size() < MAX_EXAMPLES) {
+            examples.add(state.toString());
+        }
+    }
+
+    /**
+     * Marks the state as visited
+     *
+     * @param state state reached
+     * @return true if the state had not been visited before
+     */
+    private boolean visit(ClassifiedState state) {
+        long fingerprint = StateFingerprint.of(state);
+        boolean added = bits != null ? setBits(fingerprint) : insert(fingerprint);
+        if (added) {
+            visited++;
+        }
+        return added;
+    }
+
+    /**
+     * Sets the two bits of the fingerprint
+     *
+     * @param fingerprint state fingerprint
+     * @return true if either bit was previously clear
+     */
+    private boolean setBits(long fingerprint) {
+        boolean added = setBit(fingerprint & bitMask);
+        return setBit(StateFingerprint.mix(fingerprint) & bitMask) || added;
+    }
+
+    /**
+     * @param bit index of the bit
+     * @return true if the bit was previously clear
+     */
+    private boolean setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        boolean clear = (bits[word] & mask) == 0;
+        bits[word] |= mask;
+        return clear;
+    }
+
+    /**
+     * Adds the fingerprint to the hash compaction table, doubling it when half full
+     *
+     * @param fingerprint non zero state fingerprint
+     * @return true if the fingerprint was not already in the table
+     */
+    private boolean insert(long fingerprint) {
+        if (2 * (visited + 1) > table.length) {
+            long[] old = table;
+            table = new long[old.length * 2];
+            for (long stored : old) {
+                if (stored != 0) {
+                    place(stored);
+                }
+            }
+        }
+        return place(fingerprint);
+    }
+
+    /**
+     * @param fingerprint non zero state fingerprint
+     * @return true if the fingerprint was not already in the table
+     */
+    private boolean place(long fingerprint) {
+        int mask = table.length - 1;
+        for (int slot = (int) StateFingerprint.mix(fingerprint) & mask; ; slot = (slot + 1) & mask) {
+            if (table[slot] == fingerprint) {
+                return false;
+            }
+            if (table[slot] == 0) {
+                table[slot] = fingerprint;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return estimated probability that at least one state was omitted
+     */
+    private double omissionProbability() {
+        double n = visited;
+        if (bits != null) {
+            double m = (double) bits.length * 64;
+            double falsePositive = Math.pow(1 - Math.exp(-2 * n / m), 2);
+            return Math.min(1, n * falsePositive);
+        }
+        return Math.min(1, n * n / Math.pow(2, 65));
+    }
+
+    /**
+     * Outcome of a quick reachability check
+     */
+    public static final class Result {
+        /**
+         * How visited states were remembered
+         */
+        private final Mode mode;
+
+        /**
+         * Number of distinct states visited
+         */
+        private long states;
+
+        /**
+         * Number of transitions fired
+         */
+        private long transitions;
+
+        /**
+         * Number of states with no enabled transitions
+         */
+        private long deadlocks;
+
+        /**
+         * Number of states with more tokens than the bound on some place
+         */
+        private long boundViolations;
+
+        /**
+         * Example deadlocked markings
+         */
+        private final List<String> deadlockExamples = new ArrayList<>();
+
+        /**
+         * Example bound violating markings
+         */
+        private final List<String> boundExamples = new ArrayList<>();
+
+        /**
+         * Largest number of states waiting to be expanded
+         */
+        private int peakFrontier;
+
+        /**
+         * Estimated probability that a state was omitted
+         */
+        private double omissionProbability;
+
+        /**
+         * Memory used to remember visited states in bytes
+         */
+        private long memoryBytes;
+
+        /**
+         * Wall clock time taken
+         */
+        private long elapsedMillis;
+
+        /**
+         * True if the check stopped at its state or time limit before exploring every state
+         */
+        private boolean limitReached;
+
+        /**
+         * @param mode how visited states are remembered
+         */
+        private Result(Mode mode) {
+            this.mode = mode;
+        }
+
+        /**
+         * @return how visited states were remembered
+         */
+        public Mode getMode() {
+            return mode;
+        }
+
+        /**
+         * @return number of distinct states visited
+         */
+        public long getStates() {
+            return states;
+        }
+
+        /**
+         * @return number of transitions fired
+         */
+        public long getTransitions() {
+            return transitions;
+        }
+
+        /**
+         * @return number of states with no enabled transitions
+         */
+        public long getDeadlocks() {
+            return deadlocks;
+        }
+
+        /**
+         * @return number of states with more tokens than the bound on some place
+         */
+        public long getBoundViolations() {
+            return boundViolations;
+        }
+
+        /**
+         * @return up to ten example deadlocked markings
+         */
+        public List<String> getDeadlockExamples() {
+            return Collections.unmodifiableList(deadlockExamples);
+        }
+
+        /**
+         * @return up to ten example bound violating markings
+         */
+        public List<String> getBoundExamples() {
+            return Collections.unmodifiableList(boundExamples);
+        }
+
+        /**
+         * @return largest number of states waiting to be expanded
+         */
+        public int getPeakFrontier() {
+            return peakFrontier;
+        }
+
+        /**
+         * @return estimated probability that a reachable state was omitted
+         */
+        public double getOmissionProbability() {
+            return omissionProbability;
+        }
+
+        /**
+         * @return memory used to remember visited states in bytes
+         */
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        /**
+         * @return wall clock time taken in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * @return true if the check stopped at its state or time limit, so states may be unexplored
+         */
+        public boolean isLimitReached() {
+            return limitReached;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package pipe.gui.widget;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.Map;
+
+/**
+ * 64 bit fingerprints of state markings.
+ * <p>
+ * The fingerprint does not depend on the order in which a state iterates its places or tokens,
+ * so equal markings always share a fingerprint. Distinct markings share one with a probability
+ * of roughly n<sup>2</sup> / 2<sup>65</sup> for n states.
+ * </p>
+ */
+public final class StateFingerprint {
+    /**
+     * Private constructor for utility class
+     */
+    private StateFingerprint() {
+    }
+
+    /**
+     * @param state state to fingerprint
+     * @return fingerprint of the state's marking, never zero
+     */
+    public static long of(ClassifiedState state) {
+        long fingerprint = 0;
+        for (String place : state.getPlaces()) {
+            long placeHash = place.hashCode();
+            for (Map.Entry<String, Integer> entry : state.getTokens(place).entrySet()) {
+                Integer count = entry.getValue();
+                long token = (placeHash << 32) ^ (entry.getKey().hashCode() & 0xFFFFFFFFL);
+                fingerprint += mix(mix(token) + (count == null ? 0 : count));
+            }
+        }
+        long mixed = mix(fingerprint);
+        return mixed == 0 ? 1 : mixed;
+    }
+
+    /**
+     * SplitMix64 finaliser, spreads every input bit across the output
+     *
+     * @param value value to mix
+     * @return mixed value
+     */
+    static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,357 @@
+package pipe.gui.widget;
+
+import uk.ac.imperial.state.Record;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * Streams a state space into formats understood by external graph tools.
+ * <p>
+ * Transition records are written one at a time as they are read from the transitions binary,
+ * so the memory used does not grow with the number of transitions. Only the {@link StateStore}
+ * is held in memory, it supplies the tangible flag and marking of each state.
+ * </p>
+ */
+public final class StateSpaceExporter {
+    /**
+     * Size of the output buffer in characters
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Supported export formats
+     */
+    public enum Format {
+        GRAPHML("GraphML", ".graphml"),
+        DOT("DOT", ".dot"),
+        CSV("CSV edge list", ".csv");
+
+        /**
+         * Name shown to the user
+         */
+        private final String displayName;
+
+        /**
+         * File extension of the format, including the dot
+         */
+        private final String extension;
+
+        Format(String displayName, String extension) {
+            this.displayName = displayName;
+            this.extension = extension;
+        }
+
+        /**
+         * @return file extension of the format, including the dot
+         */
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @param fileName name of the file to export to
+         * @return format matching the file's extension, or null if there is none
+         */
+        public static Format forFileName(String fileName) {
+            String lowerCase = fileName.toLowerCase();
+            for (Format format : values()) {
+                if (lowerCase.endsWith(format.extension)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Private constructor for utility class
+     */
+    private StateSpaceExporter() {
+    }
+
+    /**
+     * Exports the state space to a file. The export is written to a temporary file next to the
+     * target which replaces the target only once it is complete, so a failed or cancelled export
+     * leaves any existing file untouched.
+     *
+     * @param records  transition records, only iterated once
+     * @param states   explored states
+     * @param format   format to write
+     * @param target   file to write to
+     * @param progress updated with each record written, cancelling it stops the export
+     * @return number of transitions written
+     * @throws IOException if the file cannot be written or the export is cancelled
+     */
+    public static long export(Iterable<Record> records, StateStore states, Format format, Path target,
+                              ExplorationProgress progress) throws IOException {
+        Path absoluteTarget = target.toAbsolutePath();
+        Path temporary = Files.createTempFile(absoluteTarget.getParent(), absoluteTarget.getFileName().toString(),
+                ".tmp");
+        try {
+            long transitions;
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(Files.newOutputStream(temporary), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                transitions = export(records, states, format, writer, progress);
+            }
+            try {
+                Files.move(temporary, absoluteTarget, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, absoluteTarget, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return transitions;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Exports the state space, the writer is not closed
+     *
+     * @param records  transition records, only iterated once
+     * @param states   explored states
+     * @param format   format to write
+     * @param writer   destination of the export
+     * @param progress updated with each record written, cancelling it stops the export
+     * @return number of transitions written
+     * @throws IOException if the writer fails
+     */
+    public static long export(Iterable<Record> records, StateStore states, Format format, Writer writer,
+                              ExplorationProgress progress) throws IOException {
+        switch (format) {
+            case GRAPHML:
+                return writeGraphML(records, states, writer, progress);
+            case DOT:
+                return writeDot(records, states, writer, progress);
+            case CSV:
+                return writeCsv(records, states, writer, progress);
+            default:
+                throw new IllegalArgumentException("Unsupported export format " + format);
+        }
+    }
+
+    /**
+     * Writes a GraphML document with a node per state and an edge per transition
+     *
+     * @param records  transition records
+     * @param states   explored states
+     * @param writer   destination of the export
+     * @param progress export progress
+     * @return number of transitions written
+     * @throws IOException if the writer fails
+     */
+    private static long writeGraphML(Iterable<Record> records, StateStore states, Writer writer,
+                                     ExplorationProgress progress) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        writer.write("  <key id=\"tangible\" for=\"node\" attr.name=\"tangible\" attr.type=\"boolean\"/>\n");
+        writer.write("  <key id=\"marking\" for=\"node\" attr.name=\"marking\" attr.type=\"string\"/>\n");
+        writer.write("  <key id=\"rate\" for=\"edge\" attr.name=\"rate\" attr.type=\"double\"/>\n");
+        writer.write("  <graph id=\"reachability\" edgedefault=\"directed\">\n");
+        for (int id = states.firstId(); id >= 0; id = states.nextId(id)) {
+            writer.write("    <node id=\"s");
+            writer.write(Integer.toString(id));
+            writer.write("\"><data key=\"tangible\">");
+            writer.write(Boolean.toString(states.isTangible(id)));
+            writer.write("</data><data key=\"marking\">");
+            writeEscapedXml(writer, states.describe(id));
+            writer.write("</data></node>\n");
+        }
+        long transitions = 0;
+        for (Record record : records) {
+            checkCancelled(progress);
+            String source = Integer.toString(record.state);
+            for (Map.Entry<Integer, Double> successor : record.successors.entrySet()) {
+                writer.write("    <edge source=\"s");
+                writer.write(source);
+                writer.write("\" target=\"s");
+                writer.write(successor.getKey().toString());
+                writer.write("\"><data key=\"rate\">");
+                writer.write(successor.getValue().toString());
+                writer.write("</data></edge>\n");
+            }
+            transitions += recordWritten(record, progress);
+        }
+        writer.write("  </graph>\n");
+        writer.write("</graphml>\n");
+        return transitions;
+    }
+
+    /**
+     * Writes a Graphviz digraph, tangible and vanishing states are coloured as they are
+     * in the reachability graph viewer
+     *
+     * @param records  transition records
+     * @param states   explored states
+     * @param writer   destination of the export
+     * @param progress export progress
+     * @return number of transitions written
+     * @throws IOException if the writer fails
+     */
+    private static long writeDot(Iterable<Record> records, StateStore states, Writer writer,
+                                 ExplorationProgress progress) throws IOException {
+        writer.write("digraph reachability {\n");
+        writer.write("  node [shape=ellipse, style=filled];\n");
+        for (int id = states.firstId(); id >= 0; id = states.nextId(id)) {
+            boolean tangible = states.isTangible(id);
+            writer.write("  ");
+            writer.write(Integer.toString(id));
+            writer.write(" [fillcolor=\"");
+            writer.write(tangible ? "#ff6666" : "#b6dcff");
+            writer.write("\", tangible=");
+            writer.write(Boolean.toString(tangible));
+            writer.write(", tooltip=\"");
+            writeEscapedDot(writer, states.describe(id));
+            writer.write("\"];\n");
+        }
+        long transitions = 0;
+        for (Record record : records) {
+            checkCancelled(progress);
+            String source = Integer.toString(record.state);
+            for (Map.Entry<Integer, Double> successor : record.successors.entrySet()) {
+                writer.write("  ");
+                writer.write(source);
+                writer.write(" -> ");
+                writer.write(successor.getKey().toString());
+                writer.write(" [label=\"");
+                String rate = successor.getValue().toString();
+                writer.write(rate);
+                writer.write("\", rate=");
+                writer.write(rate);
+                writer.write("];\n");
+            }
+            transitions += recordWritten(record, progress);
+        }
+        writer.write("}\n");
+        return transitions;
+    }
+
+    /**
+     * Writes a CSV edge list with a row per transition
+     *
+     * @param records  transition records
+     * @param states   explored states
+     * @param writer   destination of the export
+     * @param progress export progress
+     * @return number of transitions written
+     * @throws IOException if the writer fails
+     */
+    private static long writeCsv(Iterable<Record> records, StateStore states, Writer writer,
+                                 ExplorationProgress progress) throws IOException {
+        writer.write("source,target,rate,source_tangible,target_tangible\n");
+        long transitions = 0;
+        for (Record record : records) {
+            checkCancelled(progress);
+            String source = Integer.toString(record.state);
+            String sourceTangible = Boolean.toString(states.isTangible(record.state));
+            for (Map.Entry<Integer, Double> successor : record.successors.entrySet()) {
+                int target = successor.getKey();
+                writer.write(source);
+                writer.write(',');
+                writer.write(Integer.toString(target));
+                writer.write(',');
+                writer.write(successor.getValue().toString());
+                writer.write(',');
+                writer.write(sourceTangible);
+                writer.write(',');
+                writer.write(Boolean.toString(states.isTangible(target)));
+                writer.write('\n');
+            }
+            transitions += recordWritten(record, progress);
+        }
+        return transitions;
+    }
+
+    /**
+     * @param record   record that has been written
+     * @param progress export progress
+     * @return number of transitions in the record
+     */
+    private static int recordWritten(Record record, ExplorationProgress progress) {
+        int successors = record.successors.size();
+        progress.stateExpanded(successors);
+        return successors;
+    }
+
+    /**
+     * @param progress export progress
+     * @throws IOException if the export has been cancelled
+     */
+    private static void checkCancelled(ExplorationProgress progress) throws IOException {
+        if (progress.isCancelled()) {
+            throw new IOException("Export cancelled");
+        }
+    }
+
+    /**
+     * Writes the text escaping the characters that are special inside a DOT quoted string
+     *
+     * @param writer destination
+     * @param text   text to escape
+     * @throws IOException if the writer fails
+     */
+    private static void writeEscapedDot(Writer writer, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                default:
+                    writer.write(c);
+            }
+        }
+    }
+
+    /**
+     * Writes the text escaping XML special characters
+     *
+     * @param writer destination
+     * @param text   text to escape
+     * @throws IOException if the writer fails
+     */
+    private static void writeEscapedXml(Writer writer, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                default:
+                    writer.write(c);
+            }
+        }
+    }
+}
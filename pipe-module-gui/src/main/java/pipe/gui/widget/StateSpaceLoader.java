@@ -14,8 +14,8 @@ import uk.ac.imperial.pipe.exceptions.InvalidRateException;
 import uk.ac.imperial.pipe.io.PetriNetIOImpl;
 import uk.ac.imperial.pipe.io.PetriNetReader;
 import uk.ac.imperial.pipe.models.petrinet.PetriNet;
-import uk.ac.imperial.state.ClassifiedState;
 import uk.ac.imperial.state.Record;
+import uk.ac.imperial.state.StateRecord;
 
 import javax.swing.*;
 import javax.xml.bind.JAXBException;
@@ -23,13 +23,17 @@ import javax.xml.bind.JAXBException;
 import java.awt.FileDialog;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ItemListener;
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -43,11 +47,6 @@ public class StateSpaceLoader {
      */
     private static final Logger LOGGER = Logger.getLogger(StateSpaceLoader.class.getName());
 
-    /**
-     * Number of states to explore before reducing and writing out
-     */
-    private static final int STATES_PER_THREAD = 100;
-
     /**
      * For loading Petri nets to explore
      */
@@ -91,20 +90,50 @@ public class StateSpaceLoader {
      */
     private JRadioButton loadFromBinariesRadio;
 
+    /**
+     * When selected saved binaries are written in the block compressed format, otherwise
+     * they are saved in the plain Kryo format that every version of PIPE can load together
+     * with a summary file. Plain is the default on purpose, for compatibility
+     */
+    private JCheckBox compressBinariesCheckBox;
+
+    /**
+     * When selected the exploration periodically writes a checkpoint next to its binaries
+     * and keeps them if it is cancelled or fails, so that it can be resumed
+     */
+    private JCheckBox checkpointCheckBox;
+
+    /**
+     * When selected the exploration resumes from the checkpoint chosen by the user
+     */
+    private JCheckBox resumeCheckBox;
+
+    /**
+     * Displays the name of the checkpoint to resume from
+     */
+    private JTextField checkpointField;
+
+    /**
+     * Checkpoint to resume from, null if none has been chosen
+     */
+    private Path resumeCheckpoint;
+
     /**
      * Default petri net
      */
     private PetriNet defaultPetriNet;
 
     /**
-     * Temporary transitions file for generating results into
+     * Transitions binary of the current state space. Each exploration writes to its own
+     * files and only replaces this once it completes, so a cancelled exploration that is
+     * still winding down cannot touch the files of the one that replaced it.
      */
-    private Path temporaryTransitions;
+    private volatile Path temporaryTransitions;
 
     /**
-     * Temporary states file for generating results into
+     * States binary of the current state space
      */
-    private Path temporaryStates;
+    private volatile Path temporaryStates;
 
     /**
      * Last loaded Petri net via the load dialog
@@ -121,6 +150,32 @@ public class StateSpaceLoader {
      */
     private Path binaryStates;
 
+    /**
+     * Tunes the batch size of auto tuned explorations from previous runs
+     */
+    private final ExplorationTuner tuner = new ExplorationTuner();
+
+    /**
+     * Settings used by the last exploration, null if the last results were loaded from binaries
+     */
+    private ExplorationSettings lastSettings;
+
+    /**
+     * Number of transitions in the current state space. {@link StateSpaceExplorer.StateSpaceExplorerResults}
+     * only holds an int, so this is the count to display for large state spaces
+     */
+    private long transitionCount;
+
+    /**
+     * Number of states in the current state space, saved in the summary alongside plain binaries
+     */
+    private int stateCount;
+
+    /**
+     * Metrics of the last exploration, null if the last results were loaded from binaries
+     */
+    private ExplorationMetrics lastMetrics;
+
     /**
      * Sets up the load Petri net options with the "use current Petri net" disabled
      *
@@ -151,6 +206,45 @@ public class StateSpaceLoader {
                 loadBinaryFiles();
             }
         });
+        resumeCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (resumeCheckBox.isSelected()) {
+                    loadCheckpoint();
+                }
+            }
+        });
+    }
+
+    /**
+     * Asks the user for the checkpoint to resume from, deselecting resume if none is chosen
+     */
+    private void loadCheckpoint() {
+        loadDialog.setMode(FileDialog.LOAD);
+        loadDialog.setTitle("Load exploration checkpoint");
+        loadDialog.setVisible(true);
+        File[] files = loadDialog.getFiles();
+        if (files.length > 0) {
+            resumeCheckpoint = Paths.get(files[0].toURI());
+            checkpointField.setText(files[0].getName());
+        } else {
+            resumeCheckBox.setSelected(false);
+        }
+    }
+
+    /**
+     * Deselects resume and forgets the checkpoint once an exploration resumed from it has
+     * completed, since a completed exploration deletes its checkpoint
+     */
+    private void clearResume() {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                resumeCheckpoint = null;
+                resumeCheckBox.setSelected(false);
+                checkpointField.setText("");
+            }
+        });
     }
 
     /**
@@ -224,6 +318,20 @@ public class StateSpaceLoader {
         return useExistingPetriNetRadioButton.isSelected() ? defaultPetriNet : lastLoadedPetriNet;
     }
 
+    /**
+     * Reads the loader's options, so must be called on the event dispatch thread. The source
+     * only holds their values and may then be passed to an exploration running in the background.
+     *
+     * @return where the next state space is to be loaded or explored from
+     */
+    public Source getSource() {
+        boolean fromBinaries = loadFromBinariesRadio.isSelected();
+        boolean existingPetriNet = useExistingPetriNetRadioButton.isSelected();
+        Path resume = resumeCheckBox.isSelected() ? resumeCheckpoint : null;
+        return new Source(fromBinaries, binaryTransitions, binaryStates, fromBinaries ? null : getPetriNet(),
+                existingPetriNet, resume != null || checkpointCheckBox.isSelected(), resume);
+    }
+
     public JPanel getMainPanel() {
         return mainPanel;
     }
@@ -234,7 +342,8 @@ public class StateSpaceLoader {
      * in a temporary file.
      * <p>
      * These results are then read in and turned into a graphical representation using mxGraph
-     * which is displayed to the user
+     * which is displayed to the user. The loader's options are read when it is called, so it must be
+     * called on the event dispatch thread.
      * </p>
      * @param creator  explorer creator
      * @param vanishingCreator vanishing creator
@@ -251,17 +360,63 @@ public class StateSpaceLoader {
                                                                          VanishingExplorerCreator vanishingCreator, int threads)
             throws IOException, InterruptedException, ExecutionException, InvalidRateException, TimelessTrapException,
             StateSpaceLoaderException {
-        if (loadFromBinariesRadio.isSelected()) {
-            return loadFromBinaries();
+        return calculateResults(creator, vanishingCreator, getSource(),
+                ExplorationSettings.manual(threads, ExplorationSettings.DEFAULT_STATES_PER_THREAD),
+                new ExplorationProgress());
+    }
+
+    /**
+     * Calculates the steady state exploration of a Petri net, reporting its progress as it goes.
+     * <p>
+     * If the exploration is cancelled through the progress or the calling thread is interrupted
+     * the partially written temporary files are deleted. The binaries of the current state space
+     * are only replaced once the exploration completes. None of the loader's widgets are read, so
+     * it can run in the background.
+     * </p>
+     * @param creator  explorer creator
+     * @param vanishingCreator vanishing creator
+     * @param source   where to load or explore the state space from, see {@link #getSource()}
+     * @param settings how to spread work across threads, auto tuned settings are resolved
+     *                 from the throughput of previous runs
+     * @param progress updated as states are explored, cancelling it aborts the exploration
+     * @return state space explorer results
+     * @throws TimelessTrapException unable to exit cyclic vanishing state
+     * @throws InterruptedException  thread interrupted
+     * @throws ExecutionException task aborted due to exception
+     * @throws IOException error doing IO
+     * @throws InvalidRateException functional rate expression invalid
+     * @throws StateSpaceLoaderException if error during loading from binaries
+     */
+    public StateSpaceExplorer.StateSpaceExplorerResults calculateResults(ExplorerCreator creator,
+                                                                         VanishingExplorerCreator vanishingCreator,
+                                                                         Source source,
+                                                                         ExplorationSettings settings,
+                                                                         ExplorationProgress progress)
+            throws IOException, InterruptedException, ExecutionException, InvalidRateException, TimelessTrapException,
+            StateSpaceLoaderException {
+        lastMetrics = null;
+        if (source.isFromBinaries()) {
+            lastSettings = null;
+            return loadFromBinaries(source);
         } else {
             KryoStateIO stateWriter = new KryoStateIO();
-            temporaryTransitions = getTransitionsPath();
-            temporaryStates = getStatesPath();
+            boolean resume = source.getResumeCheckpoint() != null;
+            boolean checkpoint = source.isCheckpointed();
+            ExplorationCheckpoint resumeFrom = resume ? ExplorationCheckpoint.read(source.getResumeCheckpoint()) : null;
+            Path transitions;
+            Path states;
+            if (resume) {
+                transitions = resumeFrom.getTransitions();
+                states = resumeFrom.getStates();
+            } else {
+                transitions = Files.createTempFile("transitions", ".tmp");
+                states = Files.createTempFile("states", ".tmp");
+            }
 
-            PetriNet petriNet = useExistingPetriNetRadioButton.isSelected() ? defaultPetriNet : lastLoadedPetriNet;
+            PetriNet petriNet = source.getPetriNet();
             if (petriNet == null) {
                 String message;
-                if (useExistingPetriNetRadioButton.isSelected()) {
+                if (source.isExistingPetriNet()) {
                     message = "Error cannot calculate analysis metrics. Please load a Petri net/binaries.";
                 } else {
                     message = "Error in loaded Petri net, could not read PNML file.";
@@ -269,43 +424,172 @@ public class StateSpaceLoader {
                 throw new StateSpaceLoaderException(message);
             }
             ExplorerUtilities explorerUtils = creator.create(petriNet);
-            VanishingExplorer vanishingExplorer = vanishingCreator.create(explorerUtils);
-            return generateStateSpace(stateWriter, temporaryTransitions, temporaryStates, petriNet, explorerUtils,
-                    vanishingExplorer, threads);
+            ExplorationMetrics metrics = progress.getMetrics();
+            VanishingExplorer vanishingExplorer = metrics.timed(vanishingCreator.create(explorerUtils));
+            if (checkpoint || creator instanceof DiskBackedExplorerCreator) {
+                if (settings.getThreads() > 1) {
+                    LOGGER.log(Level.INFO, singleThreadedReason(checkpoint, creator instanceof DiskBackedExplorerCreator)
+                            + ", ignoring the requested " + settings);
+                }
+                ExploredStateSet explored = creator instanceof DiskBackedExplorerCreator ?
+                        ((DiskBackedExplorerCreator) creator).createExploredSet() : new HeapExploredStateSet();
+                try {
+                    metrics.explorationStarted(1);
+                    StateSpaceExplorer.StateSpaceExplorerResults results =
+                            generateSequentialStateSpace(stateWriter, transitions, states, explorerUtils,
+                                    vanishingExplorer, explored, checkpoint, resumeFrom, settings, progress);
+                    metrics.explorationFinished(progress, transitions, states);
+                    stateCount = results.numberOfStates;
+                    temporaryTransitions = transitions;
+                    temporaryStates = states;
+                    lastMetrics = metrics;
+                    if (resume) {
+                        clearResume();
+                    }
+                    return results;
+                } finally {
+                    explored.close();
+                }
+            }
+            ExplorationSettings resolved = tuner.resolve(settings);
+            try {
+                metrics.explorationStarted(resolved.getThreads());
+                StateSpaceExplorer.StateSpaceExplorerResults results =
+                        generateStateSpace(stateWriter, transitions, states, petriNet, explorerUtils,
+                                vanishingExplorer, resolved, progress);
+                metrics.explorationFinished(progress, transitions, states);
+                transitionCount = progress.getTransitions();
+                stateCount = results.numberOfStates;
+                temporaryTransitions = transitions;
+                temporaryStates = states;
+                tuner.record(resolved, progress);
+                lastSettings = resolved;
+                lastMetrics = metrics;
+                return results;
+            } catch (CancellationException | InterruptedException e) {
+                deleteTemporaryFiles(transitions, states);
+                throw e;
+            } catch (ExecutionException e) {
+                if (progress.isCancelled()) {
+                    deleteTemporaryFiles(transitions, states);
+                }
+                throw e;
+            }
         }
     }
 
     /**
-     * Loads the transitions and states from binaries
+     * Explores the state space sequentially with the given explored set. When checkpointing the
+     * binaries and checkpoint are kept if the exploration is cancelled or fails so that it can be
+     * resumed, otherwise they are deleted on cancellation.
      *
-     * @return state space explorer results 
-     * @throws IOException if IO error
-     * @throws StateSpaceLoaderException if error during loading from binaries 
-     * @return state space explorer results 
+     * @param stateWriter       format in which to write the results to
+     * @param transitions       transitions binary to write
+     * @param states            states binary to write
+     * @param explorerUtils     explorer utilities
+     * @param vanishingExplorer vanishing explorer
+     * @param explored          empty set to record the discovered states in
+     * @param checkpoint        true if checkpoints should be written
+     * @param resumeFrom        checkpoint to resume from, null to start a new exploration
+     * @param settings          requested settings, the exploration always runs on a single thread
+     * @param progress          exploration progress
+     * @return state space explorer results
+     * @throws TimelessTrapException unable to exit cyclic vanishing state
+     * @throws IOException error doing IO
+     * @throws InvalidRateException functional rate expression invalid
      */
-    private StateSpaceExplorer.StateSpaceExplorerResults loadFromBinaries()
-            throws IOException, StateSpaceLoaderException {
-        StateReader stateReader = new KryoStateIO();
-        temporaryTransitions = getTransitionsPath();
-        temporaryStates = getStatesPath();
-        return processBinaryResults(stateReader, temporaryTransitions);
+    private StateSpaceExplorer.StateSpaceExplorerResults generateSequentialStateSpace(StateWriter stateWriter,
+            Path transitions, Path states, ExplorerUtilities explorerUtils, VanishingExplorer vanishingExplorer,
+            ExploredStateSet explored,
+            boolean checkpoint, ExplorationCheckpoint resumeFrom, ExplorationSettings settings,
+            ExplorationProgress progress)
+            throws IOException, TimelessTrapException, InvalidRateException {
+        OpenOption[] options = {};
+        if (resumeFrom != null) {
+            resumeFrom.truncateBinaries();
+            options = new OpenOption[]{StandardOpenOption.APPEND};
+        }
+        try (OutputStream transitionStream = Files.newOutputStream(transitions, options);
+             OutputStream stateStream = Files.newOutputStream(states, options);
+             Output transitionOutput = new Output(transitionStream);
+             Output stateOutput = new Output(stateStream)) {
+            StateProcessor processor = new ProgressStateProcessor(
+                    new StateIOProcessor(stateWriter, transitionOutput, stateOutput), progress);
+            CheckpointingStateSpaceExplorer explorer =
+                    new CheckpointingStateSpaceExplorer(explorerUtils, vanishingExplorer, processor, transitionOutput,
+                            stateOutput, transitions, states, explored,
+                            checkpoint ? CheckpointingStateSpaceExplorer.DEFAULT_INTERVAL_MILLIS :
+                                    CheckpointingStateSpaceExplorer.NO_CHECKPOINTS);
+            StateSpaceExplorer.StateSpaceExplorerResults results = resumeFrom == null ?
+                    explorer.generate(explorerUtils.getCurrentState()) : resume(explorer, resumeFrom, states);
+            transitionCount = explorer.getTransitionCount();
+            lastSettings = ExplorationSettings.manual(1, settings.getStatesPerThread());
+            return results;
+        } catch (CancellationException e) {
+            if (checkpoint) {
+                LOGGER.log(Level.INFO,
+                        "Exploration checkpointed to " + ExplorationCheckpoint.pathFor(transitions));
+            } else {
+                deleteTemporaryFiles(transitions, states);
+            }
+            throw e;
+        }
+    }
 
+    /**
+     * Resumes the exploration, streaming the states discovered before the checkpoint from the states binary
+     *
+     * @param explorer   explorer writing to the binaries
+     * @param checkpoint checkpoint to resume from, its binaries already truncated to it
+     * @param states     states binary
+     * @return state space explorer results
+     * @throws TimelessTrapException unable to exit cyclic vanishing state
+     * @throws IOException error doing IO
+     * @throws InvalidRateException functional rate expression invalid
+     */
+    private static StateSpaceExplorer.StateSpaceExplorerResults resume(CheckpointingStateSpaceExplorer explorer,
+                                                                       ExplorationCheckpoint checkpoint, Path states)
+            throws IOException, TimelessTrapException, InvalidRateException {
+        try (InputStream stateStream = Files.newInputStream(states);
+             Input stateInput = new Input(stateStream)) {
+            return explorer.resume(checkpoint, new KryoStateIO(), stateInput);
+        }
     }
 
     /**
-     * @return Path for state space transitions
-     * @throws IOException if IO error occurs 
+     * Deletes the temporary state space files of an exploration, used when it is aborted
+     * and its partial results are of no use
+     *
+     * @param transitions transitions binary written by the exploration
+     * @param states      states binary written by the exploration
      */
-    private Path getTransitionsPath() throws IOException {
-        return loadFromBinariesRadio.isSelected() ? binaryTransitions : Files.createTempFile("transitions", ".tmp");
+    private static void deleteTemporaryFiles(Path transitions, Path states) {
+        try {
+            Files.deleteIfExists(transitions);
+            Files.deleteIfExists(states);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete temporary state space files", e);
+        }
     }
 
     /**
-     * @return Path for state space states
-     * @throws IOException if IO error occurs 
+     * Loads the transitions and states from binaries
+     *
+     * @param source binaries chosen by the user
+     * @return state space explorer results
+     * @throws IOException if IO error
+     * @throws StateSpaceLoaderException if no binaries have been chosen or they cannot be loaded
      */
-    private Path getStatesPath() throws IOException {
-        return loadFromBinariesRadio.isSelected() ? binaryStates : Files.createTempFile("states", ".tmp");
+    private StateSpaceExplorer.StateSpaceExplorerResults loadFromBinaries(Source source)
+            throws IOException, StateSpaceLoaderException {
+        if (source.getTransitions() == null || source.getStates() == null) {
+            throw new StateSpaceLoaderException("Please load the transitions and states binaries.");
+        }
+        StateReader stateReader = new KryoStateIO();
+        temporaryTransitions = source.getTransitions();
+        temporaryStates = source.getStates();
+        return processBinaryResults(stateReader, temporaryTransitions);
+
     }
 
     /**
@@ -314,7 +598,8 @@ public class StateSpaceLoader {
      * @param stateWriter writer
      * @param transitions to write
      * @param states to write
-     * @param threads number of worker threads to use
+     * @param settings how to spread work across threads
+     * @param progress exploration progress
      * @return state space explorer results 
      * @throws TimelessTrapException unable to exit cyclic vanishing state
      * @throws InterruptedException  thread interrupted
@@ -322,24 +607,30 @@ public class StateSpaceLoader {
      * @throws IOException error doing IO
      * @throws InvalidRateException functional rate expression invalid
      */
-    private StateSpaceExplorer.StateSpaceExplorerResults generateStateSpace(StateWriter stateWriter, Path transitions,
-                                                                            Path states, PetriNet petriNet,
-                                                                            ExplorerUtilities explorerUtils,
-                                                                            VanishingExplorer vanishingExplorer,
-                                                                            int threads)
+    static StateSpaceExplorer.StateSpaceExplorerResults generateStateSpace(StateWriter stateWriter, Path transitions,
+                                                                           Path states, PetriNet petriNet,
+                                                                           ExplorerUtilities explorerUtils,
+                                                                           VanishingExplorer vanishingExplorer,
+                                                                           ExplorationSettings settings,
+                                                                           ExplorationProgress progress)
             throws IOException, TimelessTrapException, ExecutionException, InvalidRateException, InterruptedException {
         try (OutputStream transitionStream = Files.newOutputStream(transitions);
              OutputStream stateStream = Files.newOutputStream(states)) {
             try (Output transitionOutput = new Output(transitionStream);
                  Output stateOutput = new Output(stateStream)) {
                 return writeStateSpace(stateWriter, transitionOutput, stateOutput, petriNet, explorerUtils,
-                        vanishingExplorer, threads);
+                        vanishingExplorer, settings, progress);
             }
         }
     }
 
     /**
-     * Processes the binary results and returns their state space
+     * Processes the binary results and returns their state space.
+     * <p>
+     * Binaries saved with a summary footer are answered straight from the footer and plain
+     * binaries saved with a summary file alongside them from that file. Any other binaries
+     * are counted in a single streaming pass without holding on to their records.
+     * </p>
      *
      * @param stateReader reader 
      * @param transitions to process
@@ -349,12 +640,26 @@ public class StateSpaceLoader {
      */
     private StateSpaceExplorer.StateSpaceExplorerResults processBinaryResults(StateReader stateReader, Path transitions)
             throws IOException, StateSpaceLoaderException {
+        if (CompressedStateSpace.isCompressedTransitions(transitions)) {
+            try {
+                CompressedStateSpace.Summary summary = CompressedStateSpace.readSummary(transitions);
+                transitionCount = summary.transitions;
+                stateCount = summary.states;
+                return new StateSpaceExplorer.StateSpaceExplorerResults(clamp(summary.transitions), summary.states);
+            } catch (IOException e) {
+                throw new StateSpaceLoaderException("Could not read compressed binaries.", e);
+            }
+        }
+        CompressedStateSpace.Summary saved = CompressedStateSpace.readSavedSummary(transitions);
+        if (saved != null) {
+            transitionCount = saved.transitions;
+            stateCount = saved.states;
+            return new StateSpaceExplorer.StateSpaceExplorerResults(clamp(saved.transitions), saved.states);
+        }
         try (InputStream inputStream = Files.newInputStream(transitions);
              Input transitionInput = new Input(inputStream)) {
             try {
-                Collection<Record> records = readResults(stateReader, transitionInput);
-                int transitionCount = getTransitionCount(records);
-                return new StateSpaceExplorer.StateSpaceExplorerResults(transitionCount, records.size());
+                return countStateSpace(stateReader, transitionInput);
             } catch (IOException e) {
                 throw new StateSpaceLoaderException(
                         "Could not parse binaries.\nAre you sure they were generated using the PIPE 5 state space explorer module?",
@@ -370,8 +675,9 @@ public class StateSpaceLoader {
      * @param transitionOutput  stream to write state space to
      * @param stateOutput       stream to write state integer mappings to
      * @param explorerUtilites  explorer utilities
-     * @param threads number of worker threads to use
+     * @param settings how to spread work across threads
      * @param vanishingExplorer 
+     * @param progress exploration progress
      * @return state space explorer results 
      * @throws TimelessTrapException unable to exit cyclic vanishing state
      * @throws InterruptedException  thread interrupted
@@ -379,22 +685,58 @@ public class StateSpaceLoader {
      * @throws IOException error doing IO
      * @throws InvalidRateException functional rate expression invalid
      */
-    private StateSpaceExplorer.StateSpaceExplorerResults writeStateSpace(StateWriter stateWriter,
-                                                                         Output transitionOutput, Output stateOutput,
-                                                                         PetriNet petriNet,
-                                                                         ExplorerUtilities explorerUtilites,
-                                                                         VanishingExplorer vanishingExplorer, int threads)
+    private static StateSpaceExplorer.StateSpaceExplorerResults writeStateSpace(StateWriter stateWriter,
+                                                                                Output transitionOutput, Output stateOutput,
+                                                                                PetriNet petriNet,
+                                                                                ExplorerUtilities explorerUtilites,
+                                                                                VanishingExplorer vanishingExplorer,
+                                                                                ExplorationSettings settings,
+                                                                                ExplorationProgress progress)
             throws TimelessTrapException, ExecutionException, InterruptedException, IOException, InvalidRateException {
-        StateProcessor processor = new StateIOProcessor(stateWriter, transitionOutput, stateOutput);
-        StateSpaceExplorer stateSpaceExplorer = getStateSpaceExplorer(explorerUtilites, vanishingExplorer, processor, threads);
+        StateProcessor processor = new ProgressStateProcessor(
+                new StateIOProcessor(stateWriter, transitionOutput, stateOutput), progress);
+        StateSpaceExplorer stateSpaceExplorer = getStateSpaceExplorer(explorerUtilites, vanishingExplorer, processor, settings);
         return stateSpaceExplorer.generate(explorerUtilites.getCurrentState());
     }
 
-    private StateSpaceExplorer getStateSpaceExplorer( ExplorerUtilities explorerUtilites, VanishingExplorer vanishingExplorer, StateProcessor stateProcessor, int threads) {
-        if (threads == 1) {
+    private static StateSpaceExplorer getStateSpaceExplorer( ExplorerUtilities explorerUtilites, VanishingExplorer vanishingExplorer, StateProcessor stateProcessor, ExplorationSettings settings) {
+        if (settings.getThreads() == 1) {
             return new SequentialStateSpaceExplorer(explorerUtilites, vanishingExplorer, stateProcessor);
         }
-        return new  MassiveParallelStateSpaceExplorer(explorerUtilites, vanishingExplorer, stateProcessor, threads, STATES_PER_THREAD);
+        return new  MassiveParallelStateSpaceExplorer(explorerUtilites, vanishingExplorer, stateProcessor,
+                settings.getThreads(), settings.getStatesPerThread());
+    }
+
+    /**
+     * @return settings used to generate the current state space, null if it was loaded from binaries
+     */
+    public ExplorationSettings getLastSettings() {
+        return lastSettings;
+    }
+
+    /**
+     * @return metrics of the exploration that generated the current state space, null if it was
+     * loaded from binaries
+     */
+    public ExplorationMetrics getLastMetrics() {
+        return lastMetrics;
+    }
+
+    /**
+     * Asks the user where to save the metrics of the last exploration and writes them as JSON
+     *
+     * @return file the metrics were written to, or null if the user cancelled
+     * @throws IOException if there are no metrics or they cannot be written
+     */
+    public Path saveMetrics() throws IOException {
+        if (lastMetrics == null) {
+            throw new IOException("No state space has been explored to save metrics for");
+        }
+        Path target = chooseSaveLocation("Select location to save the exploration metrics to");
+        if (target != null) {
+            lastMetrics.writeJson(target);
+        }
+        return target;
     }
 
     /**
@@ -411,15 +753,42 @@ public class StateSpaceLoader {
     }
 
     /**
-     * @param records to process
-     * @return the number of transitions in the state space
+     * Counts the states and transitions of a transitions binary, reading
+     * one record at a time so that none are retained
+     *
+     * @param stateReader reader
+     * @param input to process
+     * @return state space explorer results
+     * @throws IOException error doing IO
      */
-    private int getTransitionCount(Iterable<Record> records) {
-        int sum = 0;
-        for (Record record : records) {
-            sum += record.successors.size();
+    private StateSpaceExplorer.StateSpaceExplorerResults countStateSpace(StateReader stateReader, Input input)
+            throws IOException {
+        int states = 0;
+        long transitions = 0;
+        while (!input.eof()) {
+            Record record = stateReader.readRecord(input);
+            states++;
+            transitions += record.successors.size();
         }
-        return sum;
+        transitionCount = transitions;
+        stateCount = states;
+        return new StateSpaceExplorer.StateSpaceExplorerResults(clamp(transitions), states);
+    }
+
+    /**
+     * @param transitions number of transitions
+     * @return the number of transitions if it fits in an int, otherwise {@link Integer#MAX_VALUE}
+     */
+    static int clamp(long transitions) {
+        return (int) Math.min(transitions, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return number of transitions in the current state space, unlike the results returned when it
+     * was calculated this does not overflow for state spaces with more than 2<sup>31</sup> transitions
+     */
+    public long getTransitionCount() {
+        return transitionCount;
     }
 
     /**
@@ -431,57 +800,232 @@ public class StateSpaceLoader {
      */
     public Results loadStateSpace() throws StateSpaceLoaderException, IOException {
         KryoStateIO stateReader = new KryoStateIO();
+        if (CompressedStateSpace.isCompressedTransitions(temporaryTransitions)) {
+            try (InputStream stateInputStream = CompressedStateSpace.openStates(temporaryStates);
+                 Input stateInput = new Input(stateInputStream)) {
+                Collection<Record> records =
+                        new ArrayList<>(new CompressedRecordReader(stateReader, temporaryTransitions));
+                StateStore states = readStateStore(stateReader, stateInput);
+                return new Results(records, states);
+            }
+        }
         try (InputStream inputStream = Files.newInputStream(temporaryTransitions);
-             InputStream stateInputStream = Files.newInputStream(temporaryStates);
+             InputStream stateInputStream = CompressedStateSpace.openStates(temporaryStates);
              Input transitionInput = new Input(inputStream);
              Input stateInput = new Input(stateInputStream)) {
             Collection<Record> records = readResults(stateReader, transitionInput);
-            Map<Integer, ClassifiedState> stateMap = readMappings(stateReader, stateInput);
-            return new Results(records, stateMap);
+            StateStore states = readStateStore(stateReader, stateInput);
+            return new Results(records, states);
         }
     }
 
     /**
-     * Reads results of the mapping of an integer state representation to
-     * the Classified State it represents
+     * Loads the state space in streaming mode. The transition records are memory mapped
+     * and only deserialized as they are accessed, so the state space need not fit in the heap.
      *
-     * @param stateReader reader 
-     * @param input to process
-     * @return state mappings
+     * @return results whose records are lazily read from the transitions binary
      * @throws IOException error doing IO
+     * @throws StateSpaceLoaderException if error during loading from binaries
      */
-    private Map<Integer, ClassifiedState> readMappings(StateReader stateReader, Input input) throws IOException {
-        MultiStateReader reader = new EntireStateReader(stateReader);
-        return reader.readStates(input);
+    public Results streamStateSpace() throws StateSpaceLoaderException, IOException {
+        KryoStateIO stateReader = new KryoStateIO();
+        try (InputStream stateInputStream = CompressedStateSpace.openStates(temporaryStates);
+             Input stateInput = new Input(stateInputStream)) {
+            Collection<Record> records = openRecords(stateReader, temporaryTransitions);
+            try {
+                return new Results(records, readStateStore(stateReader, stateInput));
+            } catch (IOException | RuntimeException e) {
+                try {
+                    closeRecords(records);
+                } catch (IOException closeException) {
+                    e.addSuppressed(closeException);
+                }
+                throw e;
+            }
+        }
     }
 
-    public void saveBinaryFiles() {
-        if (temporaryStates != null && temporaryTransitions != null) {
-            copyFile(temporaryTransitions, "Select location for temporary transitions");
-            copyFile(temporaryStates, "Select location for temporary states");
+    /**
+     * @param stateReader reader used to deserialize records
+     * @param transitions compressed or uncompressed transitions binary
+     * @return lazily read records of the transitions binary
+     * @throws IOException error doing IO
+     */
+    private Collection<Record> openRecords(StateReader stateReader, Path transitions) throws IOException {
+        if (CompressedStateSpace.isCompressedTransitions(transitions)) {
+            return new CompressedRecordReader(stateReader, transitions);
+        }
+        return new MappedRecordReader(stateReader, transitions);
+    }
+
+    /**
+     * Streams the states binary into a {@link StateStore}, one state at a time so that
+     * no map of state objects is built along the way
+     *
+     * @param stateReader reader
+     * @param input       states binary to read
+     * @return store of every state in the binary
+     * @throws IOException error doing IO or if the states do not all have the same places
+     */
+    private static StateStore readStateStore(StateReader stateReader, Input input) throws IOException {
+        StateStore store = new StateStore();
+        while (!input.eof()) {
+            StateRecord record = stateReader.readState(input);
+            try {
+                store.add(record.getStateId(), record.getState());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("States binary is inconsistent: " + e.getMessage(), e);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * @return true if there are state space binaries that can be saved
+     */
+    public boolean hasBinaries() {
+        return temporaryStates != null && temporaryTransitions != null;
+    }
+
+    /**
+     * @return true if saved binaries should be written in the {@link CompressedStateSpace} format
+     */
+    public boolean isCompressBinariesChecked() {
+        return compressBinariesCheckBox.isSelected();
+    }
+
+    /**
+     * Asks the user where to save one of the state space binaries
+     *
+     * @param message displayed in the save file dialog
+     * @return path selected by the user, or null if none was selected
+     */
+    public Path chooseBinarySaveLocation(String message) {
+        return chooseSaveLocation(message);
+    }
+
+    /**
+     * Saves the state space binaries to the given locations. By default they are copied in
+     * the plain Kryo format written by the explorer so that every version of PIPE can load
+     * them, with a summary file alongside the transitions so that loading them again does not
+     * have to count every record. Only if compress is true are they written in the
+     * {@link CompressedStateSpace} format, which holds its own summary but which older versions
+     * of PIPE cannot load. Binaries that were loaded in that format are saved unchanged.
+     * <p>
+     * Compressing a large state space takes a while so this should be called off the event
+     * dispatch thread. A binary that fails or is cancelled part way through is deleted.
+     * </p>
+     *
+     * @param transitions location to save the transitions binary, or null to skip it
+     * @param states      location to save the states binary, or null to skip it
+     * @param compress    true to compress the saved binaries
+     * @param progress    updated as records are written, cancelling it stops the save
+     * @throws IOException if there are no binaries or they could not be saved
+     */
+    public void saveBinaryFiles(Path transitions, Path states, boolean compress, ExplorationProgress progress)
+            throws IOException {
+        Path sourceTransitions = temporaryTransitions;
+        Path sourceStates = temporaryStates;
+        if (sourceTransitions == null || sourceStates == null) {
+            throw new IOException("No state space has been generated to save");
+        }
+        if (transitions != null) {
+            try {
+                if (compress && !CompressedStateSpace.isCompressedTransitions(sourceTransitions)) {
+                    CompressedStateSpace.writeTransitions(new KryoStateIO(), sourceTransitions, transitions,
+                            progress);
+                } else {
+                    Files.copy(sourceTransitions, transitions, StandardCopyOption.REPLACE_EXISTING);
+                    if (!CompressedStateSpace.isCompressedTransitions(transitions)) {
+                        CompressedStateSpace.writeSummary(transitions,
+                                new CompressedStateSpace.Summary(stateCount, transitionCount));
+                    }
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(transitions);
+                Files.deleteIfExists(CompressedStateSpace.summaryPathFor(transitions));
+                throw e;
+            }
+        }
+        if (states != null) {
+            try {
+                if (compress && !CompressedStateSpace.isCompressedStates(sourceStates)) {
+                    CompressedStateSpace.writeStates(sourceStates, states, progress);
+                } else {
+                    Files.copy(sourceStates, states, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(states);
+                throw e;
+            }
+        }
+    }
+
+
+    /**
+     * Asks the user where to export the state space to
+     *
+     * @param format format that will be exported
+     * @return path selected by the user with the format's extension, or null if none was selected
+     */
+    public Path chooseExportLocation(StateSpaceExporter.Format format) {
+        Path target = chooseSaveLocation("Select location to export the state space to");
+        if (target == null || StateSpaceExporter.Format.forFileName(target.toString()) == format) {
+            return target;
+        }
+        return target.resolveSibling(target.getFileName() + format.getExtension());
+    }
+
+    /**
+     * Streams the current state space to a file, the transitions are read one record
+     * at a time so they need not fit in memory
+     *
+     * @param states   explored states
+     * @param format   format to export to
+     * @param target   file to export to
+     * @param progress updated as records are written, cancelling it stops the export
+     * @return number of transitions exported
+     * @throws IOException error doing IO
+     */
+    public long exportStateSpace(StateStore states, StateSpaceExporter.Format format, Path target,
+                                 ExplorationProgress progress) throws IOException {
+        if (temporaryTransitions == null) {
+            throw new IOException("No state space has been generated to export");
+        }
+        Collection<Record> records = openRecords(new KryoStateIO(), temporaryTransitions);
+        try {
+            return StateSpaceExporter.export(records, states, format, target, progress);
+        } finally {
+            closeRecords(records);
         }
     }
 
+    /**
+     * Releases the transitions binary if the records are read from it lazily
+     *
+     * @param records records returned by {@link #openRecords}
+     * @throws IOException if the records cannot be released
+     */
+    private static void closeRecords(Collection<Record> records) throws IOException {
+        if (records instanceof Closeable) {
+            ((Closeable) records).close();
+        }
+    }
 
     /**
-     * @param temporary path to copy to new location
      * @param message   displayed message in save file dialog pop up
+     * @return path selected by the user, or null if none was selected
      */
-    private void copyFile(Path temporary, String message) {
+    private Path chooseSaveLocation(String message) {
         loadDialog.setMode(FileDialog.SAVE);
         loadDialog.setTitle(message);
         loadDialog.setVisible(true);
 
         File[] files = loadDialog.getFiles();
         if (files.length > 0) {
-            File file = files[0];
-            Path path = Paths.get(file.toURI());
-            try {
-                Files.copy(temporary, path, StandardCopyOption.REPLACE_EXISTING);
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, e.getMessage());
-            }
+            return Paths.get(files[0].toURI());
         }
+        return null;
     }
 
     public void addPetriNetRadioListener(ActionListener listener) {
@@ -493,6 +1037,43 @@ public class StateSpaceLoader {
         loadFromBinariesRadio.addActionListener(listener);
     }
 
+    /**
+     * @param listener notified when checkpointing or resuming is selected or deselected
+     */
+    public void addCheckpointListener(ItemListener listener) {
+        checkpointCheckBox.addItemListener(listener);
+        resumeCheckBox.addItemListener(listener);
+    }
+
+    /**
+     * Checkpointed and disk backed explorations are only supported by the sequential explorer, so
+     * they run on a single thread whatever thread settings are requested
+     *
+     * @param diskBacked true if the explored states are to be kept on disk
+     * @return why the next exploration will run on a single thread, or null if the thread settings apply
+     */
+    public String getSingleThreadedReason(boolean diskBacked) {
+        if (loadFromBinariesRadio.isSelected()) {
+            return null;
+        }
+        return singleThreadedReason(checkpointCheckBox.isSelected() || resumeCheckBox.isSelected(), diskBacked);
+    }
+
+    /**
+     * @param checkpoint true if the exploration writes or resumes from a checkpoint
+     * @param diskBacked true if the explored states are kept on disk
+     * @return why the exploration runs on a single thread, or null if it can run in parallel
+     */
+    private static String singleThreadedReason(boolean checkpoint, boolean diskBacked) {
+        if (checkpoint) {
+            return "Checkpointed explorations run on a single thread";
+        }
+        if (diskBacked) {
+            return "Disk backed explorations run on a single thread";
+        }
+        return null;
+    }
+
     /**
      * Used in place of a lambda to create the explorer utilities needed for generating the
      * state space from a Petri net
@@ -501,6 +1082,36 @@ public class StateSpaceLoader {
         ExplorerUtilities create(PetriNet petriNet);
     }
 
+    /**
+     * Explorer creator whose explorations keep their explored set outside of the heap. Such
+     * explorations run sequentially and are limited by the explored set rather than the heap
+     */
+    public interface DiskBackedExplorerCreator extends ExplorerCreator {
+        /**
+         * @return empty explored set for a new exploration, it is closed once the exploration ends
+         * @throws IOException if the explored set cannot be created
+         */
+        ExploredStateSet createExploredSet() throws IOException;
+    }
+
+    /**
+     * @param creator creator of the explorer utilities
+     * @return creator whose explorations keep their explored set in a {@link MappedExploredStateSet}
+     */
+    public static DiskBackedExplorerCreator diskBacked(final ExplorerCreator creator) {
+        return new DiskBackedExplorerCreator() {
+            @Override
+            public ExploredStateSet createExploredSet() throws IOException {
+                return MappedExploredStateSet.create();
+            }
+
+            @Override
+            public ExplorerUtilities create(PetriNet petriNet) {
+                return creator.create(petriNet);
+            }
+        };
+    }
+
 
     /**
      * Used in place of a lambda to create the vanishing utilities needed for
@@ -511,28 +1122,139 @@ public class StateSpaceLoader {
     }
 
     /**
-     * State space exploration results
+     * Where a state space is loaded or explored from, captured from the loader's options
+     */
+    public static final class Source {
+        /**
+         * True if the state space is loaded from binaries
+         */
+        private final boolean fromBinaries;
+
+        /**
+         * Transitions binary to load, null if none has been chosen
+         */
+        private final Path transitions;
+
+        /**
+         * States binary to load, null if none has been chosen
+         */
+        private final Path states;
+
+        /**
+         * Petri net to explore, null if loading from binaries or none has been loaded
+         */
+        private final PetriNet petriNet;
+
+        /**
+         * True if the Petri net is the one currently being edited rather than loaded from a file
+         */
+        private final boolean existingPetriNet;
+
+        /**
+         * True if the exploration writes checkpoints
+         */
+        private final boolean checkpointed;
+
+        /**
+         * Checkpoint to resume from, null to start a new exploration
+         */
+        private final Path resumeCheckpoint;
+
+        private Source(boolean fromBinaries, Path transitions, Path states, PetriNet petriNet,
+                       boolean existingPetriNet, boolean checkpointed, Path resumeCheckpoint) {
+            this.fromBinaries = fromBinaries;
+            this.transitions = transitions;
+            this.states = states;
+            this.petriNet = petriNet;
+            this.existingPetriNet = existingPetriNet;
+            this.checkpointed = checkpointed;
+            this.resumeCheckpoint = resumeCheckpoint;
+        }
+
+        /**
+         * @return true if the state space is loaded from binaries
+         */
+        public boolean isFromBinaries() {
+            return fromBinaries;
+        }
+
+        /**
+         * @return transitions binary to load, null if none has been chosen
+         */
+        public Path getTransitions() {
+            return transitions;
+        }
+
+        /**
+         * @return states binary to load, null if none has been chosen
+         */
+        public Path getStates() {
+            return states;
+        }
+
+        /**
+         * @return Petri net to explore, null if loading from binaries or none has been loaded
+         */
+        public PetriNet getPetriNet() {
+            return petriNet;
+        }
+
+        /**
+         * @return true if the Petri net is the one currently being edited
+         */
+        public boolean isExistingPetriNet() {
+            return existingPetriNet;
+        }
+
+        /**
+         * @return true if the exploration writes checkpoints, always the case when resuming
+         */
+        public boolean isCheckpointed() {
+            return checkpointed;
+        }
+
+        /**
+         * @return checkpoint to resume from, null to start a new exploration
+         */
+        public Path getResumeCheckpoint() {
+            return resumeCheckpoint;
+        }
+    }
+
+    /**
+     * State space exploration results, closing them releases any file the records are read from
      */
-    public class Results {
+    public class Results implements Closeable {
         /**
          * Transition records
          */
         public final Collection<Record> records;
 
         /**
-         * Classified state mappings
+         * Dense store of the explored states indexed by their id
          */
-        public final Map<Integer, ClassifiedState> stateMappings;
+        public final StateStore states;
 
         /**
          * Constructor
          *
          * @param records of results
-         * @param stateMappings state mappings 
+         * @param states explored states
          */
-        public Results(Collection<Record> records, Map<Integer, ClassifiedState> stateMappings) {
+        public Results(Collection<Record> records, StateStore states) {
             this.records = records;
-            this.stateMappings = stateMappings;
+            this.states = states;
+        }
+
+        /**
+         * Releases the transitions binary if the records are read from it lazily, the records
+         * must not be used afterwards
+         *
+         * @throws IOException if the records cannot be released
+         */
+        @Override
+        public void close() throws IOException {
+            closeRecords(records);
         }
     }
 }
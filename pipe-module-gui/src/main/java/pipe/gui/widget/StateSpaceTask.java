@@ -0,0 +1,102 @@
+package pipe.gui.widget;
+
+import javax.swing.*;
+import java.awt.Component;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs state space generation and analysis off the Swing event dispatch thread.
+ * <p>
+ * Subclasses perform the long running work in {@link #compute(ExplorationProgress)}, which
+ * is run on a background thread, and update the GUI with the result in {@link #display(Object)},
+ * which is run on the event dispatch thread once the work has finished.
+ * </p>
+ *
+ * @param <T> result of the background computation
+ */
+public abstract class StateSpaceTask<T> extends SwingWorker<T, Void> {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(StateSpaceTask.class.getName());
+
+    /**
+     * Progress of the exploration, shared with the exploration so that it can be cancelled
+     */
+    private final ExplorationProgress progress = new ExplorationProgress();
+
+    /**
+     * Parent component for error dialogs
+     */
+    private final Component parent;
+
+    /**
+     * @param parent component for displaying error dialogs
+     */
+    protected StateSpaceTask(Component parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @return progress of the exploration
+     */
+    public ExplorationProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Stops the exploration, interrupting the background thread
+     */
+    public void stop() {
+        progress.cancel();
+        cancel(true);
+    }
+
+    @Override
+    protected final T doInBackground() throws Exception {
+        progress.start();
+        return compute(progress);
+    }
+
+    @Override
+    protected final void done() {
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            display(get());
+        } catch (InterruptedException | CancellationException e) {
+            LOGGER.log(Level.INFO, "State space generation cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof StateSpaceLoaderException) {
+                JOptionPane.showMessageDialog(parent, cause.getMessage(), "GSPN Analysis Error",
+                        JOptionPane.ERROR_MESSAGE);
+            } else if (!(cause instanceof CancellationException) && !(cause instanceof InterruptedException)) {
+                LOGGER.log(Level.SEVERE, "State space generation failed", cause);
+                String message = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+                JOptionPane.showMessageDialog(parent, "State space generation failed:\n" + message,
+                        "GSPN Analysis Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Performs the state space generation and analysis, called on a background thread
+     *
+     * @param progress to pass to the state space loader
+     * @return result to display
+     * @throws Exception if the generation or analysis fails
+     */
+    protected abstract T compute(ExplorationProgress progress) throws Exception;
+
+    /**
+     * Displays the result, called on the event dispatch thread
+     *
+     * @param result of the background computation
+     */
+    protected abstract void display(T result);
+}
@@ -0,0 +1,328 @@
+package pipe.gui.widget;
+
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dense, integer indexed store of the states of an explored state space.
+ * <p>
+ * The state space explorer numbers states sequentially from zero so states are stored by their id
+ * with the token counts of every place and token colour packed into pages of primitive ints,
+ * rather than boxing each id into a {@link Map} of {@link ClassifiedState} objects.
+ * </p><p>
+ * Places and token colours are taken from the first state added and are kept in sorted order,
+ * a later state with different places or token colours is rejected. A net without places
+ * stores no token counts at all.
+ * </p>
+ */
+public final class StateStore {
+    /**
+     * Number of bits used to index into a page of token counts
+     */
+    private static final int PAGE_BITS = 20;
+
+    /**
+     * Number of token counts held by each page
+     */
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /**
+     * Mask used to find the index of a token count within its page
+     */
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * Number of token counts the first page starts with, it doubles as states are added
+     * until it reaches PAGE_SIZE so that small state spaces do not allocate a whole page
+     */
+    private static final int INITIAL_PAGE_SIZE = 1024;
+
+    /**
+     * Sorted place ids
+     */
+    private List<String> places = Collections.emptyList();
+
+    /**
+     * Sorted token ids
+     */
+    private List<String> tokens = Collections.emptyList();
+
+    /**
+     * Index of each place in places
+     */
+    private final Map<String, Integer> placeIndexes = new HashMap<>();
+
+    /**
+     * Index of each token in tokens
+     */
+    private final Map<String, Integer> tokenIndexes = new HashMap<>();
+
+    /**
+     * Number of token counts stored for each state, i.e. places * tokens
+     */
+    private int stride;
+
+    /**
+     * Pages of token counts, the count for a state, place and token lives at
+     * (id * stride) + (place * tokens) + token
+     */
+    private int[][] pages = new int[0][];
+
+    /**
+     * Ids of the states held in this store
+     */
+    private final BitSet present = new BitSet();
+
+    /**
+     * Ids of the tangible states held in this store
+     */
+    private final BitSet tangible = new BitSet();
+
+    /**
+     * Number of states held in this store
+     */
+    private int size;
+
+    /**
+     * Adds the state to the store, copying its token counts into the packed representation
+     *
+     * @param id    state id
+     * @param state state to add
+     * @throws IllegalArgumentException if the state's places or token colours differ from the store's
+     */
+    public void add(int id, ClassifiedState state) {
+        if (size == 0) {
+            initialise(state);
+        } else if (state.getPlaces().size() != places.size()) {
+            throw new IllegalArgumentException(
+                    "State " + id + " has " + state.getPlaces().size() + " places but the store has " + places.size());
+        }
+        if (stride > 0) {
+            ensureCapacity(id);
+        }
+        long base = (long) id * stride;
+        for (String place : state.getPlaces()) {
+            Integer placeIndex = placeIndexes.get(place);
+            if (placeIndex == null) {
+                throw new IllegalArgumentException("State " + id + " has place " + place + " which the store does not");
+            }
+            for (Map.Entry<String, Integer> entry : state.getTokens(place).entrySet()) {
+                Integer tokenIndex = tokenIndexes.get(entry.getKey());
+                if (tokenIndex == null) {
+                    throw new IllegalArgumentException(
+                            "State " + id + " has token " + entry.getKey() + " which the store does not");
+                }
+                if (entry.getValue() != null) {
+                    set(base + placeIndex * tokens.size() + tokenIndex, entry.getValue());
+                }
+            }
+        }
+        if (!present.get(id)) {
+            present.set(id);
+            size++;
+        }
+        tangible.set(id, state.isTangible());
+    }
+
+    /**
+     * Sets up the places and tokens from the first state added, the tokens are those
+     * found on any of its places
+     *
+     * @param state first state
+     */
+    private void initialise(ClassifiedState state) {
+        List<String> sortedPlaces = new ArrayList<>(state.getPlaces());
+        Collections.sort(sortedPlaces);
+        Set<String> tokenSet = new HashSet<>();
+        for (String place : sortedPlaces) {
+            tokenSet.addAll(state.getTokens(place).keySet());
+        }
+        List<String> sortedTokens = new ArrayList<>(tokenSet);
+        Collections.sort(sortedTokens);
+        places = Collections.unmodifiableList(sortedPlaces);
+        tokens = Collections.unmodifiableList(sortedTokens);
+        for (int i = 0; i < places.size(); i++) {
+            placeIndexes.put(places.get(i), i);
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            tokenIndexes.put(tokens.get(i), i);
+        }
+        stride = places.size() * tokens.size();
+    }
+
+    /**
+     * Allocates enough pages to hold the token counts of the state with the given id. The first
+     * page is grown by doubling until it is full size, every later page is allocated in full
+     *
+     * @param id state id
+     */
+    private void ensureCapacity(int id) {
+        long required = ((long) id + 1) * stride;
+        int pageCount = (int) ((required + PAGE_SIZE - 1) >>> PAGE_BITS);
+        if (pageCount > pages.length) {
+            int oldLength = pages.length;
+            pages = Arrays.copyOf(pages, pageCount);
+            for (int page = Math.max(oldLength, 1); page < pages.length; page++) {
+                pages[page] = new int[PAGE_SIZE];
+            }
+        }
+        int firstPageSize = pageCount > 1 ? PAGE_SIZE : (int) required;
+        int[] firstPage = pages[0];
+        if (firstPage == null || firstPage.length < firstPageSize) {
+            int length = firstPage == null ? INITIAL_PAGE_SIZE : firstPage.length;
+            while (length < firstPageSize) {
+                length <<= 1;
+            }
+            pages[0] = firstPage == null ? new int[length] : Arrays.copyOf(firstPage, length);
+        }
+    }
+
+    /**
+     * @param index packed index
+     * @param count token count to store at the index
+     */
+    private void set(long index, int count) {
+        pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)] = count;
+    }
+
+    /**
+     * @param index packed index
+     * @return token count stored at the index
+     */
+    private int get(long index) {
+        return pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)];
+    }
+
+    /**
+     * @return number of states in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return sorted place ids
+     */
+    public List<String> getPlaces() {
+        return places;
+    }
+
+    /**
+     * @return sorted token ids
+     */
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @param place place id
+     * @return index of the place, or -1 if it is not in the store
+     */
+    public int placeIndex(String place) {
+        Integer index = placeIndexes.get(place);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param token token id
+     * @return index of the token, or -1 if it is not in the store
+     */
+    public int tokenIndex(String token) {
+        Integer index = tokenIndexes.get(token);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param id state id
+     * @return true if the state is held in the store
+     */
+    public boolean contains(int id) {
+        return id >= 0 && present.get(id);
+    }
+
+    /**
+     * @param id state id
+     * @return true if the state is tangible
+     */
+    public boolean isTangible(int id) {
+        return tangible.get(id);
+    }
+
+    /**
+     * @param id    state id
+     * @param place index of the place
+     * @param token index of the token
+     * @return number of tokens of the given colour on the place in the state
+     */
+    public int getTokenCount(int id, int place, int token) {
+        return get((long) id * stride + place * tokens.size() + token);
+    }
+
+    /**
+     * Rebuilds a state from its token counts, for analysis that needs the state itself
+     *
+     * @param id state id
+     * @return state with the same marking and classification as the one added with the id
+     */
+    public ClassifiedState getState(int id) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        for (int place = 0; place < places.size(); place++) {
+            for (int token = 0; token < tokens.size(); token++) {
+                builder.placeWithToken(places.get(place), tokens.get(token), getTokenCount(id, place, token));
+            }
+        }
+        return tangible.get(id) ? HashedClassifiedState.tangibleState(builder.build()) :
+                HashedClassifiedState.vanishingState(builder.build());
+    }
+
+    /**
+     * @return the id of the first state in the store, or -1 if it is empty
+     */
+    public int firstId() {
+        return present.nextSetBit(0);
+    }
+
+    /**
+     * Used to iterate through the states in ascending id order without boxing, e.g.
+     * {@code for (int id = store.firstId(); id >= 0; id = store.nextId(id))}
+     *
+     * @param id current state id
+     * @return the id of the next state in the store, or -1 if there are no more
+     */
+    public int nextId(int id) {
+        return present.nextSetBit(id + 1);
+    }
+
+    /**
+     * @param id state id
+     * @return textual representation of the state's marking
+     */
+    public String describe(int id) {
+        StringBuilder builder = new StringBuilder("{");
+        for (int place = 0; place < places.size(); place++) {
+            if (place > 0) {
+                builder.append(", ");
+            }
+            builder.append(places.get(place)).append(": {");
+            for (int token = 0; token < tokens.size(); token++) {
+                if (token > 0) {
+                    builder.append(", ");
+                }
+                builder.append(tokens.get(token)).append(": ").append(getTokenCount(id, place, token));
+            }
+            builder.append('}');
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,73 @@
+package pipe.gui.analysis;
+
+import org.junit.Test;
+import uk.ac.imperial.state.Record;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RateMatrixTest {
+
+    private static final double DELTA = 1e-12;
+
+    @Test
+    public void numbersStatesInIdOrder() {
+        RateMatrix matrix = RateMatrix.of(Arrays.asList(record(30, 10, 1.0), record(10, 20, 1.0)));
+        assertEquals(3, matrix.size());
+        Map<Integer, Double> distribution = matrix.toMap(new double[]{0.1, 0.2, 0.7});
+        assertEquals(0.1, distribution.get(10), DELTA);
+        assertEquals(0.2, distribution.get(20), DELTA);
+        assertEquals(0.7, distribution.get(30), DELTA);
+    }
+
+    @Test
+    public void sumsExitRatesIgnoringSelfLoops() {
+        Record record = record(0, 1, 2.0);
+        record.successors.put(0, 5.0);
+        record.successors.put(2, 3.0);
+        RateMatrix matrix = RateMatrix.of(Arrays.asList(record));
+        assertEquals(5.0, matrix.exitRates[0], DELTA);
+        assertEquals(0.0, matrix.exitRates[1], DELTA);
+        assertEquals(1, matrix.incomingStart[2] - matrix.incomingStart[1]);
+    }
+
+    @Test
+    public void residualIsZeroForSteadyState() {
+        RateMatrix matrix = RateMatrix.of(birthDeath());
+        assertEquals(0.0, matrix.residual(new double[]{1.0 / 7, 2.0 / 7, 4.0 / 7}), DELTA);
+        assertTrue(matrix.residual(new double[]{1.0 / 3, 1.0 / 3, 1.0 / 3}) > 0.1);
+    }
+
+    @Test
+    public void missingStatesHaveZeroProbability() {
+        RateMatrix matrix = RateMatrix.of(birthDeath());
+        Map<Integer, Double> distribution = new HashMap<>();
+        distribution.put(20, 0.5);
+        assertArrayEquals(new double[]{0, 0.5, 0}, matrix.toArray(distribution), DELTA);
+    }
+
+    /**
+     * @return chain 10 - 20 - 30 whose rates double to the right, with steady state 1/7, 2/7, 4/7
+     */
+    static List<Record> birthDeath() {
+        Record middle = record(20, 10, 1.0);
+        middle.successors.put(30, 2.0);
+        return Arrays.asList(record(10, 20, 2.0), middle, record(30, 20, 1.0));
+    }
+
+    /**
+     * @param state     state id
+     * @param successor successor id
+     * @param rate      rate to the successor
+     * @return record with a single, modifiable, successor
+     */
+    static Record record(int state, int successor, double rate) {
+        Map<Integer, Double> successors = new HashMap<>();
+        successors.put(successor, rate);
+        return new Record(state, successors);
+    }
+}
@@ -0,0 +1,129 @@
+package pipe.gui.analysis;
+
+import org.junit.Before;
+import org.junit.Test;
+import pipe.gui.widget.StateStore;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StateTableModelTest {
+
+    /**
+     * Probability of each state, states 1 and 4 are equally likely
+     */
+    private static final double[] PROBABILITIES = {0.1, 0.3, 0.05, 0.25, 0.3};
+
+    StateTableModel model;
+
+    @Before
+    public void setUp() {
+        StateStore states = new StateStore();
+        Map<Integer, Double> steadyState = new HashMap<>();
+        for (int id = 0; id < PROBABILITIES.length; id++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("P0", "Default", id % 3);
+            builder.placeWithToken("P1", "Default", id);
+            states.add(id, HashedClassifiedState.tangibleState(builder.build()));
+            steadyState.put(id, PROBABILITIES[id]);
+        }
+        model = new StateTableModel(states, steadyState);
+    }
+
+    @Test
+    public void showsEveryStateInIdOrder() {
+        assertEquals(5, model.getStateCount());
+        assertRows(0, 1, 2, 3, 4);
+        assertEquals(0.25, (Double) model.getValueAt(3, StateTableModel.PROBABILITY_COLUMN), 0);
+        assertEquals(2, model.getValueAt(2, column("P0")));
+        assertEquals(4, model.getValueAt(4, column("P1")));
+    }
+
+    @Test
+    public void filtersByMarking() {
+        model.setFilter("P0 = 1");
+        assertRows(1, 4);
+        assertEquals(5, model.getStateCount());
+        model.setFilter("P0 = 0, P1 > 0");
+        assertRows(3);
+        model.setFilter("");
+        assertRows(0, 1, 2, 3, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidFilter() {
+        model.setFilter("P9 = 1");
+    }
+
+    @Test
+    public void sortsStablyAndReversesOnSecondToggle() {
+        model.toggleSort(StateTableModel.PROBABILITY_COLUMN);
+        assertEquals(StateTableModel.PROBABILITY_COLUMN, model.getSortColumn());
+        assertTrue(model.isAscending());
+        assertRows(2, 0, 3, 1, 4);
+        model.toggleSort(StateTableModel.PROBABILITY_COLUMN);
+        assertFalse(model.isAscending());
+        assertRows(1, 4, 3, 0, 2);
+    }
+
+    @Test
+    public void sortsByTokenCount() {
+        model.toggleSort(column("P0"));
+        assertRows(0, 3, 1, 4, 2);
+    }
+
+    @Test
+    public void sortingByAnotherColumnStartsAscending() {
+        model.toggleSort(StateTableModel.PROBABILITY_COLUMN);
+        model.toggleSort(StateTableModel.PROBABILITY_COLUMN);
+        model.toggleSort(StateTableModel.STATE_COLUMN);
+        assertTrue(model.isAscending());
+        assertRows(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    public void topNKeepsMostProbableStates() {
+        model.setTopN(3);
+        assertRows(1, 4, 3);
+        model.setTopN(10);
+        assertRows(0, 1, 2, 3, 4);
+        model.setTopN(0);
+        assertRows(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    public void topNAppliesAfterFilterAndBeforeSort() {
+        model.setFilter("P0 = 0");
+        model.setTopN(1);
+        assertRows(3);
+        model.setFilter("");
+        model.setTopN(3);
+        model.toggleSort(StateTableModel.STATE_COLUMN);
+        assertRows(1, 3, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeTopN() {
+        model.setTopN(-1);
+    }
+
+    private void assertRows(int... ids) {
+        assertEquals(ids.length, model.getRowCount());
+        for (int row = 0; row < ids.length; row++) {
+            assertEquals(ids[row], model.getValueAt(row, StateTableModel.STATE_COLUMN));
+        }
+    }
+
+    private int column(String name) {
+        for (int column = 0; column < model.getColumnCount(); column++) {
+            if (model.getColumnName(column).equals(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("No column " + name);
+    }
+}
@@ -0,0 +1,255 @@
+package pipe.gui.analysis;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pipe.gui.widget.StateStore;
+import pipe.steadystate.metrics.TokenMetrics;
+import pipe.steadystate.metrics.TransitionMetrics;
+import uk.ac.imperial.pipe.models.petrinet.ColoredToken;
+import uk.ac.imperial.pipe.models.petrinet.DiscretePlace;
+import uk.ac.imperial.pipe.models.petrinet.DiscreteTransition;
+import uk.ac.imperial.pipe.models.petrinet.InboundInhibitorArc;
+import uk.ac.imperial.pipe.models.petrinet.InboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.NormalRate;
+import uk.ac.imperial.pipe.models.petrinet.OutboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.awt.Color;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class SteadyStateMetricsTest {
+
+    private static final double DELTA = 1e-12;
+
+    /**
+     * Tokens cycling between two places, giving a state space above the parallel threshold
+     */
+    private static final int CYCLE_TOKENS = 12000;
+
+    /**
+     * Relative tolerance when the sums over a large state space are added in a different order
+     */
+    private static final double RELATIVE_DELTA = 1e-9;
+
+    /**
+     * Two tokens move from P0 to P1 through T0 and back through T1, T2 loops on P2 while P1 is empty
+     */
+    PetriNet petriNet;
+
+    Place p1;
+
+    Transition t0;
+
+    Map<Integer, ClassifiedState> stateSpace;
+
+    Map<Integer, Double> steadyState;
+
+    StateStore store;
+
+    ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+        petriNet = new PetriNet();
+        petriNet.addToken(new ColoredToken("Default", Color.BLACK));
+        Place p0 = place("P0", 2);
+        p1 = place("P1", 0);
+        Place p2 = place("P2", 1);
+        t0 = transition("T0", "2");
+        Transition t1 = transition("T1", "3");
+        Transition t2 = transition("T2", "5");
+        petriNet.addArc(new InboundNormalArc(p0, t0, weight(1)));
+        petriNet.addArc(new OutboundNormalArc(t0, p1, weight(1)));
+        petriNet.addArc(new InboundNormalArc(p1, t1, weight(1)));
+        petriNet.addArc(new OutboundNormalArc(t1, p0, weight(1)));
+        petriNet.addArc(new InboundNormalArc(p2, t2, weight(1)));
+        petriNet.addArc(new OutboundNormalArc(t2, p2, weight(1)));
+        petriNet.addArc(new InboundInhibitorArc(p1, t2));
+
+        stateSpace = new HashMap<>();
+        steadyState = new HashMap<>();
+        store = new StateStore();
+        addState(0, 2, 0, 9.0 / 19);
+        addState(1, 1, 1, 6.0 / 19);
+        addState(2, 0, 2, 4.0 / 19);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void throughputsMatchTransitionMetrics() throws InterruptedException {
+        assertNotNull(TransitionRates.create(petriNet, store));
+        SteadyStateMetrics metrics = SteadyStateMetrics.compute(store, steadyState, petriNet, null, 1);
+        assertThroughputsMatch(metrics);
+        assertEquals(2 * 15.0 / 19, metrics.getThroughputs().get("T0"), DELTA);
+        assertEquals(5 * 9.0 / 19, metrics.getThroughputs().get("T2"), DELTA);
+    }
+
+    @Test
+    public void functionalRatesMatchTransitionMetrics() throws InterruptedException {
+        t0.setRate(new NormalRate("#(P0)"));
+        assertNull(TransitionRates.create(petriNet, store));
+        assertThroughputsMatch(SteadyStateMetrics.compute(store, steadyState, petriNet, null, 1));
+    }
+
+    @Test
+    public void capacityMatchesTransitionMetrics() throws InterruptedException {
+        p1.setCapacity(2);
+        assertNull(TransitionRates.create(petriNet, store));
+        SteadyStateMetrics metrics = SteadyStateMetrics.compute(store, steadyState, petriNet, null, 1);
+        assertThroughputsMatch(metrics);
+        assertTokensMatch(metrics);
+    }
+
+    @Test
+    public void parallelRangesMatchMetrics() throws Exception {
+        setUpCycle(false);
+        assertNotNull(TransitionRates.create(petriNet, store));
+        SteadyStateMetrics metrics = SteadyStateMetrics.compute(store, steadyState, petriNet, executorService, 4);
+        assertThroughputsMatch(metrics, RELATIVE_DELTA);
+        assertTokensMatch(metrics, RELATIVE_DELTA);
+    }
+
+    @Test
+    public void parallelRangesOnClonedNetsMatchMetrics() throws Exception {
+        setUpCycle(true);
+        assertNull(TransitionRates.create(petriNet, store));
+        SteadyStateMetrics metrics = SteadyStateMetrics.compute(store, steadyState, petriNet, executorService, 4);
+        assertThroughputsMatch(metrics, RELATIVE_DELTA);
+        assertTokensMatch(metrics, RELATIVE_DELTA);
+    }
+
+    @Test
+    public void averageTokensMatchTokenMetrics() throws InterruptedException {
+        SteadyStateMetrics metrics = SteadyStateMetrics.compute(store, steadyState, null, null, 1);
+        assertTokensMatch(metrics);
+        assertTrue(metrics.getThroughputs().isEmpty());
+    }
+
+    @Test
+    public void utilisationIsProbabilityOfTokens() throws InterruptedException {
+        SteadyStateMetrics metrics = SteadyStateMetrics.compute(store, steadyState, null, null, 1);
+        assertEquals(15.0 / 19, metrics.getUtilisation(store.placeIndex("P0")), DELTA);
+        assertEquals(9.0 / 19, metrics.getEmptyProbability(store.placeIndex("P1")), DELTA);
+        assertEquals(1, metrics.getUtilisation(store.placeIndex("P2")), DELTA);
+    }
+
+    /**
+     * Replaces the Petri net with CYCLE_TOKENS tokens moving from P0 to P1 through T0 and back
+     * through T1, with an uneven steady state over its CYCLE_TOKENS + 1 states
+     *
+     * @param infiniteServer true if T0 is an infinite server transition
+     */
+    private void setUpCycle(boolean infiniteServer) {
+        petriNet = new PetriNet();
+        petriNet.addToken(new ColoredToken("Default", Color.BLACK));
+        Place p0 = place("P0", CYCLE_TOKENS);
+        p1 = place("P1", 0);
+        t0 = transition("T0", "2");
+        t0.setInfiniteServer(infiniteServer);
+        Transition t1 = transition("T1", "3");
+        petriNet.addArc(new InboundNormalArc(p0, t0, weight(1)));
+        petriNet.addArc(new OutboundNormalArc(t0, p1, weight(1)));
+        petriNet.addArc(new InboundNormalArc(p1, t1, weight(1)));
+        petriNet.addArc(new OutboundNormalArc(t1, p0, weight(1)));
+
+        stateSpace = new HashMap<>();
+        steadyState = new HashMap<>();
+        store = new StateStore();
+        double total = 0;
+        for (int id = 0; id <= CYCLE_TOKENS; id++) {
+            total += 1 + id % 7;
+        }
+        for (int id = 0; id <= CYCLE_TOKENS; id++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("P0", "Default", CYCLE_TOKENS - id);
+            builder.placeWithToken("P1", "Default", id);
+            ClassifiedState state = HashedClassifiedState.tangibleState(builder.build());
+            stateSpace.put(id, state);
+            steadyState.put(id, (1 + id % 7) / total);
+            store.add(id, state);
+        }
+    }
+
+    private void assertTokensMatch(SteadyStateMetrics metrics) {
+        assertTokensMatch(metrics, 0);
+    }
+
+    private void assertTokensMatch(SteadyStateMetrics metrics, double relativeDelta) {
+        Map<String, Map<String, Double>> expected = TokenMetrics.averageTokensOnPlace(stateSpace, steadyState);
+        for (int place = 0; place < metrics.getPlaces().size(); place++) {
+            for (int token = 0; token < metrics.getTokens().size(); token++) {
+                double average = expected.get(metrics.getPlaces().get(place)).get(metrics.getTokens().get(token));
+                assertEquals(average, metrics.getAverageTokens(place, token), delta(average, relativeDelta));
+            }
+        }
+    }
+
+    private void assertThroughputsMatch(SteadyStateMetrics metrics) {
+        assertThroughputsMatch(metrics, 0);
+    }
+
+    private void assertThroughputsMatch(SteadyStateMetrics metrics, double relativeDelta) {
+        Map<String, Double> expected = TransitionMetrics.getTransitionThroughput(stateSpace, steadyState, petriNet);
+        assertFalse(expected.isEmpty());
+        for (Map.Entry<String, Double> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue(), metrics.getThroughputs().get(entry.getKey()),
+                    delta(entry.getValue(), relativeDelta));
+        }
+        for (Map.Entry<String, Double> entry : metrics.getThroughputs().entrySet()) {
+            if (!expected.containsKey(entry.getKey())) {
+                assertEquals(entry.getKey(), 0, entry.getValue(), DELTA);
+            }
+        }
+    }
+
+    private static double delta(double expected, double relativeDelta) {
+        return Math.max(DELTA, Math.abs(expected) * relativeDelta);
+    }
+
+    private void addState(int id, int p0, int p1, double probability) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", "Default", p0);
+        builder.placeWithToken("P1", "Default", p1);
+        builder.placeWithToken("P2", "Default", 1);
+        ClassifiedState state = HashedClassifiedState.tangibleState(builder.build());
+        stateSpace.put(id, state);
+        steadyState.put(id, probability);
+        store.add(id, state);
+    }
+
+    private Place place(String id, int tokens) {
+        Place place = new DiscretePlace(id, id);
+        place.setTokenCount("Default", tokens);
+        petriNet.addPlace(place);
+        return place;
+    }
+
+    private Transition transition(String id, String rate) {
+        Transition transition = new DiscreteTransition(id, id);
+        transition.setTimed(true);
+        transition.setRate(new NormalRate(rate));
+        petriNet.addTransition(transition);
+        return transition;
+    }
+
+    private static Map<String, String> weight(int tokens) {
+        return Collections.singletonMap("Default", String.valueOf(tokens));
+    }
+}
@@ -0,0 +1,82 @@
+package pipe.gui.analysis;
+
+import org.junit.Test;
+import uk.ac.imperial.state.Record;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SteadyStateSolverTypeTest {
+
+    private static final double DELTA = 1e-8;
+
+    @Test
+    public void gaussSeidelSolvesBirthDeathChain() {
+        assertSolvesBirthDeath(SteadyStateSolverType.GAUSS_SEIDEL);
+    }
+
+    @Test
+    public void jacobiSolvesBirthDeathChain() {
+        assertSolvesBirthDeath(SteadyStateSolverType.JACOBI);
+    }
+
+    @Test
+    public void powerMethodSolvesBirthDeathChain() {
+        assertSolvesBirthDeath(SteadyStateSolverType.POWER);
+    }
+
+    @Test
+    public void directSolvesBirthDeathChain() {
+        TelemetrySteadyStateSolver solver = assertSolvesBirthDeath(SteadyStateSolverType.DIRECT);
+        assertEquals("Direct", solver.getTelemetry().getSolverName());
+        assertEquals(1, solver.getTelemetry().getIterations());
+    }
+
+    @Test
+    public void directReportsFallbackForLargeStateSpaces() {
+        int size = DirectSteadyStateSolver.MAX_DIRECT_STATES + 1;
+        List<Record> cycle = new ArrayList<>();
+        for (int state = 0; state < size; state++) {
+            cycle.add(RateMatrixTest.record(state, (state + 1) % size, 1.0));
+        }
+        TelemetrySteadyStateSolver solver = create(SteadyStateSolverType.DIRECT);
+        Map<Integer, Double> steadyState = solver.solve(cycle);
+        assertEquals(1.0 / size, steadyState.get(size - 1), DELTA);
+        assertTrue(solver.getTelemetry().getSolverName().startsWith("Gauss-Seidel"));
+    }
+
+    @Test
+    public void reportsNonConvergence() {
+        TelemetrySteadyStateSolver solver =
+                SteadyStateSolverType.POWER.create(SteadyStateSolverType.DEFAULT_TOLERANCE, 1, 1, null);
+        solver.solve(RateMatrixTest.birthDeath());
+        assertFalse(solver.getTelemetry().isConverged());
+        assertEquals(1, solver.getTelemetry().getIterations());
+    }
+
+    @Test
+    public void onlyParallelGaussSeidelIgnoresMaxIterations() {
+        for (SteadyStateSolverType type : SteadyStateSolverType.values()) {
+            assertEquals(type.toString(), type != SteadyStateSolverType.PARALLEL_GAUSS_SEIDEL,
+                    type.honoursMaxIterations());
+        }
+    }
+
+    private static TelemetrySteadyStateSolver assertSolvesBirthDeath(SteadyStateSolverType type) {
+        TelemetrySteadyStateSolver solver = create(type);
+        Map<Integer, Double> steadyState = solver.solve(RateMatrixTest.birthDeath());
+        assertEquals(1.0 / 7, steadyState.get(10), DELTA);
+        assertEquals(2.0 / 7, steadyState.get(20), DELTA);
+        assertEquals(4.0 / 7, steadyState.get(30), DELTA);
+        assertTrue(solver.getTelemetry().isConverged());
+        return solver;
+    }
+
+    private static TelemetrySteadyStateSolver create(SteadyStateSolverType type) {
+        return type.create(SteadyStateSolverType.DEFAULT_TOLERANCE, SteadyStateSolverType.DEFAULT_MAX_ITERATIONS,
+                1, null);
+    }
+}
@@ -0,0 +1,119 @@
+package pipe.gui.reachability;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.state.Record;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class BarnesHutLayoutTest {
+
+    ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void sameSeedGivesSameLayout() throws InterruptedException {
+        StateGraph graph = cycle(50);
+        assertSameLayout(layout(graph, 7, 1, null), layout(graph, 7, 1, null));
+    }
+
+    @Test
+    public void layoutDoesNotDependOnThreads() throws InterruptedException {
+        StateGraph graph = cycle(2500);
+        BarnesHutLayout sequential = new BarnesHutLayout(7, 20, 1, null);
+        BarnesHutLayout parallel = new BarnesHutLayout(7, 20, 4, executorService);
+        assertSameLayout(sequential.layout(graph), parallel.layout(graph));
+    }
+
+    @Test
+    public void singleStateStaysFinite() throws InterruptedException {
+        GraphLayout layout = layout(cycle(1), 7, 1, null);
+        assertEquals(1, layout.size());
+        assertFalse(Float.isNaN(layout.getX(0)) || Float.isInfinite(layout.getX(0)));
+        assertFalse(Float.isNaN(layout.getY(0)) || Float.isInfinite(layout.getY(0)));
+    }
+
+    @Test
+    public void connectedStatesEndUpCloserThanUnconnectedOnes() throws InterruptedException {
+        // Two separate cycles of ten states
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < 20; state++) {
+            int first = state < 10 ? 0 : 10;
+            records.add(record(state, first + (state - first + 1) % 10));
+        }
+        GraphLayout layout = layout(StateGraph.of(records), 7, 1, null);
+        double neighbours = 0;
+        double strangers = 0;
+        for (int state = 0; state < 10; state++) {
+            neighbours += distance(layout, state, (state + 1) % 10);
+            strangers += distance(layout, state, state + 10);
+        }
+        assertTrue(neighbours < strangers);
+    }
+
+    @Test
+    public void laysOutSubsetByPosition() throws InterruptedException {
+        StateGraph graph = cycle(10);
+        GraphLayout layout = new BarnesHutLayout(7, 50, 1, null).layout(graph, new int[]{2, 3, 4});
+        assertEquals(3, layout.size());
+        assertTrue(distance(layout, 0, 1) < 3 * GraphLayout.SPACING);
+    }
+
+    @Test
+    public void relaxedCycleHasEvenlySpacedNeighbours() throws InterruptedException {
+        GraphLayout layout = layout(cycle(12), 7, 1, null);
+        for (int state = 0; state < 12; state++) {
+            double length = distance(layout, state, (state + 1) % 12);
+            assertTrue("Edge " + state + " has length " + length,
+                    length > GraphLayout.SPACING / 4 && length < GraphLayout.SPACING * 4);
+        }
+    }
+
+    private static GraphLayout layout(StateGraph graph, long seed, int threads, ExecutorService executorService)
+            throws InterruptedException {
+        return new BarnesHutLayout(seed, BarnesHutLayout.DEFAULT_ITERATIONS, threads, executorService).layout(graph);
+    }
+
+    private static void assertSameLayout(GraphLayout expected, GraphLayout actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int state = 0; state < expected.size(); state++) {
+            assertEquals(expected.getX(state), actual.getX(state), 0);
+            assertEquals(expected.getY(state), actual.getY(state), 0);
+        }
+    }
+
+    private static double distance(GraphLayout layout, int from, int to) {
+        return Math.hypot(layout.getX(from) - layout.getX(to), layout.getY(from) - layout.getY(to));
+    }
+
+    private static StateGraph cycle(int size) {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < size; state++) {
+            records.add(record(state, (state + 1) % size));
+        }
+        return StateGraph.of(records);
+    }
+
+    private static Record record(int state, int successor) {
+        Map<Integer, Double> successors = new HashMap<>(Collections.singletonMap(successor, 1.0));
+        return new Record(state, successors);
+    }
+}
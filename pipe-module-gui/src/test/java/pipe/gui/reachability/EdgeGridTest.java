@@ -0,0 +1,98 @@
+package pipe.gui.reachability;
+
+import org.junit.Test;
+import uk.ac.imperial.state.Record;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EdgeGridTest {
+
+    /**
+     * States are laid out on a SIDE by SIDE lattice GraphLayout.SPACING apart
+     */
+    private static final int SIDE = 11;
+
+    private final Map<Integer, Map<Integer, Double>> successors = new HashMap<>();
+
+    @Test
+    public void findsTransitionCrossingRegionWithNeitherStateInside() {
+        addTransition(state(0, 5), state(10, 5));
+        EdgeGrid edges = edges();
+        assertArrayEquals(new int[]{0}, query(edges, 290, 290, 310, 310));
+        assertArrayEquals(new int[0], query(edges, 290, 100, 310, 120));
+    }
+
+    @Test
+    public void reportsEachTransitionOnce() {
+        addTransition(state(0, 0), state(3, 3));
+        addTransition(state(3, 3), state(0, 0));
+        addTransition(state(5, 5), state(6, 5));
+        int[] found = query(edges(), 0, 0, 600, 600);
+        Arrays.sort(found);
+        assertArrayEquals(new int[]{0, 1, 2}, found);
+    }
+
+    @Test
+    public void testsLongTransitionsAgainstRegion() {
+        addTransition(state(0, 0), state(10, 4));
+        EdgeGrid edges = edges();
+        assertEquals(1, edges.getLongEdgeCount());
+        assertArrayEquals(new int[]{0}, query(edges, 290, 100, 310, 120));
+        assertArrayEquals(new int[0], query(edges, 290, 500, 310, 520));
+    }
+
+    @Test
+    public void ignoresTransitionsToTheSameState() {
+        addTransition(state(2, 2), state(2, 2));
+        assertArrayEquals(new int[0], query(edges(), 0, 0, 600, 600));
+    }
+
+    @Test
+    public void stopsWhenBufferIsFull() {
+        for (int column = 0; column < SIDE - 1; column++) {
+            addTransition(state(column, 0), state(column + 1, 0));
+        }
+        assertEquals(3, edges().query(0, 0, 600, 600, new int[3]));
+    }
+
+    private int[] query(EdgeGrid edges, float minX, float minY, float maxX, float maxY) {
+        int[] found = new int[100];
+        return Arrays.copyOf(found, edges.query(minX, minY, maxX, maxY, found));
+    }
+
+    private void addTransition(int from, int to) {
+        Map<Integer, Double> stateSuccessors = successors.get(from);
+        if (stateSuccessors == null) {
+            stateSuccessors = new HashMap<>();
+            successors.put(from, stateSuccessors);
+        }
+        stateSuccessors.put(to, 1.0);
+    }
+
+    private EdgeGrid edges() {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < SIDE * SIDE; state++) {
+            Map<Integer, Double> stateSuccessors = successors.get(state);
+            records.add(new Record(state, stateSuccessors == null ? new HashMap<Integer, Double>() : stateSuccessors));
+        }
+        StateGraph graph = StateGraph.of(records);
+        float[] x = new float[SIDE * SIDE];
+        float[] y = new float[SIDE * SIDE];
+        for (int state = 0; state < x.length; state++) {
+            x[state] = state % SIDE * GraphLayout.SPACING;
+            y[state] = state / SIDE * GraphLayout.SPACING;
+        }
+        GraphLayout layout = new GraphLayout(x, y);
+        return new EdgeGrid(graph, layout, new SpatialGrid(layout));
+    }
+
+    private static int state(int column, int row) {
+        return row * SIDE + column;
+    }
+}
@@ -0,0 +1,64 @@
+package pipe.gui.reachability;
+
+import org.junit.Test;
+import pipe.gui.widget.StateStore;
+import uk.ac.imperial.state.Record;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GraphLabelsTest {
+
+    @Test
+    public void eachNodeIsLabelledWithItsOwnState() {
+        TangibleStateNode tangible = new TangibleStateNode(3);
+        VanishingStateNode vanishing = new VanishingStateNode(7);
+        assertEquals("3", tangible.getLabel());
+        assertEquals("7", vanishing.getLabel());
+        assertEquals("4", new TangibleStateNode(4).getLabel());
+        assertSame(tangible.getLabel(), tangible.getLabel());
+        assertSame(vanishing.getLabel(), vanishing.getLabel());
+    }
+
+    @Test
+    public void eachEdgeIsLabelledWithItsOwnRate() {
+        TangibleStateNode from = new TangibleStateNode(0);
+        TangibleStateNode to = new TangibleStateNode(1);
+        DirectedTextEdge slow = new DirectedTextEdge(from, to, 0.5);
+        DirectedTextEdge fast = new DirectedTextEdge(to, from, 2.25);
+        assertEquals(LabelCache.formatRate(0.5), slow.getText());
+        assertEquals(LabelCache.formatRate(2.25), fast.getText());
+        assertSame(slow.getText(), slow.getText());
+    }
+
+    @Test
+    public void paneLabelsEachTransitionAndStateOfTheCurrentGraph() {
+        LevelOfDetailGraphPane pane = new LevelOfDetailGraphPane();
+        pane.setGraph(graph(0.5, 2.25), layout(), new StateStore());
+        assertEquals(LabelCache.formatRate(0.5), pane.rateLabel(0));
+        assertEquals(LabelCache.formatRate(2.25), pane.rateLabel(1));
+        assertEquals("0", pane.stateLabel(0));
+        assertEquals("1", pane.stateLabel(1));
+
+        pane.setGraph(graph(4, 8), layout(), new StateStore());
+        assertEquals(LabelCache.formatRate(4), pane.rateLabel(0));
+        assertEquals(LabelCache.formatRate(8), pane.rateLabel(1));
+    }
+
+    /**
+     * @return two states with a transition each way, the first at the given rate and the second at the other
+     */
+    private static StateGraph graph(double there, double back) {
+        List<Record> records = new ArrayList<>();
+        records.add(new Record(0, Collections.singletonMap(1, there)));
+        records.add(new Record(1, Collections.singletonMap(0, back)));
+        return StateGraph.of(records);
+    }
+
+    private static GraphLayout layout() {
+        return new GraphLayout(new float[]{0, GraphLayout.SPACING}, new float[]{0, 0});
+    }
+}
@@ -0,0 +1,26 @@
+package pipe.gui.reachability;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LabelCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondCapacity() {
+        LabelCache<Integer> cache = new LabelCache<>(2);
+        cache.put(1, "1");
+        cache.put(2, "2");
+        cache.get(1);
+        cache.put(3, "3");
+        assertEquals(2, cache.size());
+        assertTrue(cache.containsKey(1));
+        assertFalse(cache.containsKey(2));
+        assertTrue(cache.containsKey(3));
+    }
+
+    @Test
+    public void formatsRatesToTwoDecimalPlaces() {
+        assertEquals(String.format("%.2f", 1.5), LabelCache.formatRate(1.5));
+    }
+}
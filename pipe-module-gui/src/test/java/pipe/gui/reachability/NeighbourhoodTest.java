@@ -0,0 +1,95 @@
+package pipe.gui.reachability;
+
+import org.junit.Test;
+import uk.ac.imperial.state.Record;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class NeighbourhoodTest {
+
+    /**
+     * Chain 0 -> 1 -> ... -> 9 where 9 is a deadlock
+     */
+    private final StateGraph chain = chain(10);
+
+    @Test
+    public void expandsSuccessors() {
+        Neighbourhood neighbourhood = new Neighbourhood(chain, 100);
+        neighbourhood.add(4);
+        neighbourhood.expand(2, Neighbourhood.Direction.SUCCESSORS);
+        assertArrayEquals(new int[]{4, 5, 6}, neighbourhood.getStates());
+        assertFalse(neighbourhood.isTruncated());
+    }
+
+    @Test
+    public void expandsPredecessors() {
+        Neighbourhood neighbourhood = new Neighbourhood(chain, 100);
+        neighbourhood.add(4);
+        neighbourhood.expand(2, Neighbourhood.Direction.PREDECESSORS);
+        assertArrayEquals(new int[]{2, 3, 4}, neighbourhood.getStates());
+    }
+
+    @Test
+    public void expandsBothWays() {
+        Neighbourhood neighbourhood = new Neighbourhood(chain, 100);
+        neighbourhood.add(4);
+        neighbourhood.expand(1, Neighbourhood.Direction.BOTH);
+        assertArrayEquals(new int[]{3, 4, 5}, neighbourhood.getStates());
+        neighbourhood.expand(1, Neighbourhood.Direction.BOTH);
+        assertArrayEquals(new int[]{2, 3, 4, 5, 6}, neighbourhood.getStates());
+    }
+
+    @Test
+    public void expandsSingleStateOnDemand() {
+        Neighbourhood neighbourhood = new Neighbourhood(chain, 100);
+        neighbourhood.add(0);
+        neighbourhood.expandState(8, Neighbourhood.Direction.SUCCESSORS);
+        assertTrue(neighbourhood.contains(9));
+        assertEquals(2, neighbourhood.size());
+        assertEquals(9, neighbourhood.nextState(1));
+    }
+
+    @Test
+    public void stopsAtMaximumSize() {
+        Neighbourhood neighbourhood = new Neighbourhood(chain, 3);
+        neighbourhood.add(0);
+        neighbourhood.expand(5, Neighbourhood.Direction.SUCCESSORS);
+        assertEquals(3, neighbourhood.size());
+        assertTrue(neighbourhood.isTruncated());
+        assertEquals(0, neighbourhood.getDroppedStarts());
+    }
+
+    @Test
+    public void countsStartStatesLeftOutWhenFull() {
+        Neighbourhood neighbourhood = new Neighbourhood(chain, 3);
+        for (int state = 0; state < 10; state++) {
+            neighbourhood.add(state);
+        }
+        neighbourhood.add(1);
+        assertEquals(3, neighbourhood.size());
+        assertEquals(7, neighbourhood.getDroppedStarts());
+        assertTrue(neighbourhood.isTruncated());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsStateOutsideGraph() {
+        new Neighbourhood(chain, 100).add(10);
+    }
+
+    private static StateGraph chain(int size) {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < size; state++) {
+            Map<Integer, Double> successors = new HashMap<>();
+            if (state + 1 < size) {
+                successors.put(state + 1, 1.0);
+            }
+            records.add(new Record(state, successors));
+        }
+        return StateGraph.of(records);
+    }
+}
@@ -0,0 +1,120 @@
+package pipe.gui.widget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AnalysisExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    AnalysisExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new AnalysisExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void reusesPoolForSameOrFewerThreads() {
+        ExecutorService pool = executor.get(4);
+        assertSame(pool, executor.get(4));
+        assertSame(pool, executor.get(2));
+        assertSame(pool, executor.get(0));
+    }
+
+    @Test
+    public void growsPoolWhenMoreThreadsAreRequested() throws InterruptedException {
+        ExecutorService small = executor.get(1);
+        ExecutorService large = executor.get(3);
+        assertNotSame(small, large);
+        assertTrue(small.isShutdown());
+        assertSame(large, executor.get(3));
+
+        CountDownLatch running = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            large.submit(waitFor(running, release));
+        }
+        assertTrue("Three tasks should run at once", running.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void growingLetsTasksOnTheOldPoolFinish() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> task = executor.get(1).submit(waitFor(running, release));
+        assertTrue(running.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        executor.get(2);
+        release.countDown();
+        assertTrue(task.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownInterruptsRunningTasks() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        ExecutorService pool = executor.get(1);
+        Future<Boolean> task = pool.submit(waitFor(running, new CountDownLatch(1)));
+        assertTrue(running.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(pool.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        try {
+            task.get();
+            fail("Running task should have been interrupted");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+    }
+
+    @Test
+    public void createsNewPoolAfterShutdown() {
+        ExecutorService first = executor.get(2);
+        executor.shutdown();
+        executor.shutdown();
+        assertTrue(first.isShutdown());
+        ExecutorService second = executor.get(2);
+        assertNotSame(first, second);
+        assertFalse(second.isShutdown());
+    }
+
+    @Test
+    public void runsOnDaemonThreads() throws Exception {
+        Future<Boolean> daemon = executor.get(1).submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return Thread.currentThread().isDaemon();
+            }
+        });
+        assertTrue(daemon.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * @param running counted down once the task starts
+     * @param release waited on by the task
+     * @return task that blocks until it is released or interrupted
+     */
+    private static Callable<Boolean> waitFor(final CountDownLatch running, final CountDownLatch release) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws InterruptedException {
+                running.countDown();
+                return release.await(TIMEOUT_SECONDS * 2, TimeUnit.SECONDS);
+            }
+        };
+    }
+}
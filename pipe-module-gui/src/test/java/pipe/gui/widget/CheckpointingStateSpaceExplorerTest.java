@@ -0,0 +1,192 @@
+package pipe.gui.widget;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import pipe.reachability.algorithm.VanishingExplorer;
+import uk.ac.imperial.io.EntireStateReader;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateIOProcessor;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.Record;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CheckpointingStateSpaceExplorerTest {
+
+    /**
+     * Number of states in the cycle being explored
+     */
+    private static final int STATES = 10;
+
+    Path transitions;
+
+    Path states;
+
+    ExplorerUtilities utilities;
+
+    VanishingExplorer vanishingExplorer;
+
+    ExplorationProgress progress;
+
+    /**
+     * Number of states expanded before the exploration cancels itself, or -1 to never cancel
+     */
+    int cancelAfter;
+
+    int expanded;
+
+    @Before
+    public void setUp() throws Exception {
+        transitions = Files.createTempFile("transitions", ".tmp");
+        states = Files.createTempFile("states", ".tmp");
+        progress = new ExplorationProgress();
+        vanishingExplorer = mock(VanishingExplorer.class);
+        utilities = mock(ExplorerUtilities.class);
+        when(utilities.canExploreMore(anyInt())).thenReturn(true);
+        when(utilities.getWeightOfTransitions(any(ClassifiedState.class), anyCollection())).thenReturn(1.0);
+        when(utilities.getSuccessorsWithTransitions(any(ClassifiedState.class))).thenAnswer(
+                new Answer<Map<ClassifiedState, Collection<Transition>>>() {
+                    @Override
+                    public Map<ClassifiedState, Collection<Transition>> answer(InvocationOnMock invocation) {
+                        ClassifiedState state = (ClassifiedState) invocation.getArguments()[0];
+                        if (expanded++ == cancelAfter) {
+                            // What cancelling the task does, the interrupt stands in for cancel(true)
+                            progress.cancel();
+                            Thread.currentThread().interrupt();
+                        }
+                        int next = (tokens(state) + 1) % STATES;
+                        return Collections.singletonMap(state(next), Collections.<Transition>emptyList());
+                    }
+                });
+        cancelAfter = -1;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Thread.interrupted();
+        Files.deleteIfExists(ExplorationCheckpoint.pathFor(transitions));
+        Files.deleteIfExists(transitions);
+        Files.deleteIfExists(states);
+    }
+
+    @Test
+    public void exploresWholeCycle() throws Exception {
+        StateSpaceExplorer.StateSpaceExplorerResults results = run(null, new OpenOption[0]);
+        assertEquals(STATES, results.numberOfStates);
+        assertEquals(STATES, results.processedTransitions);
+        assertFalse(Files.exists(ExplorationCheckpoint.pathFor(transitions)));
+    }
+
+    @Test
+    public void writesCheckpointWhenInterruptedByCancel() throws Exception {
+        cancelAfter = 4;
+        try {
+            run(null, new OpenOption[0]);
+            fail("Exploration should have been cancelled");
+        } catch (CancellationException e) {
+            assertTrue("Interrupt should be restored", Thread.interrupted());
+        }
+        ExplorationCheckpoint checkpoint = ExplorationCheckpoint.read(ExplorationCheckpoint.pathFor(transitions));
+        assertEquals(4, checkpoint.getExpandedStates());
+        assertEquals(5, checkpoint.getDiscoveredStates());
+    }
+
+    @Test
+    public void resumesCancelledExploration() throws Exception {
+        cancelAfter = 4;
+        try {
+            run(null, new OpenOption[0]);
+            fail("Exploration should have been cancelled");
+        } catch (CancellationException e) {
+            Thread.interrupted();
+        }
+
+        ExplorationCheckpoint checkpoint = ExplorationCheckpoint.read(ExplorationCheckpoint.pathFor(transitions));
+        checkpoint.truncateBinaries();
+        progress = new ExplorationProgress();
+        cancelAfter = -1;
+        StateSpaceExplorer.StateSpaceExplorerResults results =
+                run(checkpoint, new OpenOption[]{StandardOpenOption.APPEND});
+
+        assertEquals(STATES, results.numberOfStates);
+        assertEquals(STATES, results.processedTransitions);
+        assertEquals(STATES, readStates().size());
+        assertEquals(STATES, countRecords());
+        assertFalse(Files.exists(ExplorationCheckpoint.pathFor(transitions)));
+    }
+
+    private StateSpaceExplorer.StateSpaceExplorerResults run(ExplorationCheckpoint resumeFrom, OpenOption[] options)
+            throws Exception {
+        try (OutputStream transitionStream = Files.newOutputStream(transitions, options);
+             OutputStream stateStream = Files.newOutputStream(states, options);
+             Output transitionOutput = new Output(transitionStream);
+             Output stateOutput = new Output(stateStream)) {
+            StateProcessor processor = new ProgressStateProcessor(
+                    new StateIOProcessor(new KryoStateIO(), transitionOutput, stateOutput), progress);
+            CheckpointingStateSpaceExplorer explorer =
+                    new CheckpointingStateSpaceExplorer(utilities, vanishingExplorer, processor, transitionOutput,
+                            stateOutput, transitions, states, new HeapExploredStateSet(),
+                            CheckpointingStateSpaceExplorer.DEFAULT_INTERVAL_MILLIS);
+            if (resumeFrom == null) {
+                return explorer.generate(state(0));
+            }
+            try (InputStream stateInputStream = Files.newInputStream(states);
+                 Input stateInput = new Input(stateInputStream)) {
+                return explorer.resume(resumeFrom, new KryoStateIO(), stateInput);
+            }
+        }
+    }
+
+    private Map<Integer, ClassifiedState> readStates() throws Exception {
+        try (InputStream stream = Files.newInputStream(states);
+             Input input = new Input(stream)) {
+            return new HashMap<>(new EntireStateReader(new KryoStateIO()).readStates(input));
+        }
+    }
+
+    private int countRecords() throws Exception {
+        try (InputStream stream = Files.newInputStream(transitions);
+             Input input = new Input(stream)) {
+            Collection<Record> records = new EntireStateReader(new KryoStateIO()).readRecords(input);
+            return records.size();
+        }
+    }
+
+    private static ClassifiedState state(int tokens) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", "Default", tokens);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    private static int tokens(ClassifiedState state) {
+        return state.getTokens("P0").get("Default");
+    }
+}
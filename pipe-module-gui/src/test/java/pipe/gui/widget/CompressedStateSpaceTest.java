@@ -0,0 +1,177 @@
+package pipe.gui.widget;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.io.EntireStateReader;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateIOProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompressedStateSpaceTest {
+
+    /**
+     * Enough states for the transitions to span several blocks
+     */
+    private static final int STATES = 40000;
+
+    Path transitions;
+
+    Path states;
+
+    Path compressedTransitions;
+
+    Path compressedStates;
+
+    ExplorationProgress progress;
+
+    @Before
+    public void setUp() throws IOException {
+        progress = new ExplorationProgress();
+        transitions = Files.createTempFile("transitions", ".tmp");
+        states = Files.createTempFile("states", ".tmp");
+        compressedTransitions = Files.createTempFile("compressed-transitions", ".tmp");
+        compressedStates = Files.createTempFile("compressed-states", ".tmp");
+        try (OutputStream transitionStream = Files.newOutputStream(transitions);
+             OutputStream stateStream = Files.newOutputStream(states);
+             Output transitionOutput = new Output(transitionStream);
+             Output stateOutput = new Output(stateStream)) {
+            StateIOProcessor processor = new StateIOProcessor(new KryoStateIO(), transitionOutput, stateOutput);
+            // Written in descending order so that writing the blocks has to sort them
+            for (int state = STATES - 1; state >= 0; state--) {
+                processor.processTransitions(state, successors(state));
+                processor.processState(state(state), state);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(transitions);
+        Files.deleteIfExists(states);
+        Files.deleteIfExists(compressedTransitions);
+        Files.deleteIfExists(compressedStates);
+        Files.deleteIfExists(CompressedStateSpace.summaryPathFor(transitions));
+    }
+
+    @Test
+    public void legacyBinariesAreNotCompressed() throws IOException {
+        assertFalse(CompressedStateSpace.isCompressedTransitions(transitions));
+        assertFalse(CompressedStateSpace.isCompressedStates(states));
+    }
+
+    @Test
+    public void summaryIsReadFromFooter() throws IOException {
+        CompressedStateSpace.writeTransitions(new KryoStateIO(), transitions, compressedTransitions, progress);
+        assertTrue(CompressedStateSpace.isCompressedTransitions(compressedTransitions));
+        assertFalse(CompressedStateSpace.isCompressedStates(compressedTransitions));
+        CompressedStateSpace.Summary summary = CompressedStateSpace.readSummary(compressedTransitions);
+        assertEquals(STATES, summary.states);
+        assertEquals(2L * STATES, summary.transitions);
+    }
+
+    @Test
+    public void transitionsRoundTripInStateOrder() throws IOException {
+        CompressedStateSpace.writeTransitions(new KryoStateIO(), transitions, compressedTransitions, progress);
+        CompressedRecordReader reader = new CompressedRecordReader(new KryoStateIO(), compressedTransitions);
+        assertEquals(STATES, reader.size());
+        assertEquals(2L * STATES, reader.getTransitionCount());
+        int expected = 0;
+        for (Record record : reader) {
+            assertEquals(expected, record.state);
+            assertEquals(successors(expected), record.successors);
+            expected++;
+        }
+        assertEquals(successors(STATES / 2), reader.getSuccessors(STATES / 2));
+        assertEquals(successors(7), reader.get(7).successors);
+    }
+
+    @Test
+    public void statesRoundTrip() throws IOException {
+        CompressedStateSpace.writeStates(states, compressedStates, progress);
+        assertTrue(CompressedStateSpace.isCompressedStates(compressedStates));
+        assertTrue(Files.size(compressedStates) < Files.size(states));
+        try (InputStream stream = CompressedStateSpace.openStates(compressedStates);
+             Input input = new Input(stream)) {
+            Map<Integer, ClassifiedState> read = new EntireStateReader(new KryoStateIO()).readStates(input);
+            assertEquals(STATES, read.size());
+            assertEquals(state(123), read.get(123));
+        }
+    }
+
+    @Test
+    public void opensLegacyStatesUnchanged() throws IOException {
+        try (InputStream stream = CompressedStateSpace.openStates(states);
+             Input input = new Input(stream)) {
+            assertEquals(STATES, new EntireStateReader(new KryoStateIO()).readStates(input).size());
+        }
+    }
+
+    @Test
+    public void reportsRecordsWritten() throws IOException {
+        CompressedStateSpace.writeTransitions(new KryoStateIO(), transitions, compressedTransitions, progress);
+        assertEquals(STATES, progress.getStates());
+        assertEquals(0, progress.getQueueDepth());
+    }
+
+    @Test(expected = IOException.class)
+    public void stopsWhenCancelled() throws IOException {
+        progress.cancel();
+        CompressedStateSpace.writeTransitions(new KryoStateIO(), transitions, compressedTransitions, progress);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedFooter() throws IOException {
+        CompressedStateSpace.writeTransitions(new KryoStateIO(), transitions, compressedTransitions, progress);
+        byte[] bytes = Files.readAllBytes(compressedTransitions);
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        Files.write(compressedTransitions, truncated);
+        CompressedStateSpace.readSummary(compressedTransitions);
+    }
+
+    @Test
+    public void savedSummaryRoundTrips() throws IOException {
+        assertNull(CompressedStateSpace.readSavedSummary(transitions));
+        CompressedStateSpace.writeSummary(transitions, new CompressedStateSpace.Summary(STATES, 2L * STATES));
+        CompressedStateSpace.Summary summary = CompressedStateSpace.readSavedSummary(transitions);
+        assertEquals(STATES, summary.states);
+        assertEquals(2L * STATES, summary.transitions);
+        assertFalse(CompressedStateSpace.isCompressedTransitions(transitions));
+    }
+
+    @Test
+    public void ignoresSavedSummaryOfOverwrittenBinary() throws IOException {
+        CompressedStateSpace.writeSummary(transitions, new CompressedStateSpace.Summary(STATES, 2L * STATES));
+        Files.write(transitions, new byte[]{1, 2, 3});
+        assertNull(CompressedStateSpace.readSavedSummary(transitions));
+    }
+
+    private static Map<Integer, Double> successors(int state) {
+        Map<Integer, Double> successors = new HashMap<>();
+        successors.put((state + 1) % STATES, 1.0);
+        successors.put((state + 2) % STATES, 0.5 + state % 3);
+        return successors;
+    }
+
+    private static ClassifiedState state(int tokens) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", "Default", tokens);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+}
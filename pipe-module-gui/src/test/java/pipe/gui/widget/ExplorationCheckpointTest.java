@@ -0,0 +1,74 @@
+package pipe.gui.widget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class ExplorationCheckpointTest {
+
+    Path transitions;
+
+    Path states;
+
+    @Before
+    public void setUp() throws IOException {
+        transitions = Files.createTempFile("transitions", ".tmp");
+        states = Files.createTempFile("states", ".tmp");
+        Files.write(transitions, new byte[100]);
+        Files.write(states, new byte[50]);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(ExplorationCheckpoint.pathFor(transitions));
+        Files.deleteIfExists(transitions);
+        Files.deleteIfExists(states);
+    }
+
+    @Test
+    public void readsWhatWasWritten() throws IOException {
+        ExplorationCheckpoint checkpoint = new ExplorationCheckpoint(transitions, states, 60, 30, 12, 7, 19);
+        Path path = ExplorationCheckpoint.pathFor(transitions);
+        checkpoint.write(path);
+
+        ExplorationCheckpoint read = ExplorationCheckpoint.read(path);
+        assertEquals(transitions.toAbsolutePath(), read.getTransitions());
+        assertEquals(states.toAbsolutePath(), read.getStates());
+        assertEquals(60, read.getTransitionBytes());
+        assertEquals(30, read.getStateBytes());
+        assertEquals(12, read.getDiscoveredStates());
+        assertEquals(7, read.getExpandedStates());
+        assertEquals(19, read.getTransitionCount());
+    }
+
+    @Test
+    public void overwritesPreviousCheckpoint() throws IOException {
+        Path path = ExplorationCheckpoint.pathFor(transitions);
+        new ExplorationCheckpoint(transitions, states, 10, 10, 2, 1, 1).write(path);
+        new ExplorationCheckpoint(transitions, states, 20, 20, 4, 2, 3).write(path);
+        assertEquals(4, ExplorationCheckpoint.read(path).getDiscoveredStates());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileThatIsNotCheckpoint() throws IOException {
+        ExplorationCheckpoint.read(states);
+    }
+
+    @Test
+    public void truncatesBinariesToCheckpoint() throws IOException {
+        new ExplorationCheckpoint(transitions, states, 60, 30, 12, 7, 19).truncateBinaries();
+        assertEquals(60, Files.size(transitions));
+        assertEquals(30, Files.size(states));
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesToTruncateShorterBinaries() throws IOException {
+        new ExplorationCheckpoint(transitions, states, 200, 30, 12, 7, 19).truncateBinaries();
+    }
+}
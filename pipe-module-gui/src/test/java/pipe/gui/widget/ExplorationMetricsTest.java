@@ -0,0 +1,81 @@
+package pipe.gui.widget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ExplorationMetricsTest {
+
+    Path transitions;
+
+    Path states;
+
+    Path json;
+
+    @Before
+    public void setUp() throws IOException {
+        transitions = Files.createTempFile("transitions", ".tmp");
+        states = Files.createTempFile("states", ".tmp");
+        json = Files.createTempFile("metrics", ".json");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(transitions);
+        Files.deleteIfExists(states);
+        Files.deleteIfExists(json);
+    }
+
+    @Test
+    public void roundTripsPhaseTimesAndCounts() throws IOException {
+        ExplorationProgress progress = new ExplorationProgress();
+        for (int state = 0; state < 5; state++) {
+            progress.stateFound();
+        }
+        for (int state = 0; state < 5; state++) {
+            progress.stateExpanded(2);
+        }
+        Files.write(transitions, new byte[3000]);
+        Files.write(states, new byte[500]);
+        ExplorationMetrics metrics = progress.getMetrics();
+        metrics.explorationStarted(3);
+        metrics.explorationFinished(progress, transitions, states);
+        metrics.addTime(ExplorationMetrics.Phase.VANISHING, TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.addTime(ExplorationMetrics.Phase.IO, TimeUnit.MILLISECONDS.toNanos(2) + 999);
+        metrics.addTime(ExplorationMetrics.Phase.SOLVE, TimeUnit.MILLISECONDS.toNanos(1234));
+
+        metrics.writeJson(json);
+        ExplorationMetrics read = ExplorationMetrics.readJson(json);
+
+        for (ExplorationMetrics.Phase phase : ExplorationMetrics.Phase.values()) {
+            assertEquals(phase.toString(), metrics.getMillis(phase), read.getMillis(phase));
+        }
+        assertEquals(2, read.getMillis(ExplorationMetrics.Phase.IO));
+        assertEquals(1234, read.getMillis(ExplorationMetrics.Phase.SOLVE));
+        assertEquals(3, read.getThreads());
+        assertEquals(5, read.getStates());
+        assertEquals(10, read.getTransitions());
+        assertEquals(5, read.getPeakFrontier());
+        assertEquals(3500, read.getBytesWritten());
+        assertEquals(metrics.getGcMillis(), read.getGcMillis());
+    }
+
+    @Test
+    public void readsCountsBeyondAnInt() throws IOException {
+        ExplorationMetrics metrics = new ExplorationMetrics();
+        String exported = metrics.toJson().replace("\"transitions\": 0", "\"transitions\": 5000000000");
+        assertEquals(5_000_000_000L, ExplorationMetrics.fromJson(exported).getTransitions());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsJsonWithoutEveryCount() throws IOException {
+        ExplorationMetrics.fromJson("{\"threads\": 2}");
+    }
+}
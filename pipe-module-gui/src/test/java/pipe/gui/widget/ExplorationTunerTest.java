@@ -0,0 +1,95 @@
+package pipe.gui.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ExplorationTunerTest {
+
+    ExplorationTuner tuner;
+
+    ExplorationSettings auto;
+
+    @Before
+    public void setUp() {
+        tuner = new ExplorationTuner();
+        auto = ExplorationSettings.auto(4);
+    }
+
+    @Test
+    public void startsFromDefaultBatchSize() {
+        assertEquals(ExplorationSettings.DEFAULT_STATES_PER_THREAD, tuner.resolve(auto).getStatesPerThread());
+        assertTrue(tuner.resolve(auto).isAutoTuned());
+    }
+
+    @Test
+    public void leavesManualSettingsAlone() {
+        tuner.record(auto, 100000, 4000000);
+        ExplorationSettings manual = ExplorationSettings.manual(4, 7);
+        assertSame(manual, tuner.resolve(manual));
+    }
+
+    @Test
+    public void movesHalfwayTowardsTargetRounds() {
+        // 4000 states per thread per second is 200 states per round at 20 rounds a second
+        tuner.record(auto, 100000, 16000);
+        assertEquals(150, tuner.resolve(auto).getStatesPerThread());
+        tuner.record(auto, 100000, 16000);
+        assertEquals(175, tuner.resolve(auto).getStatesPerThread());
+    }
+
+    @Test
+    public void staysWithinLargestBatchAtHugeThroughput() {
+        int previous = ExplorationSettings.DEFAULT_STATES_PER_THREAD;
+        for (int run = 0; run < 40; run++) {
+            tuner.record(auto, 100000, 1e12);
+            int statesPerThread = tuner.resolve(auto).getStatesPerThread();
+            assertTrue(statesPerThread >= previous);
+            assertTrue(statesPerThread > ExplorationTuner.MAX_STATES_PER_THREAD / 2);
+            assertTrue(statesPerThread <= ExplorationTuner.MAX_STATES_PER_THREAD);
+            previous = statesPerThread;
+        }
+    }
+
+    @Test
+    public void clampsToSmallestBatch() {
+        for (int run = 0; run < 40; run++) {
+            tuner.record(auto, 100000, 1);
+        }
+        assertEquals(ExplorationTuner.MIN_STATES_PER_THREAD, tuner.resolve(auto).getStatesPerThread());
+    }
+
+    @Test
+    public void seedsFromCoreCount() {
+        assertEquals(ExplorationTuner.SEED_STATES_PER_ROUND / 16,
+                tuner.resolve(ExplorationSettings.auto(16)).getStatesPerThread());
+        assertEquals(ExplorationTuner.MIN_STATES_PER_THREAD,
+                tuner.resolve(ExplorationSettings.auto(256)).getStatesPerThread());
+    }
+
+    @Test
+    public void onlyTakesStateCountFromShortRuns() {
+        tuner.record(auto, 999, 1e9);
+        assertEquals(ExplorationTuner.MIN_STATES_PER_THREAD, tuner.resolve(auto).getStatesPerThread());
+    }
+
+    @Test
+    public void seedsFromStateCountOfSingleThreadedRuns() {
+        tuner.record(ExplorationSettings.auto(1), 100000, 16000);
+        assertEquals(100000 / (4 * ExplorationTuner.SEED_ROUNDS), tuner.resolve(auto).getStatesPerThread());
+    }
+
+    @Test
+    public void tunedBatchSizeReplacesSeed() {
+        tuner.record(ExplorationSettings.auto(1), 100000, 16000);
+        tuner.record(auto.withStatesPerThread(100), 100000, 16000);
+        assertEquals(150, tuner.resolve(auto).getStatesPerThread());
+    }
+
+    @Test
+    public void ignoresManualRuns() {
+        tuner.record(ExplorationSettings.manual(4, 7), 100000, 16000);
+        assertEquals(ExplorationSettings.DEFAULT_STATES_PER_THREAD, tuner.resolve(auto).getStatesPerThread());
+    }
+}
@@ -0,0 +1,106 @@
+package pipe.gui.widget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MappedExploredStateSetTest {
+
+    /**
+     * Enough states to grow a four slot table several times
+     */
+    private static final int STATES = 1000;
+
+    Path directory;
+
+    MappedExploredStateSet set;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("explored");
+        set = new MappedExploredStateSet(directory, 4);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        set.close();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void findsStatesAfterGrowing() throws IOException {
+        for (int id = 0; id < STATES; id++) {
+            set.put(state(id), id);
+        }
+        assertEquals(STATES, set.size());
+        for (int id = 0; id < STATES; id++) {
+            assertEquals(id, set.getId(state(id)));
+        }
+    }
+
+    @Test
+    public void returnsMinusOneForUnknownState() throws IOException {
+        for (int id = 0; id < STATES; id++) {
+            set.put(state(id), id);
+        }
+        assertEquals(-1, set.getId(state(STATES)));
+    }
+
+    @Test
+    public void puttingSameStateTwiceKeepsOneEntry() throws IOException {
+        set.put(state(7), 1);
+        set.put(state(7), 2);
+        assertEquals(1, set.size());
+        assertEquals(2, set.getId(state(7)));
+    }
+
+    @Test
+    public void deletesOldTablesWhenGrowing() throws IOException {
+        for (int id = 0; id < STATES; id++) {
+            set.put(state(id), id);
+        }
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    public void deletesTableWhenClosed() throws IOException {
+        set.put(state(0), 0);
+        set.close();
+        assertEquals(0, countFiles());
+    }
+
+    private int countFiles() throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static ClassifiedState state(int tokens) {
+        Map<String, Integer> counts = Collections.singletonMap("Default", tokens);
+        ClassifiedState state = mock(ClassifiedState.class);
+        when(state.getPlaces()).thenReturn(Collections.singleton("P0"));
+        when(state.getTokens("P0")).thenReturn(counts);
+        return state;
+    }
+}
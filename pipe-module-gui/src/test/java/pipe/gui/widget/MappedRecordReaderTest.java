@@ -0,0 +1,173 @@
+package pipe.gui.widget;
+
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateIOProcessor;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MappedRecordReaderTest {
+
+    private static final int STATES = 200;
+
+    Path transitions;
+
+    @Before
+    public void setUp() throws IOException {
+        transitions = Files.createTempFile("transitions", ".tmp");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(transitions);
+    }
+
+    @Test
+    public void readsEveryRecordFromSingleWindow() throws IOException {
+        write(STATES);
+        assertRecords(new MappedRecordReader(new KryoStateIO(), transitions));
+    }
+
+    @Test
+    public void readsRecordsOnEitherSideOfWindowBoundaries() throws IOException {
+        write(STATES);
+        assertRecords(new MappedRecordReader(new KryoStateIO(), transitions, 64));
+    }
+
+    @Test
+    public void readsRecordsWhenEveryRecordHasItsOwnWindow() throws IOException {
+        write(STATES);
+        assertRecords(new MappedRecordReader(new KryoStateIO(), transitions, 1));
+    }
+
+    @Test
+    public void rawRecordsCoverWholeFile() throws IOException {
+        write(STATES);
+        MappedRecordReader reader = new MappedRecordReader(new KryoStateIO(), transitions, 64);
+        long total = 0;
+        for (int index = 0; index < reader.size(); index++) {
+            ByteBuffer raw = reader.getRawRecord(index);
+            assertEquals(0, raw.position());
+            total += raw.remaining();
+        }
+        assertEquals(Files.size(transitions), total);
+    }
+
+    @Test
+    public void countsTransitions() throws IOException {
+        write(STATES);
+        long expected = 0;
+        for (int state = 0; state < STATES; state++) {
+            expected += successors(state).size();
+        }
+        assertEquals(expected, new MappedRecordReader(new KryoStateIO(), transitions, 64).getTransitionCount());
+    }
+
+    @Test
+    public void readsEmptyFile() throws IOException {
+        MappedRecordReader reader = new MappedRecordReader(new KryoStateIO(), transitions, 64);
+        assertEquals(0, reader.size());
+        assertEquals(0, reader.getTransitionCount());
+        assertFalse(reader.iterator().hasNext());
+    }
+
+    @Test
+    public void closingUnmapsEveryWindow() throws IOException {
+        write(STATES);
+        MappedRecordReader reader = new MappedRecordReader(new KryoStateIO(), transitions, 64);
+        Record record = reader.get(3);
+        reader.close();
+        reader.close();
+        assertRecord(3, record);
+        assertEquals(STATES, reader.size());
+        Files.delete(transitions);
+        write(1);
+        try (MappedRecordReader rewritten = new MappedRecordReader(new KryoStateIO(), transitions)) {
+            assertEquals(1, rewritten.size());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsReadsOnceClosed() throws IOException {
+        write(STATES);
+        MappedRecordReader reader = new MappedRecordReader(new KryoStateIO(), transitions, 64);
+        reader.close();
+        reader.get(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsIterationOnceClosed() throws IOException {
+        write(STATES);
+        MappedRecordReader reader = new MappedRecordReader(new KryoStateIO(), transitions, 64);
+        reader.close();
+        reader.iterator().next();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsIndexPastEnd() throws IOException {
+        write(STATES);
+        new MappedRecordReader(new KryoStateIO(), transitions, 64).get(STATES);
+    }
+
+    private void assertRecords(MappedRecordReader reader) {
+        assertEquals(STATES, reader.size());
+        for (int index = STATES - 1; index >= 0; index--) {
+            assertRecord(index, reader.get(index));
+        }
+        Iterator<Record> iterator = reader.iterator();
+        for (int index = 0; index < STATES; index++) {
+            assertRecord(index, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    private static void assertRecord(int state, Record record) {
+        assertEquals(state, record.state);
+        assertEquals(successors(state), record.successors);
+    }
+
+    private void write(int states) throws IOException {
+        try (OutputStream transitionStream = Files.newOutputStream(transitions);
+             Output transitionOutput = new Output(transitionStream);
+             Output stateOutput = new Output(new NullOutputStream())) {
+            StateIOProcessor processor = new StateIOProcessor(new KryoStateIO(), transitionOutput, stateOutput);
+            for (int state = 0; state < states; state++) {
+                processor.processTransitions(state, successors(state));
+            }
+        }
+    }
+
+    /**
+     * @param state state id
+     * @return between zero and four successors so that records differ in size
+     */
+    private static Map<Integer, Double> successors(int state) {
+        Map<Integer, Double> successors = new HashMap<>();
+        for (int i = 0; i < state % 5; i++) {
+            successors.put((state + i + 1) % STATES, 0.5 + i);
+        }
+        return successors;
+    }
+
+    /**
+     * Discards the states binary, only the transitions are read
+     */
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package pipe.gui.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MarkingQueryTest {
+
+    StateStore states;
+
+    @Before
+    public void setUp() {
+        states = new StateStore();
+        // P0 holds id Red and 2 Blue tokens, P1 holds 3 - id Red tokens and none Blue
+        for (int id = 0; id < 4; id++) {
+            states.add(id, state(id, 2, 3 - id));
+        }
+    }
+
+    @Test
+    public void emptyQueryMatchesEveryState() {
+        MarkingQuery query = MarkingQuery.parse(" , ", states);
+        assertTrue(query.isEmpty());
+        for (int id = 0; id < 4; id++) {
+            assertTrue(query.matches(id));
+        }
+    }
+
+    @Test
+    public void sumsEveryTokenColourOfPlace() {
+        MarkingQuery query = MarkingQuery.parse("P0 >= 4", states);
+        assertFalse(query.matches(1));
+        assertTrue(query.matches(2));
+        assertTrue(query.matches(3));
+    }
+
+    @Test
+    public void comparesSingleTokenColour() {
+        MarkingQuery query = MarkingQuery.parse("P0:Red = 1", states);
+        assertFalse(query.matches(0));
+        assertTrue(query.matches(1));
+        assertFalse(query.matches(2));
+    }
+
+    @Test
+    public void supportsEveryOperator() {
+        assertTrue(MarkingQuery.parse("P1 != 3", states).matches(1));
+        assertTrue(MarkingQuery.parse("P1 < 3", states).matches(1));
+        assertTrue(MarkingQuery.parse("P1 <= 2", states).matches(1));
+        assertTrue(MarkingQuery.parse("P1 > 1", states).matches(1));
+        assertFalse(MarkingQuery.parse("P1 > 2", states).matches(1));
+        assertTrue(MarkingQuery.parse("P1>=2", states).matches(1));
+    }
+
+    @Test
+    public void requiresEveryClause() {
+        MarkingQuery query = MarkingQuery.parse("P0:Red >= 1, P1:Red >= 2", states);
+        assertFalse(query.matches(0));
+        assertTrue(query.matches(1));
+        assertFalse(query.matches(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedClause() {
+        MarkingQuery.parse("P0 ~ 1", states);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownPlace() {
+        MarkingQuery.parse("P9 = 1", states);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownToken() {
+        MarkingQuery.parse("P0:Green = 1", states);
+    }
+
+    private static ClassifiedState state(int p0Red, int p0Blue, int p1Red) {
+        Map<String, Integer> p0 = new HashMap<>();
+        p0.put("Red", p0Red);
+        p0.put("Blue", p0Blue);
+        Map<String, Integer> p1 = new HashMap<>();
+        p1.put("Red", p1Red);
+        p1.put("Blue", 0);
+        Map<String, Map<String, Integer>> marking = new HashMap<>();
+        marking.put("P0", p0);
+        marking.put("P1", p1);
+        ClassifiedState state = mock(ClassifiedState.class);
+        when(state.isTangible()).thenReturn(true);
+        when(state.getPlaces()).thenReturn(marking.keySet());
+        when(state.getTokens("P0")).thenReturn(p0);
+        when(state.getTokens("P1")).thenReturn(p1);
+        return state;
+    }
+}
@@ -0,0 +1,119 @@
+package pipe.gui.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+import pipe.reachability.algorithm.StateRateRecord;
+import pipe.reachability.algorithm.VanishingExplorer;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class MemoisingVanishingExplorerTest {
+
+    ClassifiedState vanishing;
+
+    ClassifiedState first;
+
+    ClassifiedState second;
+
+    CountingExplorer delegate;
+
+    @Before
+    public void setUp() {
+        vanishing = mock(ClassifiedState.class);
+        first = mock(ClassifiedState.class);
+        second = mock(ClassifiedState.class);
+        delegate = new CountingExplorer();
+    }
+
+    @Test
+    public void exploresWithUnitRateAndScalesResult() throws Exception {
+        MemoisingVanishingExplorer explorer = new MemoisingVanishingExplorer(delegate);
+        Map<ClassifiedState, Double> rates = rates(explorer.explore(vanishing, 4.0));
+        assertEquals(1.0, rates.get(first), 1e-12);
+        assertEquals(3.0, rates.get(second), 1e-12);
+        assertEquals(Arrays.asList(1.0), delegate.rates);
+    }
+
+    @Test
+    public void reusesCachedResultForLaterVisits() throws Exception {
+        MemoisingVanishingExplorer explorer = new MemoisingVanishingExplorer(delegate);
+        explorer.explore(vanishing, 4.0);
+        Map<ClassifiedState, Double> rates = rates(explorer.explore(vanishing, 2.0));
+        assertEquals(0.5, rates.get(first), 1e-12);
+        assertEquals(1.5, rates.get(second), 1e-12);
+        assertEquals(1, delegate.rates.size());
+        assertEquals(1, explorer.size());
+    }
+
+    @Test
+    public void exploresEachVanishingStateOnce() throws Exception {
+        MemoisingVanishingExplorer explorer = new MemoisingVanishingExplorer(delegate);
+        ClassifiedState other = mock(ClassifiedState.class);
+        explorer.explore(vanishing, 1.0);
+        explorer.explore(other, 1.0);
+        explorer.explore(vanishing, 1.0);
+        explorer.explore(other, 1.0);
+        assertEquals(2, delegate.rates.size());
+        assertEquals(2, explorer.size());
+    }
+
+    @Test
+    public void staysWithinCapacity() throws Exception {
+        MemoisingVanishingExplorer explorer = new MemoisingVanishingExplorer(delegate, 16);
+        for (int i = 0; i < 1000; i++) {
+            explorer.explore(mock(ClassifiedState.class), 1.0);
+        }
+        assertTrue(explorer.size() <= 16);
+    }
+
+    @Test
+    public void doesNotCacheFailedExploration() throws Exception {
+        delegate.fail = true;
+        MemoisingVanishingExplorer explorer = new MemoisingVanishingExplorer(delegate);
+        try {
+            explorer.explore(vanishing, 1.0);
+            fail("Exploration should have failed");
+        } catch (IllegalStateException e) {
+            assertEquals(0, explorer.size());
+        }
+        delegate.fail = false;
+        explorer.explore(vanishing, 1.0);
+        assertEquals(2, delegate.rates.size());
+    }
+
+    private static Map<ClassifiedState, Double> rates(Collection<StateRateRecord> records) {
+        Map<ClassifiedState, Double> rates = new HashMap<>();
+        for (StateRateRecord record : records) {
+            rates.put(record.getState(), record.getRate());
+        }
+        return rates;
+    }
+
+    /**
+     * Reaches first with a quarter of the rate and second with the rest,
+     * recording the rate of every exploration
+     */
+    private final class CountingExplorer implements VanishingExplorer {
+        private final List<Double> rates = new ArrayList<>();
+
+        private boolean fail;
+
+        @Override
+        public Collection<StateRateRecord> explore(ClassifiedState vanishingState, double rate) {
+            rates.add(rate);
+            if (fail) {
+                throw new IllegalStateException("Exploration failed");
+            }
+            return Arrays.asList(new StateRateRecord(first, rate * 0.25), new StateRateRecord(second, rate * 0.75));
+        }
+    }
+}
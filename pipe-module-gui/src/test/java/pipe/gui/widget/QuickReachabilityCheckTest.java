@@ -0,0 +1,120 @@
+package pipe.gui.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class QuickReachabilityCheckTest {
+
+    /**
+     * Explores a net whose single transition adds a token to P0 forever
+     */
+    ExplorerUtilities unbounded;
+
+    ExplorationProgress progress;
+
+    @Before
+    public void setUp() {
+        progress = new ExplorationProgress();
+        unbounded = mock(ExplorerUtilities.class);
+        when(unbounded.getCurrentState()).thenReturn(state(0));
+        when(unbounded.getSuccessorsWithTransitions(any(ClassifiedState.class))).thenAnswer(
+                new Answer<Map<ClassifiedState, Collection<Transition>>>() {
+                    @Override
+                    public Map<ClassifiedState, Collection<Transition>> answer(InvocationOnMock invocation) {
+                        ClassifiedState state = (ClassifiedState) invocation.getArguments()[0];
+                        return Collections.singletonMap(state(tokens(state) + 1),
+                                Collections.<Transition>emptyList());
+                    }
+                });
+    }
+
+    @Test
+    public void stopsAtStatesExceedingBoundOnUnboundedNet() {
+        QuickReachabilityCheck.Result result = check(QuickReachabilityCheck.Mode.HASH_COMPACTION, 3,
+                QuickReachabilityCheck.DEFAULT_MAX_STATES);
+        assertEquals(5, result.getStates());
+        assertEquals(1, result.getBoundViolations());
+        assertEquals(0, result.getDeadlocks());
+        assertFalse(result.isLimitReached());
+    }
+
+    @Test
+    public void bitstateStopsAtStatesExceedingBound() {
+        QuickReachabilityCheck.Result result = check(QuickReachabilityCheck.Mode.BITSTATE, 3,
+                QuickReachabilityCheck.DEFAULT_MAX_STATES);
+        assertEquals(5, result.getStates());
+        assertEquals(1, result.getBoundViolations());
+    }
+
+    @Test
+    public void stopsAtStateLimit() {
+        QuickReachabilityCheck.Result result = check(QuickReachabilityCheck.Mode.HASH_COMPACTION,
+                Integer.MAX_VALUE, 100);
+        assertTrue(result.isLimitReached());
+        assertEquals(100, result.getStates());
+    }
+
+    @Test
+    public void stopsAtTimeLimit() {
+        QuickReachabilityCheck.Result result =
+                new QuickReachabilityCheck(unbounded, QuickReachabilityCheck.Mode.HASH_COMPACTION, 0,
+                        Integer.MAX_VALUE, Long.MAX_VALUE, 0).run(progress);
+        assertTrue(result.isLimitReached());
+    }
+
+    @Test
+    public void countsInitialStateInProgress() {
+        QuickReachabilityCheck.Result result = check(QuickReachabilityCheck.Mode.HASH_COMPACTION, 3,
+                QuickReachabilityCheck.DEFAULT_MAX_STATES);
+        assertEquals(result.getStates(), progress.getStates());
+        assertEquals(0, progress.getQueueDepth());
+    }
+
+    @Test
+    public void findsDeadlock() {
+        when(unbounded.getSuccessorsWithTransitions(any(ClassifiedState.class))).thenReturn(
+                Collections.<ClassifiedState, Collection<Transition>>emptyMap());
+        QuickReachabilityCheck.Result result = check(QuickReachabilityCheck.Mode.HASH_COMPACTION, 3,
+                QuickReachabilityCheck.DEFAULT_MAX_STATES);
+        assertEquals(1, result.getStates());
+        assertEquals(1, result.getDeadlocks());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void stopsWhenCancelled() {
+        progress.cancel();
+        check(QuickReachabilityCheck.Mode.HASH_COMPACTION, 3, QuickReachabilityCheck.DEFAULT_MAX_STATES);
+    }
+
+    private QuickReachabilityCheck.Result check(QuickReachabilityCheck.Mode mode, int bound, long maxStates) {
+        return new QuickReachabilityCheck(unbounded, mode, 1 << 16, bound, maxStates,
+                QuickReachabilityCheck.DEFAULT_MAX_MILLIS).run(progress);
+    }
+
+    private static ClassifiedState state(int tokens) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", "Default", tokens);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    private static int tokens(ClassifiedState state) {
+        return state.getTokens("P0").get("Default");
+    }
+}
@@ -0,0 +1,156 @@
+package pipe.gui.widget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StateSpaceExporterTest {
+
+    StateStore states;
+
+    List<Record> records;
+
+    ExplorationProgress progress;
+
+    Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        states = new StateStore();
+        states.add(0, state(true, "P0", 1));
+        states.add(1, state(false, "P0", 0));
+        Map<Integer, Double> successors = new LinkedHashMap<>();
+        successors.put(1, 2.5);
+        successors.put(0, 1.0);
+        records = Arrays.asList(new Record(0, successors),
+                new Record(1, Collections.singletonMap(0, 3.0)));
+        progress = new ExplorationProgress();
+        directory = Files.createTempDirectory("export");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void writesCsvEdgeList() throws IOException {
+        assertEquals("source,target,rate,source_tangible,target_tangible\n"
+                + "0,1,2.5,true,false\n"
+                + "0,0,1.0,true,true\n"
+                + "1,0,3.0,false,true\n", export(StateSpaceExporter.Format.CSV));
+        assertEquals(3, progress.getTransitions());
+    }
+
+    @Test
+    public void writesDotDigraph() throws IOException {
+        String dot = export(StateSpaceExporter.Format.DOT);
+        assertTrue(dot.startsWith("digraph reachability {\n"));
+        assertTrue(dot.contains("  0 [fillcolor=\"#ff6666\", tangible=true, tooltip=\"{P0: {Default: 1}}\"];\n"));
+        assertTrue(dot.contains("  1 -> 0 [label=\"3.0\", rate=3.0];\n"));
+        assertTrue(dot.endsWith("}\n"));
+    }
+
+    @Test
+    public void escapesDotTooltips() throws IOException {
+        states = new StateStore();
+        states.add(0, state(true, "a\"b\\c\nd\re", 1));
+        states.add(1, state(false, "a\"b\\c\nd\re", 0));
+        String dot = export(StateSpaceExporter.Format.DOT);
+        assertTrue(dot.contains("tooltip=\"{a\\\"b\\\\c\\nd\\re: {Default: 1}}\""));
+    }
+
+    @Test
+    public void escapesGraphMLMarkings() throws IOException {
+        states = new StateStore();
+        states.add(0, state(true, "<a&\"b>", 1));
+        states.add(1, state(false, "<a&\"b>", 0));
+        String graphML = export(StateSpaceExporter.Format.GRAPHML);
+        assertTrue(graphML.contains("<data key=\"marking\">{&lt;a&amp;&quot;b&gt;: {Default: 1}}</data>"));
+        assertTrue(graphML.contains("<edge source=\"s0\" target=\"s1\"><data key=\"rate\">2.5</data></edge>"));
+    }
+
+    @Test
+    public void exportsToFile() throws IOException {
+        Path target = directory.resolve("graph.csv");
+        long transitions = StateSpaceExporter.export(records, states, StateSpaceExporter.Format.CSV, target, progress);
+        assertEquals(3, transitions);
+        assertTrue(new String(Files.readAllBytes(target), StandardCharsets.UTF_8).endsWith("1,0,3.0,false,true\n"));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    public void cancelledExportLeavesExistingFileUntouched() throws IOException {
+        Path target = directory.resolve("graph.csv");
+        Files.write(target, "previous".getBytes(StandardCharsets.UTF_8));
+        progress.cancel();
+        try {
+            StateSpaceExporter.export(records, states, StateSpaceExporter.Format.CSV, target, progress);
+            fail("Export should have been cancelled");
+        } catch (IOException e) {
+            assertEquals("previous", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+            assertEquals(1, countFiles());
+        }
+    }
+
+    @Test
+    public void cancelledExportCreatesNoFile() throws IOException {
+        Path target = directory.resolve("graph.dot");
+        progress.cancel();
+        try {
+            StateSpaceExporter.export(records, states, StateSpaceExporter.Format.DOT, target, progress);
+            fail("Export should have been cancelled");
+        } catch (IOException e) {
+            assertEquals(0, countFiles());
+        }
+    }
+
+    @Test
+    public void matchesFormatByExtension() {
+        assertEquals(StateSpaceExporter.Format.GRAPHML, StateSpaceExporter.Format.forFileName("a.GraphML"));
+        assertEquals(StateSpaceExporter.Format.DOT, StateSpaceExporter.Format.forFileName("a.dot"));
+        assertNull(StateSpaceExporter.Format.forFileName("a.txt"));
+    }
+
+    private String export(StateSpaceExporter.Format format) throws IOException {
+        StringWriter writer = new StringWriter();
+        StateSpaceExporter.export(records, states, format, writer, progress);
+        return writer.toString();
+    }
+
+    private int countFiles() throws IOException {
+        int count = 0;
+        for (Path ignored : Files.newDirectoryStream(directory)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static ClassifiedState state(boolean tangible, String place, int tokens) {
+        ClassifiedState state = mock(ClassifiedState.class);
+        when(state.isTangible()).thenReturn(tangible);
+        when(state.getPlaces()).thenReturn(Collections.singleton(place));
+        when(state.getTokens(place)).thenReturn(Collections.singletonMap("Default", tokens));
+        return state;
+    }
+}
@@ -0,0 +1,20 @@
+package pipe.gui.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StateSpaceLoaderTest {
+
+    @Test
+    public void keepsTransitionCountsThatFitInAnInt() {
+        assertEquals(0, StateSpaceLoader.clamp(0));
+        assertEquals(Integer.MAX_VALUE, StateSpaceLoader.clamp(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void clampsTransitionCountsBeyondAnInt() {
+        assertEquals(Integer.MAX_VALUE, StateSpaceLoader.clamp(Integer.MAX_VALUE + 1L));
+        assertEquals(Integer.MAX_VALUE, StateSpaceLoader.clamp(5_000_000_000L));
+    }
+}
@@ -0,0 +1,166 @@
+package pipe.gui.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StateStoreTest {
+
+    StateStore store;
+
+    @Before
+    public void setUp() {
+        store = new StateStore();
+    }
+
+    @Test
+    public void sortsPlacesAndTokens() {
+        store.add(0, state(true, marking("P1", "Red", 1, "Blue", 2), marking("P0", "Red", 3, "Blue", 4)));
+        assertEquals(Arrays.asList("P0", "P1"), store.getPlaces());
+        assertEquals(Arrays.asList("Blue", "Red"), store.getTokens());
+    }
+
+    @Test
+    public void packsTokenCounts() {
+        store.add(0, state(true, marking("P1", "Red", 1, "Blue", 2), marking("P0", "Red", 3, "Blue", 4)));
+        store.add(1, state(false, marking("P1", "Red", 5, "Blue", 6), marking("P0", "Red", 7, "Blue", 8)));
+        int p0 = store.placeIndex("P0");
+        int p1 = store.placeIndex("P1");
+        int red = store.tokenIndex("Red");
+        int blue = store.tokenIndex("Blue");
+        assertEquals(3, store.getTokenCount(0, p0, red));
+        assertEquals(4, store.getTokenCount(0, p0, blue));
+        assertEquals(1, store.getTokenCount(0, p1, red));
+        assertEquals(2, store.getTokenCount(0, p1, blue));
+        assertEquals(7, store.getTokenCount(1, p0, red));
+        assertEquals(6, store.getTokenCount(1, p1, blue));
+        assertTrue(store.isTangible(0));
+        assertFalse(store.isTangible(1));
+    }
+
+    @Test
+    public void iteratesIdsInOrder() {
+        store.add(5, state(true, marking("P0", "Default", 1)));
+        store.add(2, state(true, marking("P0", "Default", 2)));
+        assertEquals(2, store.size());
+        assertEquals(2, store.firstId());
+        assertEquals(5, store.nextId(2));
+        assertEquals(-1, store.nextId(5));
+        assertFalse(store.contains(3));
+    }
+
+    @Test
+    public void storesStatesAcrossPages() {
+        int id = 3000000;
+        store.add(id, state(true, marking("P0", "Default", 42)));
+        assertEquals(42, store.getTokenCount(id, 0, 0));
+    }
+
+    @Test
+    public void keepsTokenCountsAsFirstPageGrows() {
+        int states = 5000;
+        for (int id = 0; id < states; id++) {
+            store.add(id, state(true, marking("P0", "Default", id)));
+        }
+        store.add(2000000, state(true, marking("P0", "Default", 7)));
+        for (int id = 0; id < states; id++) {
+            assertEquals(id, store.getTokenCount(id, 0, 0));
+        }
+        assertEquals(7, store.getTokenCount(2000000, 0, 0));
+    }
+
+    @Test
+    public void collectsTokensFromEveryPlace() {
+        store.add(0, state(true, marking("P0", "Red", 1), marking("P1", "Blue", 2)));
+        assertEquals(Arrays.asList("Blue", "Red"), store.getTokens());
+        assertEquals(2, store.getTokenCount(0, store.placeIndex("P1"), store.tokenIndex("Blue")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsStateWithDifferentPlaces() {
+        store.add(0, state(true, marking("P0", "Default", 1)));
+        store.add(1, state(true, marking("P1", "Default", 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsStateWithExtraPlace() {
+        store.add(0, state(true, marking("P0", "Default", 1)));
+        store.add(1, state(true, marking("P0", "Default", 1), marking("P1", "Default", 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsStateWithUnknownToken() {
+        store.add(0, state(true, marking("P0", "Default", 1)));
+        store.add(1, state(true, marking("P0", "Red", 1)));
+    }
+
+    @Test
+    public void holdsStatesOfNetWithoutPlaces() {
+        store.add(0, state(true));
+        store.add(1, state(false));
+        assertEquals(2, store.size());
+        assertTrue(store.getPlaces().isEmpty());
+        assertTrue(store.isTangible(0));
+        assertFalse(store.isTangible(1));
+        assertEquals("{}", store.describe(1));
+    }
+
+    @Test
+    public void rebuildsState() {
+        store.add(0, state(true, marking("P0", "Red", 1, "Blue", 2), marking("P1", "Red", 3, "Blue", 4)));
+        store.add(1, state(false, marking("P0", "Red", 5, "Blue", 6), marking("P1", "Red", 7, "Blue", 8)));
+        ClassifiedState state = store.getState(1);
+        assertFalse(state.isTangible());
+        assertEquals(Integer.valueOf(6), state.getTokens("P0").get("Blue"));
+        assertEquals(Integer.valueOf(7), state.getTokens("P1").get("Red"));
+        assertTrue(store.getState(0).isTangible());
+    }
+
+    @Test
+    public void describesMarking() {
+        store.add(0, state(true, marking("P0", "Default", 1), marking("P1", "Default", 0)));
+        assertEquals("{P0: {Default: 1}, P1: {Default: 0}}", store.describe(0));
+    }
+
+    /**
+     * @param tangible true if the state is tangible
+     * @param places   marking of each place, each a map from the place id to its token counts
+     * @return state with the given marking
+     */
+    @SafeVarargs
+    private static ClassifiedState state(boolean tangible, Map<String, Map<String, Integer>>... places) {
+        Map<String, Map<String, Integer>> marking = new HashMap<>();
+        for (Map<String, Map<String, Integer>> place : places) {
+            marking.putAll(place);
+        }
+        ClassifiedState state = mock(ClassifiedState.class);
+        when(state.isTangible()).thenReturn(tangible);
+        when(state.getPlaces()).thenReturn(marking.keySet());
+        for (Map.Entry<String, Map<String, Integer>> entry : marking.entrySet()) {
+            when(state.getTokens(entry.getKey())).thenReturn(entry.getValue());
+        }
+        return state;
+    }
+
+    /**
+     * @param place        place id
+     * @param tokensCounts alternating token ids and counts
+     * @return marking of the place
+     */
+    private static Map<String, Map<String, Integer>> marking(String place, Object... tokensCounts) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < tokensCounts.length; i += 2) {
+            counts.put((String) tokensCounts[i], (Integer) tokensCounts[i + 1]);
+        }
+        return Collections.singletonMap(place, counts);
+    }
+}